@@ -0,0 +1,88 @@
+package org.example.analytics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * aggregate queries over the columnar snapshot. each query scans the primitive arrays
+ * with a parallel stream, so it runs on the common fork-join pool without touching the database.
+ */
+@Service
+@RequiredArgsConstructor
+public class EventAnalytics {
+    private final EventColumnarSnapshot snapshot;
+
+    /**
+     * number of events per venue and ISO week (monday based) for events starting in [from, to)
+     */
+    public List<VenueWeekCount> eventsPerVenuePerWeek(LocalDateTime from, LocalDateTime to) {
+        return eventsPerVenuePerWeek(snapshot.current(), from, to);
+    }
+
+    /**
+     * count and average duration of events starting in [from, to), optionally for one venue
+     */
+    public DurationStats durationStats(LocalDateTime from, LocalDateTime to, Long venueId) {
+        return durationStats(snapshot.current(), from, to, venueId);
+    }
+
+    static List<VenueWeekCount> eventsPerVenuePerWeek(EventColumnarSnapshot.Columns columns, LocalDateTime from, LocalDateTime to) {
+        long fromSecond = EventColumnarSnapshot.epochSecond(from);
+        long toSecond = EventColumnarSnapshot.epochSecond(to);
+
+        // each fork-join worker counts into its own map, the maps are merged pairwise at the end.
+        // values are {count, venue name id}
+        Map<VenueWeek, long[]> counts = IntStream.range(0, columns.size()).parallel()
+                .filter(i -> columns.starts[i] >= fromSecond && columns.starts[i] < toSecond)
+                .collect(HashMap::new,
+                        (map, i) -> map.computeIfAbsent(new VenueWeek(columns.venueIds[i], weekStart(columns.starts[i])),
+                                key -> new long[]{0, columns.venueNameIds[i]})[0]++,
+                        (left, right) -> right.forEach((key, value) -> left.merge(key, value, (a, b) -> {
+                            a[0] += b[0];
+                            return a;
+                        })));
+
+        List<VenueWeekCount> result = new ArrayList<>(counts.size());
+        counts.forEach((key, value) -> result.add(new VenueWeekCount(key.venueId(),
+                columns.name((int) value[1]), LocalDate.ofEpochDay(key.weekStartDay()), value[0])));
+        result.sort(Comparator.comparing(VenueWeekCount::weekStart).thenComparing(VenueWeekCount::venueId));
+        return result;
+    }
+
+    static DurationStats durationStats(EventColumnarSnapshot.Columns columns, LocalDateTime from, LocalDateTime to, Long venueId) {
+        long fromSecond = EventColumnarSnapshot.epochSecond(from);
+        long toSecond = EventColumnarSnapshot.epochSecond(to);
+        LongSummaryStatistics stats = IntStream.range(0, columns.size()).parallel()
+                .filter(i -> columns.starts[i] >= fromSecond && columns.starts[i] < toSecond)
+                .filter(i -> venueId == null || columns.venueIds[i] == venueId)
+                .mapToLong(i -> columns.ends[i] - columns.starts[i])
+                .summaryStatistics();
+        return new DurationStats(stats.getCount(), stats.getCount() == 0 ? 0 : stats.getAverage() / 60.0,
+                stats.getCount() == 0 ? 0 : stats.getMax() / 60);
+    }
+
+    // epoch day of the monday starting the week, 1970-01-01 was a thursday
+    static long weekStart(long epochSecond) {
+        long day = Math.floorDiv(epochSecond, 86_400L);
+        return day - Math.floorMod(day + 3, 7);
+    }
+
+    record VenueWeek(long venueId, long weekStartDay) {
+    }
+
+    public record VenueWeekCount(long venueId, String venueName, LocalDate weekStart, long events) {
+    }
+
+    public record DurationStats(long events, double averageMinutes, long maxMinutes) {
+    }
+}
@@ -0,0 +1,339 @@
+package org.example.analytics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Event;
+import org.example.repository.ArchivedEventRepository;
+import org.example.repository.EventRepository;
+import org.example.repository.EventRow;
+import org.example.service.ChangeType;
+import org.example.service.EventChange;
+import org.example.service.VenueChange;
+import org.example.sharding.ShardRouter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+
+/**
+ * read-only, column oriented copy of all events for analytics.
+ *
+ * every event is one slot in a handful of primitive arrays (id, start, end, venue id, venue name id),
+ * about 36 bytes per event instead of a managed Event + Venue graph. venue names are interned into
+ * a small dictionary so each row only holds an int.
+ *
+ * the first refresh loads everything in id order. after that only events and venues reported as
+ * changed (after commit) are re-read, and a new set of arrays is swapped in, so readers never lock.
+ *
+ * archived events are history too: they are loaded from events_archive alongside events, and
+ * moving an event there is not reported as a change, so the snapshot just keeps it.
+ *
+ * a restored state snapshot seeds the current events instead of the first load, only the archive
+ * is read then.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventColumnarSnapshot {
+    private static final int LOAD_PAGE_SIZE = 10_000;
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    private final EventRepository eventRepository;
+    private final ArchivedEventRepository archivedEventRepository;
+    private final ShardRouter shardRouter;
+
+    private final Set<Long> dirtyEvents = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyVenues = ConcurrentHashMap.newKeySet();
+    private volatile Columns columns;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChange(EventChange change) {
+        dirtyEvents.add(change.eventId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVenueChange(VenueChange change) {
+        // a rename changes the name column, a delete removes the venue's events by cascade
+        if (change.type() != ChangeType.CREATED) {
+            dirtyVenues.add(change.venueId());
+        }
+    }
+
+    /**
+     * the current columns, or an empty set while the first load is still running
+     */
+    public Columns current() {
+        Columns current = columns;
+        return current != null ? current : Columns.EMPTY;
+    }
+
+    /**
+     * takes the current events from a copy read elsewhere, the archived ones are still loaded
+     *
+     * @return false if it was loaded already
+     */
+    public synchronized boolean seed(List<Event> events) {
+        if (columns != null) {
+            return false;
+        }
+        long started = System.nanoTime();
+        Map<Long, EventRow> rows = new TreeMap<>();
+        for (Event event : events) {
+            rows.put(event.getId(), new EventRow(event.getId(), event.getStartTime(), event.getEndTime(),
+                    event.getVenue() != null ? event.getVenue().getId() : null,
+                    event.getVenue() != null ? event.getVenue().getName() : null));
+        }
+        shardRouter.forEachShard(shard -> {
+            Pages archived = new Pages(afterId -> archivedEventRepository.findRowsAfter(afterId, PageRequest.of(0, LOAD_PAGE_SIZE)));
+            while (archived.peek() != null) {
+                EventRow row = archived.next();
+                rows.put(row.id(), row);
+            }
+        });
+        Columns.Builder builder = new Columns.Builder(new ArrayList<>(), new HashMap<>());
+        rows.values().forEach(builder::add);
+        columns = builder.build();
+        log.info("seeded columnar snapshot with {} events in {} ms", columns.size(), (System.nanoTime() - started) / 1_000_000);
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.snapshot.refresh-ms:5000}")
+    public synchronized void refresh() {
+        if (columns == null) {
+            long started = System.nanoTime();
+            columns = loadAll();
+            log.info("loaded columnar snapshot with {} events in {} ms", columns.size(), (System.nanoTime() - started) / 1_000_000);
+            return;
+        }
+        if (dirtyEvents.isEmpty() && dirtyVenues.isEmpty()) {
+            return;
+        }
+        Set<Long> events = drain(dirtyEvents);
+        Set<Long> venues = drain(dirtyVenues);
+        List<EventRow> changed = new ArrayList<>();
+        for (List<Long> chunk : chunks(events)) {
+            changed.addAll(shardRouter.fanOut(shard -> {
+                List<EventRow> rows = new ArrayList<>(eventRepository.findRowsByIds(chunk));
+                rows.addAll(archivedEventRepository.findRowsByIds(chunk));
+                return rows;
+            }));
+        }
+        for (List<Long> chunk : chunks(venues)) {
+            changed.addAll(shardRouter.fanOut(shard -> {
+                List<EventRow> rows = new ArrayList<>(eventRepository.findRowsByVenueIds(chunk));
+                rows.addAll(archivedEventRepository.findRowsByVenueIds(chunk));
+                return rows;
+            }));
+        }
+        columns = columns.patch(events, venues, changed);
+    }
+
+    // shard by shard, each shard's event ids lie above the previous shard's, so id order holds.
+    // within a shard the pages of events and of the archive are merged by id
+    private Columns loadAll() {
+        Columns.Builder builder = new Columns.Builder(new ArrayList<>(), new HashMap<>());
+        shardRouter.forEachShard(shard -> {
+            Pages events = new Pages(afterId -> eventRepository.findRowsAfter(afterId, PageRequest.of(0, LOAD_PAGE_SIZE)));
+            Pages archived = new Pages(afterId -> archivedEventRepository.findRowsAfter(afterId, PageRequest.of(0, LOAD_PAGE_SIZE)));
+            while (events.peek() != null || archived.peek() != null) {
+                boolean fromEvents = archived.peek() == null
+                        || (events.peek() != null && events.peek().id() < archived.peek().id());
+                builder.add(fromEvents ? events.next() : archived.next());
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * rows of one table in id order, read a page at a time
+     */
+    private static final class Pages {
+        private final LongFunction<List<EventRow>> query;
+        private List<EventRow> page = List.of();
+        private int next;
+        private long afterId;
+        private boolean last;
+
+        Pages(LongFunction<List<EventRow>> query) {
+            this.query = query;
+        }
+
+        EventRow peek() {
+            if (next == page.size() && !last) {
+                page = query.apply(afterId);
+                next = 0;
+                last = page.size() < LOAD_PAGE_SIZE;
+            }
+            return next < page.size() ? page.get(next) : null;
+        }
+
+        EventRow next() {
+            EventRow row = peek();
+            next++;
+            afterId = row.id();
+            return row;
+        }
+    }
+
+    private static Set<Long> drain(Set<Long> dirty) {
+        Set<Long> drained = new HashSet<>();
+        for (Long id : dirty) {
+            drained.add(id);
+            dirty.remove(id);
+        }
+        return drained;
+    }
+
+    private static List<List<Long>> chunks(Set<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += ID_CHUNK_SIZE) {
+            chunks.add(all.subList(i, Math.min(all.size(), i + ID_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * one immutable generation of the snapshot. rows are sorted by event id.
+     */
+    public static final class Columns {
+        static final Columns EMPTY = new Builder(new ArrayList<>(), new HashMap<>()).build();
+
+        final long[] ids;
+        final long[] starts;
+        final long[] ends;
+        final long[] venueIds;
+        final int[] venueNameIds;
+        final List<String> names;
+
+        private Columns(long[] ids, long[] starts, long[] ends, long[] venueIds, int[] venueNameIds, List<String> names) {
+            this.ids = ids;
+            this.starts = starts;
+            this.ends = ends;
+            this.venueIds = venueIds;
+            this.venueNameIds = venueNameIds;
+            this.names = names;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public String name(int nameId) {
+            return nameId < 0 ? null : names.get(nameId);
+        }
+
+        /**
+         * copies the rows that did not change, drops the ones whose event or venue changed
+         * and merges in the re-read rows, keeping id order
+         */
+        Columns patch(Set<Long> changedEvents, Set<Long> changedVenues, List<EventRow> rows) {
+            Map<Long, EventRow> replacements = new HashMap<>();
+            for (EventRow row : rows) {
+                replacements.put(row.id(), row);
+            }
+            List<EventRow> sorted = new ArrayList<>(replacements.values());
+            sorted.sort((a, b) -> Long.compare(a.id(), b.id()));
+
+            // the dictionary only grows, a renamed venue just gets a new entry
+            Builder builder = new Builder(new ArrayList<>(names), dictionary(names));
+            int next = 0;
+            for (int i = 0; i < ids.length; i++) {
+                while (next < sorted.size() && sorted.get(next).id() < ids[i]) {
+                    builder.add(sorted.get(next++));
+                }
+                boolean stale = changedEvents.contains(ids[i]) || changedVenues.contains(venueIds[i])
+                        || replacements.containsKey(ids[i]);
+                if (!stale) {
+                    builder.add(ids[i], starts[i], ends[i], venueIds[i], name(venueNameIds[i]));
+                }
+            }
+            while (next < sorted.size()) {
+                builder.add(sorted.get(next++));
+            }
+            return builder.build();
+        }
+
+        private static Map<String, Integer> dictionary(List<String> names) {
+            Map<String, Integer> dictionary = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                dictionary.put(names.get(i), i);
+            }
+            return dictionary;
+        }
+
+        /**
+         * appends rows in id order into growable primitive arrays
+         */
+        static final class Builder {
+            private final List<String> names;
+            private final Map<String, Integer> dictionary;
+            private long[] ids = new long[1024];
+            private long[] starts = new long[1024];
+            private long[] ends = new long[1024];
+            private long[] venueIds = new long[1024];
+            private int[] venueNameIds = new int[1024];
+            private int size;
+
+            Builder(List<String> names, Map<String, Integer> dictionary) {
+                this.names = names;
+                this.dictionary = dictionary;
+            }
+
+            void add(EventRow row) {
+                add(row.id(), epochSecond(row.startTime()), epochSecond(row.endTime()),
+                        row.venueId() != null ? row.venueId() : 0, row.venueName());
+            }
+
+            void add(long id, long start, long end, long venueId, String venueName) {
+                if (size == ids.length) {
+                    int capacity = size * 2;
+                    ids = Arrays.copyOf(ids, capacity);
+                    starts = Arrays.copyOf(starts, capacity);
+                    ends = Arrays.copyOf(ends, capacity);
+                    venueIds = Arrays.copyOf(venueIds, capacity);
+                    venueNameIds = Arrays.copyOf(venueNameIds, capacity);
+                }
+                ids[size] = id;
+                starts[size] = start;
+                ends[size] = end;
+                venueIds[size] = venueId;
+                venueNameIds[size] = intern(venueName);
+                size++;
+            }
+
+            private int intern(String name) {
+                if (name == null) {
+                    return -1;
+                }
+                return dictionary.computeIfAbsent(name, key -> {
+                    names.add(key);
+                    return names.size() - 1;
+                });
+            }
+
+            Columns build() {
+                return new Columns(Arrays.copyOf(ids, size), Arrays.copyOf(starts, size),
+                        Arrays.copyOf(ends, size), Arrays.copyOf(venueIds, size),
+                        Arrays.copyOf(venueNameIds, size), List.copyOf(names));
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.archive;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.repository.ArchivedEventRepository;
+import org.example.sharding.ShardRouter;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * moves events that ended more than archive.after-days ago from events into events_archive,
+ * so the table every write, cache load and time bucket lookup works on only holds what is still
+ * current or recent.
+ *
+ * each shard is emptied in chunks of archive.chunk-size events: one transaction locks the oldest
+ * ids, copies them over with INSERT ... SELECT and deletes them and their time buckets. a chunk is
+ * small enough to not hold locks for long, and a failed run just leaves the rest for the next one.
+ *
+ * reads ask reaches(start) before they look in the archive. everything in it ended before
+ * horizon(), which never moves back, so a range starting after it is answered from events alone.
+ * moving an event is not a change: no outbox entry, no EventChange, the in-memory views keep it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventArchiver implements SmartInitializingSingleton {
+    private static final String LOCK_CHUNK =
+            "SELECT id FROM events WHERE end_time < ? ORDER BY id LIMIT ? FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final ArchivedEventRepository archivedEventRepository;
+    private final Clock clock;
+
+    @Value("${archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${archive.after-days:365}")
+    private int afterDays;
+
+    @Value("${archive.chunk-size:1000}")
+    private int chunkSize;
+
+    // end of the newest archived event at startup, covers events archived with a shorter archive.after-days
+    private volatile LocalDateTime archivedUntil;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<LocalDateTime> latest = shardRouter.fanOut(shard -> {
+            LocalDateTime end = archivedEventRepository.findLatestEndTime();
+            return end != null ? List.of(end) : List.of();
+        });
+        archivedUntil = latest.stream().max(Comparator.naturalOrder()).orElse(null);
+    }
+
+    /**
+     * every archived event ended at or before this
+     */
+    public LocalDateTime horizon() {
+        LocalDateTime cutoff = LocalDateTime.now(clock).minusDays(afterDays);
+        LocalDateTime until = archivedUntil;
+        return until != null && until.isAfter(cutoff) ? until : cutoff;
+    }
+
+    /**
+     * whether events in a range starting at start (or still running at start) can be in the archive
+     */
+    public boolean reaches(LocalDateTime start) {
+        return !start.isAfter(horizon());
+    }
+
+    /**
+     * moves everything older than the cutoff, shard by shard
+     *
+     * @return how many events were moved
+     */
+    @Scheduled(fixedDelayString = "${archive.interval-ms:3600000}", initialDelayString = "${archive.interval-ms:3600000}")
+    public long archive() {
+        if (!enabled) {
+            return 0;
+        }
+        LocalDateTime cutoff = LocalDateTime.now(clock).minusDays(afterDays);
+        AtomicLong moved = new AtomicLong();
+        shardRouter.forEachShard(shard -> {
+            int chunk;
+            do {
+                chunk = transactionTemplate.execute(status -> moveChunk(cutoff));
+                moved.addAndGet(chunk);
+            } while (chunk == chunkSize);
+        });
+        if (moved.get() > 0) {
+            log.info("archived {} events that ended before {}", moved.get(), cutoff);
+        }
+        return moved.get();
+    }
+
+    private int moveChunk(LocalDateTime cutoff) {
+        // locked, so an update of one of these events waits for the move instead of being lost
+        List<Long> ids = jdbcTemplate.queryForList(LOCK_CHUNK, Long.class, Timestamp.valueOf(cutoff), chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.valueOf(LocalDateTime.now(clock)));
+        params.addAll(ids);
+        jdbcTemplate.update("INSERT INTO events_archive (id, name, description, start_time, end_time, venue_id, archived_at) "
+                + "SELECT id, name, description, start_time, end_time, venue_id, ? FROM events WHERE id IN (" + in + ")",
+                params.toArray());
+        jdbcTemplate.update("DELETE FROM event_time_buckets WHERE event_id IN (" + in + ")", ids.toArray());
+        jdbcTemplate.update("DELETE FROM events WHERE id IN (" + in + ")", ids.toArray());
+        return ids.size();
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.booking;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.SeatHold;
+import org.example.repository.SeatHoldRepository;
+import org.example.service.BookingService;
+import org.example.sharding.ShardRouter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * expires seat holds on a TimingWheel instead of scanning seat_holds for old rows.
+ *
+ * a hold is scheduled once its row is committed and cancelled when it is confirmed or released,
+ * both O(1) however many holds are pending. a single thread ticks the wheel every hold.tick-ms and
+ * hands what expired to BookingService, one transaction per event. at startup the holds still in
+ * seat_holds are scheduled again, ones that ran out while the application was down expire on the
+ * first tick.
+ */
+@Slf4j
+@Component
+public class SeatHolds implements SmartInitializingSingleton {
+    private static final int SLOT_BITS = 8;
+    private static final int LEVELS = 4;
+    private static final int RECOVERY_PAGE_SIZE = 10_000;
+    // an expiry that failed in the database is tried again this much later
+    private static final long RETRY_MS = 1000;
+
+    private final SeatHoldRepository holdRepository;
+    private final ShardRouter shardRouter;
+    private final ObjectProvider<BookingService> bookingService;
+    private final Clock clock;
+    private final long tickMs;
+    private final TimingWheel<SeatHold> wheel;
+    // event ids are unique across shards, hold ids only within one
+    private final Map<HoldKey, TimingWheel.Timeout<SeatHold>> timeouts = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread ticker;
+
+    private record HoldKey(Long eventId, Long holdId) {
+    }
+
+    public SeatHolds(SeatHoldRepository holdRepository, ShardRouter shardRouter,
+                     ObjectProvider<BookingService> bookingService, Clock clock,
+                     @Value("${hold.tick-ms:100}") long tickMs) {
+        this.holdRepository = holdRepository;
+        this.shardRouter = shardRouter;
+        this.bookingService = bookingService;
+        this.clock = clock;
+        this.tickMs = tickMs;
+        // 256 slots on 4 levels, at 100 ms ticks that reaches out for years
+        this.wheel = new TimingWheel<>(tickMs, SLOT_BITS, LEVELS, clock.millis());
+    }
+
+    /**
+     * starts the clock on a committed hold
+     */
+    public void schedule(SeatHold hold) {
+        long deadline = hold.getExpiresAt().atZone(clock.getZone()).toInstant().toEpochMilli();
+        timeouts.put(new HoldKey(hold.getEventId(), hold.getId()), wheel.schedule(hold, deadline));
+    }
+
+    /**
+     * stops a hold from expiring. false if it isn't pending, either because it has already
+     * expired (or is expiring right now) or because it was never scheduled
+     */
+    public boolean cancel(Long eventId, Long holdId) {
+        TimingWheel.Timeout<SeatHold> timeout = timeouts.remove(new HoldKey(eventId, holdId));
+        return timeout != null && timeout.cancel();
+    }
+
+    /**
+     * holds waiting to expire
+     */
+    public long pending() {
+        return wheel.size();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        recover();
+        running = true;
+        ticker = new Thread(this::tickLoop, "seat-hold-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (ticker != null) {
+            ticker.join(1000);
+        }
+    }
+
+    private void recover() {
+        AtomicLong recovered = new AtomicLong();
+        shardRouter.forEachShard(shard -> {
+            long afterId = 0;
+            List<SeatHold> page;
+            do {
+                page = holdRepository.findByIdGreaterThanOrderById(afterId, PageRequest.of(0, RECOVERY_PAGE_SIZE));
+                for (SeatHold hold : page) {
+                    schedule(hold);
+                    afterId = hold.getId();
+                }
+                recovered.addAndGet(page.size());
+            } while (page.size() == RECOVERY_PAGE_SIZE);
+        });
+        log.info("recovered {} seat holds", recovered.get());
+    }
+
+    private void tickLoop() {
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(tickMs));
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                log.error("seat hold expiry failed", e);
+            }
+        }
+    }
+
+    /**
+     * expires everything that is due by now
+     */
+    void tick() {
+        List<SeatHold> expired = wheel.advanceTo(clock.millis());
+        if (expired.isEmpty()) {
+            return;
+        }
+        Map<Long, List<SeatHold>> byEvent = new LinkedHashMap<>();
+        for (SeatHold hold : expired) {
+            timeouts.remove(new HoldKey(hold.getEventId(), hold.getId()));
+            byEvent.computeIfAbsent(hold.getEventId(), id -> new ArrayList<>()).add(hold);
+        }
+        for (Map.Entry<Long, List<SeatHold>> event : byEvent.entrySet()) {
+            List<Long> holdIds = event.getValue().stream().map(SeatHold::getId).toList();
+            try {
+                bookingService.getObject().expireHolds(event.getKey(), holdIds);
+            } catch (RuntimeException e) {
+                log.warn("could not expire {} holds of event {}, retrying", holdIds.size(), event.getKey(), e);
+                LocalDateTime retryAt = LocalDateTime.now(clock).plus(RETRY_MS, ChronoUnit.MILLIS);
+                for (SeatHold hold : event.getValue()) {
+                    hold.setExpiresAt(retryAt);
+                    schedule(hold);
+                }
+            }
+        }
+    }
+}
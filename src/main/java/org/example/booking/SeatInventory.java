@@ -0,0 +1,158 @@
+package org.example.booking;
+
+import lombok.RequiredArgsConstructor;
+import org.example.entity.Event;
+import org.example.repository.BookingRepository;
+import org.example.repository.EventRepository;
+import org.example.repository.SeatHoldRepository;
+import org.example.service.ChangeType;
+import org.example.service.EventChange;
+import org.example.service.VenueChange;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * how many seats of each event are taken, counted in memory so a sold-out check is a single CAS.
+ *
+ * an event is loaded the first time someone books it (its venue's capacity, the bookings and the
+ * seat holds it already has), after that every seat goes through tryTake and release. the count is
+ * never reloaded while the event exists: seats taken by transactions that haven't committed yet
+ * aren't in the database. a change to the event or its venue only marks the capacity, which the
+ * next booking re-reads. a deleted event or venue drops the entry.
+ */
+@Component
+@RequiredArgsConstructor
+public class SeatInventory {
+    private final EventRepository eventRepository;
+    private final BookingRepository bookingRepository;
+    private final SeatHoldRepository holdRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, Seats> events = new ConcurrentHashMap<>();
+
+    /**
+     * takes a seat if there is one left. loading an event reads its shard, so this has to run on it
+     */
+    public boolean tryTake(Long eventId) {
+        Seats seats = seats(eventId);
+        int taken;
+        do {
+            taken = seats.taken.get();
+            if (taken >= seats.capacity) {
+                return false;
+            }
+        } while (!seats.taken.compareAndSet(taken, taken + 1));
+        return true;
+    }
+
+    /**
+     * gives back a seat taken with tryTake
+     */
+    public void release(Long eventId) {
+        Seats seats = events.get(eventId);
+        if (seats != null) {
+            // an entry reloaded in between already counts from the database, don't go below zero
+            seats.taken.getAndUpdate(taken -> Math.max(0, taken - 1));
+        }
+    }
+
+    /**
+     * seats left, the event is loaded if it isn't yet
+     */
+    public int available(Long eventId) {
+        Seats seats = seats(eventId);
+        return Math.max(0, seats.capacity - seats.taken.get());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChange(EventChange change) {
+        if (change.type() == ChangeType.DELETED) {
+            events.remove(change.eventId());
+        } else if (change.type() == ChangeType.UPDATED) {
+            Seats seats = events.get(change.eventId());
+            if (seats != null) {
+                // it may have moved to another venue
+                seats.capacityChanged = true;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVenueChange(VenueChange change) {
+        if (change.type() == ChangeType.DELETED) {
+            events.values().removeIf(seats -> seats.venueId == change.venueId());
+        } else {
+            events.values().forEach(seats -> {
+                if (seats.venueId == change.venueId()) {
+                    seats.capacityChanged = true;
+                }
+            });
+        }
+    }
+
+    private Seats seats(Long eventId) {
+        Seats cached = events.get(eventId);
+        if (cached != null) {
+            refreshCapacity(eventId, cached);
+            return cached;
+        }
+        // not computeIfAbsent, the queries should not block other events in the same bin.
+        // they run in a transaction of their own: outside one, the count queries would keep their
+        // connection until the caller is done, while the caller goes on to open its own transaction
+        Seats loaded = transactionTemplate.execute(status -> load(eventId));
+        // two first bookings may load at once, both counted the same rows so either copy is right
+        Seats seats = events.putIfAbsent(eventId, loaded);
+        return seats != null ? seats : loaded;
+    }
+
+    private void refreshCapacity(Long eventId, Seats seats) {
+        if (!seats.capacityChanged) {
+            return;
+        }
+        // cleared first, a change reported while reading marks it again
+        seats.capacityChanged = false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Event event = event(eventId);
+                seats.venueId = event.getVenue().getId();
+                seats.capacity = event.getVenue().getCapacity();
+            });
+        } catch (RuntimeException e) {
+            seats.capacityChanged = true;
+            throw e;
+        }
+    }
+
+    private Seats load(Long eventId) {
+        Event event = event(eventId);
+        return new Seats(event.getVenue().getId(), event.getVenue().getCapacity(),
+                bookingRepository.countByEventId(eventId) + holdRepository.countByEventId(eventId));
+    }
+
+    private Event event(Long eventId) {
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new RuntimeException("event not found with id: " + eventId));
+        if (event.getVenue() == null || event.getVenue().getCapacity() == null) {
+            throw new IllegalArgumentException("event " + eventId + " has no venue capacity to book against");
+        }
+        return event;
+    }
+
+    private static final class Seats {
+        private volatile long venueId;
+        private volatile int capacity;
+        private volatile boolean capacityChanged;
+        private final AtomicInteger taken;
+
+        Seats(long venueId, int capacity, int taken) {
+            this.venueId = venueId;
+            this.capacity = capacity;
+            this.taken = new AtomicInteger(taken);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.booking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * a hierarchical timing wheel: schedules items to expire at a deadline, at a resolution of one tick.
+ *
+ * level 0 has one slot per tick, every level above has slots as wide as a whole turn of the level
+ * below (2^slotBits slots per level). an item goes into the lowest level whose range covers its
+ * deadline, when the lower level comes round to a slot of the upper one, that slot's items are
+ * moved down. scheduling and cancelling are O(1) whatever the number of pending items, expiring
+ * costs O(1) per item plus one move per level it has to come down.
+ *
+ * schedule and cancel can be called from any thread, they only push onto lock-free queues and
+ * flip the item's state. the slots themselves are only touched by advanceTo, which is meant to
+ * be driven by a single ticking thread. deadlines past the top level's range are parked in its
+ * last slot and placed again when it comes round.
+ */
+public class TimingWheel<T> {
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickMs;
+    private final int slotBits;
+    private final int mask;
+    private final int levels;
+    private final Slot<T>[][] slots;
+    private final ConcurrentLinkedQueue<Timeout<T>> scheduled = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout<T>> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMs, int slotBits, int levels, long startMs) {
+        if (tickMs <= 0 || slotBits <= 0 || levels <= 0 || (long) slotBits * levels >= 62) {
+            throw new IllegalArgumentException("invalid timing wheel shape: tick " + tickMs + " ms, "
+                    + slotBits + " slot bits, " + levels + " levels");
+        }
+        this.tickMs = tickMs;
+        this.slotBits = slotBits;
+        this.mask = (1 << slotBits) - 1;
+        this.levels = levels;
+        this.slots = new Slot[levels][1 << slotBits];
+        for (Slot<T>[] level : slots) {
+            for (int i = 0; i < level.length; i++) {
+                level[i] = new Slot<>();
+            }
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    /**
+     * schedules an item to come out of advanceTo once the clock has reached deadlineMs
+     */
+    public Timeout<T> schedule(T item, long deadlineMs) {
+        // rounded up, an item never expires before its deadline
+        Timeout<T> timeout = new Timeout<>(this, item, (deadlineMs + tickMs - 1) / tickMs);
+        pending.incrementAndGet();
+        scheduled.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * items scheduled and neither expired nor cancelled yet
+     */
+    public long size() {
+        return pending.get();
+    }
+
+    /**
+     * moves the wheel forward to nowMs and returns every item whose deadline has passed
+     */
+    public synchronized List<T> advanceTo(long nowMs) {
+        List<T> expired = new ArrayList<>();
+        Timeout<T> timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.slot != null) {
+                timeout.slot.remove(timeout);
+            }
+        }
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state == PENDING) {
+                place(timeout, expired);
+            }
+        }
+        long targetTick = nowMs / tickMs;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // upper levels first, what they move down may land in a lower slot that is due now as well
+            for (int level = levels - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (slotBits * level)) - 1)) == 0) {
+                    Slot<T> slot = slots[level][(int) ((currentTick >>> (slotBits * level)) & mask)];
+                    while ((timeout = slot.poll()) != null) {
+                        place(timeout, expired);
+                    }
+                }
+            }
+            Slot<T> due = slots[0][(int) (currentTick & mask)];
+            while ((timeout = due.poll()) != null) {
+                expire(timeout, expired);
+            }
+        }
+        return expired;
+    }
+
+    private void place(Timeout<T> timeout, List<T> expired) {
+        if (timeout.state != PENDING) {
+            return;
+        }
+        long delay = timeout.deadlineTick - currentTick;
+        if (delay <= 0) {
+            expire(timeout, expired);
+            return;
+        }
+        long slotTick = timeout.deadlineTick;
+        int level = 0;
+        while (level < levels - 1 && delay >= 1L << (slotBits * (level + 1))) {
+            level++;
+        }
+        if (delay >= 1L << (slotBits * levels)) {
+            // beyond the whole wheel: park it in the last slot of the top level's turn, it is placed again from there
+            slotTick = currentTick + (1L << (slotBits * levels)) - 1;
+        }
+        slots[level][(int) ((slotTick >>> (slotBits * level)) & mask)].add(timeout);
+    }
+
+    private void expire(Timeout<T> timeout, List<T> expired) {
+        if (Timeout.STATE.compareAndSet(timeout, PENDING, EXPIRED)) {
+            pending.decrementAndGet();
+            expired.add(timeout.item);
+        }
+    }
+
+    /**
+     * handle of a scheduled item
+     */
+    public static final class Timeout<T> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel<T> wheel;
+        private final T item;
+        private final long deadlineTick;
+        private volatile int state = PENDING;
+        // only touched by the ticking thread
+        private Slot<T> slot;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(TimingWheel<T> wheel, T item, long deadlineTick) {
+            this.wheel = wheel;
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T item() {
+            return item;
+        }
+
+        /**
+         * stops the item from expiring. false if it already has expired or was cancelled before
+         */
+        @SuppressWarnings("unchecked")
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.pending.decrementAndGet();
+            // unlinked on the next tick, the caller doesn't wait for the ticking thread
+            wheel.cancelled.offer(this);
+            return true;
+        }
+    }
+
+    /**
+     * doubly linked list of the timeouts in one slot, so a cancelled one comes out without a search
+     */
+    private static final class Slot<T> {
+        private Timeout<T> head;
+
+        void add(Timeout<T> timeout) {
+            timeout.slot = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null) {
+                head.previous = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.slot = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        Timeout<T> poll() {
+            Timeout<T> first = head;
+            if (first != null) {
+                remove(first);
+            }
+            return first;
+        }
+    }
+}
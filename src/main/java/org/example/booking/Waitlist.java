@@ -0,0 +1,346 @@
+package org.example.booking;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.WaitlistEntry;
+import org.example.repository.BookingRepository;
+import org.example.repository.WaitlistEntryRepository;
+import org.example.resilience.DatabaseCircuitBreaker;
+import org.example.resilience.DatabaseOutage;
+import org.example.service.ChangeType;
+import org.example.service.EventChange;
+import org.example.sharding.ShardContext;
+import org.example.sharding.ShardRouter;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * the line of people waiting for a seat at each sold-out event.
+ *
+ * every event has its own lock-free deque, joining and promoting never wait for each other or for
+ * the database. the length is kept next to it in an atomic counter, a place is reserved there
+ * before the waiter is queued, so waitlist.max-per-event holds however many people join at once.
+ *
+ * the database only gets a copy for restarts: joins and removals go into one queue of pending
+ * writes that a scheduled job flushes in batches (waitlist.flush-ms, waitlist.flush-batch-size).
+ * at startup, before the server takes requests, the lines are rebuilt from that copy.
+ *
+ * a shard write that fails is kept and goes out ahead of everything newer with the next flush, so
+ * the copy never skips a join or a removal. while the database circuit breaker is open nothing is
+ * flushed, an outage is logged once.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class Waitlist implements SmartInitializingSingleton {
+    private static final String INSERT_ENTRY =
+            "INSERT INTO waitlist_entries (id, event_id, attendee, joined_at) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_ENTRY = "DELETE FROM waitlist_entries WHERE id = ?";
+
+    private final WaitlistEntryRepository entryRepository;
+    private final BookingRepository bookingRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final Clock clock;
+    private final DatabaseCircuitBreaker breaker;
+
+    @Value("${waitlist.max-per-event:10000}")
+    private int maxPerEvent;
+
+    @Value("${waitlist.flush-batch-size:1000}")
+    private int flushBatchSize;
+
+    private final Map<Long, Line> lines = new ConcurrentHashMap<>();
+    // inserts and deletes in the order they happened, a waiter's insert is always ahead of its delete
+    private final ConcurrentLinkedQueue<Write> pendingWrites = new ConcurrentLinkedQueue<>();
+    // writes of shards that failed, older than anything in pendingWrites. only flushBatch uses it
+    private final ArrayDeque<Write> retries = new ArrayDeque<>();
+    private boolean outage;
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * one person in line. ids grow in join order across all events
+     */
+    public record Waiter(Long id, Long eventId, String attendee, LocalDateTime joinedAt) {
+    }
+
+    private record Write(Waiter waiter, boolean insert) {
+    }
+
+    private static final class Line {
+        private final ConcurrentLinkedDeque<Waiter> waiters = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    /**
+     * puts someone at the end of the line
+     *
+     * @throws RuntimeException when the line is already waitlist.max-per-event long
+     */
+    public Waiter join(Long eventId, String attendee) {
+        Line line = lines.computeIfAbsent(eventId, id -> new Line());
+        if (line.size.incrementAndGet() > maxPerEvent) {
+            line.size.decrementAndGet();
+            throw new RuntimeException("waitlist for event " + eventId + " is full");
+        }
+        Waiter waiter = new Waiter(lastId.incrementAndGet(), eventId, attendee, LocalDateTime.now(clock));
+        // queued for writing before anyone can see it, so nobody can promote it before its insert is queued
+        pendingWrites.offer(new Write(waiter, true));
+        line.waiters.offerLast(waiter);
+        return waiter;
+    }
+
+    /**
+     * takes the first waiter out of the line, null if nobody is waiting
+     */
+    public Waiter poll(Long eventId) {
+        Line line = lines.get(eventId);
+        if (line == null) {
+            return null;
+        }
+        Waiter waiter = line.waiters.pollFirst();
+        if (waiter != null) {
+            line.size.decrementAndGet();
+        }
+        return waiter;
+    }
+
+    /**
+     * puts a polled waiter back at the front, for promotions that were rolled back
+     */
+    public void requeue(Waiter waiter) {
+        Line line = lines.computeIfAbsent(waiter.eventId(), id -> new Line());
+        line.size.incrementAndGet();
+        line.waiters.offerFirst(waiter);
+    }
+
+    /**
+     * a polled waiter got a seat and has left the line for good
+     */
+    public void promoted(Waiter waiter) {
+        pendingWrites.offer(new Write(waiter, false));
+    }
+
+    /**
+     * takes someone out of the line on their own request, false if they weren't in it
+     */
+    public boolean leave(Long eventId, Long waiterId) {
+        Line line = lines.get(eventId);
+        if (line == null) {
+            return false;
+        }
+        for (Waiter waiter : line.waiters) {
+            // remove only succeeds for one caller, a concurrent poll or leave gets the waiter instead
+            if (waiter.id().equals(waiterId) && line.waiters.remove(waiter)) {
+                line.size.decrementAndGet();
+                pendingWrites.offer(new Write(waiter, false));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * how many are waiting, including joins that are still on their way into the line
+     */
+    public int size(Long eventId) {
+        Line line = lines.get(eventId);
+        return line != null ? line.size.get() : 0;
+    }
+
+    /**
+     * the waiter's place in line right now, 1 is next, 0 if they aren't in it. walks the line
+     */
+    public int position(Long eventId, Long waiterId) {
+        Line line = lines.get(eventId);
+        if (line == null) {
+            return 0;
+        }
+        int position = 0;
+        for (Waiter waiter : line.waiters) {
+            position++;
+            if (waiter.id().equals(waiterId)) {
+                return position;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * the line as it is right now, first in line first
+     */
+    public List<Waiter> waiting(Long eventId) {
+        Line line = lines.get(eventId);
+        return line != null ? new ArrayList<>(line.waiters) : new ArrayList<>();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChange(EventChange change) {
+        if (change.type() != ChangeType.DELETED) {
+            return;
+        }
+        Line line = lines.remove(change.eventId());
+        if (line != null) {
+            for (Waiter waiter : line.waiters) {
+                pendingWrites.offer(new Write(waiter, false));
+            }
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * loads every line from the database, drops entries a crash left behind
+     */
+    void rebuild() {
+        AtomicLong maxId = new AtomicLong();
+        AtomicInteger waiting = new AtomicInteger();
+        shardRouter.forEachShard(shard -> {
+            int closed = entryRepository.deleteClosed();
+            if (closed > 0) {
+                log.info("dropped {} stale waitlist entries on shard {}", closed, shard);
+            }
+            maxId.accumulateAndGet(Math.max(entryRepository.findMaxId(), bookingRepository.findMaxWaitlistEntryId()), Math::max);
+            for (WaitlistEntry entry : entryRepository.findAllInLineOrder()) {
+                Line line = lines.computeIfAbsent(entry.getEventId(), id -> new Line());
+                line.waiters.offerLast(new Waiter(entry.getId(), entry.getEventId(), entry.getAttendee(), entry.getJoinedAt()));
+                line.size.incrementAndGet();
+                waiting.incrementAndGet();
+            }
+        });
+        lastId.set(maxId.get());
+        log.info("rebuilt waitlists, {} waiting for {} events", waiting.get(), lines.size());
+    }
+
+    /**
+     * writes everything that changed since the last run
+     */
+    @Scheduled(fixedDelayString = "${waitlist.flush-ms:200}")
+    public void flush() {
+        if (breaker.isOpen()) {
+            return;
+        }
+        // a full batch means there's a backlog, keep going. a failed one waits for the next run
+        int taken;
+        do {
+            taken = flushBatch();
+        } while (taken == flushBatchSize);
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * writes up to flush-batch-size pending changes, failed ones first, one transaction per shard.
+     * returns how many were taken, -1 if a shard failed
+     */
+    synchronized int flushBatch() {
+        Map<Long, Waiter> inserts = new LinkedHashMap<>();
+        List<Waiter> deletes = new ArrayList<>();
+        int taken = 0;
+        Write write;
+        while (taken < flushBatchSize && (write = next()) != null) {
+            taken++;
+            if (write.insert()) {
+                inserts.put(write.waiter().id(), write.waiter());
+            } else if (inserts.remove(write.waiter().id()) == null) {
+                // joined and gone within one batch: never written at all
+                deletes.add(write.waiter());
+            }
+        }
+        if (taken == 0) {
+            return 0;
+        }
+
+        Map<Integer, List<Waiter>> insertsByShard = new TreeMap<>();
+        Map<Integer, List<Waiter>> deletesByShard = new TreeMap<>();
+        for (Waiter waiter : inserts.values()) {
+            insertsByShard.computeIfAbsent(shardRouter.shardOfEvent(waiter.eventId()), shard -> new ArrayList<>()).add(waiter);
+        }
+        for (Waiter waiter : deletes) {
+            deletesByShard.computeIfAbsent(shardRouter.shardOfEvent(waiter.eventId()), shard -> new ArrayList<>()).add(waiter);
+        }
+        List<Write> failed = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            List<Waiter> toInsert = insertsByShard.getOrDefault(shard, List.of());
+            List<Waiter> toDelete = deletesByShard.getOrDefault(shard, List.of());
+            if (toInsert.isEmpty() && toDelete.isEmpty()) {
+                continue;
+            }
+            try {
+                ShardContext.callOn(shard, () -> transactionTemplate.execute(status -> {
+                    write(toInsert, toDelete);
+                    return null;
+                }));
+                if (outage) {
+                    outage = false;
+                    log.info("waitlist changes reached the database again");
+                }
+            } catch (DataAccessException | TransactionException e) {
+                if (!DatabaseOutage.is(e)) {
+                    log.error("could not write {} waitlist joins and {} removals to shard {}", toInsert.size(), toDelete.size(), shard, e);
+                } else if (!outage) {
+                    outage = true;
+                    log.warn("can't reach the database, waitlist changes are kept until it is back: {}", e.getMessage());
+                }
+                // the deletes are of waiters whose insert isn't among these, so inserts first keeps the order
+                toInsert.forEach(waiter -> failed.add(new Write(waiter, true)));
+                toDelete.forEach(waiter -> failed.add(new Write(waiter, false)));
+            }
+        }
+        // ahead of the retries not taken this time, those are newer
+        for (int i = failed.size() - 1; i >= 0; i--) {
+            retries.addFirst(failed.get(i));
+        }
+        return failed.isEmpty() ? taken : -1;
+    }
+
+    private Write next() {
+        Write retry = retries.pollFirst();
+        return retry != null ? retry : pendingWrites.poll();
+    }
+
+    private void write(List<Waiter> toInsert, List<Waiter> toDelete) {
+        if (!toInsert.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ENTRY, toInsert, toInsert.size(), (statement, waiter) -> {
+                statement.setLong(1, waiter.id());
+                statement.setLong(2, waiter.eventId());
+                statement.setString(3, waiter.attendee());
+                statement.setTimestamp(4, Timestamp.valueOf(waiter.joinedAt()));
+            });
+        }
+        if (!toDelete.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_ENTRY, toDelete, toDelete.size(),
+                    (statement, waiter) -> statement.setLong(1, waiter.id()));
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.example.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Event;
+import org.example.repository.EventRepository;
+import org.example.service.ChangeType;
+import org.example.service.EventChange;
+import org.example.service.VenueChange;
+import org.example.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * events starting within the next few days, ordered by start time, held in memory so
+ * "what's next" never goes to the database.
+ *
+ * - every second events whose start time has passed are dropped from the head
+ * - events reported as changed (after commit) are re-read on the next tick
+ * - the whole window is reloaded on a slower schedule, which also pulls in events
+ *   that moved into the window as time went by
+ * - a restored state snapshot seeds it instead of the first reload (see StateSnapshots)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UpcomingEventsCache {
+    private final EventRepository eventRepository;
+    private final Clock clock;
+    private final ShardRouter shardRouter;
+
+    @Value("${upcoming.window-days:7}")
+    private int windowDays;
+
+    private final ConcurrentSkipListMap<Key, Event> byStart = new ConcurrentSkipListMap<>();
+    private final Map<Long, Key> keys = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyEvents = ConcurrentHashMap.newKeySet();
+    private volatile boolean reloadRequested;
+    private volatile boolean loaded;
+
+    /**
+     * up to limit events that have not started yet, earliest first
+     */
+    public List<Event> upcoming(int limit) {
+        List<Event> result = new ArrayList<>(Math.min(limit, 256));
+        for (Event event : byStart.tailMap(new Key(LocalDateTime.now(clock), Long.MIN_VALUE)).values()) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(event);
+        }
+        return result;
+    }
+
+    public Event get(Long id) {
+        Key key = keys.get(id);
+        return key != null ? byStart.get(key) : null;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChange(EventChange change) {
+        dirtyEvents.add(change.eventId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVenueChange(VenueChange change) {
+        // cached events carry their venue, a renamed or deleted venue means reloading the window
+        if (change.type() != ChangeType.CREATED) {
+            reloadRequested = true;
+        }
+    }
+
+    /**
+     * drops started events and applies pending changes, runs every second
+     */
+    @Scheduled(fixedDelayString = "${upcoming.tick-ms:1000}")
+    public synchronized void tick() {
+        if (!loaded || reloadRequested) {
+            reload();
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        Map.Entry<Key, Event> first;
+        while ((first = byStart.firstEntry()) != null && first.getKey().start().isBefore(now)) {
+            remove(first.getValue().getId());
+        }
+        if (!dirtyEvents.isEmpty()) {
+            Set<Long> changed = new HashSet<>();
+            for (Long id : dirtyEvents) {
+                changed.add(id);
+                dirtyEvents.remove(id);
+            }
+            for (Event event : shardRouter.fanOut(shard -> eventRepository.findAllById(changed))) {
+                put(event, now);
+                changed.remove(event.getId());
+            }
+            // the rest no longer exist
+            changed.forEach(this::remove);
+        }
+    }
+
+    /**
+     * takes the window from events read elsewhere instead of loading it, later changes come in as usual
+     *
+     * @return false if it was loaded already
+     */
+    public synchronized boolean seed(List<Event> events) {
+        if (loaded) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        events.forEach(event -> put(event, now));
+        loaded = true;
+        log.info("seeded {} upcoming events", keys.size());
+        return true;
+    }
+
+    /**
+     * reloads the whole window from the database
+     */
+    @Scheduled(fixedDelayString = "${upcoming.reload-ms:60000}", initialDelayString = "${upcoming.reload-ms:60000}")
+    public synchronized void reload() {
+        reloadRequested = false;
+        dirtyEvents.clear();
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<Event> events = shardRouter.fanOut(shard -> eventRepository.findByStartTimeBetween(now, now.plusDays(windowDays)));
+        Set<Long> fresh = new HashSet<>();
+        for (Event event : events) {
+            fresh.add(event.getId());
+            put(event, now);
+        }
+        // whatever was not returned any more was deleted or moved out of the window
+        for (Long id : new ArrayList<>(keys.keySet())) {
+            if (!fresh.contains(id)) {
+                remove(id);
+            }
+        }
+        if (!loaded) {
+            log.info("loaded {} upcoming events", events.size());
+        }
+        loaded = true;
+    }
+
+    // inserts or replaces an event, readers never see it missing in between
+    private void put(Event event, LocalDateTime now) {
+        LocalDateTime start = event.getStartTime();
+        if (start.isBefore(now) || !start.isBefore(now.plusDays(windowDays))) {
+            remove(event.getId());
+            return;
+        }
+        Key key = new Key(start, event.getId());
+        byStart.put(key, event);
+        Key previous = keys.put(event.getId(), key);
+        if (previous != null && !previous.equals(key)) {
+            byStart.remove(previous);
+        }
+    }
+
+    private void remove(Long id) {
+        Key key = keys.remove(id);
+        if (key != null) {
+            byStart.remove(key);
+        }
+    }
+
+    record Key(LocalDateTime start, long id) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int byTime = start.compareTo(other.start);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.example.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Venue;
+import org.example.repository.VenueRepository;
+import org.example.service.VenueChange;
+import org.example.sharding.ShardRouter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * all venues sorted by capacity, held in memory for capacity range and "largest venues" queries.
+ *
+ * the index is a pair of arrays (capacities and venues, ordered by capacity then id) that is
+ * replaced as a whole on every change, readers binary search whatever snapshot they picked up
+ * and never lock. a map by id built with the arrays answers lookups of single venues.
+ *
+ * venues reported as changed (after commit) are re-read before the next query is answered, so a
+ * search right after a committed write already sees it. the scheduled refresh applies changes
+ * nobody has asked about yet. a restored state snapshot seeds it instead of the first load.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VenueCapacityIndex {
+    private static final Comparator<Venue> BY_CAPACITY = Comparator.comparing(Venue::getCapacity).thenComparing(Venue::getId);
+
+    private final VenueRepository venueRepository;
+    private final ShardRouter shardRouter;
+
+    private final Set<Long> dirtyVenues = ConcurrentHashMap.newKeySet();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        return current().venues.length;
+    }
+
+    /**
+     * the indexed copy of a venue, null if it isn't indexed (no capacity, or not loaded yet)
+     */
+    public Venue get(Long id) {
+        return current().byId.get(id);
+    }
+
+    /**
+     * venues with min <= capacity <= max, smallest first
+     */
+    public List<Venue> between(int min, int max) {
+        Snapshot current = current();
+        if (min > max) {
+            return new ArrayList<>();
+        }
+        int from = firstAtLeast(current.capacities, min);
+        int to = max == Integer.MAX_VALUE ? current.capacities.length : firstAtLeast(current.capacities, max + 1);
+        return new ArrayList<>(Arrays.asList(current.venues).subList(from, to));
+    }
+
+    /**
+     * the limit venues with the most seats, largest first
+     */
+    public List<Venue> largest(int limit) {
+        Venue[] venues = current().venues;
+        List<Venue> result = new ArrayList<>(Math.min(limit, venues.length));
+        for (int i = venues.length - 1; i >= 0 && result.size() < limit; i--) {
+            result.add(venues[i]);
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVenueChange(VenueChange change) {
+        dirtyVenues.add(change.venueId());
+    }
+
+    /**
+     * loads all venues on the first run, afterwards applies changes nobody has queried for yet
+     */
+    @Scheduled(fixedDelayString = "${capacity.refresh-ms:1000}")
+    public void refresh() {
+        if (!loaded) {
+            load();
+            return;
+        }
+        applyChanges();
+    }
+
+    /**
+     * takes the venues from a copy read elsewhere instead of loading them
+     *
+     * @return false if it was loaded already
+     */
+    public synchronized boolean seed(List<Venue> venues) {
+        if (loaded) {
+            return false;
+        }
+        snapshot = merge(Snapshot.EMPTY, Set.of(), venues);
+        loaded = true;
+        log.info("seeded {} venues by capacity", snapshot.venues.length);
+        return true;
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        dirtyVenues.clear();
+        List<Venue> venues = shardRouter.fanOut(shard -> venueRepository.findAll());
+        snapshot = merge(Snapshot.EMPTY, Set.of(), venues);
+        loaded = true;
+        log.info("indexed {} venues by capacity", snapshot.venues.length);
+    }
+
+    private Snapshot current() {
+        if (!dirtyVenues.isEmpty()) {
+            applyChanges();
+        }
+        return snapshot;
+    }
+
+    private synchronized void applyChanges() {
+        if (dirtyVenues.isEmpty()) {
+            return;
+        }
+        Set<Long> changed = new HashSet<>();
+        for (Long id : dirtyVenues) {
+            changed.add(id);
+            dirtyVenues.remove(id);
+        }
+        // deleted venues are simply not found again
+        snapshot = merge(snapshot, changed, shardRouter.fanOut(shard -> venueRepository.findAllById(changed)));
+    }
+
+    /**
+     * the old snapshot without the changed ids, merged with their current versions, in one pass
+     */
+    static Snapshot merge(Snapshot old, Collection<Long> changed, List<Venue> updated) {
+        List<Venue> added = new ArrayList<>(updated.size());
+        for (Venue venue : updated) {
+            if (venue.getCapacity() != null) {
+                added.add(venue);
+            }
+        }
+        added.sort(BY_CAPACITY);
+
+        int size = 0;
+        Venue[] venues = new Venue[old.venues.length + added.size()];
+        int i = 0;
+        int j = 0;
+        while (i < old.venues.length || j < added.size()) {
+            if (i < old.venues.length && changed.contains(old.venues[i].getId())) {
+                i++;
+            } else if (j == added.size() || (i < old.venues.length && BY_CAPACITY.compare(old.venues[i], added.get(j)) <= 0)) {
+                venues[size++] = old.venues[i++];
+            } else {
+                venues[size++] = added.get(j++);
+            }
+        }
+        venues = Arrays.copyOf(venues, size);
+        int[] capacities = new int[size];
+        Map<Long, Venue> byId = new HashMap<>(size * 2);
+        for (int k = 0; k < size; k++) {
+            capacities[k] = venues[k].getCapacity();
+            byId.put(venues[k].getId(), venues[k]);
+        }
+        return new Snapshot(capacities, venues, byId);
+    }
+
+    // lower bound binary search
+    private static int firstAtLeast(int[] capacities, int capacity) {
+        int low = 0;
+        int high = capacities.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (capacities[mid] < capacity) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    record Snapshot(int[] capacities, Venue[] venues, Map<Long, Venue> byId) {
+        static final Snapshot EMPTY = new Snapshot(new int[0], new Venue[0], Map.of());
+    }
+}
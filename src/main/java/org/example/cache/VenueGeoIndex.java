@@ -0,0 +1,297 @@
+package org.example.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Venue;
+import org.example.repository.VenueRepository;
+import org.example.service.VenueChange;
+import org.example.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * in-memory uniform grid over venue coordinates for "venues near me" searches.
+ *
+ * the world is cut into square cells of geo.cell-degrees (0.1 degree, roughly 11 km, by default).
+ * a radius query only looks at the cells overlapping the circle's bounding box, a k-nearest query
+ * scans rings of cells around the query point until no unscanned cell can hold anything closer
+ * than the k-th match. cells are immutable arrays replaced on write, so readers never lock.
+ *
+ * longitude does not wrap around at +-180, venues across the antimeridian are not found together.
+ * a restored state snapshot seeds it instead of the first load.
+ */
+@Slf4j
+@Component
+public class VenueGeoIndex {
+    static final double EARTH_RADIUS_KM = 6371.0088;
+    static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private final VenueRepository venueRepository;
+    private final ShardRouter shardRouter;
+    private final double cellDegrees;
+    private final int columns;
+    private final int rows;
+
+    private final Map<Long, Entry[]> cells = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> byVenue = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyVenues = ConcurrentHashMap.newKeySet();
+    // bounding box of occupied cells, stops k-nearest ring expansion over empty parts of the world
+    private volatile int minRow = Integer.MAX_VALUE;
+    private volatile int maxRow = Integer.MIN_VALUE;
+    private volatile int minColumn = Integer.MAX_VALUE;
+    private volatile int maxColumn = Integer.MIN_VALUE;
+    private volatile boolean loaded;
+
+    public VenueGeoIndex(VenueRepository venueRepository, ShardRouter shardRouter, @Value("${geo.cell-degrees:0.1}") double cellDegrees) {
+        this.venueRepository = venueRepository;
+        this.shardRouter = shardRouter;
+        this.cellDegrees = cellDegrees;
+        this.columns = (int) Math.ceil(360 / cellDegrees) + 1;
+        this.rows = (int) Math.ceil(180 / cellDegrees) + 1;
+    }
+
+    public record NearbyVenue(Venue venue, double distanceKm) {
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        return byVenue.size();
+    }
+
+    /**
+     * venues within radiusKm of the point with at least minCapacity seats, closest first
+     */
+    public List<NearbyVenue> withinRadius(double latitude, double longitude, double radiusKm, int minCapacity, int limit) {
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double lonSpan = radiusKm / (KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(Math.min(89.9, Math.abs(latitude) + latSpan)))));
+        int fromRow = row(Math.max(-90, latitude - latSpan));
+        int toRow = row(Math.min(90, latitude + latSpan));
+        int fromColumn = column(Math.max(-180, longitude - lonSpan));
+        int toColumn = column(Math.min(180, longitude + lonSpan));
+
+        List<NearbyVenue> result = new ArrayList<>();
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int c = fromColumn; c <= toColumn; c++) {
+                Entry[] cell = cells.get(key(r, c));
+                if (cell == null) {
+                    continue;
+                }
+                for (Entry entry : cell) {
+                    if (entry.capacity >= minCapacity) {
+                        double distance = distanceKm(latitude, longitude, entry.latitude, entry.longitude);
+                        if (distance <= radiusKm) {
+                            result.add(new NearbyVenue(entry.venue, distance));
+                        }
+                    }
+                }
+            }
+        }
+        result.sort(Comparator.comparingDouble(NearbyVenue::distanceKm));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * the k closest venues with at least minCapacity seats, closest first
+     */
+    public List<NearbyVenue> nearest(double latitude, double longitude, int k, int minCapacity) {
+        if (k <= 0 || byVenue.isEmpty()) {
+            return List.of();
+        }
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+        int maxRing = Math.max(Math.max(centerRow - minRow, maxRow - centerRow),
+                Math.max(centerColumn - minColumn, maxColumn - centerColumn));
+
+        // max-heap on distance holding the best k so far
+        PriorityQueue<NearbyVenue> best = new PriorityQueue<>(k, Comparator.comparingDouble(NearbyVenue::distanceKm).reversed());
+        for (int ring = 0; ring <= maxRing; ring++) {
+            scanRing(centerRow, centerColumn, ring, latitude, longitude, minCapacity, k, best);
+            // everything outside rings 0..ring is at least ring cells away in latitude or longitude
+            if (best.size() == k && best.peek().distanceKm() <= ringLowerBoundKm(latitude, ring)) {
+                break;
+            }
+        }
+        List<NearbyVenue> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(NearbyVenue::distanceKm));
+        return result;
+    }
+
+    /**
+     * brute force version of the queries above for a plain list of venues, used before the first load
+     */
+    public static List<NearbyVenue> rank(List<Venue> venues, double latitude, double longitude,
+                                         Double radiusKm, int minCapacity, int limit) {
+        List<NearbyVenue> result = new ArrayList<>();
+        for (Venue venue : venues) {
+            if (venue.getLatitude() == null || venue.getLongitude() == null
+                    || (venue.getCapacity() != null ? venue.getCapacity() : 0) < minCapacity) {
+                continue;
+            }
+            double distance = distanceKm(latitude, longitude, venue.getLatitude(), venue.getLongitude());
+            if (radiusKm == null || distance <= radiusKm) {
+                result.add(new NearbyVenue(venue, distance));
+            }
+        }
+        result.sort(Comparator.comparingDouble(NearbyVenue::distanceKm));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    private void scanRing(int centerRow, int centerColumn, int ring, double latitude, double longitude,
+                          int minCapacity, int k, PriorityQueue<NearbyVenue> best) {
+        for (int r = centerRow - ring; r <= centerRow + ring; r++) {
+            if (r < 0 || r >= rows) {
+                continue;
+            }
+            boolean edgeRow = r == centerRow - ring || r == centerRow + ring;
+            // on the top and bottom rows of the ring walk every column, otherwise only the two sides
+            int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+            for (int c = centerColumn - ring; c <= centerColumn + ring; c += step) {
+                if (c < 0 || c >= columns) {
+                    continue;
+                }
+                Entry[] cell = cells.get(key(r, c));
+                if (cell == null) {
+                    continue;
+                }
+                for (Entry entry : cell) {
+                    if (entry.capacity < minCapacity) {
+                        continue;
+                    }
+                    double distance = distanceKm(latitude, longitude, entry.latitude, entry.longitude);
+                    if (best.size() < k) {
+                        best.add(new NearbyVenue(entry.venue, distance));
+                    } else if (distance < best.peek().distanceKm()) {
+                        best.poll();
+                        best.add(new NearbyVenue(entry.venue, distance));
+                    }
+                }
+            }
+        }
+    }
+
+    // conservative, longitude degrees shrink towards the poles
+    private double ringLowerBoundKm(double latitude, int ring) {
+        double band = Math.min(89.9, Math.abs(latitude) + (ring + 1) * cellDegrees);
+        return ring * cellDegrees * KM_PER_DEGREE * Math.cos(Math.toRadians(band));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVenueChange(VenueChange change) {
+        dirtyVenues.add(change.venueId());
+    }
+
+    /**
+     * loads all venues on the first run, afterwards re-reads venues changed since the last tick
+     */
+    @Scheduled(fixedDelayString = "${geo.refresh-ms:1000}")
+    public synchronized void refresh() {
+        if (!loaded) {
+            shardRouter.fanOut(shard -> venueRepository.findAll()).forEach(this::put);
+            loaded = true;
+            log.info("indexed {} venues with a location", byVenue.size());
+            return;
+        }
+        if (dirtyVenues.isEmpty()) {
+            return;
+        }
+        Set<Long> changed = new HashSet<>();
+        for (Long id : dirtyVenues) {
+            changed.add(id);
+            dirtyVenues.remove(id);
+        }
+        for (Venue venue : shardRouter.fanOut(shard -> venueRepository.findAllById(changed))) {
+            put(venue);
+            changed.remove(venue.getId());
+        }
+        changed.forEach(this::remove);
+    }
+
+    /**
+     * takes the venues from a copy read elsewhere instead of loading them
+     *
+     * @return false if it was loaded already
+     */
+    public synchronized boolean seed(List<Venue> venues) {
+        if (loaded) {
+            return false;
+        }
+        venues.forEach(this::put);
+        loaded = true;
+        log.info("seeded {} venues with a location", byVenue.size());
+        return true;
+    }
+
+    synchronized void put(Venue venue) {
+        remove(venue.getId());
+        if (venue.getLatitude() == null || venue.getLongitude() == null) {
+            return;
+        }
+        int capacity = venue.getCapacity() != null ? venue.getCapacity() : 0;
+        Entry entry = new Entry(venue.getLatitude(), venue.getLongitude(), capacity, venue);
+        int r = row(entry.latitude);
+        int c = column(entry.longitude);
+        cells.merge(key(r, c), new Entry[]{entry}, VenueGeoIndex::concat);
+        byVenue.put(venue.getId(), entry);
+        minRow = Math.min(minRow, r);
+        maxRow = Math.max(maxRow, r);
+        minColumn = Math.min(minColumn, c);
+        maxColumn = Math.max(maxColumn, c);
+    }
+
+    synchronized void remove(Long venueId) {
+        Entry entry = byVenue.remove(venueId);
+        if (entry == null) {
+            return;
+        }
+        cells.computeIfPresent(key(row(entry.latitude), column(entry.longitude)), (key, cell) -> {
+            Entry[] remaining = Arrays.stream(cell).filter(e -> e != entry).toArray(Entry[]::new);
+            return remaining.length == 0 ? null : remaining;
+        });
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor((latitude + 90) / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor((longitude + 180) / cellDegrees);
+    }
+
+    private long key(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    private static Entry[] concat(Entry[] existing, Entry[] added) {
+        Entry[] merged = Arrays.copyOf(existing, existing.length + added.length);
+        System.arraycopy(added, 0, merged, existing.length, added.length);
+        return merged;
+    }
+
+    /**
+     * great-circle distance with the haversine formula
+     */
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private record Entry(double latitude, double longitude, int capacity, Venue venue) {
+    }
+}
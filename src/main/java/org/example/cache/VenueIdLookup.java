@@ -0,0 +1,48 @@
+package org.example.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.example.repository.VenueRepository;
+import org.example.service.VenueChange;
+import org.example.sharding.ShardContext;
+import org.example.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * remembers which venue ids exist, so bulk ingest checks each venue once instead of once per row.
+ * misses are cached as well (a feed full of one unknown venue should not hit the database every row),
+ * any change to a venue drops its entry. when the map grows past lookup.venue-ids-max it is simply cleared.
+ */
+@Component
+@RequiredArgsConstructor
+public class VenueIdLookup {
+    private final VenueRepository venueRepository;
+    private final ShardRouter shardRouter;
+
+    @Value("${lookup.venue-ids-max:100000}")
+    private int maxEntries;
+
+    private final Map<Long, Boolean> known = new ConcurrentHashMap<>();
+
+    public boolean exists(Long venueId) {
+        Boolean exists = known.get(venueId);
+        if (exists == null) {
+            // not computeIfAbsent, the query should not block other keys in the same bin
+            exists = ShardContext.callOn(shardRouter.shardOfVenue(venueId), () -> venueRepository.existsById(venueId));
+            if (known.size() >= maxEntries) {
+                known.clear();
+            }
+            known.put(venueId, exists);
+        }
+        return exists;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVenueChange(VenueChange change) {
+        known.remove(change.venueId());
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.config;
+
+import org.example.resilience.CircuitBreakerDataSource;
+import org.example.resilience.DatabaseCircuitBreaker;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * puts the DatabaseCircuitBreaker in front of the datasource, see org.example.resilience.
+ * switch it off with breaker.enabled=false
+ */
+@Configuration
+@ConditionalOnProperty(name = "breaker.enabled", havingValue = "true", matchIfMissing = true)
+public class CircuitBreakerConfig {
+
+    // static and lazy about the breaker, post processors are created before ordinary beans
+    @Bean
+    public static BeanPostProcessor circuitBreakerDataSourcePostProcessor(ObjectProvider<DatabaseCircuitBreaker> breaker) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof CircuitBreakerDataSource)) {
+                    return new CircuitBreakerDataSource(dataSource, breaker.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
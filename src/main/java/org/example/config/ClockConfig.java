@@ -0,0 +1,28 @@
+package org.example.config;
+
+import org.example.entity.ChangeTracked;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * the clock used by time-driven components, replaceable in tests
+ */
+@Configuration
+public class ClockConfig {
+
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+
+    /**
+     * stamps updated_at with the same clock, whichever Clock bean ends up in the context
+     */
+    @Bean
+    public SmartInitializingSingleton changeTrackedClock(Clock clock) {
+        return () -> ChangeTracked.useClock(clock);
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.outbox.FileOutboxSink;
+import org.example.outbox.InMemoryOutboxSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * picks the sink the outbox relay publishes to with outbox.sink: file (the default) or memory.
+ * another sink is one more bean here under its own outbox.sink value
+ */
+@Configuration
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "outbox.sink", havingValue = "file", matchIfMissing = true)
+    public FileOutboxSink fileOutboxSink(@Value("${outbox.file:outbox/changes.jsonl}") String file,
+                                         ObjectMapper objectMapper) {
+        return new FileOutboxSink(Path.of(file), objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "outbox.sink", havingValue = "memory")
+    public InMemoryOutboxSink inMemoryOutboxSink() {
+        return new InMemoryOutboxSink();
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.config;
+
+import org.example.protobuf.ProtobufEntityHttpMessageConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * adds application/x-protobuf to the REST API. the converter goes last, so clients that
+ * accept anything (or send no Accept header) still get JSON
+ */
+@Configuration
+public class ProtobufConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new ProtobufEntityHttpMessageConverter());
+    }
+}
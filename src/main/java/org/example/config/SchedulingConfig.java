@@ -0,0 +1,13 @@
+package org.example.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * turns on @Scheduled for the background refresh jobs. kept out of EventApplication
+ * so web slice tests don't start any schedulers.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
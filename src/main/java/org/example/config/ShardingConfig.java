@@ -0,0 +1,62 @@
+package org.example.config;
+
+import org.example.sharding.HibernateMetadataHolder;
+import org.example.sharding.ShardRouter;
+import org.example.sharding.ShardRoutingDataSource;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * venue-keyed sharding. off by default, then there is one shard: the regular spring.datasource.
+ * with sharding.enabled=true every url in sharding.urls becomes a shard, see application-shards.properties
+ */
+@Configuration
+public class ShardingConfig {
+
+    @Bean
+    public ShardRouter shardRouter(@Value("${sharding.enabled:false}") boolean enabled,
+                                   @Value("${sharding.urls:}") List<String> urls,
+                                   @Value("${sharding.virtual-nodes:128}") int virtualNodes,
+                                   @Value("${sharding.fan-out-threads:8}") int fanOutThreads) {
+        if (!enabled) {
+            return ShardRouter.single();
+        }
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("sharding.enabled is set but sharding.urls is empty");
+        }
+        return new ShardRouter(urls.size(), virtualNodes, fanOutThreads);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+    public DataSource dataSource(@Value("${sharding.urls}") List<String> urls,
+                                 @Value("${sharding.username:${spring.datasource.username:}}") String username,
+                                 @Value("${sharding.password:${spring.datasource.password:}}") String password) {
+        List<DataSource> shards = new ArrayList<>();
+        for (String url : urls) {
+            shards.add(DataSourceBuilder.create().url(url.trim()).username(username).password(password).build());
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+    public HibernateMetadataHolder hibernateMetadataHolder() {
+        return new HibernateMetadataHolder();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+    public HibernatePropertiesCustomizer shardSchemaCustomizer(HibernateMetadataHolder metadataHolder) {
+        return properties -> properties.put("hibernate.integrator_provider", (IntegratorProvider) () -> List.of(metadataHolder));
+    }
+}
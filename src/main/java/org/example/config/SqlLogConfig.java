@@ -0,0 +1,34 @@
+package org.example.config;
+
+import org.example.sqllog.SqlLog;
+import org.example.sqllog.SqlLoggingDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * times every statement through SqlLoggingDataSource, replaces spring.jpa.show-sql.
+ * switch it off with sql-log.enabled=false
+ */
+@Configuration
+@ConditionalOnProperty(name = "sql-log.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlLogConfig {
+
+    // static and lazy about SqlLog, post processors are created before ordinary beans
+    @Bean
+    public static BeanPostProcessor sqlLoggingDataSourcePostProcessor(ObjectProvider<SqlLog> sqlLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof SqlLoggingDataSource)) {
+                    return new SqlLoggingDataSource(dataSource, sqlLog.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.config;
+
+import org.example.tracing.EndpointLatencies;
+import org.example.tracing.Phase;
+import org.example.tracing.RequestTracingFilter;
+import org.example.tracing.TracingInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * per-endpoint latency histograms split into controller, service, repository and serialization time.
+ * on by default, tracing.enabled=false removes the filter and the interceptors
+ */
+@Configuration
+@ConditionalOnProperty(name = "tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingConfig {
+
+    @Bean
+    public FilterRegistrationBean<RequestTracingFilter> requestTracingFilter(EndpointLatencies latencies) {
+        FilterRegistrationBean<RequestTracingFilter> registration = new FilterRegistrationBean<>(new RequestTracingFilter(latencies));
+        // first in the chain, so the other filters count as controller time
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public static Advisor serviceTracingAdvisor() {
+        return advisor("within(@org.springframework.stereotype.Service *)", Phase.SERVICE);
+    }
+
+    @Bean
+    public static Advisor repositoryTracingAdvisor() {
+        return advisor("target(org.springframework.data.repository.Repository) "
+                + "|| target(org.springframework.jdbc.core.JdbcOperations)", Phase.REPOSITORY);
+    }
+
+    private static Advisor advisor(String expression, Phase phase) {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression(expression);
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new TracingInterceptor(phase));
+        // outside the transaction interceptor, so begin and commit count as service time,
+        // inside the shard routing aspect (order 0)
+        advisor.setOrder(1);
+        return advisor;
+    }
+}
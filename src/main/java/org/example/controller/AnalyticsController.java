@@ -0,0 +1,43 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.analytics.EventAnalytics;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * read-only aggregate endpoints. answers come from the in-memory columnar snapshot,
+ * which trails the database by at most one refresh interval.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+    private final EventAnalytics eventAnalytics;
+
+    /**
+     * events per venue per week for events starting in the range
+     * URL example: GET /api/analytics/events-per-venue-week?from=2024-01-01T00:00:00&to=2024-04-01T00:00:00
+     */
+    @GetMapping("/events-per-venue-week")
+    public List<EventAnalytics.VenueWeekCount> eventsPerVenuePerWeek(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return eventAnalytics.eventsPerVenuePerWeek(from, to);
+    }
+
+    /**
+     * count and average duration of events starting in the range, optionally for one venue
+     * URL example: GET /api/analytics/duration?from=...&to=...&venueId=3
+     */
+    @GetMapping("/duration")
+    public EventAnalytics.DurationStats duration(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long venueId) {
+        return eventAnalytics.durationStats(from, to, venueId);
+    }
+}
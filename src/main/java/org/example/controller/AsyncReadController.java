@@ -0,0 +1,92 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.service.EventService;
+import org.example.service.VenueService;
+import org.example.stats.EventCounter;
+import org.example.stats.EventCounters;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * the event and venue reads that go to the database, without holding a tomcat thread while they do.
+ *
+ * same services and same answers as EventController and VenueController, under /api/async. each
+ * handler hands its query to AsyncReads and returns a future, spring finishes the response once it
+ * completes. the request thread is free in the meantime, so slow queries no longer use up the
+ * servlet pool, they wait in the read queue instead. writes and the reads served from memory
+ * stay on the regular controllers.
+ */
+@RestController
+@RequestMapping("/api/async")
+@RequiredArgsConstructor
+public class AsyncReadController {
+    private final EventService eventService;
+    private final VenueService venueService;
+    private final AsyncReads asyncReads;
+    private final EventCounters eventCounters;
+
+    /**
+     * URL: GET /api/async/events
+     */
+    @GetMapping("/events")
+    public CompletableFuture<List<Event>> getAllEvents() {
+        return asyncReads.supply(eventService::getAllEvents);
+    }
+
+    /**
+     * URL: GET /api/async/events/1
+     */
+    @GetMapping("/events/{id}")
+    public CompletableFuture<Event> getEventById(@PathVariable Long id) {
+        return asyncReads.supply(() -> {
+            Event event = eventService.getEventById(id);
+            eventCounters.increment(id, EventCounter.VIEWS);
+            return event;
+        });
+    }
+
+    /**
+     * events starting in a time range
+     * URL: GET /api/async/events/search?start=...&end=...
+     */
+    @GetMapping("/events/search")
+    public CompletableFuture<List<Event>> getEventsByTimeRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        return asyncReads.supply(() -> eventService.getEventsByTimeRange(start, end));
+    }
+
+    /**
+     * events active at any point in a time range
+     * URL: GET /api/async/events/active?start=...&end=...
+     */
+    @GetMapping("/events/active")
+    public CompletableFuture<List<Event>> getActiveEvents(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        return asyncReads.supply(() -> eventService.getActiveEvents(start, end));
+    }
+
+    /**
+     * URL: GET /api/async/venues
+     */
+    @GetMapping("/venues")
+    public CompletableFuture<List<Venue>> getAllVenues() {
+        return asyncReads.supply(venueService::getAllVenues);
+    }
+
+    /**
+     * URL: GET /api/async/venues/1
+     */
+    @GetMapping("/venues/{id}")
+    public CompletableFuture<Venue> getVenueById(@PathVariable Long id) {
+        return asyncReads.supply(() -> venueService.getVenueById(id));
+    }
+}
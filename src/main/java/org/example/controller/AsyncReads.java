@@ -0,0 +1,71 @@
+package org.example.controller;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * runs the reads behind AsyncReadController on a pool of its own, so the tomcat thread that took the
+ * request is back in the pool while the query runs.
+ *
+ * async-read.threads should match the connection pool, more threads would only wait for a connection.
+ * reads beyond the threads queue up to async-read.queue-capacity, after that requests are turned away
+ * with 503 right away instead of piling up.
+ */
+@Component
+public class AsyncReads {
+    @Value("${async-read.threads:10}")
+    private int threads;
+
+    @Value("${async-read.queue-capacity:2000}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "async-read-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdown();
+    }
+
+    /**
+     * starts the read and returns without waiting for it
+     *
+     * @throws ResponseStatusException 503 if the queue is full
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> read) {
+        try {
+            return CompletableFuture.supplyAsync(read, executor);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "too many reads in flight, try again later");
+        }
+    }
+
+    /**
+     * reads waiting for a thread
+     */
+    public int queued() {
+        return executor.getQueue().size();
+    }
+}
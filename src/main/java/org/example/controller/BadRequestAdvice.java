@@ -0,0 +1,19 @@
+package org.example.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.util.Map;
+
+/**
+ * requests the services turn down with an IllegalArgumentException (a limit out of range, an
+ * unknown field, too many ids ...) are the client's mistake: a 400 with the reason instead of a 500
+ */
+@ControllerAdvice
+public class BadRequestAdvice {
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage() != null ? e.getMessage() : "bad request"));
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.booking.Waitlist;
+import org.example.entity.Booking;
+import org.example.entity.SeatHold;
+import org.example.service.BookingResult;
+import org.example.service.BookingService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * rest controller for seats at an event, seat holds and the waitlist
+ */
+@RestController
+@RequestMapping("/api/events/{eventId}")
+@RequiredArgsConstructor
+public class BookingController {
+    private final BookingService bookingService;
+
+    /**
+     * body of a booking or hold request
+     */
+    public record BookingRequest(String attendee) {
+    }
+
+    /**
+     * confirmed bookings of an event
+     * URL: GET /api/events/1/bookings
+     */
+    @GetMapping("/bookings")
+    public List<Booking> getBookings(@PathVariable Long eventId) {
+        return bookingService.getBookings(eventId);
+    }
+
+    /**
+     * books a seat, or joins the waitlist when the event is sold out
+     * URL: POST /api/events/1/bookings
+     * body: {"attendee": "..."}
+     * returns: 201 with the booking, or 202 with the waitlist entry and position
+     */
+    @PostMapping("/bookings")
+    public ResponseEntity<BookingResult> book(@PathVariable Long eventId, @RequestBody BookingRequest request) {
+        BookingResult result = bookingService.book(eventId, request.attendee());
+        return ResponseEntity.status(result.status() == BookingResult.Status.BOOKED ? HttpStatus.CREATED : HttpStatus.ACCEPTED)
+                .body(result);
+    }
+
+    /**
+     * cancels a booking, the seat goes to the first one on the waitlist
+     * URL: DELETE /api/events/1/bookings/5
+     * returns: 204 No Content
+     */
+    @DeleteMapping("/bookings/{bookingId}")
+    public ResponseEntity<Void> cancelBooking(@PathVariable Long eventId, @PathVariable Long bookingId) {
+        bookingService.cancelBooking(eventId, bookingId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * holds a seat for a few minutes during checkout
+     * URL: POST /api/events/1/holds
+     * body: {"attendee": "..."}
+     * returns: 201 with the hold and when it expires
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<SeatHold> hold(@PathVariable Long eventId, @RequestBody BookingRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(bookingService.hold(eventId, request.attendee()));
+    }
+
+    /**
+     * confirms a hold into a booking
+     * URL: POST /api/events/1/holds/3/confirm
+     */
+    @PostMapping("/holds/{holdId}/confirm")
+    public Booking confirmHold(@PathVariable Long eventId, @PathVariable Long holdId) {
+        return bookingService.confirmHold(eventId, holdId);
+    }
+
+    /**
+     * gives a held seat back
+     * URL: DELETE /api/events/1/holds/3
+     * returns: 204 No Content
+     */
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<Void> releaseHold(@PathVariable Long eventId, @PathVariable Long holdId) {
+        bookingService.releaseHold(eventId, holdId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * the waitlist, first in line first
+     * URL: GET /api/events/1/waitlist
+     */
+    @GetMapping("/waitlist")
+    public List<Waitlist.Waiter> getWaitlist(@PathVariable Long eventId) {
+        return bookingService.getWaitlist(eventId);
+    }
+
+    /**
+     * leaves the waitlist
+     * URL: DELETE /api/events/1/waitlist/7
+     * returns: 204 No Content
+     */
+    @DeleteMapping("/waitlist/{entryId}")
+    public ResponseEntity<Void> leaveWaitlist(@PathVariable Long eventId, @PathVariable Long entryId) {
+        bookingService.leaveWaitlist(eventId, entryId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -2,12 +2,26 @@ package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.example.entity.Event;
+import org.example.ingest.BatchMode;
+import org.example.ingest.BatchOperation;
+import org.example.ingest.BatchReport;
+import org.example.ingest.EventBatchService;
+import org.example.ingest.EventIngestService;
+import org.example.ingest.EventRowReader;
+import org.example.ingest.IngestReport;
 import org.example.service.EventService;
+import org.example.service.LookupResult;
+import org.example.stats.EventCounter;
+import org.example.stats.EventCounters;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  REST Controller for handling Event-related HTTP requests.
@@ -24,6 +38,9 @@ import java.util.List;
 @RequiredArgsConstructor
 public class EventController {
     private final EventService eventService;
+    private final EventIngestService eventIngestService;
+    private final EventBatchService eventBatchService;
+    private final EventCounters eventCounters;
 
 
     @GetMapping
@@ -31,13 +48,47 @@ public class EventController {
         return eventService.getAllEvents();
     }
 
+    /**
+      handles GET requests for all events with only some of their fields.
+      URL: GET /api/events?fields=id,name,startTime
+      venue fields: venue for all of them, or venue.name, venue.capacity, ...
+      only the requested columns are selected, the venue is only joined when asked for
+     */
+    @GetMapping(params = {"fields", "!ids"})
+    public List<Map<String, Object>> getAllEvents(@RequestParam String fields) {
+        return eventService.getAllEvents(fields);
+    }
+
+    /**
+      handles GET requests for several events at once.
+      URL: GET /api/events?ids=3,1,7
+      return one entry per id in the requested order, {"id": 7, "found": false} for ids that don't exist
+     */
+    @GetMapping(params = "ids")
+    public List<LookupResult<Event>> getEventsByIds(@RequestParam List<Long> ids) {
+        return eventService.getEventsByIds(ids);
+    }
+
     /**
       handles GET requests to fetch a specific event by ID.
       URL: GET /api/events/{id}
      */
     @GetMapping("/{id}")
     public Event getEventById(@PathVariable Long id) {
-        return eventService.getEventById(id);
+        Event event = eventService.getEventById(id);
+        eventCounters.increment(id, EventCounter.VIEWS);
+        return event;
+    }
+
+    /**
+      the same with only some fields.
+      URL: GET /api/events/{id}?fields=name,startTime
+     */
+    @GetMapping(value = "/{id}", params = "fields")
+    public Map<String, Object> getEventById(@PathVariable Long id, @RequestParam String fields) {
+        Map<String, Object> event = eventService.getEventById(id, fields);
+        eventCounters.increment(id, EventCounter.VIEWS);
+        return event;
     }
 
     /**
@@ -88,4 +139,59 @@ public class EventController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
         return eventService.getEventsByTimeRange(start, end);
     }
-}
\ No newline at end of file
+
+    /**
+     handles GET requests for events active at any point in a time range.
+     unlike /search this also returns events that started before the range or end after it.
+     URL: GET /api/events/active?start=...&end=...
+
+     @param start Start time (ISO format)
+     @param end End time (ISO format)
+     return List of events overlapping the range
+     */
+    @GetMapping("/active")
+    public List<Event> getActiveEvents(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        return eventService.getActiveEvents(start, end);
+    }
+
+    /**
+     handles GET requests for the next events that have not started yet.
+     answered from memory, the database is not queried.
+     URL: GET /api/events/upcoming?limit=20
+
+     @param limit maximum number of events (default 20)
+     return upcoming events, earliest first
+     */
+    @GetMapping("/upcoming")
+    public List<Event> getUpcomingEvents(@RequestParam(defaultValue = "20") int limit) {
+        return eventService.getUpcomingEvents(limit);
+    }
+
+    /**
+     handles POST requests with many creates, updates and deletes at once.
+     URL: POST /api/events/batch?mode=ALL_OR_NOTHING (default) or ?mode=BEST_EFFORT
+     body: [{"type": "CREATE", "event": {...}}, {"type": "UPDATE", "id": 5, "event": {...}}, {"type": "DELETE", "id": 7}]
+
+     return one result per operation in the same order, with the id of every created event
+     */
+    @PostMapping("/batch")
+    public BatchReport batch(@RequestParam(defaultValue = "ALL_OR_NOTHING") BatchMode mode,
+                             @RequestBody List<BatchOperation> operations) {
+        return eventBatchService.apply(operations, mode);
+    }
+
+    /**
+     handles POST requests with many events at once, as csv or length-delimited protobuf.
+     the body is read as a stream and never held in memory as a whole.
+     URL: POST /api/events/bulk (Content-Type: text/csv or application/x-protobuf)
+
+     return how many rows were inserted and which ones failed and why
+     */
+    @PostMapping(value = "/bulk", consumes = {"text/csv", "application/x-protobuf"})
+    public IngestReport bulkIngest(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                   InputStream body) throws IOException {
+        return eventIngestService.ingest(EventRowReader.forContentType(contentType, body));
+    }
+}
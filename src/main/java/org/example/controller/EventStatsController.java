@@ -0,0 +1,29 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.stats.EventCounters;
+import org.example.stats.EventCounts;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * live counts per event, see EventCounters
+ */
+@RestController
+@RequestMapping("/api/events/{eventId}/stats")
+@RequiredArgsConstructor
+public class EventStatsController {
+    private final EventCounters eventCounters;
+
+    /**
+     * views, bookings and cancellations of an event, including the ones not flushed yet
+     * URL: GET /api/events/1/stats
+     * returns: {"eventId": 1, "views": 1520, "bookings": 87, "cancellations": 4}
+     */
+    @GetMapping
+    public EventCounts getStats(@PathVariable Long eventId) {
+        return eventCounters.counts(eventId);
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * liveness and readiness probes for the load balancer or kubernetes, from spring boot's availability state.
+ * readiness stays down until startup, including StartupWarmup, is done
+ */
+@RestController
+@RequestMapping("/api/health")
+@RequiredArgsConstructor
+public class HealthController {
+    private final ApplicationAvailability availability;
+
+    /**
+     * URL: GET /api/health/liveness
+     * returns: 200 while the application works, 503 once it is broken
+     */
+    @GetMapping("/liveness")
+    public ResponseEntity<Map<String, String>> liveness() {
+        LivenessState state = availability.getLivenessState();
+        return probe(state == LivenessState.CORRECT, state.name());
+    }
+
+    /**
+     * URL: GET /api/health/readiness
+     * returns: 200 when the instance takes traffic, 503 while it is starting or warming up
+     */
+    @GetMapping("/readiness")
+    public ResponseEntity<Map<String, String>> readiness() {
+        ReadinessState state = availability.getReadinessState();
+        return probe(state == ReadinessState.ACCEPTING_TRAFFIC, state.name());
+    }
+
+    private static ResponseEntity<Map<String, String>> probe(boolean up, String state) {
+        return ResponseEntity.status(up ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("state", state));
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.tracing.EndpointLatencies;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * request latencies per endpoint and phase, see org.example.tracing
+ */
+@RestController
+@RequestMapping("/api/admin/latency")
+@RequiredArgsConstructor
+public class LatencyAdminController {
+    private final EndpointLatencies latencies;
+
+    /**
+     * percentiles (ms) of every endpoint since the last reset, slowest p99 first
+     * URL: GET /api/admin/latency
+     */
+    @GetMapping
+    public List<EndpointLatencies.EndpointReport> latencies() {
+        return latencies.report();
+    }
+
+    /**
+     * starts a new window
+     * URL: POST /api/admin/latency/reset
+     */
+    @PostMapping("/reset")
+    public ResponseEntity<Void> reset() {
+        latencies.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
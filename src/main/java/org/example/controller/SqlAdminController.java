@@ -0,0 +1,27 @@
+package org.example.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.sqllog.SqlLog;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * statement timings collected by SqlLog since startup
+ */
+@RestController
+@RequestMapping("/api/admin/sql")
+@RequiredArgsConstructor
+public class SqlAdminController {
+    private final SqlLog sqlLog;
+
+    /**
+     * the query shapes with the highest mean time, slowest first, plus overall counters
+     * URL example: GET /api/admin/sql/slowest?limit=10
+     */
+    @GetMapping("/slowest")
+    public SqlLog.Report slowest(@RequestParam(defaultValue = "10") int limit) {
+        return sqlLog.report(limit);
+    }
+}
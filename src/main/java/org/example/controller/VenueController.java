@@ -1,12 +1,19 @@
 package org.example.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example.cache.VenueGeoIndex;
 import org.example.entity.Venue;
+import org.example.service.FreeSlot;
+import org.example.service.LookupResult;
 import org.example.service.VenueService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * rest controller for handling venue-related HTTP requests.
@@ -28,6 +35,24 @@ public class VenueController {
         return venueService.getAllVenues();
     }
 
+    /**
+     * gets all venues with only the requested fields, only those columns are read
+     * URL: GET /api/venues?fields=id,name,capacity
+     */
+    @GetMapping(params = {"fields", "!ids"})
+    public List<Map<String, Object>> getAllVenues(@RequestParam String fields) {
+        return venueService.getAllVenues(fields);
+    }
+
+    /**
+     * gets several venues at once, in the requested order, missing ones marked with found=false
+     * URL: GET /api/venues?ids=2,5
+     */
+    @GetMapping(params = "ids")
+    public List<LookupResult<Venue>> getVenuesByIds(@RequestParam List<Long> ids) {
+        return venueService.getVenuesByIds(ids);
+    }
+
     /**
      * gets a specific venue by its ID
      * URL: GET /api/venues/1
@@ -37,6 +62,15 @@ public class VenueController {
         return venueService.getVenueById(id);
     }
 
+    /**
+     * a specific venue with only the requested fields
+     * URL: GET /api/venues/1?fields=name,address
+     */
+    @GetMapping(value = "/{id}", params = "fields")
+    public Map<String, Object> getVenueById(@PathVariable Long id, @RequestParam String fields) {
+        return venueService.getVenueById(id, fields);
+    }
+
     /**
      * creates a new venue
      * URL: POST /api/venues
@@ -76,4 +110,50 @@ public class VenueController {
     public List<Venue> getVenuesByMinCapacity(@RequestParam Integer minCapacity) {
         return venueService.getVenuesByMinCapacity(minCapacity);
     }
-}
\ No newline at end of file
+
+    /**
+     * venues with a capacity in a range, smallest first. min and max are inclusive and both optional
+     * URL example: GET /api/venues/capacity?min=100&max=500
+     */
+    @GetMapping("/capacity")
+    public List<Venue> getVenuesByCapacityRange(@RequestParam(required = false) Integer min,
+                                                @RequestParam(required = false) Integer max) {
+        return venueService.getVenuesByCapacityRange(min, max);
+    }
+
+    /**
+     * the venues with the most seats, largest first
+     * URL example: GET /api/venues/largest?limit=5
+     */
+    @GetMapping("/largest")
+    public List<Venue> getLargestVenues(@RequestParam(defaultValue = "10") int limit) {
+        return venueService.getLargestVenues(limit);
+    }
+
+    /**
+     * finds venues near a point, closest first, each with its distance in km.
+     * without radiusKm the limit nearest venues are returned
+     * URL example: GET /api/venues/nearby?lat=52.52&lon=13.40&radiusKm=5&minCapacity=200
+     */
+    @GetMapping("/nearby")
+    public List<VenueGeoIndex.NearbyVenue> getNearbyVenues(@RequestParam double lat, @RequestParam double lon,
+                                                           @RequestParam(required = false) Double radiusKm,
+                                                           @RequestParam(defaultValue = "10") int limit,
+                                                           @RequestParam(defaultValue = "0") int minCapacity) {
+        return venueService.getNearbyVenues(lat, lon, radiusKm, limit, minCapacity);
+    }
+
+    /**
+     * the earliest free slots of a given length at venues with enough seats, earliest first
+     * URL example: GET /api/venues/free-slots?from=2025-06-02T00:00:00&to=2025-06-09T00:00:00&minutes=180&minCapacity=200&limit=3
+     * the window spans at most 31 days, limit is at most 100
+     */
+    @GetMapping("/free-slots")
+    public List<FreeSlot> findFreeSlots(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                        @RequestParam long minutes,
+                                        @RequestParam(defaultValue = "0") int minCapacity,
+                                        @RequestParam(defaultValue = "3") int limit) {
+        return venueService.findFreeSlots(from, to, Duration.ofMinutes(minutes), minCapacity, limit);
+    }
+}
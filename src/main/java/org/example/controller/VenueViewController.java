@@ -17,7 +17,7 @@ public class VenueViewController {
     @GetMapping
     public String listVenues(Model model){
         // Add venues to the model to display in the view
-        model.addAttribute("venues", venueService.getAllVenues());
+        model.addAttribute("venues", venueService.getAllVenuesWithEvents());
         return "venues/list";  // this will look for templates/venues/list.html
     }
 
@@ -0,0 +1,50 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * an event that ended long enough ago to be moved out of the events table by EventArchiver.
+ * same columns as events, the id is the one it had there, plus when it was moved.
+ * archived events can be read and deleted, not changed.
+ */
+@Entity
+@Table(name = "events_archive", indexes = {
+        @Index(name = "idx_events_archive_start", columnList = "start_time"),
+        @Index(name = "idx_events_archive_end", columnList = "end_time")})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedEvent {
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    private String description;
+
+    @Column(nullable = false)
+    private LocalDateTime startTime;
+
+    @Column(nullable = false)
+    private LocalDateTime endTime;
+
+    @ManyToOne
+    @JoinColumn(name = "venue_id")
+    private Venue venue;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+
+    /**
+     * the event as the api returns it, not attached to any session
+     */
+    public Event toEvent() {
+        return new Event(id, name, description, startTime, endTime, venue);
+    }
+}
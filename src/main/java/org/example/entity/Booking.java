@@ -0,0 +1,37 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * one confirmed seat at an event. bookings live on the shard of their event.
+ */
+@Entity
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_event", columnList = "event_id"),
+        @Index(name = "idx_bookings_waitlist_entry", columnList = "waitlist_entry_id")})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Booking {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+
+    @Column(nullable = false)
+    private String attendee;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    // the waitlist entry this booking was promoted from, null when the seat was free right away
+    @Column(name = "waitlist_entry_id")
+    private Long waitlistEntryId;
+}
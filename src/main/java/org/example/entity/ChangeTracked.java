@@ -0,0 +1,41 @@
+package org.example.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+/**
+ * when a row was last written. a restored state snapshot only re-reads the rows written after
+ * its watermark (see org.example.snapshot). set here for JPA writes, the JDBC writers set the
+ * column themselves. kept out of the JSON and out of the entities' constructors.
+ *
+ * the time comes from the application's Clock like everywhere else, entities aren't beans so
+ * ClockConfig hands it over at startup
+ */
+@MappedSuperclass
+@Getter
+@Setter
+public abstract class ChangeTracked {
+    private static volatile Clock clock = Clock.systemDefaultZone();
+
+    @JsonIgnore
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = LocalDateTime.now(clock);
+    }
+
+    public static void useClock(Clock clock) {
+        ChangeTracked.clock = clock;
+    }
+}
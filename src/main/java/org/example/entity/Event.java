@@ -2,6 +2,7 @@ package org.example.entity;
 import jakarta.persistence.*; //how obj matches to db tables
 import lombok.AllArgsConstructor;
 import lombok.Data;  // Generates getters, setters, equals, hashCode, toString
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 import javax.annotation.processing.Generated;
@@ -9,11 +10,12 @@ import java.time.LocalDateTime;
 
 
 @Entity
-@Table(name="events")
+@Table(name="events", indexes = @Index(name = "idx_events_updated_at", columnList = "updated_at"))
 @Data
+@EqualsAndHashCode(callSuper = false)
 @NoArgsConstructor
 @AllArgsConstructor
-public class Event {
+public class Event extends ChangeTracked {
 
    @Id
    @GeneratedValue(strategy= GenerationType.IDENTITY)
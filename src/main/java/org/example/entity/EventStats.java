@@ -0,0 +1,35 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * how often an event was viewed, booked and cancelled, as far as it was flushed. the live counts
+ * are kept in memory by EventCounters, which adds its increments here in batches
+ */
+@Entity
+@Table(name = "event_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventStats {
+    @Id
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(nullable = false)
+    private long views;
+
+    @Column(nullable = false)
+    private long bookings;
+
+    @Column(nullable = false)
+    private long cancellations;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,31 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * one row per (day, event) the event is active on. an event from monday 22:00 to wednesday 01:00
+ * gets three rows, so "which events overlap this window" becomes an index seek on bucket
+ * instead of a range scan over start_time.
+ */
+@Entity
+@Table(name = "event_time_buckets",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"bucket", "event_id"}),
+        indexes = @Index(name = "idx_event_time_buckets_event", columnList = "event_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventTimeBucket {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // epoch day, see EventTimeBucketIndex.bucketOf
+    @Column(nullable = false)
+    private Long bucket;
+
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+}
@@ -0,0 +1,44 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.outbox.AggregateType;
+import org.example.service.ChangeType;
+
+import java.time.LocalDateTime;
+
+/**
+ * a change to an event or venue that still has to be sent downstream. written by Outbox in the
+ * same transaction as the change itself and deleted by OutboxRelay once the sink has it, so the
+ * table only holds what is in flight. ids grow in commit order on each shard, not across shards.
+ */
+@Entity
+@Table(name = "outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "aggregate_type", nullable = false, length = 16)
+    private AggregateType aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 16)
+    private ChangeType changeType;
+
+    // the row as JSON after the change, null for deletes
+    @Lob
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,35 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * a seat kept for someone during checkout until expiresAt. expiry is driven from memory by
+ * SeatHolds, the row is there so outstanding holds survive a restart.
+ */
+@Entity
+@Table(name = "seat_holds", indexes = @Index(name = "idx_seat_holds_event", columnList = "event_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatHold {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+
+    @Column(nullable = false)
+    private String attendee;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -1,18 +1,21 @@
 package org.example.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
 
 @Entity
-@Table(name = "venues")
+@Table(name = "venues", indexes = @Index(name = "idx_venues_updated_at", columnList = "updated_at"))
 @Data
+@EqualsAndHashCode(callSuper = false)
 @NoArgsConstructor
 @AllArgsConstructor
-public class Venue {
+public class Venue extends ChangeTracked {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -26,6 +29,18 @@ public class Venue {
     @Column(nullable = false)
     private Integer capacity;
 
+    // optional, venues without a location are left out of the nearby search
+    private Double latitude;
+
+    private Double longitude;
+
+    // not part of the JSON, it would recurse through event.venue and can't be loaded
+    // for venues served from the in-memory caches
+    @JsonIgnore
     @OneToMany(mappedBy = "venue", cascade = CascadeType.ALL)
     private List<Event> events;
-}
\ No newline at end of file
+
+    public Venue(Long id, String name, String address, Integer capacity, List<Event> events) {
+        this(id, name, address, capacity, null, null, events);
+    }
+}
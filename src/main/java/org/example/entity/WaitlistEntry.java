@@ -0,0 +1,32 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * someone waiting for a seat at a sold-out event. the line itself is kept in memory by
+ * Waitlist, these rows are only written so it can be rebuilt after a restart. ids are handed
+ * out by Waitlist in join order, so ordering by id is the order of the line.
+ */
+@Entity
+@Table(name = "waitlist_entries", indexes = @Index(name = "idx_waitlist_entries_event", columnList = "event_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistEntry {
+    @Id
+    private Long id;
+
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+
+    @Column(nullable = false)
+    private String attendee;
+
+    @Column(nullable = false)
+    private LocalDateTime joinedAt;
+}
@@ -0,0 +1,8 @@
+package org.example.ingest;
+
+/**
+ * ALL_OR_NOTHING writes the batch only if every operation passes, BEST_EFFORT writes whatever does
+ */
+public enum BatchMode {
+    ALL_OR_NOTHING, BEST_EFFORT
+}
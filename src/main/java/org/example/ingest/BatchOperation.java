@@ -0,0 +1,13 @@
+package org.example.ingest;
+
+import org.example.entity.Event;
+
+/**
+ * one change in a POST /api/events/batch request.
+ * CREATE takes an event, UPDATE an id and the new event, DELETE just an id
+ */
+public record BatchOperation(Type type, Long id, Event event) {
+    public enum Type {
+        CREATE, UPDATE, DELETE
+    }
+}
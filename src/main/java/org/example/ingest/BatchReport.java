@@ -0,0 +1,19 @@
+package org.example.ingest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * what happened to a batch, one result per operation in request order.
+ * NOT_APPLIED operations were fine themselves but rolled back with the rest of an all-or-nothing batch
+ */
+public record BatchReport(BatchMode mode, int applied, int failed, List<Result> results) {
+    public enum Status {
+        APPLIED, FAILED, NOT_APPLIED
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Result(int index, BatchOperation.Type type, Long id, Status status, String error) {
+    }
+}
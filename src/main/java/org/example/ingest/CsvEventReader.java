@@ -0,0 +1,167 @@
+package org.example.ingest;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * reads events from csv, one record at a time.
+ *
+ * columns are name, description, startTime, endTime, venueId. a first line with "name" and "startTime"
+ * in it is taken as a header and may list the columns in any order (start_time style works too).
+ * quoted fields may contain commas, line breaks and "" for a quote. times are ISO local date-times,
+ * a space instead of the T is fine.
+ */
+public class CsvEventReader implements EventRowReader {
+    private static final List<String> DEFAULT_COLUMNS = List.of("name", "description", "starttime", "endtime", "venueid");
+
+    private final Reader in;
+    private List<String> columns;
+    private long row;
+    private int peeked = -2;
+
+    public CsvEventReader(InputStream in, Charset charset) {
+        this.in = new BufferedReader(new InputStreamReader(in, charset != null ? charset : StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public IngestRow next() throws IOException {
+        List<String> fields = nextRecord();
+        if (fields == null) {
+            return null;
+        }
+        if (columns == null) {
+            List<String> names = fields.stream().map(CsvEventReader::normalize).toList();
+            if (names.contains("name") && names.contains("starttime")) {
+                columns = names;
+                fields = nextRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } else {
+                columns = DEFAULT_COLUMNS;
+            }
+        }
+        row++;
+        try {
+            return IngestRow.parsed(row, toEvent(fields));
+        } catch (DateTimeParseException e) {
+            return IngestRow.failed(row, "invalid date-time '" + e.getParsedString() + "'");
+        } catch (NumberFormatException e) {
+            return IngestRow.failed(row, "invalid venueId: " + e.getMessage());
+        }
+    }
+
+    private Event toEvent(List<String> fields) {
+        Event event = new Event();
+        for (int i = 0; i < Math.min(fields.size(), columns.size()); i++) {
+            String value = fields.get(i).trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            switch (columns.get(i)) {
+                case "name" -> event.setName(value);
+                case "description" -> event.setDescription(value);
+                case "starttime" -> event.setStartTime(parseTime(value));
+                case "endtime" -> event.setEndTime(parseTime(value));
+                case "venueid" -> {
+                    Venue venue = new Venue();
+                    venue.setId(Long.parseLong(value));
+                    event.setVenue(venue);
+                }
+                default -> {
+                    // unknown columns are ignored
+                }
+            }
+        }
+        return event;
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        if (value.length() > 10 && value.charAt(10) == ' ') {
+            value = value.substring(0, 10) + 'T' + value.substring(11);
+        }
+        return LocalDateTime.parse(value);
+    }
+
+    private static String normalize(String column) {
+        return column.trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * the fields of the next non-empty record, null at the end of the input.
+     * an unterminated quote just runs to the end of the input.
+     */
+    List<String> nextRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                if (fields.isEmpty() && field.isEmpty()) {
+                    // blank line
+                    any = false;
+                    continue;
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+}
@@ -0,0 +1,346 @@
+package org.example.ingest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Event;
+import org.example.repository.EventRepository;
+import org.example.repository.EventRow;
+import org.example.sharding.ShardContext;
+import org.example.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * applies a list of event creates, updates and deletes sent in one request.
+ *
+ * every operation is checked on its own first, like a bulk import row. then, in one transaction per
+ * shard, the batch is checked against the database as a whole: updated and deleted events have to
+ * exist, and no event may share its venue with another one at the same time, neither with events
+ * already stored nor with the rest of the batch. the venues being written to are locked until commit,
+ * so two batches can't both take the same slot. what passes is written with one JDBC batch per kind
+ * of change.
+ *
+ * ALL_OR_NOTHING writes nothing unless every operation passes, and has to stay on one shard to fit
+ * in a single transaction. BEST_EFFORT writes whatever passes, a batch the database still refuses
+ * is retried one operation at a time, each in its own transaction.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventBatchService {
+    private static final String LOCK_VENUE = "SELECT id FROM venues WHERE id = ? FOR UPDATE";
+
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final EventRepository eventRepository;
+    private final EventWriter eventWriter;
+    private final EventValidator eventValidator;
+    private final ShardRouter shardRouter;
+
+    @Value("${batch.max-operations:1000}")
+    private int maxOperations;
+
+    /**
+     * @throws IllegalArgumentException if the batch is empty or too long, or an all-or-nothing
+     *                                  batch spans several shards
+     */
+    public BatchReport apply(List<BatchOperation> operations, BatchMode mode) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("a batch needs at least one operation");
+        }
+        if (operations.size() > maxOperations) {
+            throw new IllegalArgumentException("a batch can have at most " + maxOperations + " operations");
+        }
+        List<Op> ops = new ArrayList<>(operations.size());
+        Map<Integer, List<Op>> byShard = new TreeMap<>();
+        Set<Long> changedIds = new HashSet<>();
+        for (int i = 0; i < operations.size(); i++) {
+            Op op = new Op(i, operations.get(i));
+            ops.add(op);
+            op.error = check(op.operation, changedIds);
+            if (op.error == null) {
+                byShard.computeIfAbsent(shardOf(op.operation), shard -> new ArrayList<>()).add(op);
+            }
+        }
+        if (mode == BatchMode.ALL_OR_NOTHING) {
+            if (byShard.size() > 1) {
+                throw new IllegalArgumentException("an all-or-nothing batch has to stay on one shard, this one touches "
+                        + byShard.size());
+            }
+            if (ops.stream().anyMatch(op -> op.error != null)) {
+                return report(ops, mode);
+            }
+        }
+        for (Map.Entry<Integer, List<Op>> shard : byShard.entrySet()) {
+            ShardContext.callOn(shard.getKey(), () -> {
+                applyOnShard(shard.getValue(), mode);
+                return null;
+            });
+        }
+        return report(ops, mode);
+    }
+
+    /**
+     * what is wrong with the operation by itself, null if nothing
+     */
+    private String check(BatchOperation operation, Set<Long> changedIds) {
+        if (operation == null || operation.type() == null) {
+            return "type is required";
+        }
+        if (operation.type() != BatchOperation.Type.CREATE) {
+            if (operation.id() == null) {
+                return "id is required";
+            }
+            // the statements are batched by kind, two changes to one event would run out of order
+            if (!changedIds.add(operation.id())) {
+                return "event " + operation.id() + " is changed more than once in this batch";
+            }
+        }
+        if (operation.type() == BatchOperation.Type.DELETE) {
+            return null;
+        }
+        if (operation.event() == null) {
+            return "event is required";
+        }
+        String error = eventValidator.check(operation.event());
+        if (error == null && operation.type() == BatchOperation.Type.UPDATE
+                && shardRouter.shardOfVenue(operation.event().getVenue().getId()) != shardRouter.shardOfEvent(operation.id())) {
+            return "an event can't move to a venue on another shard";
+        }
+        return error;
+    }
+
+    private int shardOf(BatchOperation operation) {
+        return operation.type() == BatchOperation.Type.CREATE
+                ? shardRouter.shardOfVenue(operation.event().getVenue().getId())
+                : shardRouter.shardOfEvent(operation.id());
+    }
+
+    private void applyOnShard(List<Op> ops, BatchMode mode) {
+        try {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> checkAndWrite(ops, mode)))) {
+                ops.stream().filter(op -> op.error == null).forEach(op -> op.applied = true);
+            }
+        } catch (RuntimeException e) {
+            String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            if (mode == BatchMode.ALL_OR_NOTHING) {
+                ops.forEach(op -> op.rolledBack = "rolled back: " + cause);
+                return;
+            }
+            log.info("batch of {} operations failed ({}), applying them one by one", ops.size(), cause);
+            for (Op op : ops) {
+                op.reset();
+                try {
+                    op.applied = Boolean.TRUE.equals(transactionTemplate.execute(status -> checkAndWrite(List.of(op), mode)));
+                } catch (RuntimeException single) {
+                    op.reset();
+                    op.error = NestedExceptionUtils.getMostSpecificCause(single).getMessage();
+                }
+            }
+        }
+    }
+
+    /**
+     * runs the checks that need the database, then writes what passed.
+     * false if nothing was written because an all-or-nothing batch failed a check
+     */
+    private boolean checkAndWrite(List<Op> ops, BatchMode mode) {
+        checkExisting(ops);
+        checkVenues(ops);
+        if (mode == BatchMode.ALL_OR_NOTHING && ops.stream().anyMatch(op -> op.error != null)) {
+            return false;
+        }
+        List<Event> created = new ArrayList<>();
+        List<Event> updated = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (Op op : ops) {
+            if (op.error != null) {
+                continue;
+            }
+            switch (op.operation.type()) {
+                case CREATE -> created.add(op.operation.event());
+                case UPDATE -> {
+                    op.operation.event().setId(op.operation.id());
+                    updated.add(op.operation.event());
+                }
+                case DELETE -> deleted.add(op.operation.id());
+            }
+        }
+        eventWriter.delete(deleted);
+        eventWriter.update(updated);
+        eventWriter.insert(created);
+        return true;
+    }
+
+    // events that are updated or deleted have to be there, one query for all of them
+    private void checkExisting(List<Op> ops) {
+        List<Long> ids = ops.stream()
+                .filter(op -> op.error == null && op.operation.type() != BatchOperation.Type.CREATE)
+                .map(op -> op.operation.id()).toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<Long> existing = new HashSet<>();
+        for (EventRow row : eventRepository.findRowsByIds(ids)) {
+            existing.add(row.id());
+        }
+        for (Op op : ops) {
+            if (op.error == null && op.operation.type() != BatchOperation.Type.CREATE && !existing.contains(op.operation.id())) {
+                op.error = "event not found with id: " + op.operation.id();
+            }
+        }
+    }
+
+    /**
+     * locks the venues events are written to and makes sure none of them is taken twice at once
+     */
+    private void checkVenues(List<Op> ops) {
+        List<Op> placed = ops.stream()
+                .filter(op -> op.error == null && op.operation.type() != BatchOperation.Type.DELETE).toList();
+        if (placed.isEmpty()) {
+            return;
+        }
+        // in id order, so two batches locking the same venues can't deadlock
+        Set<Long> venueIds = new TreeSet<>();
+        placed.forEach(op -> venueIds.add(venueOf(op)));
+        Set<Long> locked = new HashSet<>();
+        for (Long venueId : venueIds) {
+            if (!jdbcTemplate.queryForList(LOCK_VENUE, Long.class, venueId).isEmpty()) {
+                locked.add(venueId);
+            }
+        }
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        for (Op op : placed) {
+            if (!locked.contains(venueOf(op))) {
+                op.error = "venue not found with id: " + venueOf(op);
+                continue;
+            }
+            Event event = op.operation.event();
+            from = from == null || event.getStartTime().isBefore(from) ? event.getStartTime() : from;
+            to = to == null || event.getEndTime().isAfter(to) ? event.getEndTime() : to;
+        }
+        if (from != null) {
+            checkConflicts(ops, eventRepository.findRowsAtVenuesBetween(locked, from, to));
+        }
+    }
+
+    /**
+     * an event may not overlap another one at its venue. events the batch updates or deletes give up
+     * their old slot, unless their own update fails: then they keep it, and the check runs again until
+     * no more updates fail.
+     */
+    private static void checkConflicts(List<Op> ops, List<EventRow> stored) {
+        Set<Long> leaving = new HashSet<>();
+        for (Op op : ops) {
+            if (op.error == null && op.operation.type() != BatchOperation.Type.CREATE) {
+                leaving.add(op.operation.id());
+            }
+        }
+        Set<Long> staying = new HashSet<>();
+        Map<Op, String> conflicts;
+        boolean again;
+        do {
+            conflicts = new LinkedHashMap<>();
+            Map<Long, List<Slot>> byVenue = new HashMap<>();
+            for (EventRow row : stored) {
+                if (!leaving.contains(row.id()) || staying.contains(row.id())) {
+                    byVenue.computeIfAbsent(row.venueId(), id -> new ArrayList<>())
+                            .add(new Slot(row.startTime(), row.endTime(), "event " + row.id()));
+                }
+            }
+            again = false;
+            for (Op op : ops) {
+                if (op.error != null || op.operation.type() == BatchOperation.Type.DELETE) {
+                    continue;
+                }
+                Event event = op.operation.event();
+                List<Slot> slots = byVenue.computeIfAbsent(venueOf(op), id -> new ArrayList<>());
+                Slot clash = null;
+                for (Slot slot : slots) {
+                    if (slot.start.isBefore(event.getEndTime()) && event.getStartTime().isBefore(slot.end)) {
+                        clash = slot;
+                        break;
+                    }
+                }
+                if (clash == null) {
+                    slots.add(new Slot(event.getStartTime(), event.getEndTime(), "operation " + op.index));
+                    continue;
+                }
+                conflicts.put(op, "venue " + venueOf(op) + " is already taken at that time by " + clash.owner);
+                if (op.operation.type() == BatchOperation.Type.UPDATE) {
+                    again |= staying.add(op.operation.id());
+                }
+            }
+        } while (again);
+        conflicts.forEach((op, error) -> op.error = error);
+    }
+
+    private static Long venueOf(Op op) {
+        return op.operation.event().getVenue().getId();
+    }
+
+    private static BatchReport report(List<Op> ops, BatchMode mode) {
+        List<BatchReport.Result> results = new ArrayList<>(ops.size());
+        int applied = 0;
+        int failed = 0;
+        for (Op op : ops) {
+            BatchOperation.Type type = op.operation != null ? op.operation.type() : null;
+            Long id = type == BatchOperation.Type.CREATE
+                    ? (op.applied ? op.operation.event().getId() : null)
+                    : op.operation != null ? op.operation.id() : null;
+            if (op.error != null) {
+                failed++;
+                results.add(new BatchReport.Result(op.index, type, id, BatchReport.Status.FAILED, op.error));
+            } else if (op.applied) {
+                applied++;
+                results.add(new BatchReport.Result(op.index, type, id, BatchReport.Status.APPLIED, null));
+            } else {
+                results.add(new BatchReport.Result(op.index, type, id, BatchReport.Status.NOT_APPLIED, op.rolledBack));
+            }
+        }
+        return new BatchReport(mode, applied, failed, results);
+    }
+
+    private record Slot(LocalDateTime start, LocalDateTime end, String owner) {
+    }
+
+    /**
+     * an operation and what became of it
+     */
+    private static final class Op {
+        final int index;
+        final BatchOperation operation;
+        String error;
+        String rolledBack;
+        boolean applied;
+
+        Op(int index, BatchOperation operation) {
+            this.index = index;
+            this.operation = operation;
+        }
+
+        // forgets what a rolled back transaction did to the operation
+        void reset() {
+            error = null;
+            applied = false;
+            if (operation.type() == BatchOperation.Type.CREATE) {
+                operation.event().setId(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.ingest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.sharding.ShardContext;
+import org.example.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * bulk import of events.
+ *
+ * rows are validated while the body is being read, valid ones are collected per shard and every
+ * full batch is inserted with plain JDBC in its own transaction on the ingest threads. only a few
+ * batches may be in flight per request, reading waits for the oldest one when the limit is hit,
+ * so memory stays the same for ten rows or ten million.
+ *
+ * a batch that fails in the database is retried row by row, so one bad row only costs itself.
+ * the time buckets and the outbox messages are written in the same transaction, caches hear about
+ * the new events after commit.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventIngestService {
+    private final TransactionTemplate transactionTemplate;
+    private final EventWriter eventWriter;
+    private final EventValidator eventValidator;
+    private final ShardRouter shardRouter;
+
+    @Value("${ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${ingest.threads:4}")
+    private int threads;
+
+    @Value("${ingest.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "event-ingest-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdown();
+    }
+
+    /**
+     * reads every row, inserts the valid ones and reports the rest
+     */
+    public IngestReport ingest(EventRowReader reader) throws IOException {
+        Run run = new Run();
+        try {
+            IngestRow row;
+            while ((row = reader.next()) != null) {
+                run.rows++;
+                String error = row.error() != null ? row.error() : eventValidator.check(row.event());
+                if (error != null) {
+                    run.fail(row.row(), error);
+                    continue;
+                }
+                int shard = shardRouter.shardOfVenue(row.event().getVenue().getId());
+                List<IngestRow> batch = run.batches.get(shard);
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    run.submit(shard);
+                }
+            }
+            for (int shard = 0; shard < run.batches.size(); shard++) {
+                run.submit(shard);
+            }
+        } finally {
+            // whatever happened to the input, batches already handed out finish before we return
+            run.awaitAll();
+        }
+        log.info("ingested {} of {} rows, {} failed", run.inserted, run.rows, run.failed);
+        return run.report();
+    }
+
+    private void insertBatch(Run run, int shard, List<IngestRow> rows) {
+        try {
+            ShardContext.callOn(shard, () -> transactionTemplate.execute(status -> insert(rows)));
+            run.inserted.addAndGet(rows.size());
+        } catch (RuntimeException e) {
+            if (rows.size() == 1) {
+                run.fail(rows.get(0).row(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                return;
+            }
+            for (IngestRow row : rows) {
+                insertBatch(run, shard, List.of(row));
+            }
+        }
+    }
+
+    private Void insert(List<IngestRow> rows) {
+        eventWriter.insert(rows.stream().map(IngestRow::event).toList());
+        return null;
+    }
+
+    /**
+     * state of one ingest call. counters are updated from the ingest threads.
+     */
+    private class Run {
+        final List<List<IngestRow>> batches = new ArrayList<>();
+        final Deque<Future<?>> inFlight = new ArrayDeque<>();
+        final AtomicLong inserted = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final List<IngestReport.RowError> errors = Collections.synchronizedList(new ArrayList<>());
+        long rows;
+
+        Run() {
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                batches.add(new ArrayList<>(batchSize));
+            }
+        }
+
+        void submit(int shard) {
+            List<IngestRow> batch = batches.get(shard);
+            if (batch.isEmpty()) {
+                return;
+            }
+            batches.set(shard, new ArrayList<>(batchSize));
+            // back pressure: reading stops until the oldest batch is done
+            while (inFlight.size() >= threads * 2) {
+                await(inFlight.removeFirst());
+            }
+            inFlight.add(executor.submit(() -> insertBatch(this, shard, batch)));
+        }
+
+        void awaitAll() {
+            while (!inFlight.isEmpty()) {
+                await(inFlight.removeFirst());
+            }
+        }
+
+        void fail(long row, String message) {
+            if (failed.incrementAndGet() <= maxReportedErrors) {
+                errors.add(new IngestReport.RowError(row, message));
+            }
+        }
+
+        IngestReport report() {
+            List<IngestReport.RowError> sorted = new ArrayList<>(errors);
+            sorted.sort((a, b) -> Long.compare(a.row(), b.row()));
+            return new IngestReport(rows, inserted.get(), failed.get(), sorted, failed.get() > sorted.size());
+        }
+
+        private void await(Future<?> batch) {
+            try {
+                batch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for an ingest batch", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("ingest batch failed", e.getCause());
+            }
+        }
+    }
+}
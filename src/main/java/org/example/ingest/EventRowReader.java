@@ -0,0 +1,27 @@
+package org.example.ingest;
+
+import org.example.protobuf.ProtobufEntityHttpMessageConverter;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * pulls events out of a request body one at a time, nothing is read ahead beyond the
+ * stream's own buffer, so a file of any size is processed in constant memory
+ */
+public interface EventRowReader {
+
+    /**
+     * the next record, or null when the input is exhausted
+     */
+    IngestRow next() throws IOException;
+
+    static EventRowReader forContentType(String contentType, InputStream body) {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        if (ProtobufEntityHttpMessageConverter.PROTOBUF.includes(mediaType)) {
+            return new ProtobufEventReader(body);
+        }
+        return new CsvEventReader(body, mediaType.getCharset());
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.ingest;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cache.VenueIdLookup;
+import org.example.entity.Event;
+import org.springframework.stereotype.Component;
+
+/**
+ * the checks an event has to pass before it is written in bulk, without touching the database
+ */
+@Component
+@RequiredArgsConstructor
+class EventValidator {
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final VenueIdLookup venueIdLookup;
+
+    /**
+     * what is wrong with the event, null if nothing
+     */
+    String check(Event event) {
+        if (event.getName() == null || event.getName().isBlank()) {
+            return "name is required";
+        }
+        if (event.getName().length() > MAX_NAME_LENGTH) {
+            return "name is longer than " + MAX_NAME_LENGTH + " characters";
+        }
+        if (event.getStartTime() == null || event.getEndTime() == null) {
+            return "startTime and endTime are required";
+        }
+        if (!event.getEndTime().isAfter(event.getStartTime())) {
+            return "endTime must be after startTime";
+        }
+        if (event.getVenue() == null || event.getVenue().getId() == null) {
+            return "venueId is required";
+        }
+        if (!venueIdLookup.exists(event.getVenue().getId())) {
+            return "venue not found with id: " + event.getVenue().getId();
+        }
+        return null;
+    }
+}
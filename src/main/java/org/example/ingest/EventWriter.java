@@ -0,0 +1,146 @@
+package org.example.ingest;
+
+import lombok.RequiredArgsConstructor;
+import org.example.entity.Event;
+import org.example.outbox.Outbox;
+import org.example.service.ChangeType;
+import org.example.service.EventChange;
+import org.example.service.EventTimeBucketIndex;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * writes many events with plain JDBC batches, one statement per kind of change.
+ *
+ * the time buckets and the outbox messages go into the caller's transaction together with the
+ * events, caches hear about the changes after commit. must run inside a transaction on the shard
+ * the events live on.
+ */
+@Component
+@RequiredArgsConstructor
+class EventWriter {
+    private static final String INSERT_EVENT =
+            "INSERT INTO events (name, description, start_time, end_time, venue_id, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_EVENT =
+            "UPDATE events SET name = ?, description = ?, start_time = ?, end_time = ?, venue_id = ?, updated_at = ? WHERE id = ?";
+    private static final String DELETE_EVENT = "DELETE FROM events WHERE id = ?";
+    private static final String INSERT_BUCKET = "INSERT INTO event_time_buckets (bucket, event_id) VALUES (?, ?)";
+    private static final String DELETE_BUCKETS = "DELETE FROM event_time_buckets WHERE event_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Outbox outbox;
+    private final Clock clock;
+
+    /**
+     * inserts the events and sets their generated ids
+     */
+    void insert(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now(clock));
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_EVENT, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        setColumns(statement, events.get(i), now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return events.size();
+                    }
+                }, keys);
+
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        for (int i = 0; i < events.size(); i++) {
+            // the key column is called ID on h2 and GENERATED_KEY on mysql, it is the only one either way
+            events.get(i).setId(((Number) keyList.get(i).values().iterator().next()).longValue());
+        }
+        insertBuckets(events);
+        changed(events, ChangeType.CREATED);
+    }
+
+    /**
+     * overwrites the events with these ids, their time buckets move with them
+     */
+    void update(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now(clock));
+        jdbcTemplate.batchUpdate(UPDATE_EVENT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                setColumns(statement, events.get(i), now);
+                statement.setLong(7, events.get(i).getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+        deleteBuckets(events.stream().map(Event::getId).toList());
+        insertBuckets(events);
+        changed(events, ChangeType.UPDATED);
+    }
+
+    void delete(List<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        deleteBuckets(eventIds);
+        jdbcTemplate.batchUpdate(DELETE_EVENT, eventIds.stream().map(id -> new Object[]{id}).toList());
+        for (Long id : eventIds) {
+            outbox.eventDeleted(id);
+            eventPublisher.publishEvent(new EventChange(id, ChangeType.DELETED));
+        }
+    }
+
+    private void changed(List<Event> events, ChangeType type) {
+        outbox.eventsChanged(events, type);
+        for (Event event : events) {
+            eventPublisher.publishEvent(new EventChange(event.getId(), type));
+        }
+    }
+
+    private void insertBuckets(List<Event> events) {
+        List<Object[]> buckets = new ArrayList<>();
+        for (Event event : events) {
+            long last = EventTimeBucketIndex.lastBucketOf(event.getStartTime(), event.getEndTime());
+            for (long bucket = EventTimeBucketIndex.bucketOf(event.getStartTime()); bucket <= last; bucket++) {
+                buckets.add(new Object[]{bucket, event.getId()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_BUCKET, buckets);
+    }
+
+    private void deleteBuckets(List<Long> eventIds) {
+        jdbcTemplate.batchUpdate(DELETE_BUCKETS, eventIds.stream().map(id -> new Object[]{id}).toList());
+    }
+
+    private static void setColumns(PreparedStatement statement, Event event, Timestamp updatedAt) throws SQLException {
+        statement.setString(1, event.getName());
+        statement.setString(2, event.getDescription());
+        statement.setTimestamp(3, Timestamp.valueOf(event.getStartTime()));
+        statement.setTimestamp(4, Timestamp.valueOf(event.getEndTime()));
+        statement.setLong(5, event.getVenue().getId());
+        statement.setTimestamp(6, updatedAt);
+    }
+}
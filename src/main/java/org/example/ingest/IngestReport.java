@@ -0,0 +1,13 @@
+package org.example.ingest;
+
+import java.util.List;
+
+/**
+ * what happened to a bulk file. errors lists the first failed rows only (ingest.max-reported-errors),
+ * failed always counts all of them.
+ */
+public record IngestReport(long rows, long inserted, long failed, List<RowError> errors, boolean errorsTruncated) {
+
+    public record RowError(long row, String message) {
+    }
+}
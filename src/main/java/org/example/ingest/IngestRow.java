@@ -0,0 +1,18 @@
+package org.example.ingest;
+
+import org.example.entity.Event;
+
+/**
+ * one record of a bulk file: the parsed event, or why it could not be parsed.
+ * row counts data records from 1, a csv header line is not a row.
+ */
+public record IngestRow(long row, Event event, String error) {
+
+    public static IngestRow parsed(long row, Event event) {
+        return new IngestRow(row, event, null);
+    }
+
+    public static IngestRow failed(long row, String error) {
+        return new IngestRow(row, null, error);
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.ingest;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.example.protobuf.ProtobufMapper;
+import org.example.protobuf.message.EventMessage;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * reads length-delimited EventMessages (writeDelimitedTo on the client side), venues only need their id.
+ * a broken message ends the stream, there is no way to find the start of the next one.
+ */
+public class ProtobufEventReader implements EventRowReader {
+    private final InputStream in;
+    private long row;
+    private boolean finished;
+
+    public ProtobufEventReader(InputStream in) {
+        this.in = new BufferedInputStream(in);
+    }
+
+    @Override
+    public IngestRow next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        row++;
+        try {
+            EventMessage message = EventMessage.parseDelimitedFrom(in);
+            if (message == null) {
+                finished = true;
+                return null;
+            }
+            return IngestRow.parsed(row, ProtobufMapper.toEvent(message));
+        } catch (InvalidProtocolBufferException e) {
+            finished = true;
+            return IngestRow.failed(row, "unreadable protobuf message, rest of the input skipped: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.jdbc;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * base for data sources that want to see what goes through their connections (SqlLoggingDataSource,
+ * CircuitBreakerDataSource). connections and the statements they hand out are JDK proxies, equals,
+ * hashCode and getTargetConnection are answered here, the rest goes to the target.
+ *
+ * subclasses hook in per statement call and per failure:
+ * - statementOpened makes the state a statement keeps for its whole life (S), given its sql if it
+ *   was prepared
+ * - invokeStatement sees every call on a statement and decides when to proceed
+ * - onFailure hears about everything the target connection or a statement throws
+ */
+public abstract class ProxyingDataSource<S> extends DelegatingDataSource {
+
+    protected ProxyingDataSource(DataSource target) {
+        super(target);
+    }
+
+    /**
+     * one call on the target, already unwrapped from reflection
+     */
+    @FunctionalInterface
+    protected interface Invocation {
+        Object proceed() throws Throwable;
+    }
+
+    /**
+     * the state kept for a new statement. preparedSql is null for plain statements, their sql comes
+     * with each execute call
+     */
+    protected S statementOpened(String preparedSql) {
+        return null;
+    }
+
+    /**
+     * runs a call on a statement, by default just the call
+     */
+    protected Object invokeStatement(S state, Method method, Object[] args, Invocation target) throws Throwable {
+        return target.proceed();
+    }
+
+    /**
+     * something the target connection or one of its statements threw, before it reaches the caller
+     */
+    protected void onFailure(Throwable failure) {
+    }
+
+    protected Connection proxy(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class}, new ConnectionHandler(connection));
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getTargetConnection":
+                    return target;
+                default:
+                    break;
+            }
+            Object result = invokeTarget(target, method, args);
+            if (result instanceof CallableStatement statement) {
+                return proxy(statement, CallableStatement.class, (String) args[0]);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return proxy(statement, PreparedStatement.class, (String) args[0]);
+            }
+            if (result instanceof Statement statement) {
+                return proxy(statement, Statement.class, null);
+            }
+            return result;
+        }
+
+        private Object proxy(Statement statement, Class<? extends Statement> type, String sql) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(statement, statementOpened(sql)));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final S state;
+
+        StatementHandler(Statement target, S state) {
+            this.target = target;
+            this.state = state;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            return invokeStatement(state, method, args, () -> invokeTarget(target, method, args));
+        }
+    }
+
+    private Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable failure = e.getTargetException();
+            onFailure(failure);
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.outbox;
+
+/**
+ * what kind of row an outbox message is about
+ */
+public enum AggregateType {
+    EVENT, VENUE
+}
@@ -0,0 +1,68 @@
+package org.example.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * appends every message as one JSON line to a local file, for running without a broker.
+ * a batch is one write and one fsync, it is on disk before the relay deletes it from the outbox.
+ */
+public class FileOutboxSink implements OutboxSink, AutoCloseable {
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+
+    public FileOutboxSink(Path file, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not open outbox file " + file, e);
+        }
+    }
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        // serialized outside the lock, only the write itself is one relay thread at a time
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(messages.size() * 256);
+        try {
+            for (OutboxMessage message : messages) {
+                lines.write(objectMapper.writeValueAsBytes(message));
+                lines.write('\n');
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("could not serialize outbox message", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+        synchronized (this) {
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not write to the outbox file", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * keeps every message in a list, for tests. nothing is ever dropped, don't use it for real traffic
+ */
+public class InMemoryOutboxSink implements OutboxSink {
+    private final List<OutboxMessage> messages = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(List<OutboxMessage> batch) {
+        messages.addAll(batch);
+    }
+
+    /**
+     * everything published so far, in the order the batches came in
+     */
+    public synchronized List<OutboxMessage> messages() {
+        return new ArrayList<>(messages);
+    }
+
+    public synchronized void clear() {
+        messages.clear();
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.service.ChangeType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * records changes to events and venues in the outbox table.
+ *
+ * the services call it next to the write itself, the row goes into the same transaction on the
+ * same shard, so a change and its message are committed or rolled back together. OutboxRelay
+ * sends them on from there. deleting a venue is a single VENUE DELETED message, its events go
+ * with it (cascade) and consumers have to drop those too.
+ */
+@Component
+@RequiredArgsConstructor
+public class Outbox {
+    private static final String INSERT_ENTRY =
+            "INSERT INTO outbox (aggregate_type, aggregate_id, change_type, payload, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+
+    /**
+     * an event as it is sent downstream, its venue by id only
+     */
+    public record EventState(Long id, String name, String description, LocalDateTime startTime,
+                             LocalDateTime endTime, Long venueId) {
+        static EventState of(Event event) {
+            return new EventState(event.getId(), event.getName(), event.getDescription(), event.getStartTime(),
+                    event.getEndTime(), event.getVenue() != null ? event.getVenue().getId() : null);
+        }
+    }
+
+    public void eventChanged(Event event, ChangeType type) {
+        eventsChanged(List.of(event), type);
+    }
+
+    /**
+     * one message per event, written as a single batch
+     */
+    public void eventsChanged(List<Event> events, ChangeType type) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now(clock));
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (Event event : events) {
+            rows.add(row(AggregateType.EVENT, event.getId(), type, EventState.of(event), now));
+        }
+        write(rows);
+    }
+
+    public void eventDeleted(Long eventId) {
+        write(List.<Object[]>of(row(AggregateType.EVENT, eventId, ChangeType.DELETED, null,
+                Timestamp.valueOf(LocalDateTime.now(clock)))));
+    }
+
+    public void venueChanged(Venue venue, ChangeType type) {
+        write(List.<Object[]>of(row(AggregateType.VENUE, venue.getId(), type, venue,
+                Timestamp.valueOf(LocalDateTime.now(clock)))));
+    }
+
+    public void venueDeleted(Long venueId) {
+        write(List.<Object[]>of(row(AggregateType.VENUE, venueId, ChangeType.DELETED, null,
+                Timestamp.valueOf(LocalDateTime.now(clock)))));
+    }
+
+    private Object[] row(AggregateType aggregate, Long id, ChangeType type, Object state, Timestamp now) {
+        try {
+            String payload = state != null ? objectMapper.writeValueAsString(state) : null;
+            return new Object[]{aggregate.name(), id, type.name(), payload, now};
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("could not serialize " + aggregate + " " + id + " for the outbox", e);
+        }
+    }
+
+    private void write(List<Object[]> rows) {
+        // outside a transaction the message could be committed without the change, or the other way round
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("outbox messages have to be written in the transaction of the change");
+        }
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, rows);
+    }
+}
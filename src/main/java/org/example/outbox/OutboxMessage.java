@@ -0,0 +1,14 @@
+package org.example.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import org.example.service.ChangeType;
+
+import java.time.LocalDateTime;
+
+/**
+ * one change as the sink gets it. (shard, id) is unique and grows with every change on a shard,
+ * a consumer uses it to drop messages it has already seen after a redelivery.
+ */
+public record OutboxMessage(int shard, Long id, AggregateType aggregateType, Long aggregateId,
+                           ChangeType changeType, @JsonRawValue String payload, LocalDateTime createdAt) {
+}
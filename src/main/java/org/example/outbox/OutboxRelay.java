@@ -0,0 +1,156 @@
+package org.example.outbox;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.resilience.DatabaseCircuitBreaker;
+import org.example.resilience.DatabaseOutage;
+import org.example.service.ChangeType;
+import org.example.sharding.ShardContext;
+import org.example.sharding.ShardRouter;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * sends what Outbox recorded on to the OutboxSink.
+ *
+ * outbox.relay-threads threads go round the shards. each one claims the oldest outbox.batch-size
+ * rows with SELECT ... FOR UPDATE SKIP LOCKED, publishes them and deletes them in the same
+ * transaction. rows another thread has claimed are skipped instead of waited for, so the threads
+ * never queue behind each other and throughput grows with their number until the sink or the
+ * database is the limit. a shard with nothing to send costs one empty select per outbox.poll-ms.
+ *
+ * a batch that fails stays in the outbox and is sent again, consumers have to expect duplicates.
+ * with more than one thread, batches of the same shard can reach the sink out of order: a
+ * consumer that cares keeps the highest id it has applied per aggregate.
+ *
+ * while the database circuit breaker is open the threads don't poll at all, they check again
+ * every outbox.outage-backoff-ms. an outage is logged once when it is noticed and once when it
+ * is over, not for every failed batch.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxRelay implements SmartInitializingSingleton {
+    // plain JDBC: hibernate's H2 dialect drops SKIP LOCKED, H2 and MySQL 8 both understand it
+    private static final String CLAIM_BATCH =
+            "SELECT id, aggregate_type, aggregate_id, change_type, payload, created_at FROM outbox "
+                    + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String DELETE_ENTRY = "DELETE FROM outbox WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final OutboxSink sink;
+    private final DatabaseCircuitBreaker breaker;
+
+    @Value("${outbox.relay-threads:2}")
+    private int relayThreads;
+
+    @Value("${outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.poll-ms:100}")
+    private long pollMs;
+
+    @Value("${outbox.outage-backoff-ms:1000}")
+    private long outageBackoffMs;
+
+    private final AtomicLong relayed = new AtomicLong();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+    // set by the first worker that noticed the database is gone, cleared by the first batch after
+    private final AtomicBoolean outage = new AtomicBoolean();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        running = true;
+        for (int i = 0; i < relayThreads; i++) {
+            int worker = i;
+            Thread thread = new Thread(() -> relayLoop(worker), "outbox-relay-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            workers.add(thread);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+            worker.join(1000);
+        }
+    }
+
+    /**
+     * messages handed to the sink since startup
+     */
+    public long relayed() {
+        return relayed.get();
+    }
+
+    private void relayLoop(int worker) {
+        int shards = shardRouter.shardCount();
+        while (running) {
+            if (breaker.isOpen()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(outageBackoffMs));
+                continue;
+            }
+            int sent = 0;
+            // the workers start on different shards, so a few threads spread over all of them
+            for (int i = 0; i < shards && running; i++) {
+                int shard = (worker + i) % shards;
+                try {
+                    sent += relayBatch(shard);
+                    if (outage.compareAndSet(true, false)) {
+                        log.info("outbox relay reached the database again");
+                    }
+                } catch (RuntimeException e) {
+                    if (!DatabaseOutage.is(e)) {
+                        log.warn("outbox relay failed on shard {}, the batch is sent again later", shard, e);
+                    } else if (outage.compareAndSet(false, true)) {
+                        log.warn("outbox relay can't reach the database, pausing while it is down: {}", e.getMessage());
+                    }
+                }
+            }
+            if (sent == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollMs));
+            }
+        }
+    }
+
+    /**
+     * claims, publishes and deletes one batch of a shard. the rows stay locked until the delete
+     * commits, a failure rolls back and gives them up for the next try
+     */
+    int relayBatch(int shard) {
+        Integer sent = ShardContext.callOn(shard, () -> transactionTemplate.execute(status -> {
+            List<OutboxMessage> batch = jdbcTemplate.query(CLAIM_BATCH, (rs, row) -> new OutboxMessage(shard,
+                    rs.getLong("id"),
+                    AggregateType.valueOf(rs.getString("aggregate_type")),
+                    rs.getLong("aggregate_id"),
+                    ChangeType.valueOf(rs.getString("change_type")),
+                    rs.getString("payload"),
+                    rs.getTimestamp("created_at").toLocalDateTime()), batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            sink.publish(batch);
+            jdbcTemplate.batchUpdate(DELETE_ENTRY, batch.stream().map(message -> new Object[]{message.id()}).toList());
+            return batch.size();
+        }));
+        relayed.addAndGet(sent);
+        return sent;
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.outbox;
+
+import java.util.List;
+
+/**
+ * where OutboxRelay sends the changes, a message broker client in a real deployment.
+ *
+ * publish is called from several relay threads at once, with a batch from one shard in id order.
+ * it must only return once the messages are safe on the other side: they are deleted from the
+ * outbox right after. throwing keeps the whole batch in the outbox and it is sent again later,
+ * so delivery is at least once.
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxMessage> messages);
+}
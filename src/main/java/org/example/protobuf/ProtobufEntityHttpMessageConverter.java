@@ -0,0 +1,100 @@
+package org.example.protobuf;
+
+import com.google.protobuf.Message;
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.protobuf.message.EventMessage;
+import org.example.protobuf.message.VenueMessage;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * reads and writes Event and Venue (and lists of them, write only) as application/x-protobuf.
+ * the controllers keep returning entities, this converter maps them to the messages from booking.proto
+ * when the client asks for protobuf. everything else stays with jackson.
+ */
+public class ProtobufEntityHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    public ProtobufEntityHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == Event.class || clazz == Venue.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (type == Event.class || type == Venue.class) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        Class<?> element = listElement(type);
+        boolean supported = element != null ? supports(element) : supports(clazz);
+        return supported && canWrite(mediaType);
+    }
+
+    // spring asks this with the runtime class when listing producible types, for a list that is just ArrayList
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return supports(clazz) || List.class.isAssignableFrom(clazz) ? getSupportedMediaTypes() : List.of();
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readInternal(ResolvableType.forType(type).resolve(Object.class), inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        if (clazz == Event.class) {
+            return ProtobufMapper.toEvent(EventMessage.parseFrom(inputMessage.getBody()));
+        }
+        if (clazz == Venue.class) {
+            return ProtobufMapper.toVenue(VenueMessage.parseFrom(inputMessage.getBody()));
+        }
+        throw new HttpMessageNotReadableException("cannot read " + clazz.getName() + " as protobuf", inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        Message message;
+        if (value instanceof Event event) {
+            message = ProtobufMapper.toMessage(event);
+        } else if (value instanceof Venue venue) {
+            message = ProtobufMapper.toMessage(venue);
+        } else if (value instanceof List<?> list && listElement(type) == Event.class) {
+            message = ProtobufMapper.toEventList((List<Event>) list);
+        } else if (value instanceof List<?> list && listElement(type) == Venue.class) {
+            message = ProtobufMapper.toVenueList((List<Venue>) list);
+        } else {
+            throw new HttpMessageNotWritableException("cannot write " + value.getClass().getName() + " as protobuf");
+        }
+        message.writeTo(outputMessage.getBody());
+    }
+
+    // Event or Venue for List<Event> / List<Venue>, null for anything else
+    private static Class<?> listElement(Type type) {
+        if (type == null) {
+            return null;
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        if (!List.class.isAssignableFrom(resolved.toClass())) {
+            return null;
+        }
+        return resolved.asCollection().resolveGeneric(0);
+    }
+}
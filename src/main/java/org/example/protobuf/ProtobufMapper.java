@@ -0,0 +1,113 @@
+package org.example.protobuf;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.protobuf.message.EventList;
+import org.example.protobuf.message.EventMessage;
+import org.example.protobuf.message.VenueList;
+import org.example.protobuf.message.VenueMessage;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * copies entities to and from the generated protobuf messages (src/main/protobuf/booking.proto).
+ * null strings and numbers are left unset, ids of 0 come back as null.
+ */
+public final class ProtobufMapper {
+    private ProtobufMapper() {
+    }
+
+    public static EventMessage toMessage(Event event) {
+        EventMessage.Builder builder = EventMessage.newBuilder();
+        if (event.getId() != null) {
+            builder.setId(event.getId());
+        }
+        if (event.getName() != null) {
+            builder.setName(event.getName());
+        }
+        if (event.getDescription() != null) {
+            builder.setDescription(event.getDescription());
+        }
+        if (event.getStartTime() != null) {
+            builder.setStartTime(toSeconds(event.getStartTime()));
+        }
+        if (event.getEndTime() != null) {
+            builder.setEndTime(toSeconds(event.getEndTime()));
+        }
+        if (event.getVenue() != null) {
+            builder.setVenue(toMessage(event.getVenue()));
+        }
+        return builder.build();
+    }
+
+    public static VenueMessage toMessage(Venue venue) {
+        VenueMessage.Builder builder = VenueMessage.newBuilder();
+        if (venue.getId() != null) {
+            builder.setId(venue.getId());
+        }
+        if (venue.getName() != null) {
+            builder.setName(venue.getName());
+        }
+        if (venue.getAddress() != null) {
+            builder.setAddress(venue.getAddress());
+        }
+        if (venue.getCapacity() != null) {
+            builder.setCapacity(venue.getCapacity());
+        }
+        if (venue.getLatitude() != null) {
+            builder.setLatitude(venue.getLatitude());
+        }
+        if (venue.getLongitude() != null) {
+            builder.setLongitude(venue.getLongitude());
+        }
+        return builder.build();
+    }
+
+    public static EventList toEventList(List<Event> events) {
+        EventList.Builder builder = EventList.newBuilder();
+        for (Event event : events) {
+            builder.addEvents(toMessage(event));
+        }
+        return builder.build();
+    }
+
+    public static VenueList toVenueList(List<Venue> venues) {
+        VenueList.Builder builder = VenueList.newBuilder();
+        for (Venue venue : venues) {
+            builder.addVenues(toMessage(venue));
+        }
+        return builder.build();
+    }
+
+    public static Event toEvent(EventMessage message) {
+        Event event = new Event();
+        event.setId(message.getId() != 0 ? message.getId() : null);
+        event.setName(message.getName());
+        event.setDescription(message.hasDescription() ? message.getDescription() : null);
+        event.setStartTime(fromSeconds(message.getStartTime()));
+        event.setEndTime(fromSeconds(message.getEndTime()));
+        event.setVenue(message.hasVenue() ? toVenue(message.getVenue()) : null);
+        return event;
+    }
+
+    public static Venue toVenue(VenueMessage message) {
+        Venue venue = new Venue();
+        venue.setId(message.getId() != 0 ? message.getId() : null);
+        venue.setName(message.getName());
+        venue.setAddress(message.getAddress());
+        venue.setCapacity(message.getCapacity());
+        venue.setLatitude(message.hasLatitude() ? message.getLatitude() : null);
+        venue.setLongitude(message.hasLongitude() ? message.getLongitude() : null);
+        return venue;
+    }
+
+    static long toSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime fromSeconds(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+}
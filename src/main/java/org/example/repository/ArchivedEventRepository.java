@@ -0,0 +1,43 @@
+package org.example.repository;
+
+import org.example.entity.ArchivedEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * the events_archive table, the same reads as EventRepository has for the events still in use
+ */
+@Repository
+public interface ArchivedEventRepository extends JpaRepository<ArchivedEvent, Long> {
+    List<ArchivedEvent> findByStartTimeBetween(LocalDateTime start, LocalDateTime end);
+
+    // archived events overlapping [start, end), no time buckets here, the end_time index narrows it
+    @Query("select a from ArchivedEvent a where a.endTime > :start and a.startTime < :end order by a.startTime")
+    List<ArchivedEvent> findActiveBetween(LocalDateTime start, LocalDateTime end);
+
+    @Query("select max(a.endTime) from ArchivedEvent a")
+    LocalDateTime findLatestEndTime();
+
+    @Modifying
+    @Query("delete from ArchivedEvent a where a.venue.id = :venueId")
+    int deleteByVenueId(Long venueId);
+
+    @Query("select new org.example.repository.EventRow(a.id, a.startTime, a.endTime, v.id, v.name) "
+            + "from ArchivedEvent a left join a.venue v where a.id > :afterId order by a.id")
+    List<EventRow> findRowsAfter(Long afterId, Pageable page);
+
+    @Query("select new org.example.repository.EventRow(a.id, a.startTime, a.endTime, v.id, v.name) "
+            + "from ArchivedEvent a left join a.venue v where a.id in :ids")
+    List<EventRow> findRowsByIds(Collection<Long> ids);
+
+    @Query("select new org.example.repository.EventRow(a.id, a.startTime, a.endTime, v.id, v.name) "
+            + "from ArchivedEvent a join a.venue v where v.id in :venueIds")
+    List<EventRow> findRowsByVenueIds(Collection<Long> venueIds);
+}
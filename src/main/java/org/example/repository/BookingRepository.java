@@ -0,0 +1,22 @@
+package org.example.repository;
+
+import org.example.entity.Booking;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BookingRepository extends JpaRepository<Booking, Long> {
+    List<Booking> findByEventIdOrderById(Long eventId);
+
+    Optional<Booking> findByIdAndEventId(Long id, Long eventId);
+
+    int countByEventId(Long eventId);
+
+    // promoted entries may already be gone from waitlist_entries, their ids must not be handed out again
+    @Query("select coalesce(max(b.waitlistEntryId), 0) from Booking b")
+    long findMaxWaitlistEntryId();
+}
@@ -1,10 +1,13 @@
 package org.example.repository;
 
 import org.example.entity.Event;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,5 +17,49 @@ public interface EventRepository extends JpaRepository<Event, Long> {
 
     List<Event> findByStartTimeAfter(LocalDateTime baseTime);
 
+    List<Event> findByStartTimeAfter(LocalDateTime baseTime, Pageable page);
 
-}
\ No newline at end of file
+    /**
+     * events overlapping [start, end). the bucket range narrows the candidates with an index seek
+     * on event_time_buckets, the time predicate then drops events that only share a day with the window.
+     */
+    @Query("select e from Event e where e.id in "
+            + "(select b.eventId from EventTimeBucket b where b.bucket between :firstBucket and :lastBucket) "
+            + "and e.startTime < :end and e.endTime > :start order by e.startTime")
+    List<Event> findActiveBetween(LocalDateTime start, LocalDateTime end, Long firstBucket, Long lastBucket);
+
+    // events written before the bucket index existed, or inserted directly with SQL
+    @Query("select e from Event e where not exists "
+            + "(select b.id from EventTimeBucket b where b.eventId = e.id) order by e.id")
+    List<Event> findWithoutTimeBuckets(Pageable page);
+
+    // flat rows for in-memory views, paged by id so huge tables can be read in chunks
+    @Query("select new org.example.repository.EventRow(e.id, e.startTime, e.endTime, v.id, v.name) "
+            + "from Event e left join e.venue v where e.id > :afterId order by e.id")
+    List<EventRow> findRowsAfter(Long afterId, Pageable page);
+
+    @Query("select new org.example.repository.EventRow(e.id, e.startTime, e.endTime, v.id, v.name) "
+            + "from Event e left join e.venue v where e.id in :ids")
+    List<EventRow> findRowsByIds(Collection<Long> ids);
+
+    @Query("select new org.example.repository.EventRow(e.id, e.startTime, e.endTime, v.id, v.name) "
+            + "from Event e join e.venue v where v.id in :venueIds")
+    List<EventRow> findRowsByVenueIds(Collection<Long> venueIds);
+
+    // events at these venues overlapping [start, end), to find double bookings of a venue
+    @Query("select new org.example.repository.EventRow(e.id, e.startTime, e.endTime, v.id, v.name) "
+            + "from Event e join e.venue v where v.id in :venueIds and e.startTime < :end and e.endTime > :start")
+    List<EventRow> findRowsAtVenuesBetween(Collection<Long> venueIds, LocalDateTime start, LocalDateTime end);
+
+    // the same per venue in start order, the busy times the free slot search walks through
+    @Query("select new org.example.repository.EventRow(e.id, e.startTime, e.endTime, v.id, v.name) "
+            + "from Event e join e.venue v where v.id in :venueIds and e.startTime < :end and e.endTime > :start "
+            + "order by v.id, e.startTime")
+    List<EventRow> findScheduleAtVenues(Collection<Long> venueIds, LocalDateTime start, LocalDateTime end);
+
+    // catching up a restored snapshot: what was written since, and which events still exist at all
+    List<Event> findByUpdatedAtAfter(LocalDateTime since);
+
+    @Query("select e.id from Event e")
+    List<Long> findAllIds();
+}
@@ -0,0 +1,9 @@
+package org.example.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * flat projection of an event and its venue, used where full entities would be wasteful
+ */
+public record EventRow(Long id, LocalDateTime startTime, LocalDateTime endTime, Long venueId, String venueName) {
+}
@@ -0,0 +1,26 @@
+package org.example.repository;
+
+import org.example.entity.EventStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EventStatsRepository extends JpaRepository<EventStats, Long> {
+    @Query("select s.eventId from EventStats s where s.eventId in :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    /**
+     * stats of events that are gone, deleting a venue takes its events without a change per event
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from EventStats s where not exists (select e.id from Event e where e.id = s.eventId) "
+            + "and not exists (select a.id from ArchivedEvent a where a.id = s.eventId)")
+    int deleteOrphans();
+}
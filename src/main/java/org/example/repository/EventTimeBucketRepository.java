@@ -0,0 +1,19 @@
+package org.example.repository;
+
+import org.example.entity.EventTimeBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EventTimeBucketRepository extends JpaRepository<EventTimeBucket, Long> {
+
+    @Modifying
+    @Query("delete from EventTimeBucket b where b.eventId = :eventId")
+    void deleteByEventId(Long eventId);
+
+    @Modifying
+    @Query("delete from EventTimeBucket b where b.eventId in (select e.id from Event e where e.venue.id = :venueId)")
+    void deleteByVenueId(Long venueId);
+}
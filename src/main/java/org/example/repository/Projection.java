@@ -0,0 +1,179 @@
+package org.example.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * the fields a client asked for with ?fields=, turned into a select list.
+ *
+ * only the columns of the requested fields are read, the venue join is only added when a venue field
+ * is asked for. field names are checked against a fixed list, so nothing from the request ends up in
+ * the sql text. the id is always read to keep rows in order, but only returned when it was asked for.
+ *
+ * events: id, name, description, startTime, endTime, venueId, venue (all venue fields) or venue.name etc.
+ * venues: id, name, address, capacity, latitude, longitude
+ */
+public final class Projection {
+    private record Column(String field, String sql, Class<?> type) {
+    }
+
+    private static final List<Column> VENUE_COLUMNS = List.of(
+            new Column("id", "id", Long.class),
+            new Column("name", "name", String.class),
+            new Column("address", "address", String.class),
+            new Column("capacity", "capacity", Integer.class),
+            new Column("latitude", "latitude", Double.class),
+            new Column("longitude", "longitude", Double.class));
+
+    private static final List<Column> EVENT_COLUMNS = List.of(
+            new Column("id", "id", Long.class),
+            new Column("name", "name", String.class),
+            new Column("description", "description", String.class),
+            new Column("startTime", "start_time", LocalDateTime.class),
+            new Column("endTime", "end_time", LocalDateTime.class),
+            new Column("venueId", "venue_id", Long.class));
+
+    private static final String VENUE = "venue";
+
+    private final String table;
+    private final List<Column> columns;
+    private final List<Column> venueColumns;
+
+    private Projection(String table, List<Column> columns, List<Column> venueColumns) {
+        this.table = table;
+        this.columns = columns;
+        this.venueColumns = venueColumns;
+    }
+
+    /**
+     * @throws IllegalArgumentException if fields is empty or names a field events don't have
+     */
+    public static Projection ofEvents(String fields) {
+        List<Column> columns = new ArrayList<>();
+        List<Column> venueColumns = new ArrayList<>();
+        for (String field : parse(fields)) {
+            if (field.equals(VENUE)) {
+                venueColumns.addAll(VENUE_COLUMNS);
+            } else if (field.startsWith(VENUE + ".")) {
+                venueColumns.add(column(VENUE_COLUMNS, field.substring(VENUE.length() + 1), field));
+            } else {
+                columns.add(column(EVENT_COLUMNS, field, field));
+            }
+        }
+        return new Projection("events", columns, distinct(venueColumns));
+    }
+
+    /**
+     * @throws IllegalArgumentException if fields is empty or names a field venues don't have
+     */
+    public static Projection ofVenues(String fields) {
+        List<Column> columns = new ArrayList<>();
+        for (String field : parse(fields)) {
+            columns.add(column(VENUE_COLUMNS, field, field));
+        }
+        return new Projection("venues", columns, List.of());
+    }
+
+    /**
+     * the same fields read from events_archive, only for event projections
+     */
+    public Projection archived() {
+        if (!table.equals("events")) {
+            throw new IllegalStateException("only events are archived");
+        }
+        return new Projection("events_archive", columns, venueColumns);
+    }
+
+    public boolean joinsVenue() {
+        return !venueColumns.isEmpty();
+    }
+
+    /**
+     * select list, from clause and join for this projection, the caller adds where and order by.
+     * the row id comes first, as row_id
+     */
+    String select() {
+        StringBuilder sql = new StringBuilder("select t.id as row_id");
+        for (Column column : columns) {
+            sql.append(", t.").append(column.sql());
+        }
+        for (Column column : venueColumns) {
+            sql.append(", v.").append(column.sql()).append(" as venue_").append(column.sql());
+        }
+        sql.append(" from ").append(table).append(" t");
+        if (joinsVenue()) {
+            sql.append(" left join venues v on v.id = t.venue_id");
+        }
+        return sql.toString();
+    }
+
+    Row map(ResultSet rs) throws SQLException {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        int index = 2;
+        for (Column column : columns) {
+            fields.put(column.field(), rs.getObject(index++, column.type()));
+        }
+        if (joinsVenue()) {
+            Map<String, Object> venue = new LinkedHashMap<>();
+            boolean present = false;
+            for (Column column : venueColumns) {
+                Object value = rs.getObject(index++, column.type());
+                present |= value != null;
+                venue.put(column.field(), value);
+            }
+            // an event without a venue gets "venue": null rather than a venue full of nulls
+            fields.put(VENUE, present ? venue : null);
+        }
+        return new Row(rs.getLong(1), fields);
+    }
+
+    /**
+     * one projected row, fields holds what goes into the response
+     */
+    public record Row(long id, Map<String, Object> fields) {
+    }
+
+    /**
+     * the fields of rows merged from several shards, ordered by id
+     */
+    public static List<Map<String, Object>> fieldsById(List<Row> rows) {
+        rows.sort(Comparator.comparingLong(Row::id));
+        return rows.stream().map(Row::fields).toList();
+    }
+
+    private static Set<String> parse(String fields) {
+        Set<String> names = new LinkedHashSet<>();
+        if (fields != null) {
+            for (String field : fields.split(",")) {
+                if (!field.isBlank()) {
+                    names.add(field.trim());
+                }
+            }
+        }
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("fields must name at least one field");
+        }
+        return names;
+    }
+
+    private static Column column(List<Column> known, String name, String requested) {
+        for (Column column : known) {
+            if (column.field().equals(name)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("unknown field: " + requested);
+    }
+
+    private static List<Column> distinct(List<Column> columns) {
+        return new ArrayList<>(new LinkedHashSet<>(columns));
+    }
+}
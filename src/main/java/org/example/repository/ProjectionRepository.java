@@ -0,0 +1,26 @@
+package org.example.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * reads only the columns of a Projection, with plain sql on the current shard
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProjectionRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<Projection.Row> findAll(Projection projection) {
+        return jdbcTemplate.query(projection.select() + " order by t.id", (rs, row) -> projection.map(rs));
+    }
+
+    public Optional<Projection.Row> findById(Projection projection, Long id) {
+        return jdbcTemplate.query(projection.select() + " where t.id = ?", (rs, row) -> projection.map(rs), id)
+                .stream().findFirst();
+    }
+}
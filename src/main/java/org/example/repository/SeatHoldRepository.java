@@ -0,0 +1,19 @@
+package org.example.repository;
+
+import org.example.entity.SeatHold;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SeatHoldRepository extends JpaRepository<SeatHold, Long> {
+    Optional<SeatHold> findByIdAndEventId(Long id, Long eventId);
+
+    int countByEventId(Long eventId);
+
+    // paged by id so recovery can read millions of holds in chunks
+    List<SeatHold> findByIdGreaterThanOrderById(Long afterId, Pageable page);
+}
@@ -1,13 +1,39 @@
 package org.example.repository;
 
 import org.example.entity.Venue;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface VenueRepository extends JpaRepository<Venue, Long> {
     List<Venue> findByCapacityGreaterThanEqual(Integer capacity);
 
+    List<Venue> findByCapacityBetween(Integer min, Integer max);
+
+    List<Venue> findByOrderByCapacityDescIdDesc(Pageable pageable);
+
+    List<Venue> findByLatitudeIsNotNullAndLongitudeIsNotNull();
+
+    @Query("select distinct v from Venue v left join fetch v.events")
+    List<Venue> findAllWithEvents();
+
+    // for ids allocated up front, save() would let the identity column pick the id
+    @Modifying
+    @Query(value = "insert into venues (id, name, address, capacity, latitude, longitude, updated_at) "
+            + "values (:id, :name, :address, :capacity, :latitude, :longitude, :updatedAt)", nativeQuery = true)
+    void insertWithId(Long id, String name, String address, Integer capacity, Double latitude, Double longitude,
+                      LocalDateTime updatedAt);
+
+    // catching up a restored snapshot: what was written since, and which venues still exist at all
+    List<Venue> findByUpdatedAtAfter(LocalDateTime since);
+
+    @Query("select v.id from Venue v")
+    List<Long> findAllIds();
+
 }
\ No newline at end of file
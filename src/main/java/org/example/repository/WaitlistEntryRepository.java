@@ -0,0 +1,32 @@
+package org.example.repository;
+
+import org.example.entity.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+    /**
+     * everyone still waiting, in line order
+     */
+    @Query("select w from WaitlistEntry w order by w.id")
+    List<WaitlistEntry> findAllInLineOrder();
+
+    /**
+     * entries left behind by a crash: promoted to a booking before their delete was written,
+     * or waiting for an event that no longer exists
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from WaitlistEntry w where exists (select b.id from Booking b where b.waitlistEntryId = w.id) "
+            + "or not exists (select e.id from Event e where e.id = w.eventId)")
+    int deleteClosed();
+
+    @Query("select coalesce(max(w.id), 0) from WaitlistEntry w")
+    long findMaxId();
+}
@@ -0,0 +1,80 @@
+package org.example.resilience;
+
+import org.example.jdbc.ProxyingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * asks the DatabaseCircuitBreaker before every connection and tells it how getting one went.
+ * sits below hibernate and JdbcTemplate, so reads, writes and background jobs all count, and
+ * all of them fail at once while the breaker is open.
+ *
+ * only failures to reach the database count (see DatabaseOutage). the pool running out of
+ * connections within its connection-timeout is load, not an outage: it is neither a success nor
+ * a failure, otherwise a rush of bookings would open the breaker and fail every write on top.
+ *
+ * connections that are already in the pool when the database goes away never fail to be handed
+ * out, their statements fail instead (SQLState 08S01 and the like). so the connections handed out
+ * report every failure DatabaseOutage recognizes as well, from their own methods and from their
+ * statements'. other failures (constraint violations, bad sql) say nothing about the database
+ * being there and aren't counted.
+ */
+public class CircuitBreakerDataSource extends ProxyingDataSource<Void> {
+    private final DatabaseCircuitBreaker breaker;
+
+    public CircuitBreakerDataSource(DataSource target, DatabaseCircuitBreaker breaker) {
+        super(target);
+        this.breaker = breaker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            Connection connection = obtainTargetDataSource().getConnection();
+            breaker.recordSuccess();
+            return proxy(connection);
+        } catch (SQLException | RuntimeException e) {
+            recordConnectFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            Connection connection = obtainTargetDataSource().getConnection(username, password);
+            breaker.recordSuccess();
+            return proxy(connection);
+        } catch (SQLException | RuntimeException e) {
+            recordConnectFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    protected void onFailure(Throwable failure) {
+        if (DatabaseOutage.is(failure)) {
+            breaker.recordFailure();
+        }
+    }
+
+    private void acquire() throws SQLException {
+        if (!breaker.tryAcquire()) {
+            // SQLState 08001, a connection that could not be established, like the real outage
+            throw new SQLTransientConnectionException("database circuit breaker is open", "08001");
+        }
+    }
+
+    private void recordConnectFailure(Exception failure) {
+        if (DatabaseOutage.is(failure)) {
+            breaker.recordFailure();
+        } else {
+            breaker.recordInconclusive();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * counts failed attempts to get a database connection and stops trying for a while when there
+ * are too many in a row.
+ *
+ * CLOSED: every connection is tried, breaker.failure-threshold failures in a row open it.
+ * OPEN: connections fail at once for breaker.open-ms, nobody waits for a pool timeout.
+ * HALF_OPEN: after that up to breaker.half-open-trials connections are let through at a time.
+ * as many successes close it again, a single failure opens it for another breaker.open-ms.
+ *
+ * the closed path is two volatile reads, transitions are synchronized.
+ */
+@Slf4j
+@Component
+public class DatabaseCircuitBreaker {
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final Clock clock;
+    private final int failureThreshold;
+    private final long openMs;
+    private final int halfOpenTrials;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private int trialsInFlight;
+    private int trialSuccesses;
+
+    public DatabaseCircuitBreaker(Clock clock,
+                                  @Value("${breaker.failure-threshold:5}") int failureThreshold,
+                                  @Value("${breaker.open-ms:5000}") long openMs,
+                                  @Value("${breaker.half-open-trials:3}") int halfOpenTrials) {
+        this.clock = clock;
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        this.halfOpenTrials = halfOpenTrials;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /**
+     * open and not yet due for a trial, callers can skip the database without asking
+     */
+    public boolean isOpen() {
+        return state == State.OPEN && clock.millis() < openedAt + openMs;
+    }
+
+    /**
+     * when the breaker opened last, 0 if it never did
+     */
+    public long openedAt() {
+        return openedAt;
+    }
+
+    /**
+     * whether a connection may be tried now. every true has to be followed by recordSuccess, recordFailure
+     * or recordInconclusive
+     */
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (clock.millis() < openedAt + openMs) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialsInFlight = 0;
+                trialSuccesses = 0;
+                log.info("database circuit half-open, trying {} connections", halfOpenTrials);
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialsInFlight >= halfOpenTrials) {
+                    return false;
+                }
+                trialsInFlight++;
+            }
+            return true;
+        }
+    }
+
+    public void recordSuccess() {
+        if (state == State.CLOSED) {
+            if (consecutiveFailures.get() != 0) {
+                consecutiveFailures.set(0);
+            }
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                release();
+                if (++trialSuccesses >= halfOpenTrials) {
+                    state = State.CLOSED;
+                    consecutiveFailures.set(0);
+                    log.info("database circuit closed");
+                }
+            }
+        }
+    }
+
+    public void recordFailure() {
+        if (state == State.CLOSED && consecutiveFailures.incrementAndGet() < failureThreshold) {
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                release();
+            }
+            if (state != State.OPEN) {
+                state = State.OPEN;
+                openedAt = clock.millis();
+                log.warn("database circuit open, connections fail fast for {} ms", openMs);
+            }
+        }
+    }
+
+    /**
+     * an attempt that says nothing about the database (the pool had no connection free in time),
+     * a half-open trial is given back
+     */
+    public void recordInconclusive() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                release();
+            }
+        }
+    }
+
+    // a connection taken before the breaker went half-open was never counted as a trial
+    private void release() {
+        if (trialsInFlight > 0) {
+            trialsInFlight--;
+        }
+    }
+}
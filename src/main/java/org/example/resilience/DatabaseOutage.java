@@ -0,0 +1,64 @@
+package org.example.resilience;
+
+import org.hibernate.exception.JDBCConnectionException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * tells failures of the database itself (no connection, connection lost, breaker open) apart from
+ * failures of a statement (constraint violations, bad sql), which say nothing about availability.
+ *
+ * the pool timing out while every connection is busy isn't an outage either. hikari reports it as
+ * an SQLTransientConnectionException, with the last failed connect as its cause and SQLState if
+ * the database couldn't be reached, and with neither if the pool was just exhausted.
+ */
+public final class DatabaseOutage {
+    private DatabaseOutage() {
+    }
+
+    public static boolean is(Throwable failure) {
+        if (isPoolTimeout(failure)) {
+            return false;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CannotCreateTransactionException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof TransientDataAccessResourceException
+                    || cause instanceof JDBCConnectionException
+                    || cause instanceof SQLNonTransientConnectionException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            // class 08: connection exception
+            if (cause instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * no connection was free within the pool's connection-timeout, while the database itself is fine
+     */
+    public static boolean isPoolTimeout(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException timeout) {
+                return timeout.getCause() == null
+                        && (timeout.getSQLState() == null || !timeout.getSQLState().startsWith("08"));
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.resilience;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Map;
+
+/**
+ * what clients see of a database outage: stale answers (see ServeStale) are marked with a
+ * Warning: 110 and an X-Data-As-Of header, everything that couldn't be answered, writes above
+ * all, is a 503 with a Retry-After of one breaker period instead of a 500
+ */
+@ControllerAdvice
+public class DatabaseOutageAdvice implements ResponseBodyAdvice<Object> {
+    public static final String AS_OF_HEADER = "X-Data-As-Of";
+
+    @Value("${breaker.open-ms:5000}")
+    private long openMs;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servlet) {
+            Object asOf = servlet.getServletRequest().getAttribute(ServeStaleAspect.STALE_AS_OF);
+            if (asOf != null) {
+                response.getHeaders().add(HttpHeaders.WARNING, "110 - \"Response is Stale\"");
+                response.getHeaders().add(AS_OF_HEADER, asOf.toString());
+            }
+        }
+        return body;
+    }
+
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class,
+            TransientDataAccessResourceException.class})
+    public ResponseEntity<Map<String, String>> unavailable(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (openMs + 999) / 1000)))
+                .body(Map.of("error", "database unavailable"));
+    }
+}
@@ -0,0 +1,348 @@
+package org.example.resilience;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.repository.EventRepository;
+import org.example.repository.VenueRepository;
+import org.example.service.EventChange;
+import org.example.service.LookupResult;
+import org.example.service.VenueChange;
+import org.example.sharding.ShardRouter;
+import org.example.snapshot.StateSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * the last events and venues read while the database was up, answered from when it isn't
+ * (see ServeStale). the methods here mirror the service reads they stand in for.
+ *
+ * loaded in full on the first tick, or restored from a state snapshot at startup. every
+ * stale.catch-up-ms it catches up with the rows written since its watermark, which also brings in
+ * changes made by other instances, in between only the events and venues reported as changed
+ * (after commit) are re-read. nothing is refreshed while the circuit breaker isn't closed, the
+ * copy then stays as it was at asOf().
+ *
+ * the watermark is when the last full load or catch-up started, less stale.catch-up-margin-ms for
+ * transactions that were still open then and clocks that disagree. every row that differs from
+ * the copy was written after it, or is gone.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LastKnownGood {
+    private final EventRepository eventRepository;
+    private final VenueRepository venueRepository;
+    private final ShardRouter shardRouter;
+    private final DatabaseCircuitBreaker breaker;
+    private final Clock clock;
+
+    @Value("${stale.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stale.catch-up-margin-ms:60000}")
+    private long catchUpMarginMs;
+
+    private final Map<Long, Event> events = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Key, Event> byStart = new ConcurrentSkipListMap<>();
+    private final Map<Long, Venue> venues = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyEvents = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyVenues = ConcurrentHashMap.newKeySet();
+    private volatile boolean catchUpRequested;
+    private volatile LocalDateTime asOf;
+    private LocalDateTime watermark;
+
+    public boolean isLoaded() {
+        return asOf != null;
+    }
+
+    /**
+     * when the copy was last brought up to date from the database, null before the first load
+     */
+    public LocalDateTime asOf() {
+        return asOf;
+    }
+
+    public List<Event> events() {
+        List<Event> all = new ArrayList<>(events.values());
+        all.sort(Comparator.comparing(Event::getId));
+        return all;
+    }
+
+    public Event event(Long id) {
+        Event event = events.get(id);
+        if (event == null) {
+            throw new RuntimeException("event not found with id: " + id);
+        }
+        return event;
+    }
+
+    public List<LookupResult<Event>> eventsByIds(List<Long> ids) {
+        return ids.stream().map(id -> events.containsKey(id)
+                ? LookupResult.found(id, events.get(id)) : LookupResult.<Event>missing(id)).toList();
+    }
+
+    /**
+     * events starting in [start, end], by start time
+     */
+    public List<Event> eventsBetween(LocalDateTime start, LocalDateTime end) {
+        return new ArrayList<>(byStart.subMap(new Key(start, Long.MIN_VALUE), true, new Key(end, Long.MAX_VALUE), true).values());
+    }
+
+    /**
+     * events overlapping [start, end), by start time
+     */
+    public List<Event> activeEvents(LocalDateTime start, LocalDateTime end) {
+        List<Event> active = new ArrayList<>();
+        for (Event event : byStart.headMap(new Key(end, Long.MIN_VALUE)).values()) {
+            if (event.getEndTime().isAfter(start)) {
+                active.add(event);
+            }
+        }
+        return active;
+    }
+
+    public List<Event> upcomingEvents(int limit) {
+        return byStart.tailMap(new Key(LocalDateTime.now(clock), Long.MIN_VALUE)).values().stream().limit(limit).toList();
+    }
+
+    public List<Venue> venues() {
+        List<Venue> all = new ArrayList<>(venues.values());
+        all.sort(Comparator.comparing(Venue::getId));
+        return all;
+    }
+
+    public Venue venue(Long id) {
+        Venue venue = venues.get(id);
+        if (venue == null) {
+            throw new RuntimeException("Venue not found");
+        }
+        return venue;
+    }
+
+    public List<LookupResult<Venue>> venuesByIds(List<Long> ids) {
+        return ids.stream().map(id -> venues.containsKey(id)
+                ? LookupResult.found(id, venues.get(id)) : LookupResult.<Venue>missing(id)).toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChange(EventChange change) {
+        dirtyEvents.add(change.eventId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVenueChange(VenueChange change) {
+        dirtyVenues.add(change.venueId());
+    }
+
+    @Scheduled(fixedDelayString = "${stale.refresh-ms:1000}")
+    public synchronized void refresh() {
+        if (!enabled || breaker.state() != DatabaseCircuitBreaker.State.CLOSED) {
+            return;
+        }
+        try {
+            if (asOf == null) {
+                reload();
+            } else if (catchUpRequested) {
+                catchUp();
+            } else if (!dirtyEvents.isEmpty() || !dirtyVenues.isEmpty()) {
+                applyChanges();
+            }
+        } catch (RuntimeException e) {
+            // keep what we have, the next tick tries again
+            log.warn("could not refresh the last known good copy", e);
+        }
+    }
+
+    /**
+     * also catches changes made by other instances, which are never reported here
+     */
+    @Scheduled(fixedDelayString = "${stale.catch-up-ms:300000}", initialDelayString = "${stale.catch-up-ms:300000}")
+    public void requestCatchUp() {
+        catchUpRequested = true;
+    }
+
+    /**
+     * the copy as it is now, with its watermark. null before it was loaded
+     */
+    public synchronized StateSnapshot snapshot() {
+        if (asOf == null) {
+            return null;
+        }
+        return new StateSnapshot(asOf, watermark, venues(), events());
+    }
+
+    /**
+     * takes over a snapshot instead of the first full load, then catches up with what was written
+     * after its watermark. if the database can't be read now, the snapshot is served as it is
+     * and the next refresh catches up.
+     *
+     * @return the rows re-read while catching up, -1 if that has to wait
+     */
+    public synchronized int restore(StateSnapshot snapshot) {
+        if (asOf != null) {
+            throw new IllegalStateException("the last known good copy is already loaded");
+        }
+        snapshot.venues().forEach(venue -> venues.put(venue.getId(), venue));
+        snapshot.events().forEach(this::put);
+        watermark = snapshot.watermark();
+        asOf = snapshot.asOf();
+        catchUpRequested = true;
+        try {
+            return catchUp();
+        } catch (RuntimeException e) {
+            log.warn("could not catch up the restored copy, serving it as of {}", asOf, e);
+            return -1;
+        }
+    }
+
+    private void reload() {
+        catchUpRequested = false;
+        dirtyEvents.clear();
+        dirtyVenues.clear();
+        LocalDateTime started = LocalDateTime.now(clock);
+        List<Venue> freshVenues = shardRouter.fanOut(shard -> venueRepository.findAll());
+        List<Event> freshEvents = shardRouter.fanOut(shard -> eventRepository.findAll());
+
+        Set<Long> venueIds = new HashSet<>();
+        freshVenues.forEach(venue -> {
+            venueIds.add(venue.getId());
+            venues.put(venue.getId(), venue);
+        });
+        venues.keySet().retainAll(venueIds);
+        Set<Long> eventIds = new HashSet<>();
+        freshEvents.forEach(event -> {
+            eventIds.add(event.getId());
+            put(event);
+        });
+        for (Long id : new ArrayList<>(events.keySet())) {
+            if (!eventIds.contains(id)) {
+                remove(id);
+            }
+        }
+        if (asOf == null) {
+            log.info("loaded last known good copy of {} events and {} venues", events.size(), venues.size());
+        }
+        watermark = started.minus(Duration.ofMillis(catchUpMarginMs));
+        asOf = started;
+    }
+
+    /**
+     * re-reads the rows written since the watermark and drops the ones that are gone. deletes
+     * leave nothing to find by time, so all ids are scanned for them, which is still far less
+     * than reading every row
+     *
+     * @return the rows re-read
+     */
+    private int catchUp() {
+        catchUpRequested = false;
+        LocalDateTime started = LocalDateTime.now(clock);
+        LocalDateTime since = watermark;
+        List<Venue> changedVenues = shardRouter.fanOut(shard -> venueRepository.findByUpdatedAtAfter(since));
+        List<Event> changedEvents = shardRouter.fanOut(shard -> eventRepository.findByUpdatedAtAfter(since));
+        Set<Long> venueIds = new HashSet<>(shardRouter.fanOut(shard -> venueRepository.findAllIds()));
+        Set<Long> eventIds = new HashSet<>(shardRouter.fanOut(shard -> eventRepository.findAllIds()));
+
+        Set<Long> changedVenueIds = new HashSet<>();
+        changedVenues.forEach(venue -> {
+            changedVenueIds.add(venue.getId());
+            venues.put(venue.getId(), venue);
+        });
+        venues.keySet().retainAll(venueIds);
+        Set<Long> changedEventIds = new HashSet<>();
+        changedEvents.forEach(event -> {
+            changedEventIds.add(event.getId());
+            put(event);
+        });
+        for (Event event : new ArrayList<>(events.values())) {
+            if (!eventIds.contains(event.getId())) {
+                remove(event.getId());
+            } else if (event.getVenue() != null && changedVenueIds.contains(event.getVenue().getId())
+                    && !changedEventIds.contains(event.getId())) {
+                // events carry their venue, the ones at changed venues are re-read right after
+                dirtyEvents.add(event.getId());
+            }
+        }
+        watermark = started.minus(Duration.ofMillis(catchUpMarginMs));
+        asOf = started;
+        if (!dirtyEvents.isEmpty() || !dirtyVenues.isEmpty()) {
+            applyChanges();
+        }
+        return changedVenues.size() + changedEvents.size();
+    }
+
+    private void applyChanges() {
+        LocalDateTime started = LocalDateTime.now(clock);
+        Set<Long> changedVenues = drain(dirtyVenues);
+        Set<Long> changedEvents = drain(dirtyEvents);
+        if (!changedVenues.isEmpty()) {
+            Set<Long> deleted = new HashSet<>(changedVenues);
+            for (Venue venue : shardRouter.fanOut(shard -> venueRepository.findAllById(changedVenues))) {
+                venues.put(venue.getId(), venue);
+                deleted.remove(venue.getId());
+            }
+            deleted.forEach(venues::remove);
+            // events carry their venue, re-read the ones at changed or deleted venues too
+            for (Event event : events.values()) {
+                if (event.getVenue() != null && changedVenues.contains(event.getVenue().getId())) {
+                    changedEvents.add(event.getId());
+                }
+            }
+        }
+        if (!changedEvents.isEmpty()) {
+            for (Event event : shardRouter.fanOut(shard -> eventRepository.findAllById(changedEvents))) {
+                put(event);
+                changedEvents.remove(event.getId());
+            }
+            changedEvents.forEach(this::remove);
+        }
+        asOf = started;
+    }
+
+    private static Set<Long> drain(Set<Long> dirty) {
+        Set<Long> drained = new HashSet<>();
+        for (Long id : dirty) {
+            drained.add(id);
+            dirty.remove(id);
+        }
+        return drained;
+    }
+
+    private void put(Event event) {
+        Event previous = events.put(event.getId(), event);
+        if (previous != null) {
+            byStart.remove(new Key(previous.getStartTime(), previous.getId()));
+        }
+        byStart.put(new Key(event.getStartTime(), event.getId()), event);
+    }
+
+    private void remove(Long id) {
+        Event previous = events.remove(id);
+        if (previous != null) {
+            byStart.remove(new Key(previous.getStartTime(), previous.getId()));
+        }
+    }
+
+    record Key(LocalDateTime start, long id) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int byTime = start.compareTo(other.start);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+    }
+}
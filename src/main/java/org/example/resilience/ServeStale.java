@@ -0,0 +1,18 @@
+package org.example.resilience;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * answers a service read from LastKnownGood when the database is down, instead of failing
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ServeStale {
+    /**
+     * SpEL on LastKnownGood giving the stale answer, the method's parameters by name: "event(#id)"
+     */
+    String value();
+}
@@ -0,0 +1,82 @@
+package org.example.resilience;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * serves methods marked with ServeStale from LastKnownGood while the database is down.
+ *
+ * while the breaker is open the database isn't even asked. otherwise the method runs and only a
+ * failure DatabaseOutage recognizes falls back to the stale copy, anything else is rethrown.
+ * nothing falls back before the copy was loaded once.
+ *
+ * it runs outside ShardRoutingAspect and the transaction interceptor, a failed transaction has
+ * been rolled back when it gets here. calls from inside a transaction (another service's) just
+ * proceed, the caller decides what to do with the failure
+ */
+@Aspect
+@Component
+@Order(-1)
+@RequiredArgsConstructor
+public class ServeStaleAspect {
+    /**
+     * request attribute holding the asOf of a stale answer, read by DatabaseOutageAdvice
+     */
+    public static final String STALE_AS_OF = ServeStaleAspect.class.getName() + ".asOf";
+
+    private final LastKnownGood lastKnownGood;
+    private final DatabaseCircuitBreaker breaker;
+
+    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
+
+    @Around("@annotation(serveStale)")
+    public Object serve(ProceedingJoinPoint joinPoint, ServeStale serveStale) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        if (breaker.isOpen() && lastKnownGood.isLoaded()) {
+            return stale(joinPoint, serveStale);
+        }
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            if (DatabaseOutage.is(e) && lastKnownGood.isLoaded()) {
+                return stale(joinPoint, serveStale);
+            }
+            throw e;
+        }
+    }
+
+    private Object stale(ProceedingJoinPoint joinPoint, ServeStale serveStale) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(lastKnownGood, signature.getMethod(),
+                joinPoint.getArgs(), parameterNames);
+        // read before the answer, the copy may only get newer in between
+        Object asOf = lastKnownGood.asOf();
+        Object answer = expressions.computeIfAbsent(serveStale.value(), parser::parseExpression).getValue(context);
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.setAttribute(STALE_AS_OF, asOf, RequestAttributes.SCOPE_REQUEST);
+        }
+        return answer;
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.service;
+
+import org.example.booking.Waitlist;
+import org.example.entity.Booking;
+
+/**
+ * what a booking request ended in: a seat, or a place on the waitlist.
+ * position is the waiter's place in line when the answer was made, 1 is next. 0 if the waiter
+ * already left the line again (promoted or gone) by then
+ */
+public record BookingResult(Status status, Booking booking, Waitlist.Waiter waitlistEntry, Integer position) {
+    public enum Status {
+        BOOKED, WAITLISTED
+    }
+
+    public static BookingResult booked(Booking booking) {
+        return new BookingResult(Status.BOOKED, booking, null, null);
+    }
+
+    public static BookingResult waitlisted(Waitlist.Waiter waiter, int position) {
+        return new BookingResult(Status.WAITLISTED, null, waiter, position);
+    }
+}
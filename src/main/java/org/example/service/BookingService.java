@@ -0,0 +1,304 @@
+package org.example.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.booking.SeatHolds;
+import org.example.booking.SeatInventory;
+import org.example.booking.Waitlist;
+import org.example.entity.Booking;
+import org.example.entity.SeatHold;
+import org.example.repository.BookingRepository;
+import org.example.repository.SeatHoldRepository;
+import org.example.sharding.ShardKey;
+import org.example.stats.EventCounter;
+import org.example.stats.EventCounters;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * seats at events, seat holds during checkout and the waitlist for sold-out ones.
+ *
+ * seats are counted by SeatInventory, the line is kept by Waitlist, both in memory. a booking
+ * either takes a free seat or joins the line. a hold takes a seat for hold.duration-seconds until
+ * it is confirmed into a booking, released or expired by SeatHolds. a seat given up by a cancelled
+ * booking or a released or expired hold goes straight to the first waiter in the same transaction,
+ * it is never free for anyone else to grab.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class BookingService {
+    // how often a promotion that found a waiter counted but not queued yet tries again
+    private static final int PROMOTE_RETRIES = 10;
+
+    private final BookingRepository bookingRepository;
+    private final SeatHoldRepository holdRepository;
+    private final SeatInventory seatInventory;
+    private final Waitlist waitlist;
+    private final SeatHolds seatHolds;
+    private final EventCounters eventCounters;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+
+    @Value("${hold.duration-seconds:300}")
+    private long holdSeconds;
+
+    /**
+     * confirmed bookings of an event, oldest first
+     */
+    @Transactional(readOnly = true)
+    @ShardKey(eventId = "#eventId")
+    public List<Booking> getBookings(Long eventId) {
+        return bookingRepository.findByEventIdOrderById(eventId);
+    }
+
+    /**
+     * books a seat, or puts the attendee on the waitlist when the event is sold out.
+     * runs without a transaction of its own: joining the line happens in memory, so a crowd
+     * queueing for one event doesn't also queue for database connections.
+     *
+     * @throws RuntimeException if the event doesn't exist or its waitlist is full
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @ShardKey(eventId = "#eventId")
+    public BookingResult book(Long eventId, String attendee) {
+        requireAttendee(attendee);
+        if (seatInventory.tryTake(eventId)) {
+            try {
+                return BookingResult.booked(transactionTemplate.execute(status -> {
+                    count(eventId, EventCounter.BOOKINGS);
+                    return bookingRepository.save(new Booking(null, eventId, attendee, LocalDateTime.now(clock), null));
+                }));
+            } catch (RuntimeException e) {
+                seatInventory.release(eventId);
+                throw e;
+            }
+        }
+
+        Waitlist.Waiter waiter = waitlist.join(eventId, attendee);
+        // a seat freed between tryTake and join found nobody in line, whoever is first gets it now.
+        // a seat someone else is promoting right now is theirs to hand out, promoteWaiters tries again until our join is queued
+        if (seatInventory.available(eventId) > 0) {
+            List<Booking> promoted = transactionTemplate.execute(status -> promoteWaiters(eventId, 0));
+            for (Booking booking : promoted) {
+                if (waiter.id().equals(booking.getWaitlistEntryId())) {
+                    return BookingResult.booked(booking);
+                }
+            }
+        }
+        return BookingResult.waitlisted(waiter, waitlist.position(eventId, waiter.id()));
+    }
+
+    /**
+     * cancels a booking, the first one on the waitlist gets the seat
+     *
+     * @throws RuntimeException if the event has no booking with that id
+     */
+    @ShardKey(eventId = "#eventId")
+    public void cancelBooking(Long eventId, Long bookingId) {
+        Booking booking = bookingRepository.findByIdAndEventId(bookingId, eventId)
+                .orElseThrow(() -> new RuntimeException("booking not found with id: " + bookingId));
+        bookingRepository.delete(booking);
+        count(eventId, EventCounter.CANCELLATIONS);
+        handOver(eventId);
+    }
+
+    /**
+     * holds a seat for hold.duration-seconds while the attendee checks out
+     *
+     * @throws RuntimeException if the event doesn't exist or is sold out
+     */
+    @ShardKey(eventId = "#eventId")
+    public SeatHold hold(Long eventId, String attendee) {
+        requireAttendee(attendee);
+        if (!seatInventory.tryTake(eventId)) {
+            throw new RuntimeException("no seats left for event " + eventId);
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        SeatHold hold = new SeatHold(null, eventId, attendee, now, now.plusSeconds(holdSeconds));
+        // the timer only starts for a hold that was committed
+        afterCompletion(() -> seatHolds.schedule(hold), () -> seatInventory.release(eventId));
+        return holdRepository.save(hold);
+    }
+
+    /**
+     * turns a hold into a booking, the seat stays taken
+     *
+     * @throws RuntimeException if the hold doesn't exist or has expired
+     */
+    @ShardKey(eventId = "#eventId")
+    public Booking confirmHold(Long eventId, Long holdId) {
+        SeatHold hold = findHold(eventId, holdId);
+        // whoever stops the timer first wins, a hold that is already expiring can't be confirmed any more
+        if (!seatHolds.cancel(eventId, holdId)) {
+            throw new RuntimeException("hold " + holdId + " has expired");
+        }
+        afterCompletion(null, () -> seatHolds.schedule(hold));
+        holdRepository.delete(hold);
+        count(eventId, EventCounter.BOOKINGS);
+        return bookingRepository.save(new Booking(null, eventId, hold.getAttendee(), LocalDateTime.now(clock), null));
+    }
+
+    /**
+     * gives a held seat back before the hold runs out
+     *
+     * @throws RuntimeException if the hold doesn't exist
+     */
+    @ShardKey(eventId = "#eventId")
+    public void releaseHold(Long eventId, Long holdId) {
+        SeatHold hold = findHold(eventId, holdId);
+        if (!seatHolds.cancel(eventId, holdId)) {
+            // expiring right now, which gives the seat back as well
+            return;
+        }
+        afterCompletion(null, () -> seatHolds.schedule(hold));
+        holdRepository.delete(hold);
+        handOver(eventId);
+    }
+
+    /**
+     * holds whose time ran out, called by SeatHolds. their seats go to the waitlist or back on sale
+     */
+    @ShardKey(eventId = "#eventId")
+    public void expireHolds(Long eventId, List<Long> holdIds) {
+        holdRepository.deleteAllByIdInBatch(holdIds);
+        for (int i = 0; i < holdIds.size(); i++) {
+            handOver(eventId);
+        }
+    }
+
+    /**
+     * the waitlist of an event, first in line first
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Waitlist.Waiter> getWaitlist(Long eventId) {
+        return waitlist.waiting(eventId);
+    }
+
+    /**
+     * takes someone off the waitlist
+     *
+     * @throws RuntimeException if they aren't on it
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void leaveWaitlist(Long eventId, Long entryId) {
+        if (!waitlist.leave(eventId, entryId)) {
+            throw new RuntimeException("waitlist entry not found with id: " + entryId);
+        }
+    }
+
+    private SeatHold findHold(Long eventId, Long holdId) {
+        return holdRepository.findByIdAndEventId(holdId, eventId)
+                .orElseThrow(() -> new RuntimeException("hold not found with id: " + holdId));
+    }
+
+    private static void requireAttendee(String attendee) {
+        if (attendee == null || attendee.isBlank()) {
+            throw new IllegalArgumentException("attendee is required");
+        }
+    }
+
+    /**
+     * a seat was given up in the current transaction: the first waiter gets it right away,
+     * with nobody waiting it goes back on sale once the transaction has committed
+     */
+    private void handOver(Long eventId) {
+        Waitlist.Waiter next = waitlist.poll(eventId);
+        if (next != null) {
+            admit(next, false);
+            return;
+        }
+        afterCompletion(() -> {
+            seatInventory.release(eventId);
+            // someone may have joined while we held the seat, this transaction is over so they need a new one
+            if (waitlist.size(eventId) > 0) {
+                promoteInNewTransaction(eventId, 0);
+            }
+        }, null);
+    }
+
+    private void promoteInNewTransaction(Long eventId, int attempt) {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        requiresNew.execute(status -> promoteWaiters(eventId, attempt));
+    }
+
+    /**
+     * hands free seats to the front of the line until either runs out, inside the caller's transaction
+     */
+    private List<Booking> promoteWaiters(Long eventId, int attempt) {
+        List<Booking> promoted = new ArrayList<>();
+        while (waitlist.size(eventId) > 0 && seatInventory.tryTake(eventId)) {
+            Waitlist.Waiter next = waitlist.poll(eventId);
+            if (next == null) {
+                // counted but not in the deque yet. its join may already have looked for a free seat
+                // while we held this one and found none, so it can't be left to promote itself:
+                // give the seat back and try again in a new transaction once this one has let go of
+                // its connection, the waiter shows up in a moment. after a few tries it is left to the
+                // join, which looks for a free seat once it is queued
+                seatInventory.release(eventId);
+                if (attempt < PROMOTE_RETRIES) {
+                    afterCompletion(() -> {
+                        Thread.yield();
+                        if (waitlist.size(eventId) > 0 && seatInventory.available(eventId) > 0) {
+                            promoteInNewTransaction(eventId, attempt + 1);
+                        }
+                    }, null);
+                }
+                break;
+            }
+            promoted.add(admit(next, true));
+        }
+        return promoted;
+    }
+
+    /**
+     * books the seat for a waiter taken off the line. the waitlist only hears about it once the
+     * booking is committed, a rollback puts the waiter back at the front
+     */
+    private Booking admit(Waitlist.Waiter waiter, boolean seatTaken) {
+        afterCompletion(() -> {
+            waitlist.promoted(waiter);
+            eventCounters.increment(waiter.eventId(), EventCounter.BOOKINGS);
+        }, () -> {
+            waitlist.requeue(waiter);
+            if (seatTaken) {
+                seatInventory.release(waiter.eventId());
+            }
+        });
+        return bookingRepository.save(new Booking(null, waiter.eventId(), waiter.attendee(),
+                LocalDateTime.now(clock), waiter.id()));
+    }
+
+    /**
+     * counts for the event's stats once the current transaction has committed
+     */
+    private void count(Long eventId, EventCounter counter) {
+        afterCompletion(() -> eventCounters.increment(eventId, counter), null);
+    }
+
+    private static void afterCompletion(Runnable committed, Runnable rolledBack) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    if (committed != null) {
+                        committed.run();
+                    }
+                } else if (rolledBack != null) {
+                    rolledBack.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,5 @@
+package org.example.service;
+
+public enum ChangeType {
+    CREATED, UPDATED, DELETED
+}
@@ -0,0 +1,8 @@
+package org.example.service;
+
+/**
+ * published by EventService whenever an event is written. in-memory views listen for it
+ * with @TransactionalEventListener so they only see changes that were actually committed.
+ */
+public record EventChange(Long eventId, ChangeType type) {
+}
@@ -1,12 +1,33 @@
 package org.example.service;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.example.archive.EventArchiver;
+import org.example.cache.UpcomingEventsCache;
+import org.example.entity.ArchivedEvent;
 import org.example.entity.Event;
+import org.example.outbox.Outbox;
+import org.example.repository.ArchivedEventRepository;
 import org.example.repository.EventRepository;
+import org.example.repository.Projection;
+import org.example.repository.ProjectionRepository;
+import org.example.resilience.ServeStale;
+import org.example.sharding.FanOut;
+import org.example.sharding.ShardKey;
+import org.example.sharding.ShardRouter;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * service class that handles business logic for events.
@@ -28,79 +49,247 @@ public class EventService {
      * 'final' keyword ensures the repository cannot be changed after initialization.
      */
     private final EventRepository eventRepository;
+    private final EventTimeBucketIndex timeBucketIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UpcomingEventsCache upcomingEventsCache;
+    private final ShardRouter shardRouter;
+    private final Outbox outbox;
+    private final MultiGet multiGet;
+    private final ProjectionRepository projectionRepository;
+    // events that ended long ago live in events_archive, see EventArchiver
+    private final ArchivedEventRepository archivedEventRepository;
+    private final EventArchiver archiver;
+    private final Clock clock;
 
     /**
-     * retrieves all events from the database.
+     * retrieves all events from the database, archived ones included.
      *
      * @return list of all events
      */
+    @ServeStale("events()")
+    @FanOut
     public List<Event> getAllEvents() {
-        return eventRepository.findAll();
+        List<Event> events = new ArrayList<>(eventRepository.findAll());
+        events.addAll(toEvents(archivedEventRepository.findAll()));
+        return events;
     }
 
     /**
-     * finds a specific event by its ID.
+     * all events with only the requested fields, read from just those columns.
+     *
+     * @param fields comma separated field names, e.g. "id,name,startTime"
+     * @return one map per event, ordered by id
+     * @throws IllegalArgumentException if a field is unknown
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Map<String, Object>> getAllEvents(String fields) {
+        Projection projection = Projection.ofEvents(fields);
+        return Projection.fieldsById(shardRouter.fanOut(shard -> {
+            List<Projection.Row> rows = new ArrayList<>(projectionRepository.findAll(projection));
+            rows.addAll(projectionRepository.findAll(projection.archived()));
+            return rows;
+        }));
+    }
+
+    /**
+     * finds a specific event by its ID, in the archive if it is no longer in events.
      *
      * @param id the ID of the event to find
      * @return the found event
      * @throws RuntimeException if the event is not found
      */
+    @ServeStale("event(#id)")
+    @ShardKey(eventId = "#id")
     public Event getEventById(Long id) {
         // orElseThrow is a better practice than get() as it handles the null case explicitly
         return eventRepository.findById(id)
+                .or(() -> archivedEventRepository.findById(id).map(ArchivedEvent::toEvent))
                 .orElseThrow(() -> new RuntimeException("event not found with id: " + id));
     }
 
+    /**
+     * a specific event with only the requested fields
+     *
+     * @throws RuntimeException if the event is not found
+     */
+    @Transactional(readOnly = true)
+    @ShardKey(eventId = "#id")
+    public Map<String, Object> getEventById(Long id, String fields) {
+        Projection projection = Projection.ofEvents(fields);
+        return projectionRepository.findById(projection, id)
+                .or(() -> projectionRepository.findById(projection.archived(), id))
+                .orElseThrow(() -> new RuntimeException("event not found with id: " + id))
+                .fields();
+    }
+
+    /**
+     * finds several events at once. upcoming events come from the cache, the others are read
+     * with IN queries on their shards, the archive is only asked for ids not found in events.
+     *
+     * @param ids the IDs to look up, duplicates allowed
+     * @return one result per requested id in the same order, found or not
+     * @throws IllegalArgumentException if there are more ids than multiget.max-ids
+     */
+    @ServeStale("eventsByIds(#ids)")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<LookupResult<Event>> getEventsByIds(List<Long> ids) {
+        return multiGet.lookup(ids, upcomingEventsCache::get, shardRouter::shardOfEvent,
+                this::findAllById, Event::getId);
+    }
+
+    private List<Event> findAllById(List<Long> ids) {
+        List<Event> events = new ArrayList<>(eventRepository.findAllById(ids));
+        if (events.size() < new HashSet<>(ids).size()) {
+            Set<Long> missing = new HashSet<>(ids);
+            events.forEach(event -> missing.remove(event.getId()));
+            events.addAll(toEvents(archivedEventRepository.findAllById(missing)));
+        }
+        return events;
+    }
+
     /**
      * creates a new event in the database.
      *
      * @param event the event object to be created
      * @return the saved event with generated ID
      */
+    @ShardKey(venueId = "#event.venue?.id")
     public Event createEvent(Event event) {
         // add any validation logic here before saving
-        return eventRepository.save(event);
+        Event saved = eventRepository.save(event);
+        timeBucketIndex.index(saved);
+        // downstream systems get it through the outbox, committed together with the event
+        outbox.eventChanged(saved, ChangeType.CREATED);
+        eventPublisher.publishEvent(new EventChange(saved.getId(), ChangeType.CREATED));
+        return saved;
     }
 
     /**
-     * updates an existing event.
+     * updates an existing event. archived events can't be changed.
      *
      * @param id the ID of the event to update
      * @param event the updated event data
      * @return the updated event
      * @throws RuntimeException if the event is not found
+     * @throws IllegalArgumentException if the event would move to a venue on another shard
      */
 
     @Transactional
+    @ShardKey(eventId = "#id")
     public Event updateEvent(Long id, Event event) {
         // first check if the event exists
-        Event existingEvent = getEventById(id);
+        Event existingEvent = eventRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("event not found with id: " + id));
 
         // set the ID to ensure we update the existing event
         event.setId(existingEvent.getId());
+        requireSameShard(event);
 
-        // save the updated event
-        return eventRepository.save(event);
+        // save the updated event, its time buckets move with it
+        Event saved = eventRepository.save(event);
+        timeBucketIndex.index(saved);
+        outbox.eventChanged(saved, ChangeType.UPDATED);
+        eventPublisher.publishEvent(new EventChange(saved.getId(), ChangeType.UPDATED));
+        return saved;
     }
 
     /**
-     * deletes an event from the database.
+     * deletes an event from the database, archived or not.
      *
      * @param id the ID of the event to delete
      */
+    @ShardKey(eventId = "#id")
     public void deleteEvent(Long id) {
         // add any deletion validation logic here
+        timeBucketIndex.remove(id);
         eventRepository.deleteById(id);
+        archivedEventRepository.deleteById(id);
+        outbox.eventDeleted(id);
+        eventPublisher.publishEvent(new EventChange(id, ChangeType.DELETED));
     }
 
     /**
-     * finds events within a specific time range.
+     * finds events within a specific time range. the archive is only read when the range
+     * starts before its horizon.
      *
      * @param start start time of the range
      * @param end end time of the range
      * @return list of events within the specified time range
      */
+    @ServeStale("eventsBetween(#start, #end)")
+    @FanOut(orderBy = "startTime")
     public List<Event> getEventsByTimeRange(LocalDateTime start, LocalDateTime end) {
-        return eventRepository.findByStartTimeBetween(start, end);
+        List<Event> events = new ArrayList<>(eventRepository.findByStartTimeBetween(start, end));
+        if (archiver.reaches(start)) {
+            events.addAll(toEvents(archivedEventRepository.findByStartTimeBetween(start, end)));
+        }
+        return events;
+    }
+
+    /**
+     * finds events that are active at any point in a time range, including long events
+     * that started before it or end after it. archived events only when the range starts
+     * before the archive's horizon.
+     *
+     * @param start start of the range (inclusive)
+     * @param end end of the range (exclusive)
+     * @return events overlapping the range, ordered by start time
+     */
+    @ServeStale("activeEvents(#start, #end)")
+    @FanOut(orderBy = "startTime")
+    public List<Event> getActiveEvents(LocalDateTime start, LocalDateTime end) {
+        List<Event> events = new ArrayList<>(eventRepository.findActiveBetween(start, end,
+                EventTimeBucketIndex.bucketOf(start), EventTimeBucketIndex.lastBucketOf(start, end)));
+        if (archiver.reaches(start)) {
+            events.addAll(toEvents(archivedEventRepository.findActiveBetween(start, end)));
+            events.sort(Comparator.comparing(Event::getStartTime));
+        }
+        return events;
+    }
+
+    /**
+     * the next events that have not started yet, served from memory.
+     * runs without a transaction so not even a connection is taken from the pool.
+     *
+     * @param limit maximum number of events to return
+     * @return upcoming events ordered by start time
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    @ServeStale("upcomingEvents(#limit)")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Event> getUpcomingEvents(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (upcomingEventsCache.isLoaded()) {
+            return upcomingEventsCache.upcoming(limit);
+        }
+        // only until the cache has finished its first load. every shard returns its own first
+        // page, the merged list is cut back to the limit
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<Event> events = shardRouter.fanOut(shard -> eventRepository.findByStartTimeAfter(now,
+                PageRequest.of(0, limit, Sort.by("startTime"))));
+        events.sort(Comparator.comparing(Event::getStartTime));
+        return events.size() > limit ? events.subList(0, limit) : events;
+    }
+
+    /**
+     * an event lives on its venue's shard and keeps its id, so it can't follow a venue to another
+     * shard (the same rule EventBatchService applies to batches)
+     */
+    private void requireSameShard(Event event) {
+        if (!shardRouter.isSharded()) {
+            return;
+        }
+        if (event.getVenue() == null || event.getVenue().getId() == null) {
+            throw new IllegalArgumentException("venue is required");
+        }
+        if (shardRouter.shardOfVenue(event.getVenue().getId()) != shardRouter.shardOfEvent(event.getId())) {
+            throw new IllegalArgumentException("an event can't move to a venue on another shard");
+        }
+    }
+
+    private static List<Event> toEvents(List<ArchivedEvent> archived) {
+        return archived.stream().map(ArchivedEvent::toEvent).toList();
     }
-}
\ No newline at end of file
+}
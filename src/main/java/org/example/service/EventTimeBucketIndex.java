@@ -0,0 +1,108 @@
+package org.example.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.Event;
+import org.example.entity.EventTimeBucket;
+import org.example.repository.EventRepository;
+import org.example.repository.EventTimeBucketRepository;
+import org.example.sharding.ShardRouter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * keeps the event_time_buckets mapping table in sync with events.
+ *
+ * each event gets one row per day it is active on. EventService calls this inside its own
+ * transaction, so the buckets are always committed together with the event they describe.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventTimeBucketIndex {
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private final EventTimeBucketRepository bucketRepository;
+    private final EventRepository eventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    /**
+     * the bucket (epoch day) a point in time falls into
+     */
+    public static long bucketOf(LocalDateTime time) {
+        return time.toLocalDate().toEpochDay();
+    }
+
+    /**
+     * last bucket touched by a half-open interval ending at end, so an event ending
+     * exactly at midnight does not show up on the next day
+     */
+    public static long lastBucketOf(LocalDateTime start, LocalDateTime end) {
+        return Math.max(bucketOf(start), bucketOf(end.minusNanos(1)));
+    }
+
+    /**
+     * (re)writes the buckets for a saved event
+     */
+    public void index(Event event) {
+        bucketRepository.deleteByEventId(event.getId());
+        long first = bucketOf(event.getStartTime());
+        long last = lastBucketOf(event.getStartTime(), event.getEndTime());
+        List<EventTimeBucket> buckets = new ArrayList<>();
+        for (long bucket = first; bucket <= last; bucket++) {
+            buckets.add(new EventTimeBucket(null, bucket, event.getId()));
+        }
+        bucketRepository.saveAll(buckets);
+    }
+
+    public void remove(Long eventId) {
+        bucketRepository.deleteByEventId(eventId);
+    }
+
+    // deleting a venue cascades to its events, their buckets have to go first
+    public void removeForVenue(Long venueId) {
+        bucketRepository.deleteByVenueId(venueId);
+    }
+
+    /**
+     * indexes events that have no buckets yet (existing data, the dataset seeder).
+     * runs in the background in small transactions, shard by shard, so startup is not held up by big tables.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        Thread backfill = new Thread(() -> {
+            try {
+                AtomicLong indexed = new AtomicLong();
+                shardRouter.forEachShard(shard -> {
+                    int batch;
+                    do {
+                        batch = transactionTemplate.execute(status -> backfillBatch());
+                        indexed.addAndGet(batch);
+                    } while (batch == BACKFILL_BATCH_SIZE);
+                });
+                if (indexed.get() > 0) {
+                    log.info("backfilled time buckets for {} events", indexed);
+                }
+            } catch (RuntimeException e) {
+                log.warn("time bucket backfill stopped", e);
+            }
+        }, "time-bucket-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    private int backfillBatch() {
+        List<Event> events = eventRepository.findWithoutTimeBuckets(PageRequest.of(0, BACKFILL_BATCH_SIZE));
+        events.forEach(this::index);
+        return events.size();
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * a time a venue is free for, from start to end. the venue stays free until freeUntil
+ * (the next event there, or the end of the searched window)
+ */
+public record FreeSlot(Long venueId, String venueName, Integer capacity, LocalDateTime start, LocalDateTime end,
+                       LocalDateTime freeUntil) {
+}
@@ -0,0 +1,106 @@
+package org.example.service;
+
+import org.example.entity.Venue;
+import org.example.repository.EventRow;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * the earliest free slots across many venues.
+ *
+ * each venue's busy times come sorted by start, a cursor walks through them and stops at every gap
+ * long enough for a slot (overlapping events simply merge into one busy stretch). the cursors sit
+ * in a priority queue ordered by the start of their current gap, so the earliest slot of all is
+ * always on top. the queue is heapified in one go, taking k slots from v venues costs
+ * O(v + k log v) on top of walking the events, no matter how many venues there are.
+ */
+final class FreeSlotFinder {
+    private FreeSlotFinder() {
+    }
+
+    /**
+     * @param busy events overlapping [from, to) by venue id, each list in start order
+     * @return up to limit slots, earliest first, ties by venue id. one slot per gap, a venue can come up more than once
+     */
+    static List<FreeSlot> earliest(List<Venue> venues, Map<Long, List<EventRow>> busy, LocalDateTime from,
+                                   LocalDateTime to, Duration length, int limit) {
+        List<Cursor> cursors = new ArrayList<>(venues.size());
+        for (Venue venue : venues) {
+            Cursor cursor = new Cursor(venue, busy.getOrDefault(venue.getId(), List.of()), from, to, length);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(cursors);
+        List<FreeSlot> slots = new ArrayList<>(Math.min(limit, cursors.size()));
+        while (slots.size() < limit && !queue.isEmpty()) {
+            Cursor cursor = queue.poll();
+            slots.add(cursor.slot());
+            if (cursor.nextGap()) {
+                queue.add(cursor);
+            }
+        }
+        return slots;
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+        private final Venue venue;
+        private final List<EventRow> busy;
+        private final LocalDateTime to;
+        private final Duration length;
+        // first event the cursor hasn't passed yet
+        private int next;
+        private LocalDateTime gapStart;
+        private LocalDateTime gapEnd;
+
+        Cursor(Venue venue, List<EventRow> busy, LocalDateTime from, LocalDateTime to, Duration length) {
+            this.venue = venue;
+            this.busy = busy;
+            this.to = to;
+            this.length = length;
+            this.gapStart = from;
+        }
+
+        /**
+         * moves to the first gap from gapStart on that a slot fits in, false when there is none before the window ends
+         */
+        boolean advance() {
+            while (gapStart.isBefore(to)) {
+                LocalDateTime end = next < busy.size() && busy.get(next).startTime().isBefore(to)
+                        ? busy.get(next).startTime() : to;
+                if (!gapStart.plus(length).isAfter(end)) {
+                    gapEnd = end;
+                    return true;
+                }
+                if (next == busy.size()) {
+                    return false;
+                }
+                LocalDateTime busyUntil = busy.get(next++).endTime();
+                if (busyUntil.isAfter(gapStart)) {
+                    gapStart = busyUntil;
+                }
+            }
+            return false;
+        }
+
+        boolean nextGap() {
+            gapStart = gapEnd;
+            return advance();
+        }
+
+        FreeSlot slot() {
+            return new FreeSlot(venue.getId(), venue.getName(), venue.getCapacity(), gapStart, gapStart.plus(length), gapEnd);
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int byStart = gapStart.compareTo(other.gapStart);
+            return byStart != 0 ? byStart : venue.getId().compareTo(other.venue.getId());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * one entry of a multi-get answer: the requested id and what was found for it.
+ * an id that doesn't exist is still in the list, with found=false and no value
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record LookupResult<T>(Long id, boolean found, T value) {
+    public static <T> LookupResult<T> found(Long id, T value) {
+        return new LookupResult<>(id, true, value);
+    }
+
+    public static <T> LookupResult<T> missing(Long id) {
+        return new LookupResult<>(id, false, null);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.service;
+
+import org.example.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * looks up a list of ids the way the multi-get endpoints need it.
+ *
+ * ids the in-memory view already holds are answered from it, the rest are grouped by shard and read
+ * with one IN query per multiget.chunk-size ids, all shards in parallel. the answer has one entry per
+ * requested id, in request order and duplicates included, ids nobody found are marked missing.
+ */
+@Component
+public class MultiGet {
+    private final ShardRouter shardRouter;
+    private final int maxIds;
+    private final int chunkSize;
+
+    public MultiGet(ShardRouter shardRouter,
+                    @Value("${multiget.max-ids:1000}") int maxIds,
+                    @Value("${multiget.chunk-size:500}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("multiget.chunk-size must be positive");
+        }
+        this.shardRouter = shardRouter;
+        this.maxIds = maxIds;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param cached  the in-memory copy of an id, or null when it has to be read
+     * @param shardOf the shard an id lives on
+     * @param query   reads the entities of up to chunkSize ids, runs on their shard
+     * @param idOf    the id of a loaded entity
+     * @throws IllegalArgumentException if more than multiget.max-ids ids are asked for, or one of them is null
+     */
+    public <T> List<LookupResult<T>> lookup(List<Long> ids, Function<Long, T> cached, ToIntFunction<Long> shardOf,
+                                            Function<List<Long>, List<T>> query, Function<T, Long> idOf) {
+        if (ids.size() > maxIds) {
+            throw new IllegalArgumentException("at most " + maxIds + " ids can be looked up at once");
+        }
+        Map<Long, T> found = new HashMap<>();
+        Map<Integer, Set<Long>> toRead = new HashMap<>();
+        for (Long id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("ids must not contain empty values");
+            }
+            if (found.containsKey(id)) {
+                continue;
+            }
+            T value = cached.apply(id);
+            if (value != null) {
+                found.put(id, value);
+            } else {
+                toRead.computeIfAbsent(shardOf.applyAsInt(id), shard -> new LinkedHashSet<>()).add(id);
+            }
+        }
+
+        if (!toRead.isEmpty()) {
+            // shards nobody asked for get no query at all
+            List<T> loaded = shardRouter.fanOut(shard -> read(toRead.get(shard), query));
+            for (T value : loaded) {
+                found.put(idOf.apply(value), value);
+            }
+        }
+
+        List<LookupResult<T>> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T value = found.get(id);
+            result.add(value != null ? LookupResult.found(id, value) : LookupResult.missing(id));
+        }
+        return result;
+    }
+
+    private <T> List<T> read(Set<Long> ids, Function<List<Long>, List<T>> query) {
+        if (ids == null) {
+            return List.of();
+        }
+        List<Long> all = new ArrayList<>(ids);
+        List<T> loaded = new ArrayList<>(all.size());
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            loaded.addAll(query.apply(all.subList(from, Math.min(from + chunkSize, all.size()))));
+        }
+        return loaded;
+    }
+}
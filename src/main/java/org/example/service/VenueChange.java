@@ -0,0 +1,8 @@
+package org.example.service;
+
+/**
+ * published by VenueService whenever a venue is written. deleting a venue also
+ * deletes its events (cascade), listeners have to drop those too.
+ */
+public record VenueChange(Long venueId, ChangeType type) {
+}
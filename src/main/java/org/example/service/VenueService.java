@@ -2,42 +2,260 @@ package org.example.service;
 
 
 import lombok.RequiredArgsConstructor;
+import org.example.cache.VenueCapacityIndex;
+import org.example.cache.VenueGeoIndex;
 import org.example.entity.Venue;
+import org.example.outbox.Outbox;
+import org.example.repository.ArchivedEventRepository;
+import org.example.repository.EventRepository;
+import org.example.repository.EventRow;
+import org.example.repository.Projection;
+import org.example.repository.ProjectionRepository;
 import org.example.repository.VenueRepository;
+import org.example.resilience.ServeStale;
+import org.example.sharding.FanOut;
+import org.example.sharding.ShardKey;
+import org.example.sharding.ShardRouter;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 @Transactional
 @RequiredArgsConstructor
 public class VenueService {
     private final VenueRepository venueRepository;
+    private final EventTimeBucketIndex timeBucketIndex;
+    private final VenueGeoIndex geoIndex;
+    private final VenueCapacityIndex capacityIndex;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Outbox outbox;
+    private final MultiGet multiGet;
+    private final ProjectionRepository projectionRepository;
+    private final ArchivedEventRepository archivedEventRepository;
+    private final EventRepository eventRepository;
+    private final Clock clock;
 
+    // limits of the free slot search
+    private static final Duration MAX_SLOT_WINDOW = Duration.ofDays(31);
+    private static final int MAX_SLOTS = 100;
+    private static final int SLOT_VENUE_CHUNK = 500;
+
+    @ServeStale("venues()")
+    @FanOut(orderBy = "id")
     public List<Venue> getAllVenues() {
         return venueRepository.findAll();
     }
 
+    /**
+     * all venues with their events fetched in the same query, for pages that list both
+     */
+    @FanOut(orderBy = "id")
+    public List<Venue> getAllVenuesWithEvents() {
+        return venueRepository.findAllWithEvents();
+    }
+
+    @ServeStale("venue(#id)")
+    @ShardKey(venueId = "#id")
     public Venue getVenueById(Long id) {
         return venueRepository.findById(id).orElseThrow(() -> new RuntimeException("Venue not found"));
     }
 
+    /**
+     * all venues with only the requested fields, ordered by id. only those columns are read
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Map<String, Object>> getAllVenues(String fields) {
+        Projection projection = Projection.ofVenues(fields);
+        return Projection.fieldsById(shardRouter.fanOut(shard -> projectionRepository.findAll(projection)));
+    }
+
+    @Transactional(readOnly = true)
+    @ShardKey(venueId = "#id")
+    public Map<String, Object> getVenueById(Long id, String fields) {
+        return projectionRepository.findById(Projection.ofVenues(fields), id)
+                .orElseThrow(() -> new RuntimeException("Venue not found"))
+                .fields();
+    }
+
+    /**
+     * several venues at once, in request order with the missing ones marked. venues in the
+     * capacity index are not read again
+     */
+    @ServeStale("venuesByIds(#ids)")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<LookupResult<Venue>> getVenuesByIds(List<Long> ids) {
+        return multiGet.lookup(ids, capacityIndex::get, shardRouter::shardOfVenue,
+                venueRepository::findAllById, Venue::getId);
+    }
+
+    @ShardKey(newVenue = "#venue")
     public Venue createVenue(Venue venue) {
-        return venueRepository.save(venue);
+        // with sharding the id is handed out up front, save() would ignore it and generate its own
+        Venue saved = shardRouter.isSharded() ? insertWithId(venue) : venueRepository.save(venue);
+        outbox.venueChanged(saved, ChangeType.CREATED);
+        eventPublisher.publishEvent(new VenueChange(saved.getId(), ChangeType.CREATED));
+        return saved;
     }
 
+    @ShardKey(venueId = "#id")
     public Venue updateVenue(Long id, Venue venue) {
         Venue existingVenue = getVenueById(id);
         venue.setId(existingVenue.getId());
-        return venueRepository.save(venue);
+        Venue saved = venueRepository.save(venue);
+        outbox.venueChanged(saved, ChangeType.UPDATED);
+        eventPublisher.publishEvent(new VenueChange(saved.getId(), ChangeType.UPDATED));
+        return saved;
     }
 
+    @ShardKey(venueId = "#id")
     public void deleteVenue(Long id) {
+        // the venue's events are removed by cascade, clear their time buckets first
+        timeBucketIndex.removeForVenue(id);
+        // archived events are not part of the cascade, they go first because they point at the venue
+        archivedEventRepository.deleteByVenueId(id);
         venueRepository.deleteById(id);
+        // one message for the venue, consumers drop its events with it
+        outbox.venueDeleted(id);
+        eventPublisher.publishEvent(new VenueChange(id, ChangeType.DELETED));
     }
 
+    /**
+     * venues with at least the given capacity, ordered by id. served from the capacity index
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<Venue> getVenuesByMinCapacity(Integer capacity) {
-        return venueRepository.findByCapacityGreaterThanEqual(capacity);
+        // the database is only asked until the index has finished its first load
+        List<Venue> venues = capacityIndex.isLoaded()
+                ? capacityIndex.between(capacity, Integer.MAX_VALUE)
+                : shardRouter.fanOut(shard -> venueRepository.findByCapacityGreaterThanEqual(capacity));
+        venues.sort(Comparator.comparing(Venue::getId));
+        return venues;
+    }
+
+    /**
+     * venues with a capacity between min and max (both inclusive, both optional), smallest first
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Venue> getVenuesByCapacityRange(Integer min, Integer max) {
+        int from = min != null ? min : Integer.MIN_VALUE;
+        int to = max != null ? max : Integer.MAX_VALUE;
+        if (from > to) {
+            throw new IllegalArgumentException("Minimum capacity is larger than maximum capacity");
+        }
+        if (!capacityIndex.isLoaded()) {
+            List<Venue> venues = shardRouter.fanOut(shard -> venueRepository.findByCapacityBetween(from, to));
+            venues.sort(Comparator.comparing(Venue::getCapacity).thenComparing(Venue::getId));
+            return venues;
+        }
+        return capacityIndex.between(from, to);
+    }
+
+    /**
+     * the limit venues with the most seats, largest first
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Venue> getLargestVenues(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (!capacityIndex.isLoaded()) {
+            List<Venue> venues = shardRouter.fanOut(shard -> venueRepository.findByOrderByCapacityDescIdDesc(PageRequest.of(0, limit)));
+            venues.sort(Comparator.comparing(Venue::getCapacity).thenComparing(Venue::getId).reversed());
+            return venues.size() > limit ? venues.subList(0, limit) : venues;
+        }
+        return capacityIndex.largest(limit);
+    }
+
+    /**
+     * venues closest to the given point. with a radius every venue inside it is returned (up to limit),
+     * without one the limit nearest venues. venues without coordinates are never returned
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<VenueGeoIndex.NearbyVenue> getNearbyVenues(double latitude, double longitude, Double radiusKm,
+                                                           int limit, int minCapacity) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Coordinates out of range");
+        }
+        if (radiusKm != null && radiusKm <= 0) {
+            throw new IllegalArgumentException("Radius must be positive");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (!geoIndex.isLoaded()) {
+            // only until the index has finished its first load
+            return VenueGeoIndex.rank(shardRouter.fanOut(shard -> venueRepository.findByLatitudeIsNotNullAndLongitudeIsNotNull()),
+                    latitude, longitude, radiusKm, minCapacity, limit);
+        }
+        return radiusKm != null
+                ? geoIndex.withinRadius(latitude, longitude, radiusKm, minCapacity, limit)
+                : geoIndex.nearest(latitude, longitude, limit, minCapacity);
+    }
+
+    /**
+     * the earliest limit slots of the given length in [from, to) at venues with at least minCapacity seats,
+     * earliest first. a window starting in the past starts at the next full minute instead.
+     * the venues come from the capacity index, their events from one query per shard and 500 venues,
+     * FreeSlotFinder merges them
+     *
+     * @throws IllegalArgumentException if the window, the length or the limit are out of range
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<FreeSlot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration length, int minCapacity, int limit) {
+        if (length.isNegative() || length.isZero()) {
+            throw new IllegalArgumentException("Slot length must be positive");
+        }
+        if (limit <= 0 || limit > MAX_SLOTS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SLOTS);
+        }
+        if (!from.isBefore(to) || Duration.between(from, to).compareTo(MAX_SLOT_WINDOW) > 0) {
+            throw new IllegalArgumentException("Window must end after it starts and span at most " + MAX_SLOT_WINDOW.toDays() + " days");
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime start = from.isAfter(now) ? from : now.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        if (Duration.between(start, to).compareTo(length) < 0) {
+            return new ArrayList<>();
+        }
+
+        List<Venue> venues = getVenuesByMinCapacity(minCapacity);
+        Map<Integer, List<Long>> venueIdsByShard = new TreeMap<>();
+        for (Venue venue : venues) {
+            venueIdsByShard.computeIfAbsent(shardRouter.shardOfVenue(venue.getId()), shard -> new ArrayList<>()).add(venue.getId());
+        }
+        List<EventRow> events = shardRouter.fanOut(shard -> {
+            List<Long> ids = venueIdsByShard.getOrDefault(shard, List.of());
+            List<EventRow> rows = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i += SLOT_VENUE_CHUNK) {
+                rows.addAll(eventRepository.findScheduleAtVenues(ids.subList(i, Math.min(ids.size(), i + SLOT_VENUE_CHUNK)), start, to));
+            }
+            return rows;
+        });
+        // every venue is in one chunk only, so each list stays in start order
+        Map<Long, List<EventRow>> busy = new HashMap<>();
+        for (EventRow event : events) {
+            busy.computeIfAbsent(event.venueId(), id -> new ArrayList<>()).add(event);
+        }
+        return FreeSlotFinder.earliest(venues, busy, start, to, length, limit);
+    }
+
+    private Venue insertWithId(Venue venue) {
+        venueRepository.insertWithId(venue.getId(), venue.getName(), venue.getAddress(), venue.getCapacity(),
+                venue.getLatitude(), venue.getLongitude(), LocalDateTime.now(clock));
+        return getVenueById(venue.getId());
     }
-}
\ No newline at end of file
+}
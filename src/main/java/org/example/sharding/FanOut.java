@@ -0,0 +1,18 @@
+package org.example.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * runs a service method returning a List once per shard in parallel and merges the results
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FanOut {
+    /**
+     * bean property the merged list is sorted by, the shards' own order is lost when merging
+     */
+    String orderBy() default "";
+}
@@ -0,0 +1,34 @@
+package org.example.sharding;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * keeps the mapping metadata hibernate built at startup, ShardSchemaInitializer needs it
+ * to create the same tables on the other shards
+ */
+public class HibernateMetadataHolder implements Integrator {
+    private volatile Metadata metadata;
+    private volatile SessionFactoryImplementor sessionFactory;
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    public Metadata metadata() {
+        return metadata;
+    }
+
+    public SessionFactoryImplementor sessionFactory() {
+        return sessionFactory;
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * the shard the current thread talks to. ShardRoutingDataSource reads it whenever a connection
+ * is taken, so it has to be set before a transaction starts. nothing set means shard 0.
+ */
+public final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * switches the thread to a shard and returns the previous one for restore
+     */
+    public static Integer set(Integer shard) {
+        Integer previous = CURRENT.get();
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+        return previous;
+    }
+
+    public static void restore(Integer previous) {
+        set(previous);
+    }
+
+    public static <T> T callOn(int shard, Supplier<T> call) {
+        Integer previous = set(shard);
+        try {
+            return call.get();
+        } finally {
+            restore(previous);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * routes a service call to the shard of one venue. exactly one attribute is set,
+ * each is a SpEL expression over the method parameters, e.g. {@code @ShardKey(venueId = "#id")}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+    /**
+     * the id of the venue the call works on
+     */
+    String venueId() default "";
+
+    /**
+     * the id of an event, its shard is encoded in the id
+     */
+    String eventId() default "";
+
+    /**
+     * a venue about to be created, it gets its id from VenueIdAllocator before the call
+     */
+    String newVenue() default "";
+}
@@ -0,0 +1,49 @@
+package org.example.sharding;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * consistent hash ring over the shards. every shard owns virtualNodes points on the ring and a
+ * venue belongs to the first point at or after the hash of its id. adding a shard only moves
+ * about 1/N of the venues, instead of nearly all of them like id % N would.
+ */
+public class ShardRing {
+    // keeps ring points away from the hashes of small venue ids, which would otherwise collide
+    private static final long NODE_SEED = 0x9E3779B97F4A7C15L;
+
+    private final NavigableMap<Long, Integer> ring = new TreeMap<>();
+    private final int shards;
+
+    public ShardRing(int shards, int virtualNodes) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("at least one shard is required");
+        }
+        this.shards = shards;
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.put(mix(NODE_SEED ^ (((long) shard << 32) | node)), shard);
+            }
+        }
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    public int shardOf(long venueId) {
+        Map.Entry<Long, Integer> owner = ring.ceilingEntry(mix(venueId));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    // murmur3 finalizer, spreads consecutive ids evenly over the ring
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
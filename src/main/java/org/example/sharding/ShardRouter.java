@@ -0,0 +1,144 @@
+package org.example.sharding;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * knows how many shards there are and where a venue or event lives.
+ *
+ * venues are placed with the consistent hash ring. events live next to their venue, each shard
+ * hands out event ids from its own range (shard * EVENT_ID_SPAN upwards), so the shard of an
+ * event can be read off its id without a lookup.
+ *
+ * with sharding switched off there is one shard and everything runs on the calling thread,
+ * exactly like before.
+ */
+public class ShardRouter {
+    public static final long EVENT_ID_SPAN = 1L << 40;
+
+    private final ShardRing ring;
+    private final ThreadPoolExecutor fanOutExecutor;
+
+    public ShardRouter(int shards, int virtualNodes, int fanOutThreads) {
+        this.ring = new ShardRing(shards, virtualNodes);
+        if (shards > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            // no queue: when all workers are busy the caller runs the query itself,
+            // so nested fan-outs can't deadlock waiting for each other
+            this.fanOutExecutor = new ThreadPoolExecutor(fanOutThreads, fanOutThreads, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "shard-fan-out-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            this.fanOutExecutor = null;
+        }
+    }
+
+    /**
+     * one shard, what the application uses when sharding is off
+     */
+    public static ShardRouter single() {
+        return new ShardRouter(1, 1, 1);
+    }
+
+    public boolean isSharded() {
+        return ring.shards() > 1;
+    }
+
+    public int shardCount() {
+        return ring.shards();
+    }
+
+    public int shardOfVenue(long venueId) {
+        return ring.shardOf(venueId);
+    }
+
+    public int shardOfEvent(long eventId) {
+        if (!isSharded()) {
+            return 0;
+        }
+        // ids outside every range end up on the last shard, where they are simply not found
+        return (int) Math.min(Math.max(eventId, 0) / EVENT_ID_SPAN, ring.shards() - 1);
+    }
+
+    /**
+     * first event id handed out by a shard
+     */
+    public static long firstEventId(int shard) {
+        return shard * EVENT_ID_SPAN + 1;
+    }
+
+    /**
+     * runs the query on every shard in parallel and concatenates the results in shard order.
+     * each shard gets its own connection and transaction, so this must not be called from
+     * inside a transaction.
+     */
+    public <T> List<T> fanOut(IntFunction<List<T>> query) {
+        if (!isSharded()) {
+            return new ArrayList<>(query.apply(0));
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("cannot fan out across shards inside a transaction");
+        }
+        List<Future<List<T>>> pending = new ArrayList<>();
+        for (int shard = 1; shard < ring.shards(); shard++) {
+            int target = shard;
+            pending.add(fanOutExecutor.submit(() -> ShardContext.callOn(target, () -> query.apply(target))));
+        }
+        List<T> merged = new ArrayList<>(ShardContext.callOn(0, () -> query.apply(0)));
+        for (Future<List<T>> result : pending) {
+            merged.addAll(await(result));
+        }
+        return merged;
+    }
+
+    /**
+     * runs the work once per shard, one shard after the other, on the calling thread
+     */
+    public void forEachShard(IntConsumer work) {
+        for (int shard = 0; shard < ring.shards(); shard++) {
+            int target = shard;
+            ShardContext.callOn(target, () -> {
+                work.accept(target);
+                return null;
+            });
+        }
+    }
+
+    private static <T> T await(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("shard query failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.sharding;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.example.entity.Venue;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * picks the shard for service methods marked with ShardKey or FanOut.
+ *
+ * it runs before the transaction interceptor (lowest precedence): the routing datasource decides on the shard
+ * when the transaction takes its connection, so the shard has to be set by then.
+ * calls made while a shard is already set (nested service calls) stay on that shard.
+ */
+@Aspect
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class ShardRoutingAspect {
+    private final ShardRouter shardRouter;
+    private final ObjectProvider<VenueIdAllocator> venueIdAllocator;
+
+    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+
+    @Around("@annotation(shardKey)")
+    public Object route(ProceedingJoinPoint joinPoint, ShardKey shardKey) throws Throwable {
+        if (!shardRouter.isSharded() || ShardContext.current() != null) {
+            return joinPoint.proceed();
+        }
+        EvaluationContext context = evaluationContext(joinPoint);
+        int shard;
+        if (!shardKey.newVenue().isEmpty()) {
+            Venue venue = parser.parseExpression(shardKey.newVenue()).getValue(context, Venue.class);
+            venue.setId(venueIdAllocator.getObject().next());
+            shard = shardRouter.shardOfVenue(venue.getId());
+        } else if (!shardKey.venueId().isEmpty()) {
+            shard = shardRouter.shardOfVenue(requireId(parser.parseExpression(shardKey.venueId()).getValue(context, Long.class), "venue is required"));
+        } else {
+            shard = shardRouter.shardOfEvent(requireId(parser.parseExpression(shardKey.eventId()).getValue(context, Long.class), "event id is required"));
+        }
+
+        Integer previous = ShardContext.set(shard);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    @Around("@annotation(fanOut)")
+    public Object fanOut(ProceedingJoinPoint joinPoint, FanOut fanOut) throws Throwable {
+        if (!shardRouter.isSharded() || ShardContext.current() != null) {
+            return joinPoint.proceed();
+        }
+        List<Object> merged;
+        try {
+            merged = shardRouter.fanOut(shard -> proceedForList(joinPoint));
+        } catch (ProceedFailure failure) {
+            throw failure.getCause();
+        }
+        if (!fanOut.orderBy().isEmpty()) {
+            merged.sort(new PropertyComparator<>(fanOut.orderBy(), false, true));
+        }
+        return merged;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> proceedForList(ProceedingJoinPoint joinPoint) {
+        try {
+            // every proceed works on its own copy of the invocation, so the shards can run in parallel
+            return (List<Object>) joinPoint.proceed();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ProceedFailure(e);
+        }
+    }
+
+    private EvaluationContext evaluationContext(ProceedingJoinPoint joinPoint) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        return new MethodBasedEvaluationContext(null, signature.getMethod(), joinPoint.getArgs(), parameterNames);
+    }
+
+    private static long requireId(Long id, String error) {
+        if (id == null) {
+            // a client error, not a routing one: an event without its venue, say
+            throw new IllegalArgumentException(error);
+        }
+        return id;
+    }
+
+    // carries checked exceptions out of the fan-out lambda
+    private static class ProceedFailure extends RuntimeException {
+        ProceedFailure(Throwable cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.sharding;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * gets every shard ready before the application starts serving:
+ * - hibernate only manages the schema of shard 0, the same ddl-auto action (as an update) is run on the others
+ * - each shard's events table starts counting at the shard's own id range
+ * - the global venue id counter is created on shard 0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardSchemaInitializer {
+    private final ShardRouter shardRouter;
+    private final HibernateMetadataHolder metadataHolder;
+    private final JdbcTemplate jdbcTemplate;
+    // not used directly, makes sure hibernate has finished its bootstrap and filled the metadata holder
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void prepareShards() {
+        Map<String, Object> settings = new HashMap<>(metadataHolder.sessionFactory().getProperties());
+        Object action = settings.get(AvailableSettings.HBM2DDL_AUTO);
+        boolean manageSchema = action != null && !"none".equals(action) && !"validate".equals(action);
+        settings.put(AvailableSettings.HBM2DDL_AUTO, "update");
+
+        for (int shard = 1; shard < shardRouter.shardCount(); shard++) {
+            int target = shard;
+            ShardContext.callOn(target, () -> {
+                if (manageSchema) {
+                    SchemaManagementToolCoordinator.process(metadataHolder.metadata(),
+                            metadataHolder.sessionFactory().getServiceRegistry(), settings, dropAction -> {
+                            });
+                }
+                startEventIdsAt(ShardRouter.firstEventId(target));
+                return null;
+            });
+        }
+        ShardContext.callOn(0, () -> {
+            createVenueIdSequence();
+            return null;
+        });
+        log.info("prepared {} shards", shardRouter.shardCount());
+    }
+
+    private void startEventIdsAt(long firstId) {
+        // archived events keep their ids, a restart must not hand them out again
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM (SELECT MAX(id) AS id FROM events "
+                + "UNION ALL SELECT MAX(id) FROM events_archive) ids", Long.class);
+        if (maxId != null && maxId >= firstId) {
+            return;
+        }
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        jdbcTemplate.execute("MySQL".equals(database)
+                ? "ALTER TABLE events AUTO_INCREMENT = " + firstId
+                : "ALTER TABLE events ALTER COLUMN id RESTART WITH " + firstId);
+    }
+
+    private void createVenueIdSequence() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS venue_id_sequence (next_id BIGINT NOT NULL)");
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM venue_id_sequence", Integer.class);
+        if (rows == null || rows == 0) {
+            // continue after venues that already exist on any shard
+            List<Long> maxIds = shardRouter.fanOut(shard ->
+                    List.of(jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM venues", Long.class)));
+            long next = maxIds.stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+            jdbcTemplate.update("INSERT INTO venue_id_sequence (next_id) VALUES (?)", next);
+        }
+    }
+}
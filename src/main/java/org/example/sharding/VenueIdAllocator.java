@@ -0,0 +1,47 @@
+package org.example.sharding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * hands out venue ids that are unique across all shards. the shard of a venue is derived from
+ * its id, so the id has to exist before the venue is written anywhere.
+ *
+ * the counter lives in venue_id_sequence on shard 0 and is advanced a block at a time,
+ * ids of a block that is not used up before a restart are skipped.
+ */
+@Component
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class VenueIdAllocator {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+
+    private long next;
+    private long limit;
+
+    public VenueIdAllocator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            @Value("${sharding.venue-id-block:100}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    public synchronized long next() {
+        if (next == limit) {
+            next = ShardContext.callOn(0, () -> transactionTemplate.execute(status -> {
+                Long first = jdbcTemplate.queryForObject("SELECT next_id FROM venue_id_sequence FOR UPDATE", Long.class);
+                jdbcTemplate.update("UPDATE venue_id_sequence SET next_id = ?", first + blockSize);
+                return first;
+            }));
+            limit = next + blockSize;
+        }
+        return next++;
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.snapshot;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * the binary format of a state snapshot, big-endian:
+ *
+ * header: magic "EVSN", format version, asOf, watermark, venue count, event count
+ * venue:  id, name, address, capacity, latitude, longitude (NaN for none)
+ * event:  id, venue id (0 for none), start, end, name, description
+ * footer: CRC32 of everything before it
+ *
+ * times are epoch seconds (UTC, like the LocalDateTime was written) and nanos, strings their UTF-8
+ * length and bytes, -1 for null. written to a temp file and moved over the old one, so a crash
+ * never leaves half a snapshot. read through a MappedByteBuffer: the OS pages the file in, there
+ * is no read buffer to copy through and nothing to parse but the rows.
+ */
+public final class SnapshotFile {
+    static final int MAGIC = 0x4556534E;
+    static final int VERSION = 1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private SnapshotFile() {
+    }
+
+    public static void write(Path file, StateSnapshot snapshot) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16), crc))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeTime(out, snapshot.asOf());
+                writeTime(out, snapshot.watermark());
+                out.writeInt(snapshot.venues().size());
+                out.writeInt(snapshot.events().size());
+                for (Venue venue : snapshot.venues()) {
+                    out.writeLong(venue.getId());
+                    writeString(out, venue.getName());
+                    writeString(out, venue.getAddress());
+                    out.writeInt(venue.getCapacity());
+                    out.writeDouble(venue.getLatitude() == null ? Double.NaN : venue.getLatitude());
+                    out.writeDouble(venue.getLongitude() == null ? Double.NaN : venue.getLongitude());
+                }
+                for (Event event : snapshot.events()) {
+                    out.writeLong(event.getId());
+                    out.writeLong(event.getVenue() == null ? 0 : event.getVenue().getId());
+                    writeTime(out, event.getStartTime());
+                    writeTime(out, event.getEndTime());
+                    writeString(out, event.getName());
+                    writeString(out, event.getDescription());
+                }
+                // the checksum itself goes through the checked stream too, it was taken before
+                out.writeInt((int) crc.getValue());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException when the file isn't a snapshot of this version or is damaged
+     */
+    public static StateSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 12 || size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("not a state snapshot: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int bodyLength = (int) size - 4;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(bodyLength));
+            if ((int) crc.getValue() != buffer.getInt(bodyLength)) {
+                throw new IllegalStateException("state snapshot is damaged: " + file);
+            }
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalStateException("not a state snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalStateException("state snapshot format " + version + " isn't supported: " + file);
+            }
+            LocalDateTime asOf = readTime(buffer);
+            LocalDateTime watermark = readTime(buffer);
+            int venueCount = buffer.getInt();
+            int eventCount = buffer.getInt();
+
+            List<Venue> venues = new ArrayList<>(venueCount);
+            Map<Long, Venue> venuesById = new HashMap<>(venueCount * 2);
+            for (int i = 0; i < venueCount; i++) {
+                Venue venue = new Venue();
+                venue.setId(buffer.getLong());
+                venue.setName(readString(buffer));
+                venue.setAddress(readString(buffer));
+                venue.setCapacity(buffer.getInt());
+                venue.setLatitude(readCoordinate(buffer));
+                venue.setLongitude(readCoordinate(buffer));
+                venues.add(venue);
+                venuesById.put(venue.getId(), venue);
+            }
+            List<Event> events = new ArrayList<>(eventCount);
+            for (int i = 0; i < eventCount; i++) {
+                Event event = new Event();
+                event.setId(buffer.getLong());
+                // the same venue object the venue list has, as a JPA read would give it
+                event.setVenue(venuesById.get(buffer.getLong()));
+                event.setStartTime(readTime(buffer));
+                event.setEndTime(readTime(buffer));
+                event.setName(readString(buffer));
+                event.setDescription(readString(buffer));
+                events.add(event);
+            }
+            if (buffer.position() != bodyLength) {
+                throw new IllegalStateException("state snapshot is damaged: " + file);
+            }
+            return new StateSnapshot(asOf, watermark, venues, events);
+        }
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        if (time == null) {
+            out.writeLong(NO_TIME);
+            out.writeInt(0);
+        } else {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        return seconds == NO_TIME ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Double readCoordinate(ByteBuffer buffer) {
+        double value = buffer.getDouble();
+        return Double.isNaN(value) ? null : value;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.snapshot;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * the events and venues as they were at asOf. every row written after watermark may differ,
+ * everything before it is in here
+ */
+public record StateSnapshot(LocalDateTime asOf, LocalDateTime watermark, List<Venue> venues, List<Event> events) {
+}
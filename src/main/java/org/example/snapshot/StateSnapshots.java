@@ -0,0 +1,118 @@
+package org.example.snapshot;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.analytics.EventColumnarSnapshot;
+import org.example.cache.UpcomingEventsCache;
+import org.example.cache.VenueCapacityIndex;
+import org.example.cache.VenueGeoIndex;
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.resilience.LastKnownGood;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * writes the last known good copy to snapshot.file every snapshot.interval-ms, and restores it
+ * from there at startup, before the first scheduled refresh would load every row. the restored
+ * copy then only catches up with the rows written after the snapshot's watermark (see
+ * LastKnownGood).
+ *
+ * once caught up the copy also seeds the venue indexes, the upcoming events and the columnar
+ * snapshot, so none of them reads the tables in full either. their change listeners and scheduled
+ * refreshes take over from there. if the copy couldn't catch up (database down) they are left to
+ * load from the database as usual, a stale seed would never be corrected.
+ *
+ * a missing, damaged or outdated file is logged and skipped, the copy is then loaded in full as
+ * without snapshots. nothing is written on shutdown: a snapshot is only worth what its watermark
+ * saves, and the last periodic one is at most snapshot.interval-ms behind.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StateSnapshots implements SmartInitializingSingleton {
+    private final LastKnownGood lastKnownGood;
+    private final VenueCapacityIndex capacityIndex;
+    private final VenueGeoIndex geoIndex;
+    private final UpcomingEventsCache upcomingEventsCache;
+    private final EventColumnarSnapshot columnarSnapshot;
+
+    @Value("${snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stale.enabled:true}")
+    private boolean staleEnabled;
+
+    @Value("${snapshot.file:snapshot/state.bin}")
+    private Path file;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled && staleEnabled && Files.exists(file)) {
+            restore();
+        }
+    }
+
+    /**
+     * @return whether the snapshot was taken over
+     */
+    public boolean restore() {
+        long started = System.nanoTime();
+        StateSnapshot snapshot;
+        try {
+            snapshot = SnapshotFile.read(file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("could not read state snapshot {}, loading from the database instead", file, e);
+            return false;
+        }
+        int caughtUp = lastKnownGood.restore(snapshot);
+        log.info("restored {} venues and {} events as of {} from {} in {} ms, {} rows changed since",
+                snapshot.venues().size(), snapshot.events().size(), snapshot.asOf(), file,
+                (System.nanoTime() - started) / 1_000_000, caughtUp < 0 ? "unknown" : caughtUp);
+        if (caughtUp >= 0) {
+            seed();
+        }
+        return true;
+    }
+
+    private void seed() {
+        List<Venue> venues = lastKnownGood.venues();
+        List<Event> events = lastKnownGood.events();
+        List<Runnable> seeds = List.of(() -> capacityIndex.seed(venues), () -> geoIndex.seed(venues),
+                () -> upcomingEventsCache.seed(events), () -> columnarSnapshot.seed(events));
+        for (Runnable seed : seeds) {
+            try {
+                seed.run();
+            } catch (RuntimeException e) {
+                // that one loads from the database on its first refresh instead
+                log.warn("could not seed from the restored copy", e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${snapshot.interval-ms:600000}", initialDelayString = "${snapshot.interval-ms:600000}")
+    public void write() {
+        if (!enabled) {
+            return;
+        }
+        StateSnapshot snapshot = lastKnownGood.snapshot();
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            SnapshotFile.write(file, snapshot);
+            log.debug("wrote state snapshot of {} venues and {} events to {}", snapshot.venues().size(),
+                    snapshot.events().size(), file);
+        } catch (IOException e) {
+            // the previous snapshot is still there, only older
+            log.warn("could not write state snapshot {}", file, e);
+        }
+    }
+}
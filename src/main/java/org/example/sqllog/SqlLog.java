@@ -0,0 +1,212 @@
+package org.example.sqllog;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * where timed statements go instead of stdout.
+ *
+ * the request thread only drops an entry into a fixed-size ring (one CAS, nothing is formatted
+ * or written), a single background thread drains it: it folds every statement into per-shape
+ * stats, logs a sql-log.sample-rate share of them and every statement slower than
+ * sql-log.slow-threshold-ms. when the ring is full new entries are dropped and counted, the
+ * database is never slowed down by its own logging.
+ */
+@Component
+public class SqlLog {
+    private static final Logger SQL = LoggerFactory.getLogger("org.example.sql");
+
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final int maxShapes;
+    private final AtomicReferenceArray<Entry> ring;
+    private final int mask;
+    // next slot to claim (producers) and next slot to read (writer thread)
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong slowStatements = new AtomicLong();
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private final SplittableRandom random = new SplittableRandom();
+    private volatile boolean running;
+    private Thread writer;
+
+    /**
+     * one executed statement, batchRows is 0 for a single execution
+     */
+    record Entry(String sql, long nanos, int bindParameters, int batchRows, boolean failed) {
+    }
+
+    /**
+     * timing of one query shape, times in milliseconds
+     */
+    public record QueryShape(String shape, long count, double meanMs, double maxMs, double totalMs,
+                             long slowCount, double meanBindParameters) {
+    }
+
+    public record Report(long statements, long slowStatements, long dropped, int shapes, List<QueryShape> slowest) {
+    }
+
+    public SqlLog(@Value("${sql-log.sample-rate:0.01}") double sampleRate,
+                  @Value("${sql-log.slow-threshold-ms:100}") long slowThresholdMs,
+                  @Value("${sql-log.buffer-size:8192}") int bufferSize,
+                  @Value("${sql-log.max-shapes:1000}") int maxShapes) {
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.maxShapes = maxShapes;
+        // rounded up to a power of two so the slot is a mask away from the sequence
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "sql-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.join(1000);
+    }
+
+    /**
+     * called on the thread that ran the statement, never blocks
+     */
+    public void record(String sql, long nanos, int bindParameters, int batchRows, boolean failed) {
+        long slot;
+        do {
+            slot = tail.get();
+            if (slot - head >= ring.length()) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(slot, slot + 1));
+        ring.set((int) (slot & mask), new Entry(sql, nanos, bindParameters, batchRows, failed));
+    }
+
+    /**
+     * the limit shapes with the highest mean time, slowest first
+     *
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    public Report report(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<QueryShape> all = new ArrayList<>();
+        for (Map.Entry<String, ShapeStats> shape : shapes.entrySet()) {
+            all.add(shape.getValue().snapshot(shape.getKey()));
+        }
+        all.sort(Comparator.comparingDouble(QueryShape::meanMs).reversed());
+        return new Report(statements.get(), slowStatements.get(), dropped.get(), all.size(),
+                all.size() > limit ? all.subList(0, limit) : all);
+    }
+
+    private void drainLoop() {
+        while (running || head != tail.get()) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+    }
+
+    /**
+     * processes everything published so far, returns how many entries that was
+     */
+    int drain() {
+        int drained = 0;
+        while (true) {
+            int index = (int) (head & mask);
+            Entry entry = ring.get(index);
+            if (entry == null) {
+                // either empty or a producer has claimed the slot but not filled it yet
+                return drained;
+            }
+            ring.set(index, null);
+            head++;
+            drained++;
+            process(entry);
+        }
+    }
+
+    private void process(Entry entry) {
+        statements.incrementAndGet();
+        String shape = SqlShape.of(entry.sql());
+        ShapeStats stats = shapes.get(shape);
+        if (stats == null && shapes.size() < maxShapes) {
+            stats = shapes.computeIfAbsent(shape, key -> new ShapeStats());
+        }
+        boolean slow = entry.nanos() >= slowThresholdNanos;
+        if (stats != null) {
+            stats.add(entry.nanos(), entry.bindParameters(), slow);
+        }
+        if (slow) {
+            slowStatements.incrementAndGet();
+            SQL.warn("slow query {} ms, {} parameters{}{}: {}", millis(entry.nanos()), entry.bindParameters(),
+                    batchNote(entry), entry.failed() ? ", failed" : "", entry.sql());
+        } else if (sampleRate > 0 && random.nextDouble() < sampleRate) {
+            SQL.info("{} ms, {} parameters{}{}: {}", millis(entry.nanos()), entry.bindParameters(),
+                    batchNote(entry), entry.failed() ? ", failed" : "", entry.sql());
+        }
+    }
+
+    private static String batchNote(Entry entry) {
+        return entry.batchRows() > 0 ? ", batch of " + entry.batchRows() : "";
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    /**
+     * written by the writer thread only, read by the admin endpoint
+     */
+    private static final class ShapeStats {
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long slowCount;
+        private long bindParameters;
+
+        synchronized void add(long nanos, int parameters, boolean slow) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            bindParameters += parameters;
+            if (slow) {
+                slowCount++;
+            }
+        }
+
+        synchronized QueryShape snapshot(String shape) {
+            // a shape the writer has just created and not added its first statement to yet
+            if (count == 0) {
+                return new QueryShape(shape, 0, 0, 0, 0, 0, 0);
+            }
+            return new QueryShape(shape, count, totalNanos / 1e6 / count, maxNanos / 1e6, totalNanos / 1e6,
+                    slowCount, (double) bindParameters / count);
+        }
+    }
+}
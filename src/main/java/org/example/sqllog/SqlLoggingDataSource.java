@@ -0,0 +1,88 @@
+package org.example.sqllog;
+
+import org.example.jdbc.ProxyingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * hands out connections whose statements report their execution time and bind parameter
+ * count to SqlLog. sits below hibernate and JdbcTemplate, so it sees every statement either
+ * of them runs, including batches. only execute calls are timed, reading a result set is not.
+ */
+public class SqlLoggingDataSource extends ProxyingDataSource<SqlLoggingDataSource.StatementState> {
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final SqlLog sqlLog;
+
+    public SqlLoggingDataSource(DataSource target, SqlLog sqlLog) {
+        super(target);
+        this.sqlLog = sqlLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    static final class StatementState {
+        // null for plain statements, their sql comes with each execute call
+        private final String preparedSql;
+        private String batchSql;
+        private int bindParameters;
+        private int batchRows;
+
+        StatementState(String preparedSql) {
+            this.preparedSql = preparedSql;
+        }
+    }
+
+    @Override
+    protected StatementState statementOpened(String preparedSql) {
+        return new StatementState(preparedSql);
+    }
+
+    @Override
+    protected Object invokeStatement(StatementState state, Method method, Object[] args, Invocation target) throws Throwable {
+        String name = method.getName();
+        if (!EXECUTE_METHODS.contains(name)) {
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                state.bindParameters = Math.max(state.bindParameters, index);
+            } else if (name.equals("addBatch")) {
+                state.batchRows++;
+                if (args != null && args.length == 1) {
+                    state.batchSql = (String) args[0];
+                }
+            } else if (name.equals("clearBatch")) {
+                state.batchRows = 0;
+            }
+            return target.proceed();
+        }
+
+        boolean batch = name.startsWith("executeBatch") || name.startsWith("executeLargeBatch");
+        String sql = args != null && args.length > 0 && args[0] instanceof String text ? text
+                : state.preparedSql != null ? state.preparedSql : state.batchSql;
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = target.proceed();
+            failed = false;
+            return result;
+        } finally {
+            sqlLog.record(sql != null ? sql : "?", System.nanoTime() - started, state.bindParameters,
+                    batch ? state.batchRows : 0, failed);
+            if (batch) {
+                state.batchRows = 0;
+            }
+        }
+    }
+}
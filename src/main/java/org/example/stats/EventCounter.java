@@ -0,0 +1,8 @@
+package org.example.stats;
+
+/**
+ * what EventCounters counts per event
+ */
+public enum EventCounter {
+    VIEWS, BOOKINGS, CANCELLATIONS
+}
@@ -0,0 +1,385 @@
+package org.example.stats;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.entity.EventStats;
+import org.example.repository.EventStatsRepository;
+import org.example.resilience.DatabaseCircuitBreaker;
+import org.example.resilience.DatabaseOutage;
+import org.example.service.ChangeType;
+import org.example.service.EventChange;
+import org.example.service.VenueChange;
+import org.example.sharding.ShardContext;
+import org.example.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * live view, booking and cancellation counts per event, without a database write per hit.
+ *
+ * every event gets a LongAdder per counter. an increment is a map lookup and an add on a cell
+ * striped by thread, so busy events don't make their callers fight over one value, and apart from
+ * an event's first increment nothing is allocated. a scheduled job adds what was counted since the
+ * last run to event_stats, one batch per shard (stats.flush-ms). the adders are never reset, what
+ * was written is remembered next to them, so increments racing with a flush are never lost.
+ *
+ * the first increment after a flush puts the event into a dirty set and a flush only looks at
+ * those, so a second with a few busy events costs a few rows however many events were counted
+ * before. an event nobody counted for stats.evict-after-ms after its last write is dropped from
+ * the map, it has nothing pending. it gets one more flush after that for an increment that got
+ * hold of it just before, and the next increment starts over from a new entry.
+ *
+ * counts() adds the stored row and what is still pending here. with several instances every one
+ * flushes its own increments, the pending part is only this instance's.
+ *
+ * while the database circuit breaker is open nothing is flushed, the counts keep adding up here
+ * and go out with the first flush after. an outage is logged once, not on every flush.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventCounters {
+    private static final String UPDATE_STATS = "UPDATE event_stats SET views = views + ?, bookings = bookings + ?, "
+            + "cancellations = cancellations + ?, updated_at = ? WHERE event_id = ?";
+    private static final String INSERT_STATS =
+            "INSERT INTO event_stats (event_id, views, bookings, cancellations, updated_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_STATS = "DELETE FROM event_stats WHERE event_id = ?";
+    private static final int ID_CHUNK = 500;
+    private static final int COUNTERS = EventCounter.values().length;
+
+    private final EventStatsRepository statsRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final Clock clock;
+    private final DatabaseCircuitBreaker breaker;
+
+    @Value("${stats.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stats.evict-after-ms:300000}")
+    private long evictAfterMs;
+
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+    // events incremented since the last flush, the only ones a flush looks at
+    private final Set<Long> dirtyEvents = ConcurrentHashMap.newKeySet();
+    // written events in the order they were last written, and the ones the last flush evicted. only flush uses them
+    private final Deque<Idle> idle = new ArrayDeque<>();
+    private Map<Long, Counters> evicted = new HashMap<>();
+    private final Set<Long> deletedEvents = ConcurrentHashMap.newKeySet();
+    private volatile boolean venueDeleted;
+    private boolean outage;
+    // counts() holds it while it adds stored and pending counts, flush while counts move from one to the other
+    private final ReadWriteLock flushing = new ReentrantReadWriteLock();
+
+    private static final class Counters {
+        final LongAdder[] adders = new LongAdder[COUNTERS];
+        // what has been written of each adder and whether the event has a row, only changed by flush
+        final long[] flushed = new long[COUNTERS];
+        boolean stored;
+        // set by the first increment after a flush, so the event goes into dirtyEvents once per flush
+        volatile boolean dirty;
+        // when flush last wrote it and whether it waits in the idle queue, only used by flush
+        long writtenAt;
+        boolean queued;
+
+        Counters() {
+            for (int i = 0; i < COUNTERS; i++) {
+                adders[i] = new LongAdder();
+            }
+        }
+
+        long pending(int counter) {
+            return adders[counter].sum() - flushed[counter];
+        }
+    }
+
+    /**
+     * what one flush writes for an event: the adders' sums when it started
+     */
+    private record Delta(Long eventId, Counters counters, long[] sums) {
+        long get(int counter) {
+            return sums[counter] - counters.flushed[counter];
+        }
+
+        void written() {
+            System.arraycopy(sums, 0, counters.flushed, 0, COUNTERS);
+            counters.stored = true;
+        }
+    }
+
+    private record Idle(Long eventId, Counters counters, long since) {
+    }
+
+    public void increment(Long eventId, EventCounter counter) {
+        if (!enabled || eventId == null) {
+            return;
+        }
+        Counters eventCounters = counters.get(eventId);
+        if (eventCounters == null) {
+            eventCounters = counters.computeIfAbsent(eventId, id -> new Counters());
+        }
+        eventCounters.adders[counter.ordinal()].increment();
+        // after the add: a flush clears the flag before it reads the sums, so either it sees the add or we mark again
+        if (!eventCounters.dirty) {
+            eventCounters.dirty = true;
+            dirtyEvents.add(eventId);
+        }
+    }
+
+    /**
+     * the stored counts plus the ones not flushed yet. an event nobody counted has zeros
+     */
+    public EventCounts counts(Long eventId) {
+        flushing.readLock().lock();
+        try {
+            long[] total = new long[COUNTERS];
+            EventStats stored = ShardContext.callOn(shardRouter.shardOfEvent(eventId),
+                    () -> statsRepository.findById(eventId)).orElse(null);
+            if (stored != null) {
+                total[EventCounter.VIEWS.ordinal()] = stored.getViews();
+                total[EventCounter.BOOKINGS.ordinal()] = stored.getBookings();
+                total[EventCounter.CANCELLATIONS.ordinal()] = stored.getCancellations();
+            }
+            Counters pending = counters.get(eventId);
+            if (pending != null) {
+                for (int i = 0; i < COUNTERS; i++) {
+                    total[i] += pending.pending(i);
+                }
+            }
+            return new EventCounts(eventId, total[EventCounter.VIEWS.ordinal()],
+                    total[EventCounter.BOOKINGS.ordinal()], total[EventCounter.CANCELLATIONS.ordinal()]);
+        } finally {
+            flushing.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChange(EventChange change) {
+        if (change.type() == ChangeType.DELETED) {
+            counters.remove(change.eventId());
+            deletedEvents.add(change.eventId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVenueChange(VenueChange change) {
+        // its events went without a change each, their rows are found by the next flush
+        if (change.type() == ChangeType.DELETED) {
+            venueDeleted = true;
+        }
+    }
+
+    /**
+     * writes everything counted since the last run
+     */
+    @Scheduled(fixedDelayString = "${stats.flush-ms:1000}")
+    public synchronized void flush() {
+        if (breaker.isOpen()) {
+            return;
+        }
+        long now = clock.millis();
+        Map<Integer, List<Delta>> deltasByShard = new TreeMap<>();
+        for (Long eventId : dirtyEvents) {
+            dirtyEvents.remove(eventId);
+            Counters eventCounters = counters.get(eventId);
+            if (eventCounters != null) {
+                // cleared before the sums are read, an increment after this marks the event again
+                eventCounters.dirty = false;
+                addDelta(deltasByShard, eventId, eventCounters);
+            }
+        }
+        // evicted by the last flush: an increment that got hold of one just before has landed by now
+        Map<Long, Counters> lastEvicted = evicted;
+        evicted = new HashMap<>();
+        lastEvicted.forEach((eventId, eventCounters) -> addDelta(deltasByShard, eventId, eventCounters));
+        Map<Integer, List<Long>> deletesByShard = new TreeMap<>();
+        for (Long eventId : deletedEvents) {
+            deletedEvents.remove(eventId);
+            deletesByShard.computeIfAbsent(shardRouter.shardOfEvent(eventId), shard -> new ArrayList<>()).add(eventId);
+        }
+        boolean purge = venueDeleted;
+        venueDeleted = false;
+
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            List<Delta> deltas = deltasByShard.getOrDefault(shard, List.of());
+            List<Long> deletes = deletesByShard.getOrDefault(shard, List.of());
+            if (deltas.isEmpty() && deletes.isEmpty() && !purge) {
+                continue;
+            }
+            flushing.writeLock().lock();
+            try {
+                ShardContext.callOn(shard, () -> transactionTemplate.execute(status -> {
+                    write(deltas, deletes, purge);
+                    return null;
+                }));
+                for (Delta delta : deltas) {
+                    delta.written();
+                    if (lastEvicted.get(delta.eventId()) != delta.counters()) {
+                        queueIdle(delta, now);
+                    }
+                }
+                if (outage) {
+                    outage = false;
+                    log.info("event stats reached the database again");
+                }
+            } catch (DataAccessException | TransactionException e) {
+                // nothing was marked as written, it all goes out with the next flush
+                if (!DatabaseOutage.is(e)) {
+                    log.error("could not write stats of {} events to shard {}", deltas.size() + deletes.size(), shard, e);
+                } else if (!outage) {
+                    outage = true;
+                    log.warn("can't reach the database, event stats stay in memory until it is back: {}", e.getMessage());
+                }
+                for (Delta delta : deltas) {
+                    if (lastEvicted.get(delta.eventId()) == delta.counters()) {
+                        evicted.put(delta.eventId(), delta.counters());
+                    } else {
+                        delta.counters().dirty = true;
+                        dirtyEvents.add(delta.eventId());
+                    }
+                }
+                deletedEvents.addAll(deletes);
+                venueDeleted |= purge;
+            } finally {
+                flushing.writeLock().unlock();
+            }
+        }
+        evictIdle(now);
+    }
+
+    /**
+     * how many events are held in memory
+     */
+    int tracked() {
+        return counters.size();
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private void addDelta(Map<Integer, List<Delta>> deltasByShard, Long eventId, Counters eventCounters) {
+        Delta delta = delta(eventId, eventCounters);
+        if (delta != null) {
+            deltasByShard.computeIfAbsent(shardRouter.shardOfEvent(eventId), shard -> new ArrayList<>()).add(delta);
+        }
+    }
+
+    private void queueIdle(Delta delta, long now) {
+        Counters eventCounters = delta.counters();
+        eventCounters.writtenAt = now;
+        if (!eventCounters.queued) {
+            eventCounters.queued = true;
+            idle.add(new Idle(delta.eventId(), eventCounters, now));
+        }
+    }
+
+    /**
+     * drops the events not written for evictAfterMs and not counted since, their counts are all in event_stats
+     */
+    private void evictIdle(long now) {
+        while (!idle.isEmpty() && idle.peek().since() <= now - evictAfterMs) {
+            Idle oldest = idle.poll();
+            Counters eventCounters = oldest.counters();
+            if (eventCounters.writtenAt > oldest.since()) {
+                // written again since it was queued, idle from then on
+                idle.add(new Idle(oldest.eventId(), eventCounters, eventCounters.writtenAt));
+                continue;
+            }
+            eventCounters.queued = false;
+            // a deleted event is gone from the map already, a dirty one is queued again by its next write
+            if (!eventCounters.dirty && counters.remove(oldest.eventId(), eventCounters)) {
+                evicted.put(oldest.eventId(), eventCounters);
+            }
+        }
+    }
+
+    private static Delta delta(Long eventId, Counters eventCounters) {
+        long[] sums = new long[COUNTERS];
+        boolean changed = false;
+        for (int i = 0; i < COUNTERS; i++) {
+            sums[i] = eventCounters.adders[i].sum();
+            changed |= sums[i] != eventCounters.flushed[i];
+        }
+        return changed ? new Delta(eventId, eventCounters, sums) : null;
+    }
+
+    private void write(List<Delta> deltas, List<Long> deletes, boolean purge) {
+        Set<Long> existing = existing(deltas);
+        List<Delta> toUpdate = new ArrayList<>();
+        List<Delta> toInsert = new ArrayList<>();
+        for (Delta delta : deltas) {
+            (delta.counters().stored || existing.contains(delta.eventId()) ? toUpdate : toInsert).add(delta);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now(clock));
+        if (!toUpdate.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_STATS, toUpdate, toUpdate.size(), (statement, delta) -> {
+                statement.setLong(1, delta.get(EventCounter.VIEWS.ordinal()));
+                statement.setLong(2, delta.get(EventCounter.BOOKINGS.ordinal()));
+                statement.setLong(3, delta.get(EventCounter.CANCELLATIONS.ordinal()));
+                statement.setTimestamp(4, now);
+                statement.setLong(5, delta.eventId());
+            });
+        }
+        if (!toInsert.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_STATS, toInsert, toInsert.size(), (statement, delta) -> {
+                statement.setLong(1, delta.eventId());
+                statement.setLong(2, delta.get(EventCounter.VIEWS.ordinal()));
+                statement.setLong(3, delta.get(EventCounter.BOOKINGS.ordinal()));
+                statement.setLong(4, delta.get(EventCounter.CANCELLATIONS.ordinal()));
+                statement.setTimestamp(5, now);
+            });
+        }
+        // after the writes: an event deleted while this flush was collecting may just have been written again
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_STATS, deletes, deletes.size(),
+                    (statement, eventId) -> statement.setLong(1, eventId));
+        }
+        if (purge) {
+            statsRepository.deleteOrphans();
+        }
+    }
+
+    /**
+     * which of the events not known to have a row have one anyway (written before a restart or by another instance)
+     */
+    private Set<Long> existing(List<Delta> deltas) {
+        List<Long> unknown = new ArrayList<>();
+        for (Delta delta : deltas) {
+            if (!delta.counters().stored) {
+                unknown.add(delta.eventId());
+            }
+        }
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < unknown.size(); from += ID_CHUNK) {
+            existing.addAll(statsRepository.findExistingIds(unknown.subList(from, Math.min(unknown.size(), from + ID_CHUNK))));
+        }
+        return existing;
+    }
+}
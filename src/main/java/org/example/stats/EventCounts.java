@@ -0,0 +1,7 @@
+package org.example.stats;
+
+/**
+ * counts of one event: what was flushed to event_stats plus what this instance counted since
+ */
+public record EventCounts(Long eventId, long views, long bookings, long cancellations) {
+}
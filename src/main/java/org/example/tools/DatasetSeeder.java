@@ -0,0 +1,253 @@
+package org.example.tools;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.sharding.ShardContext;
+import org.example.sharding.ShardRouter;
+import org.example.sharding.VenueIdAllocator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * generates a production-sized dataset straight into the configured datasource.
+ * only active with the "seed" profile, e.g.
+ * mvn spring-boot:run -Dspring-boot.run.profiles=seed -Dspring-boot.run.arguments=--seed.events=5000000
+ *
+ * the data is skewed on purpose: a few venues host most of the events (zipf),
+ * events cluster on evenings and weekends, and durations are mostly short with a long tail.
+ * rows are written with plain JDBC batches because going through JPA would be far too slow.
+ * with sharding on, every venue and its events are written to the venue's shard.
+ */
+@Slf4j
+@Component
+@Profile("seed")
+@RequiredArgsConstructor
+public class DatasetSeeder implements CommandLineRunner {
+    private static final String[] VENUE_TYPES = {
+            "Conference Room", "Wedding Hall", "Concert Venue", "Meeting Room", "Exhibition Space",
+            "Outdoor Garden", "Rooftop Terrace", "Auditorium", "Sports Hall", "Theater"
+    };
+    private static final String[] VENUE_NAMES = {
+            "Crystal Palace", "The Grand Hall", "Innovation Hub", "Sunset Gardens", "Metropolitan Center",
+            "Skyline View", "Ocean Breeze", "Tech Space", "Heritage Hall", "Green Valley", "Royal Court"
+    };
+    private static final String[] CITIES = {
+            "New York", "London", "Tokyo", "Paris", "Sydney", "Singapore", "Dubai", "Toronto"
+    };
+    // latitude, longitude of each city centre, venues are scattered around it
+    private static final double[][] CITY_CENTERS = {
+            {40.71, -74.01}, {51.51, -0.13}, {35.68, 139.69}, {48.86, 2.35},
+            {-33.87, 151.21}, {1.35, 103.82}, {25.20, 55.27}, {43.65, -79.38}
+    };
+    private static final String[] EVENT_TYPES = {
+            "Wedding", "Conference", "Meeting", "Concert", "Exhibition", "Training", "Party", "Seminar"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final ObjectProvider<VenueIdAllocator> venueIdAllocator;
+    private final Clock clock;
+
+    @Value("${seed.venues:10000}")
+    private int venueCount;
+
+    @Value("${seed.events:1000000}")
+    private int eventCount;
+
+    @Value("${seed.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${seed.threads:4}")
+    private int threads;
+
+    // how strongly events pile up on popular venues, 1.0 is classic zipf
+    @Value("${seed.skew:1.1}")
+    private double skew;
+
+    @Value("${seed.random-seed:42}")
+    private long randomSeed;
+
+    @Override
+    public void run(String... args) throws Exception {
+        long started = System.nanoTime();
+        insertVenues();
+        List<Long> venueIds = shardRouter.fanOut(shard -> jdbcTemplate.queryForList("SELECT id FROM venues", Long.class));
+        venueIds.sort(null);
+        if (venueIds.isEmpty()) {
+            throw new IllegalStateException("no venues available to attach events to");
+        }
+        insertEvents(venueIds);
+        log.info("seeded {} venues and {} events in {} s", venueCount, eventCount,
+                (System.nanoTime() - started) / 1_000_000_000L);
+    }
+
+    private void insertVenues() {
+        SplittableRandom random = new SplittableRandom(randomSeed);
+        // sharded venues need their id up front, it decides where they go
+        String sql = shardRouter.isSharded()
+                ? "INSERT INTO venues (name, address, capacity, latitude, longitude, updated_at, id) VALUES (?, ?, ?, ?, ?, ?, ?)"
+                : "INSERT INTO venues (name, address, capacity, latitude, longitude, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+        List<List<Object[]>> batches = shardBatches();
+        for (int i = 0; i < venueCount; i++) {
+            String name = VENUE_NAMES[random.nextInt(VENUE_NAMES.length)] + " "
+                    + VENUE_TYPES[random.nextInt(VENUE_TYPES.length)] + " " + i;
+            int city = random.nextInt(CITIES.length);
+            String address = (random.nextInt(9999) + 1) + " Main St, " + CITIES[city];
+            // within roughly 30 km of the centre
+            double latitude = CITY_CENTERS[city][0] + (random.nextDouble() - 0.5) * 0.5;
+            double longitude = CITY_CENTERS[city][1] + (random.nextDouble() - 0.5) * 0.5;
+            Object[] row = {name, address, venueCapacity(random), latitude, longitude, Timestamp.valueOf(LocalDateTime.now(clock))};
+            int shard = 0;
+            if (shardRouter.isSharded()) {
+                long id = venueIdAllocator.getObject().next();
+                row = new Object[]{row[0], row[1], row[2], row[3], row[4], row[5], id};
+                shard = shardRouter.shardOfVenue(id);
+            }
+            batches.get(shard).add(row);
+            if (batches.get(shard).size() == batchSize) {
+                flush(sql, batches.get(shard), shard);
+            }
+        }
+        flushAll(sql, batches);
+        log.info("inserted {} venues", venueCount);
+    }
+
+    /**
+     * events are split into one slice per thread, each slice uses its own random stream
+     * so the output is reproducible for a given seed and thread count.
+     */
+    private void insertEvents(List<Long> venueIds) throws Exception {
+        ZipfSampler sampler = new ZipfSampler(venueIds.size(), skew);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> slices = new ArrayList<>();
+            int perThread = eventCount / threads;
+            for (int t = 0; t < threads; t++) {
+                int count = t == threads - 1 ? eventCount - perThread * (threads - 1) : perThread;
+                SplittableRandom random = new SplittableRandom(randomSeed + t + 1);
+                slices.add(executor.submit(() -> insertEventSlice(count, venueIds, sampler, random)));
+            }
+            for (Future<?> slice : slices) {
+                slice.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void insertEventSlice(int count, List<Long> venueIds, ZipfSampler sampler, SplittableRandom random) {
+        String sql = "INSERT INTO events (name, description, start_time, end_time, venue_id, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+        LocalDate firstDay = LocalDate.now().minusYears(2);
+        List<List<Object[]>> batches = shardBatches();
+        for (int i = 0; i < count; i++) {
+            String type = EVENT_TYPES[random.nextInt(EVENT_TYPES.length)];
+            LocalDateTime start = eventStart(firstDay, random);
+            LocalDateTime end = start.plusMinutes(eventDurationMinutes(random));
+            Long venueId = venueIds.get(sampler.sample(random));
+            int shard = shardRouter.shardOfVenue(venueId);
+            batches.get(shard).add(new Object[]{type + " #" + random.nextInt(1_000_000), type + " event",
+                    Timestamp.valueOf(start), Timestamp.valueOf(end), venueId, Timestamp.valueOf(LocalDateTime.now(clock))});
+            if (batches.get(shard).size() == batchSize) {
+                flush(sql, batches.get(shard), shard);
+            }
+        }
+        flushAll(sql, batches);
+    }
+
+    private List<List<Object[]>> shardBatches() {
+        List<List<Object[]>> batches = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            batches.add(new ArrayList<>(batchSize));
+        }
+        return batches;
+    }
+
+    private void flushAll(String sql, List<List<Object[]>> batches) {
+        for (int shard = 0; shard < batches.size(); shard++) {
+            flush(sql, batches.get(shard), shard);
+        }
+    }
+
+    private void flush(String sql, List<Object[]> batch, int shard) {
+        if (!batch.isEmpty()) {
+            ShardContext.callOn(shard, () -> jdbcTemplate.batchUpdate(sql, batch));
+            batch.clear();
+        }
+    }
+
+    // most venues are small rooms, a handful are arenas
+    private static int venueCapacity(SplittableRandom random) {
+        double roll = random.nextDouble();
+        if (roll < 0.6) return 10 + random.nextInt(90);
+        if (roll < 0.9) return 100 + random.nextInt(400);
+        if (roll < 0.99) return 500 + random.nextInt(4500);
+        return 5000 + random.nextInt(45000);
+    }
+
+    // spread over two years back and two years ahead, biased to evenings and weekends
+    private static LocalDateTime eventStart(LocalDate firstDay, SplittableRandom random) {
+        LocalDate day = firstDay.plusDays(random.nextInt(4 * 365));
+        if (day.getDayOfWeek().getValue() < 6 && random.nextDouble() < 0.3) {
+            day = day.plusDays(6 - day.getDayOfWeek().getValue());
+        }
+        int hour = random.nextDouble() < 0.6 ? 17 + random.nextInt(5) : 8 + random.nextInt(9);
+        return day.atTime(hour, random.nextInt(4) * 15);
+    }
+
+    // log-normal durations, median around two hours, a few run for days
+    private static long eventDurationMinutes(SplittableRandom random) {
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        long minutes = Math.round(Math.exp(Math.log(120) + 0.8 * gaussian));
+        return Math.max(15, Math.min(minutes, 7 * 24 * 60));
+    }
+
+    /**
+     * samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^skew
+     * using a precomputed cumulative table and binary search.
+     */
+    static final class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double skew) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, skew);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            double target = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
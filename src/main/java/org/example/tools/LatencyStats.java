@@ -0,0 +1,67 @@
+package org.example.tools;
+
+import java.util.Arrays;
+
+/**
+ * collects raw latency samples (in nanoseconds) and reports exact percentiles.
+ * not thread safe, each load driver worker keeps its own and they are merged at the end.
+ */
+public class LatencyStats {
+    private long[] samples = new long[1024];
+    private int size;
+    private long errors;
+
+    public void record(long nanos) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+    }
+
+    public void recordError() {
+        errors++;
+    }
+
+    public void merge(LatencyStats other) {
+        for (int i = 0; i < other.size; i++) {
+            record(other.samples[i]);
+        }
+        errors += other.errors;
+    }
+
+    public int count() {
+        return size;
+    }
+
+    public long errors() {
+        return errors;
+    }
+
+    /**
+     * nearest-rank percentile, e.g. 0.99 for p99. returns 0 when nothing was recorded.
+     */
+    public long percentile(double quantile) {
+        return percentile(sorted(), quantile);
+    }
+
+    public String summary(double elapsedSeconds) {
+        long[] sorted = sorted();
+        return String.format("count=%d errors=%d throughput=%.1f req/s p50=%.2f ms p99=%.2f ms p999=%.2f ms",
+                size, errors, size / elapsedSeconds,
+                percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6, percentile(sorted, 0.999) / 1e6);
+    }
+
+    private long[] sorted() {
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.tools;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * small closed-loop HTTP load generator for the REST API. it replays a weighted mix of
+ * reads and writes against a running instance and prints throughput and p50/p99/p999 per operation.
+ *
+ * usage (after mvn compile):
+ * java -cp target/classes org.example.tools.LoadDriver --base-url=http://localhost:8080
+ *      --duration=60 --concurrency=32 --max-event-id=1000000 --max-venue-id=10000
+ *
+ * the mix can be changed with --weights=by_id:50,search:25,venues:15,create:7,update:3
+ */
+public class LoadDriver {
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    enum Operation { BY_ID, SEARCH, VENUES, CREATE, UPDATE }
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final long maxEventId;
+    private final long maxVenueId;
+    private final Operation[] mix;
+
+    LoadDriver(String baseUrl, long maxEventId, long maxVenueId, Map<Operation, Integer> weights) {
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        this.baseUrl = baseUrl;
+        this.maxEventId = maxEventId;
+        this.maxVenueId = maxVenueId;
+        this.mix = expand(weights);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        LoadDriver driver = new LoadDriver(
+                options.getOrDefault("base-url", "http://localhost:8080"),
+                Long.parseLong(options.getOrDefault("max-event-id", "1000")),
+                Long.parseLong(options.getOrDefault("max-venue-id", "100")),
+                parseWeights(options.getOrDefault("weights", "by_id:50,search:25,venues:15,create:7,update:3")));
+
+        System.out.printf("warming up for %d s%n", warmup);
+        driver.run(concurrency, warmup);
+        System.out.printf("measuring for %d s with %d workers%n", duration, concurrency);
+        Map<Operation, LatencyStats> results = driver.run(concurrency, duration);
+
+        LatencyStats total = new LatencyStats();
+        for (Map.Entry<Operation, LatencyStats> entry : results.entrySet()) {
+            System.out.printf("%-8s %s%n", entry.getKey(), entry.getValue().summary(duration));
+            total.merge(entry.getValue());
+        }
+        System.out.printf("%-8s %s%n", "total", total.summary(duration));
+    }
+
+    /**
+     * runs the mix with the given number of workers for the given time and returns
+     * per-operation latency stats merged across all workers.
+     */
+    Map<Operation, LatencyStats> run(int concurrency, int seconds) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Map<Operation, LatencyStats>>> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                SplittableRandom random = new SplittableRandom(i);
+                workers.add(executor.submit(() -> worker(random, deadline)));
+            }
+            Map<Operation, LatencyStats> merged = new EnumMap<>(Operation.class);
+            for (Future<Map<Operation, LatencyStats>> worker : workers) {
+                worker.get().forEach((op, stats) -> merged.computeIfAbsent(op, k -> new LatencyStats()).merge(stats));
+            }
+            return merged;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Map<Operation, LatencyStats> worker(SplittableRandom random, long deadline) {
+        Map<Operation, LatencyStats> stats = new EnumMap<>(Operation.class);
+        while (System.nanoTime() < deadline) {
+            Operation op = mix[random.nextInt(mix.length)];
+            HttpRequest request = request(op, random);
+            LatencyStats opStats = stats.computeIfAbsent(op, k -> new LatencyStats());
+            long started = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                long elapsed = System.nanoTime() - started;
+                // only server side failures count as errors, a 4xx is still a measured round trip
+                if (response.statusCode() >= 500) {
+                    opStats.recordError();
+                } else {
+                    opStats.record(elapsed);
+                }
+            } catch (Exception e) {
+                opStats.recordError();
+            }
+        }
+        return stats;
+    }
+
+    private HttpRequest request(Operation op, SplittableRandom random) {
+        switch (op) {
+            case BY_ID:
+                return get("/api/events/" + (1 + random.nextLong(maxEventId)));
+            case SEARCH: {
+                LocalDateTime start = LocalDateTime.now().plusDays(random.nextInt(-365, 365)).withNano(0);
+                return get("/api/events/search?start=" + start.format(ISO)
+                        + "&end=" + start.plusHours(1 + random.nextInt(48)).format(ISO));
+            }
+            case VENUES:
+                return get("/api/venues/search?minCapacity=" + (1000 + random.nextInt(40000)));
+            case CREATE:
+                return send("POST", "/api/events", eventJson(random));
+            case UPDATE:
+                return send("PUT", "/api/events/" + (1 + random.nextLong(maxEventId)), eventJson(random));
+            default:
+                throw new IllegalArgumentException("unknown operation " + op);
+        }
+    }
+
+    private String eventJson(SplittableRandom random) {
+        LocalDateTime start = LocalDateTime.now().plusDays(random.nextInt(1, 365)).withNano(0);
+        return "{\"name\":\"load test " + random.nextInt(1_000_000) + "\","
+                + "\"description\":\"generated by LoadDriver\","
+                + "\"startTime\":\"" + start.format(ISO) + "\","
+                + "\"endTime\":\"" + start.plusHours(2).format(ISO) + "\","
+                + "\"venue\":{\"id\":" + (1 + random.nextLong(maxVenueId)) + "}}";
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpRequest send(String method, String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    // turns {BY_ID=2, CREATE=1} into [BY_ID, BY_ID, CREATE] so picking a slot is one random int
+    private static Operation[] expand(Map<Operation, Integer> weights) {
+        List<Operation> slots = new ArrayList<>();
+        weights.forEach((op, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                slots.add(op);
+            }
+        });
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("workload mix is empty");
+        }
+        return slots.toArray(new Operation[0]);
+    }
+
+    static Map<Operation, Integer> parseWeights(String spec) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            weights.put(Operation.valueOf(pair[0].toUpperCase()), Integer.parseInt(pair[1]));
+        }
+        return weights;
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,208 @@
+package org.example.tools;
+
+import org.example.EventApplication;
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.service.EventService;
+import org.example.service.VenueService;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * side-by-side load test of the two read paths when the database is slow:
+ * GET /api/events/search (a tomcat thread per query) and GET /api/async/events/search (AsyncReadController).
+ *
+ * starts the application in this JVM on the h2 profile, with every query delayed by --db-latency-ms,
+ * a small tomcat pool (--tomcat-threads) and --db-connections connections (the async read pool gets as
+ * many threads). at each concurrency level both paths get the same closed-loop search load, while
+ * --probes more workers keep asking for /api/events/upcoming, which is served from memory: their
+ * latency shows whether the server can still answer anything else while the searches wait.
+ *
+ * usage:
+ * mvn compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ * java -cp "target/classes:$(cat target/classpath.txt)" org.example.tools.ReadPathBenchmark
+ *      --db-latency-ms=50 --tomcat-threads=16 --db-connections=64 --concurrency=8,32,128 --duration=10
+ */
+public class ReadPathBenchmark {
+    private static final String SEARCH = "?start=2030-01-01T00:00:00&end=2030-01-02T00:00:00";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadDriver.parseArgs(args);
+        long latencyMs = Long.parseLong(options.getOrDefault("db-latency-ms", "50"));
+        int tomcatThreads = Integer.parseInt(options.getOrDefault("tomcat-threads", "16"));
+        int connections = Integer.parseInt(options.getOrDefault("db-connections", "64"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "10"));
+        int probes = Integer.parseInt(options.getOrDefault("probes", "2"));
+        List<Integer> levels = new ArrayList<>();
+        for (String level : options.getOrDefault("concurrency", "8,32,128").split(",")) {
+            levels.add(Integer.parseInt(level.trim()));
+        }
+
+        // devtools would restart main in a new class loader, without our arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(EventApplication.class)
+                .profiles("h2")
+                .properties("server.port=0",
+                        "server.tomcat.threads.max=" + tomcatThreads,
+                        "spring.datasource.hikari.maximum-pool-size=" + connections,
+                        "async-read.threads=" + connections,
+                        "sql-log.enabled=false",
+                        "outbox.relay-threads=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .initializers(app -> app.getBeanFactory().addBeanPostProcessor(slowDatabase(latencyMs)))
+                .run();
+        try {
+            seed(context);
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            System.out.printf("every query takes %d ms more, %d tomcat threads, %d connections%n",
+                    latencyMs, tomcatThreads, connections);
+            for (int concurrency : levels) {
+                for (String path : List.of("/api/events/search", "/api/async/events/search")) {
+                    // a short warm-up, then the measured run
+                    run(client, baseUrl + path + SEARCH, baseUrl + "/api/events/upcoming", concurrency, probes, 1);
+                    LatencyStats[] stats = run(client, baseUrl + path + SEARCH, baseUrl + "/api/events/upcoming",
+                            concurrency, probes, duration);
+                    System.out.printf("concurrency=%-4d %-25s search   %s%n", concurrency, path, stats[0].summary(duration));
+                    System.out.printf("%-42s upcoming %s%n", "", stats[1].summary(duration));
+                }
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * one venue with a day of events in the searched range, created before the queries get slow
+     * matters: inserts are not delayed, only selects
+     */
+    private static void seed(ConfigurableApplicationContext context) {
+        Venue venue = context.getBean(VenueService.class).createVenue(new Venue(null, "Benchmark Hall", "Street", 500, null));
+        EventService events = context.getBean(EventService.class);
+        LocalDateTime day = LocalDateTime.of(2030, 1, 1, 0, 0);
+        for (int i = 0; i < 24; i++) {
+            events.createEvent(new Event(null, "Benchmark " + i, null, day.plusHours(i), day.plusHours(i + 1), venue));
+        }
+    }
+
+    /**
+     * concurrency workers searching and probes workers asking for the upcoming events, all in a closed loop
+     */
+    private static LatencyStats[] run(HttpClient client, String searchUrl, String probeUrl, int concurrency,
+                                      int probes, int seconds) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency + probes);
+        try {
+            List<Future<LatencyStats>> searches = new ArrayList<>();
+            List<Future<LatencyStats>> probing = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                searches.add(executor.submit(() -> loop(client, searchUrl, deadline)));
+            }
+            for (int i = 0; i < probes; i++) {
+                probing.add(executor.submit(() -> loop(client, probeUrl, deadline)));
+            }
+            LatencyStats[] merged = {new LatencyStats(), new LatencyStats()};
+            for (Future<LatencyStats> worker : searches) {
+                merged[0].merge(worker.get());
+            }
+            for (Future<LatencyStats> worker : probing) {
+                merged[1].merge(worker.get());
+            }
+            return merged;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static LatencyStats loop(HttpClient client, String url, long deadline) {
+        LatencyStats stats = new LatencyStats();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(60)).GET().build();
+        while (System.nanoTime() < deadline) {
+            long started = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 500) {
+                    stats.recordError();
+                } else {
+                    stats.record(System.nanoTime() - started);
+                }
+            } catch (Exception e) {
+                stats.recordError();
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * wraps the datasource so every query waits latencyMs before it runs, holding its connection
+     * like a slow database would
+     */
+    private static BeanPostProcessor slowDatabase(long latencyMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                        Object result = invoke(target, method, args);
+                        return result instanceof Connection connection ? slowConnection(connection, latencyMs) : result;
+                    });
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static Connection slowConnection(Connection connection, long latencyMs) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof PreparedStatement statement) {
+                return proxy(PreparedStatement.class, statement, (statementTarget, statementMethod, statementArgs) -> {
+                    if (statementMethod.getName().equals("executeQuery")) {
+                        Thread.sleep(latencyMs);
+                    }
+                    return invoke(statementTarget, statementMethod, statementArgs);
+                });
+            }
+            return result;
+        });
+    }
+
+    private interface Handler<T> {
+        Object handle(T target, Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.handle(target, method, args));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
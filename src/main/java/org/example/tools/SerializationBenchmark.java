@@ -0,0 +1,95 @@
+package org.example.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.protobuf.ProtobufMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * compares JSON (jackson, configured like spring boot's ObjectMapper) with protobuf for the
+ * payload of GET /api/events: bytes on the wire, gzipped bytes and time to encode the list.
+ * the protobuf timing includes copying the entities into messages, like the http converter does.
+ *
+ * usage (after mvn compile):
+ * java -cp target/classes:$(cat cp.txt) org.example.tools.SerializationBenchmark --events=10000 --iterations=50
+ */
+public class SerializationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadDriver.parseArgs(args);
+        int eventCount = Integer.parseInt(options.getOrDefault("events", "10000"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "50"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "20"));
+
+        List<Event> events = sampleEvents(eventCount, new SplittableRandom(42));
+        ObjectMapper objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        Encoder json = objectMapper::writeValueAsBytes;
+        Encoder protobuf = list -> ProtobufMapper.toEventList(list).toByteArray();
+
+        System.out.printf("%d events, %d iterations after %d warm-up rounds%n", eventCount, iterations, warmup);
+        System.out.printf("%-10s %12s %12s %14s %14s%n", "format", "bytes", "gzip bytes", "median ms", "p90 ms");
+        report("json", json, events, warmup, iterations);
+        report("protobuf", protobuf, events, warmup, iterations);
+    }
+
+    private static void report(String name, Encoder encoder, List<Event> events, int warmup, int iterations) throws IOException {
+        byte[] payload = encoder.encode(events);
+        for (int i = 0; i < warmup; i++) {
+            encoder.encode(events);
+        }
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long started = System.nanoTime();
+            encoder.encode(events);
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-10s %12d %12d %14.2f %14.2f%n", name, payload.length, gzipSize(payload),
+                nanos[iterations / 2] / 1e6, nanos[(int) (iterations * 0.9)] / 1e6);
+    }
+
+    private static int gzipSize(byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(payload);
+        }
+        return bytes.size();
+    }
+
+    // roughly what the dataset seeder produces
+    static List<Event> sampleEvents(int count, SplittableRandom random) {
+        List<Venue> venues = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, count / 100); i++) {
+            venues.add(new Venue((long) i + 1, "Grand Hall " + i, (i + 1) + " Main St, London",
+                    10 + random.nextInt(5000), 51.5 + random.nextDouble() / 4, -0.1 + random.nextDouble() / 4, null));
+        }
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 8, 0);
+        List<Event> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime start = base.plusMinutes(15L * random.nextInt(100_000));
+            events.add(new Event((long) i + 1, "Conference #" + random.nextInt(1_000_000), "Conference event",
+                    start, start.plusMinutes(30 + random.nextInt(300)), venues.get(random.nextInt(venues.size()))));
+        }
+        return events;
+    }
+
+    interface Encoder {
+        byte[] encode(List<Event> events) throws IOException;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * starts the packaged application several times and reports how long it takes until spring boot
+ * logs "Started EventApplication ... (process running for X)". exits with status 1 when the median
+ * is above the budget, so it can fail the build in the fast-startup profile.
+ *
+ * usage:
+ * java -cp target/classes org.example.tools.StartupBenchmark --jar=target/fast-startup/demo-thin.jar
+ *      --jvm-args="-XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true" --runs=5 --budget-ms=8000
+ */
+public class StartupBenchmark {
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in [\\d.]+ seconds \\(process running for ([\\d.]+)\\)");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadDriver.parseArgs(args);
+        String jar = options.get("jar");
+        if (jar == null) {
+            throw new IllegalArgumentException("--jar is required");
+        }
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        long budgetMs = Long.parseLong(options.getOrDefault("budget-ms", "0"));
+        String jvmArgs = options.getOrDefault("jvm-args", "");
+        String appArgs = options.getOrDefault("app-args", "--spring.profiles.active=h2");
+
+        List<Long> timings = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            long millis = startOnce(jar, jvmArgs, appArgs);
+            System.out.printf("run %d: ready after %d ms%n", i + 1, millis);
+            timings.add(millis);
+        }
+        Collections.sort(timings);
+        long median = timings.get(timings.size() / 2);
+        System.out.printf("startup median=%d ms min=%d ms max=%d ms%n", median, timings.get(0), timings.get(timings.size() - 1));
+
+        if (budgetMs > 0 && median > budgetMs) {
+            System.out.printf("startup regression: median %d ms is above the %d ms budget%n", median, budgetMs);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * launches one JVM on a random port, waits for the started line and kills the process.
+     */
+    static long startOnce(String jar, String jvmArgs, String appArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.addAll(split(jvmArgs));
+        command.add("-jar");
+        command.add(jar);
+        command.add("--server.port=0");
+        command.addAll(split(appArgs));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                Matcher matcher = STARTED.matcher(line);
+                if (matcher.find()) {
+                    return Math.round(Double.parseDouble(matcher.group(1)) * 1000);
+                }
+            }
+            throw new IllegalStateException("application exited before it finished starting, exit code " + process.waitFor());
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static List<String> split(String args) {
+        String trimmed = args.trim();
+        return trimmed.isEmpty() ? List.of() : Arrays.asList(trimmed.split("\\s+"));
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.tracing;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HdrHistogram latencies per endpoint (method + url pattern), one for the whole request and one per phase.
+ *
+ * requests record into Recorders, which are wait-free and don't allocate once the histogram has
+ * grown to the range of values seen. a dump moves what was recorded since the last dump into the
+ * current window and reports the window, reset starts a new one.
+ */
+@Component
+public class EndpointLatencies {
+    // url pattern -> http method -> histograms, two lookups with the strings we already have instead of building a key
+    private final Map<String, Map<String, Endpoint>> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * percentiles of one phase in milliseconds
+     */
+    public record Percentiles(long count, double p50, double p90, double p99, double p999, double max) {
+    }
+
+    public record EndpointReport(String endpoint, long requests, Map<String, Percentiles> phases) {
+    }
+
+    public void record(String method, String pattern, RequestTrace trace) {
+        Map<String, Endpoint> byMethod = endpoints.get(pattern);
+        if (byMethod == null) {
+            byMethod = endpoints.computeIfAbsent(pattern, key -> new ConcurrentHashMap<>());
+        }
+        Endpoint endpoint = byMethod.get(method);
+        if (endpoint == null) {
+            endpoint = byMethod.computeIfAbsent(method, key -> new Endpoint(method + " " + pattern));
+        }
+        endpoint.total.recordValue(trace.totalNanos());
+        for (Phase phase : Phase.ALL) {
+            endpoint.phases[phase.ordinal()].recordValue(trace.phaseNanos(phase));
+        }
+    }
+
+    /**
+     * percentiles of the current window for every endpoint, slowest p99 first
+     */
+    public List<EndpointReport> report() {
+        List<EndpointReport> reports = new ArrayList<>();
+        for (Map<String, Endpoint> byMethod : endpoints.values()) {
+            for (Endpoint endpoint : byMethod.values()) {
+                reports.add(endpoint.report());
+            }
+        }
+        reports.sort(Comparator.comparingDouble((EndpointReport report) -> report.phases().get("total").p99()).reversed());
+        return reports;
+    }
+
+    /**
+     * drops everything recorded so far and starts new windows
+     */
+    public void reset() {
+        for (Map<String, Endpoint> byMethod : endpoints.values()) {
+            for (Endpoint endpoint : byMethod.values()) {
+                endpoint.reset();
+            }
+        }
+    }
+
+    private static final class Endpoint {
+        private final String name;
+        private final Recorder total = new Recorder(3);
+        private final Recorder[] phases = new Recorder[Phase.ALL.length];
+        private final Histogram totalWindow = new Histogram(3);
+        private final Histogram[] phaseWindows = new Histogram[Phase.ALL.length];
+        // recycled by the recorders when the interval histograms are swapped
+        private Histogram totalInterval;
+        private final Histogram[] phaseIntervals = new Histogram[Phase.ALL.length];
+
+        Endpoint(String name) {
+            this.name = name;
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new Recorder(3);
+                phaseWindows[i] = new Histogram(3);
+            }
+        }
+
+        synchronized EndpointReport report() {
+            totalInterval = total.getIntervalHistogram(totalInterval);
+            totalWindow.add(totalInterval);
+            Map<String, Percentiles> result = new LinkedHashMap<>();
+            result.put("total", percentiles(totalWindow));
+            for (Phase phase : Phase.ALL) {
+                int i = phase.ordinal();
+                phaseIntervals[i] = phases[i].getIntervalHistogram(phaseIntervals[i]);
+                phaseWindows[i].add(phaseIntervals[i]);
+                result.put(phase.name().toLowerCase(), percentiles(phaseWindows[i]));
+            }
+            return new EndpointReport(name, totalWindow.getTotalCount(), result);
+        }
+
+        synchronized void reset() {
+            totalInterval = total.getIntervalHistogram(totalInterval);
+            totalWindow.reset();
+            for (int i = 0; i < phases.length; i++) {
+                phaseIntervals[i] = phases[i].getIntervalHistogram(phaseIntervals[i]);
+                phaseWindows[i].reset();
+            }
+        }
+
+        private static Percentiles percentiles(Histogram histogram) {
+            return new Percentiles(histogram.getTotalCount(),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.tracing;
+
+/**
+ * where a request spends its time. each nanosecond is charged to exactly one phase,
+ * the innermost one that is running: a repository call inside a service method counts
+ * as repository time, not as service time.
+ */
+public enum Phase {
+    // everything outside the other phases: filters, dispatching, argument binding, the controller itself
+    CONTROLLER,
+    SERVICE,
+    // spring data repositories and JdbcTemplate, i.e. waiting for the database
+    REPOSITORY,
+    // async handlers, from the handler returning until the result is back: queued for and running on
+    // another thread, whose service and repository time is not split out
+    ASYNC,
+    // writing the response body
+    SERIALIZATION;
+
+    static final Phase[] ALL = values();
+}
@@ -0,0 +1,124 @@
+package org.example.tracing;
+
+import java.util.Arrays;
+
+/**
+ * phase timings of the request running on the current thread.
+ * one instance per thread, reused for every request, so tracing does not allocate. only async
+ * requests allocate a copy to carry their trace from one dispatch to the next.
+ */
+public final class RequestTrace {
+    private static final ThreadLocal<RequestTrace> CURRENT = ThreadLocal.withInitial(RequestTrace::new);
+    private static final int MAX_DEPTH = 64;
+
+    private final long[] phaseNanos = new long[Phase.ALL.length];
+    private final Phase[] stack = new Phase[MAX_DEPTH];
+    private int depth;
+    // calls nested deeper than the stack are not tracked, but still have to be unwound
+    private int overflow;
+    private long started;
+    private long since;
+    private boolean active;
+
+    private RequestTrace() {
+    }
+
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    void start(long now) {
+        Arrays.fill(phaseNanos, 0);
+        depth = 0;
+        overflow = 0;
+        stack[0] = Phase.CONTROLLER;
+        started = now;
+        since = now;
+        active = true;
+    }
+
+    /**
+     * charges the time so far to the running phase and makes phase the running one
+     */
+    public void enter(Phase phase, long now) {
+        if (depth + 1 == MAX_DEPTH) {
+            overflow++;
+            return;
+        }
+        charge(now);
+        stack[++depth] = phase;
+    }
+
+    /**
+     * back to the phase that was running before the matching enter
+     */
+    public void exit(long now) {
+        if (overflow > 0) {
+            overflow--;
+            return;
+        }
+        if (depth == 0) {
+            return;
+        }
+        charge(now);
+        depth--;
+    }
+
+    /**
+     * replaces the running phase without nesting, used for serialization which lasts until the end
+     */
+    public void switchTo(Phase phase, long now) {
+        charge(now);
+        stack[depth] = phase;
+    }
+
+    /**
+     * hands the trace over to a later dispatch of the same request (async handlers): returns a copy
+     * of it so far and leaves this thread's trace free for the next request
+     */
+    RequestTrace detach(long now) {
+        charge(now);
+        RequestTrace detached = new RequestTrace();
+        System.arraycopy(phaseNanos, 0, detached.phaseNanos, 0, phaseNanos.length);
+        detached.started = started;
+        detached.since = since;
+        active = false;
+        return detached;
+    }
+
+    /**
+     * carries on with a detached trace on this thread, the time it was away counts as ASYNC
+     */
+    void resume(RequestTrace detached, long now) {
+        System.arraycopy(detached.phaseNanos, 0, phaseNanos, 0, phaseNanos.length);
+        phaseNanos[Phase.ASYNC.ordinal()] += now - detached.since;
+        depth = 0;
+        overflow = 0;
+        stack[0] = Phase.CONTROLLER;
+        started = detached.started;
+        since = now;
+        active = true;
+    }
+
+    void finish(long now) {
+        charge(now);
+        active = false;
+    }
+
+    long phaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    long totalNanos() {
+        return since - started;
+    }
+
+    private void charge(long now) {
+        phaseNanos[stack[depth].ordinal()] += now - since;
+        since = now;
+    }
+}
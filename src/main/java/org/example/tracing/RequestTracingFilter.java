@@ -0,0 +1,58 @@
+package org.example.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * starts a trace for every request and records it under the matched url pattern when the response is done.
+ * requests no controller matched (static files, 404s) are grouped under "unmatched", requests with
+ * a WARMUP_HEADER (StartupWarmup's synthetic ones) are not recorded at all.
+ * an async handler's response is written by a second dispatch, the trace waits for it in the request.
+ * registered in TracingConfig.
+ */
+public class RequestTracingFilter extends OncePerRequestFilter {
+    public static final String WARMUP_HEADER = "X-Warmup";
+    private static final String UNMATCHED = "unmatched";
+    private static final String DETACHED_TRACE = RequestTracingFilter.class.getName() + ".TRACE";
+
+    private final EndpointLatencies latencies;
+
+    public RequestTracingFilter(EndpointLatencies latencies) {
+        this.latencies = latencies;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTrace trace = RequestTrace.current();
+        if (request.getAttribute(DETACHED_TRACE) instanceof RequestTrace detached) {
+            request.removeAttribute(DETACHED_TRACE);
+            trace.resume(detached, System.nanoTime());
+        } else {
+            trace.start(System.nanoTime());
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (isAsyncStarted(request)) {
+                // not done yet, the dispatch that writes the response picks the trace up again
+                request.setAttribute(DETACHED_TRACE, trace.detach(System.nanoTime()));
+            } else if (request.getHeader(WARMUP_HEADER) == null) {
+                trace.finish(System.nanoTime());
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                latencies.record(request.getMethod(), pattern instanceof String text ? text : UNMATCHED, trace);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.tracing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * charges the time spent inside the intercepted beans to one phase, see TracingConfig for which beans.
+ * outside of a traced request (scheduled jobs, fan-out threads) it does nothing.
+ */
+public class TracingInterceptor implements MethodInterceptor {
+    private final Phase phase;
+
+    public TracingInterceptor(Phase phase) {
+        this.phase = phase;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RequestTrace trace = RequestTrace.current();
+        if (!trace.isActive()) {
+            return invocation.proceed();
+        }
+        trace.enter(phase, System.nanoTime());
+        try {
+            return invocation.proceed();
+        } finally {
+            trace.exit(System.nanoTime());
+        }
+    }
+}
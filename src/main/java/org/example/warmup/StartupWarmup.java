@@ -0,0 +1,202 @@
+package org.example.warmup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.cache.UpcomingEventsCache;
+import org.example.cache.VenueCapacityIndex;
+import org.example.cache.VenueGeoIndex;
+import org.example.protobuf.ProtobufEntityHttpMessageConverter;
+import org.example.tracing.RequestTracingFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * gets a new instance warm before it reports ready, so the first real requests don't pay for
+ * cold caches and code the JIT hasn't compiled yet.
+ *
+ * runs as an ApplicationRunner: tomcat is already listening, but spring boot only switches
+ * readiness to ACCEPTING_TRAFFIC after the runners are done, so /api/health/readiness answers 503
+ * the whole time. first the venue and upcoming-event caches are loaded (instead of on their first
+ * scheduled tick, a no-op when a state snapshot seeded them), then warmup.threads threads send up
+ * to warmup.requests GETs to the main read endpoints over the real port, in JSON and protobuf, so
+ * the controllers, the services and both serializers get compiled. nothing is written.
+ *
+ * everything has to fit in warmup.budget-ms, whatever is left then is skipped and the instance
+ * goes ready anyway. the synthetic requests carry a header that keeps them out of the latency stats.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupWarmup implements ApplicationRunner {
+    private final ApplicationContext context;
+    private final VenueCapacityIndex capacityIndex;
+    private final VenueGeoIndex geoIndex;
+    private final UpcomingEventsCache upcomingEventsCache;
+    private final Clock clock;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${warmup.budget-ms:30000}")
+    private long budgetMs;
+
+    @Value("${warmup.requests:2000}")
+    private int requests;
+
+    @Value("${warmup.threads:4}")
+    private int threads;
+
+    /**
+     * what the last warm-up did, for logs and tests
+     */
+    public record Report(boolean cachesLoaded, int requests, int failed, long millis, boolean overBudget) {
+    }
+
+    private volatile Report lastReport;
+
+    public Report lastReport() {
+        return lastReport;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        // already the state before the first readiness event, made explicit for anyone listening
+        AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+
+        boolean cachesLoaded = loadCaches(deadline);
+        int[] sent = {0, 0};
+        Integer port = port();
+        if (port != null && System.nanoTime() < deadline) {
+            sent = exercise(port, deadline);
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        boolean overBudget = System.nanoTime() >= deadline;
+        lastReport = new Report(cachesLoaded, sent[0], sent[1], millis, overBudget);
+        if (overBudget) {
+            log.warn("warm-up ran out of its {} ms budget: {}", budgetMs, lastReport);
+        } else {
+            log.info("warm-up done: {}", lastReport);
+        }
+    }
+
+    private boolean loadCaches(long deadline) {
+        List<Runnable> loads = List.of(capacityIndex::refresh, geoIndex::refresh, upcomingEventsCache::tick);
+        for (Runnable load : loads) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            try {
+                load.run();
+            } catch (RuntimeException e) {
+                // the scheduled refresh tries again, warm-up just goes on
+                log.warn("warm-up could not load a cache", e);
+                return false;
+            }
+        }
+        return capacityIndex.isLoaded() && geoIndex.isLoaded() && upcomingEventsCache.isLoaded();
+    }
+
+    private Integer port() {
+        if (context instanceof WebServerApplicationContext web && web.getWebServer() != null
+                && web.getWebServer().getPort() > 0) {
+            return web.getWebServer().getPort();
+        }
+        // no real server (a mock web environment in tests), there is nothing to send requests to
+        return null;
+    }
+
+    /**
+     * @return requests sent and how many of them failed
+     */
+    private int[] exercise(int port, long deadline) throws InterruptedException {
+        List<HttpRequest> paths = requests("http://localhost:" + port);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                int i;
+                while (System.nanoTime() < deadline && (i = next.getAndIncrement()) < requests) {
+                    try {
+                        HttpResponse<Void> response = client.send(paths.get(i % paths.size()),
+                                HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            failed.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            executor.shutdownNow();
+        }
+        return new int[]{Math.min(next.get(), requests), failed.get()};
+    }
+
+    /**
+     * the read endpoints real clients use most, each as JSON and as protobuf where it has both
+     */
+    private List<HttpRequest> requests(String baseUrl) {
+        LocalDateTime today = LocalDateTime.now(clock).truncatedTo(ChronoUnit.DAYS);
+        String range = "?start=" + today + "&end=" + today.plusDays(7);
+        List<String> json = List.of(
+                "/api/events/upcoming?limit=20",
+                "/api/events/search" + range,
+                "/api/events/active" + range,
+                "/api/events?ids=1,2,3",
+                "/api/venues/largest?limit=10",
+                "/api/venues/search?minCapacity=100",
+                "/api/venues/nearby?lat=52.52&lon=13.40&limit=10",
+                "/api/venues?ids=1,2,3");
+        List<String> protobuf = List.of(
+                "/api/events/upcoming?limit=20",
+                "/api/events/search" + range,
+                "/api/venues/largest?limit=10");
+        List<HttpRequest> requests = new ArrayList<>();
+        for (String path : json) {
+            requests.add(request(baseUrl + path, "application/json"));
+        }
+        for (String path : protobuf) {
+            requests.add(request(baseUrl + path, ProtobufEntityHttpMessageConverter.PROTOBUF.toString()));
+        }
+        return requests;
+    }
+
+    private static HttpRequest request(String url, String accept) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(5))
+                .header("Accept", accept).header(RequestTracingFilter.WARMUP_HEADER, "true").GET().build();
+    }
+}
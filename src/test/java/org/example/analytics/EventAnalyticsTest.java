@@ -0,0 +1,84 @@
+package org.example.analytics;
+
+import org.example.repository.EventRow;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the aggregates and the incremental patching directly on the column arrays
+ */
+class EventAnalyticsTest {
+    // a monday
+    private final LocalDateTime monday = LocalDateTime.of(2024, 5, 6, 18, 0);
+
+    @Test
+    void eventsPerVenuePerWeek_ShouldGroupByVenueAndWeek() {
+        EventColumnarSnapshot.Columns columns = columns(
+                new EventRow(1L, monday, monday.plusHours(2), 10L, "Hall"),
+                new EventRow(2L, monday.plusDays(6), monday.plusDays(6).plusHours(1), 10L, "Hall"),
+                new EventRow(3L, monday.plusDays(7), monday.plusDays(7).plusHours(1), 10L, "Hall"),
+                new EventRow(4L, monday.plusDays(1), monday.plusDays(1).plusHours(3), 20L, "Garden"));
+
+        List<EventAnalytics.VenueWeekCount> counts =
+                EventAnalytics.eventsPerVenuePerWeek(columns, monday.minusDays(1), monday.plusDays(14));
+
+        assertEquals(3, counts.size(), "two venues in the first week, one in the second");
+        assertEquals(new EventAnalytics.VenueWeekCount(10L, "Hall", LocalDate.of(2024, 5, 6), 2), counts.get(0));
+        assertEquals(new EventAnalytics.VenueWeekCount(20L, "Garden", LocalDate.of(2024, 5, 6), 1), counts.get(1));
+        assertEquals(new EventAnalytics.VenueWeekCount(10L, "Hall", LocalDate.of(2024, 5, 13), 1), counts.get(2));
+    }
+
+    @Test
+    void durationStats_ShouldAverageMinutes() {
+        EventColumnarSnapshot.Columns columns = columns(
+                new EventRow(1L, monday, monday.plusHours(1), 10L, "Hall"),
+                new EventRow(2L, monday, monday.plusHours(3), 10L, "Hall"),
+                new EventRow(3L, monday, monday.plusHours(10), 20L, "Garden"));
+
+        EventAnalytics.DurationStats hall = EventAnalytics.durationStats(columns, monday, monday.plusDays(1), 10L);
+
+        assertEquals(2, hall.events());
+        assertEquals(120.0, hall.averageMinutes(), 0.001);
+        assertEquals(180, hall.maxMinutes());
+    }
+
+    @Test
+    void patch_ShouldReplaceChangedRowsAndDropDeletedVenue() {
+        EventColumnarSnapshot.Columns columns = columns(
+                new EventRow(1L, monday, monday.plusHours(1), 10L, "Hall"),
+                new EventRow(2L, monday, monday.plusHours(1), 20L, "Garden"),
+                new EventRow(3L, monday, monday.plusHours(1), 10L, "Hall"));
+
+        // event 3 moved to the garden, event 5 is new, venue 10 was deleted
+        EventColumnarSnapshot.Columns patched = columns.patch(Set.of(3L, 5L), Set.of(10L), List.of(
+                new EventRow(3L, monday, monday.plusHours(2), 20L, "Garden"),
+                new EventRow(5L, monday, monday.plusHours(1), 20L, "Garden")));
+
+        assertArrayEquals(new long[]{2, 3, 5}, patched.ids, "rows should stay sorted by id");
+        assertArrayEquals(new long[]{20, 20, 20}, patched.venueIds);
+        assertEquals("Garden", patched.name(patched.venueNameIds[1]));
+    }
+
+    @Test
+    void weekStart_ShouldBeMonday() {
+        long sunday = EventColumnarSnapshot.epochSecond(LocalDateTime.of(2024, 5, 12, 23, 0));
+        assertEquals(LocalDate.of(2024, 5, 6).toEpochDay(), EventAnalytics.weekStart(sunday));
+    }
+
+    private static EventColumnarSnapshot.Columns columns(EventRow... rows) {
+        EventColumnarSnapshot.Columns.Builder builder =
+                new EventColumnarSnapshot.Columns.Builder(new ArrayList<>(), new HashMap<>());
+        for (EventRow row : rows) {
+            builder.add(row);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.archive;
+
+import org.example.analytics.EventColumnarSnapshot;
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.repository.ArchivedEventRepository;
+import org.example.repository.EventRepository;
+import org.example.service.EventService;
+import org.example.service.LookupResult;
+import org.example.service.VenueService;
+import org.example.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * archives against the embedded H2 database. the context has a database of its own, archiving
+ * here would otherwise move the old events other test classes created. every test gets a venue
+ * of its own and only counts that venue's events
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:event_archiver_test;DB_CLOSE_DELAY=-1",
+        "archive.after-days=365", "archive.chunk-size=2"})
+@ActiveProfiles("h2")
+class EventArchiverTest {
+    @Autowired
+    private EventArchiver archiver;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private ArchivedEventRepository archivedEventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Venue venue;
+    private LocalDateTime longAgo;
+
+    @BeforeEach
+    void setUp() {
+        venue = venueService.createVenue(new Venue(null, "Archive Hall", "Street", 100, null));
+        // mid-morning, so no event crosses midnight into a second time bucket
+        longAgo = LocalDate.now().minusYears(3).atTime(10, 0);
+    }
+
+    @Test
+    void archive_ShouldMoveOldEventsInChunks() {
+        List<Event> old = List.of(stored("Old 1", longAgo), stored("Old 2", longAgo.plusDays(1)),
+                stored("Old 3", longAgo.plusDays(2)), stored("Old 4", longAgo.plusDays(3)), stored("Old 5", longAgo.plusDays(4)));
+        Event recent = stored("Last month", LocalDate.now().minusDays(30).atTime(10, 0));
+
+        // five old events in chunks of two: three transactions
+        assertTrue(archiver.archive() >= 5);
+
+        assertEquals(1, count("SELECT COUNT(*) FROM events WHERE venue_id = " + venue.getId()));
+        assertEquals(5, count("SELECT COUNT(*) FROM events_archive WHERE venue_id = " + venue.getId()));
+        // the time buckets only index what is still in events
+        assertEquals(0, count("SELECT COUNT(*) FROM event_time_buckets WHERE event_id = " + old.get(0).getId()));
+        assertEquals(1, count("SELECT COUNT(*) FROM event_time_buckets WHERE event_id = " + recent.getId()));
+        // moved as they were, ids included
+        assertEquals("Old 3", archivedEventRepository.findById(old.get(2).getId()).orElseThrow().getName());
+        assertEquals(0, archiver.archive(), "a second run should find nothing left to move");
+    }
+
+    @Test
+    void reads_ShouldFindArchivedEventsWhenTheRangeReachesThem() {
+        Event old = stored("Old Gig", longAgo);
+        archiver.archive();
+
+        assertTrue(archiver.reaches(longAgo));
+        assertFalse(archiver.reaches(LocalDateTime.now().minusDays(30)));
+        // other tests leave old events at other venues behind, only ours are compared
+        assertEquals(List.of("Old Gig"), names(eventService.getEventsByTimeRange(longAgo.minusHours(1), longAgo.plusHours(1))));
+        assertEquals(List.of("Old Gig"), names(eventService.getActiveEvents(longAgo.plusHours(1), longAgo.plusHours(3))));
+        assertEquals("Old Gig", eventService.getEventById(old.getId()).getName());
+        assertTrue(eventService.getAllEvents().stream().anyMatch(event -> event.getId().equals(old.getId())));
+
+        LookupResult<Event> looked = eventService.getEventsByIds(List.of(old.getId())).get(0);
+        assertTrue(looked.found());
+        assertEquals(venue.getId(), looked.value().getVenue().getId());
+
+        Map<String, Object> fields = eventService.getEventById(old.getId(), "name,venue.name");
+        assertEquals("Old Gig", fields.get("name"));
+        assertEquals(Map.of("name", "Archive Hall"), fields.get("venue"));
+    }
+
+    @Test
+    void updateEvent_ShouldNotFindArchivedEvents() {
+        Event old = stored("Old Gig", longAgo);
+        archiver.archive();
+
+        assertThrows(RuntimeException.class, () -> eventService.updateEvent(old.getId(), old));
+    }
+
+    @Test
+    void deletes_ShouldReachTheArchive() {
+        Event first = stored("Old 1", longAgo);
+        stored("Old 2", longAgo.plusDays(1));
+        archiver.archive();
+
+        eventService.deleteEvent(first.getId());
+        assertEquals(1, count("SELECT COUNT(*) FROM events_archive WHERE venue_id = " + venue.getId()));
+
+        // the venue's archived events go with it
+        venueService.deleteVenue(venue.getId());
+        assertEquals(0, count("SELECT COUNT(*) FROM events_archive WHERE venue_id = " + venue.getId()));
+    }
+
+    @Test
+    void snapshot_ShouldLoadArchivedEvents() {
+        stored("Old Gig", longAgo);
+        stored("Last month", LocalDateTime.now().minusDays(30));
+        archiver.archive();
+
+        // a fresh snapshot, as after a restart, still counts the archived events
+        EventColumnarSnapshot snapshot = new EventColumnarSnapshot(eventRepository, archivedEventRepository, ShardRouter.single());
+        snapshot.refresh();
+
+        assertEquals(count("SELECT COUNT(*) FROM events") + count("SELECT COUNT(*) FROM events_archive"),
+                snapshot.current().size());
+    }
+
+    private Event stored(String name, LocalDateTime start) {
+        return eventService.createEvent(new Event(null, name, null, start, start.plusHours(2), venue));
+    }
+
+    private List<String> names(List<Event> events) {
+        return events.stream().filter(event -> event.getVenue().getId().equals(venue.getId()))
+                .map(Event::getName).toList();
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.booking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * drives the wheel by hand, no ticking thread
+ */
+class TimingWheelTest {
+
+    @Test
+    void advanceTo_ShouldExpireEachItemOnTheFirstTickAtOrAfterItsDeadline() {
+        // tiny wheel: 4 slots on 3 levels covers 64 ticks, so deadlines cascade down and some overflow it
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 2, 3, 0);
+        SplittableRandom random = new SplittableRandom(7);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            long deadline = random.nextLong(2_000);
+            deadlines.put(i, deadline);
+            wheel.schedule(i, deadline);
+        }
+
+        Map<Integer, Long> expiredAt = new HashMap<>();
+        // nothing has been advanced yet, deadlines at 0 are due on the first call
+        long previous = -1;
+        long now = 0;
+        while (now < 2_100) {
+            // uneven steps, sometimes several ticks at once and sometimes none
+            now += random.nextLong(35);
+            for (Integer item : wheel.advanceTo(now)) {
+                assertNull(expiredAt.put(item, now), "expired twice: " + item);
+                long deadline = deadlines.get(item);
+                assertTrue(deadline <= now, item + " due at " + deadline + " expired early at " + now);
+                // it was not due yet at the last advance, rounded up to the tick it belongs to
+                assertTrue((deadline + 9) / 10 * 10 > previous, item + " due at " + deadline + " expired late at " + now);
+            }
+            previous = now;
+        }
+        assertEquals(deadlines.size(), expiredAt.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancel_ShouldStopTheItemFromExpiring() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 4, 0);
+        TimingWheel.Timeout<String> kept = wheel.schedule("kept", 500);
+        TimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 500);
+        wheel.advanceTo(100);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("kept"), wheel.advanceTo(1_000));
+        // too late to cancel once it has expired
+        assertFalse(kept.cancel());
+    }
+
+    @Test
+    void advanceTo_ShouldExpireOverdueItemsRightAway() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 4, 10_000);
+
+        wheel.schedule("overdue", 5_000);
+
+        assertEquals(List.of("overdue"), wheel.advanceTo(10_000));
+    }
+
+    @Test
+    void advanceTo_ShouldReachDeadlinesBeyondTheWholeWheel() {
+        // 16 ticks on the bottom level, 256 in total
+        TimingWheel<String> wheel = new TimingWheel<>(1, 4, 2, 0);
+        wheel.schedule("far", 1_000);
+
+        List<String> expired = new ArrayList<>();
+        long now = 0;
+        while (expired.isEmpty()) {
+            now += 7;
+            expired.addAll(wheel.advanceTo(now));
+        }
+
+        assertEquals(List.of("far"), expired);
+        assertTrue(now >= 1_000 && now < 1_007, "expired at " + now);
+    }
+
+    @Test
+    void schedule_ShouldHandleLotsOfPendingItems() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(100, 8, 4, 0);
+        List<TimingWheel.Timeout<Integer>> timeouts = new ArrayList<>();
+        for (int i = 0; i < 500_000; i++) {
+            // five minute holds started over ten minutes
+            timeouts.add(wheel.schedule(i, i + 300_000L));
+        }
+        // half of them are confirmed before they run out
+        for (int i = 0; i < timeouts.size(); i += 2) {
+            timeouts.get(i).cancel();
+        }
+
+        assertEquals(250_000, wheel.size());
+        assertEquals(250_000, wheel.advanceTo(1_000_000).size());
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,182 @@
+package org.example.booking;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.repository.BookingRepository;
+import org.example.repository.WaitlistEntryRepository;
+import org.example.resilience.DatabaseCircuitBreaker;
+import org.example.service.BookingResult;
+import org.example.service.BookingService;
+import org.example.service.EventService;
+import org.example.service.VenueService;
+import org.example.sharding.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * a crowd joining one event at once, against the embedded H2 database
+ */
+@SpringBootTest(properties = {"waitlist.max-per-event=2500", "hold.duration-seconds=2"})
+@ActiveProfiles("h2")
+class WaitlistTest {
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private Waitlist waitlist;
+
+    @Autowired
+    private WaitlistEntryRepository entryRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DatabaseCircuitBreaker breaker;
+
+    @Test
+    void book_ShouldHoldUpWhenThousandsJoinAtOnce() throws Exception {
+        Long eventId = eventWithSeats(10);
+        // 3000 people for 10 seats and 2500 places in line
+        List<BookingResult> results = bookConcurrently(eventId, 3000);
+
+        long booked = results.stream().filter(r -> r != null && r.status() == BookingResult.Status.BOOKED).count();
+        long waiting = results.stream().filter(r -> r != null && r.status() == BookingResult.Status.WAITLISTED).count();
+        long rejected = results.stream().filter(r -> r == null).count();
+        assertEquals(10, booked);
+        assertEquals(2500, waiting);
+        assertEquals(490, rejected);
+        assertEquals(10, bookingRepository.countByEventId(eventId));
+
+        // every waiter is in line exactly once
+        List<Waitlist.Waiter> line = waitlist.waiting(eventId);
+        assertEquals(2500, line.size());
+        assertEquals(2500, new HashSet<>(line.stream().map(Waitlist.Waiter::id).toList()).size());
+        waitlist.flush();
+        assertEquals(2500, count("SELECT COUNT(*) FROM waitlist_entries WHERE event_id = " + eventId));
+    }
+
+    @Test
+    void rebuild_ShouldRestoreTheLineInOrder() throws Exception {
+        Long eventId = eventWithSeats(1);
+        Long annId = bookingService.book(eventId, "ann").booking().getId();
+        for (int i = 0; i < 5; i++) {
+            bookingService.book(eventId, "waiter " + i);
+        }
+        bookingService.cancelBooking(eventId, annId);
+        waitlist.flush();
+        List<Long> expected = ids(waitlist.waiting(eventId));
+        // a crash between promoting waiter 0 and writing its delete leaves its row behind
+        jdbcTemplate.update("INSERT INTO waitlist_entries (id, event_id, attendee, joined_at) VALUES (?, ?, ?, ?)",
+                bookingRepository.findByEventIdOrderById(eventId).get(0).getWaitlistEntryId(), eventId, "waiter 0",
+                LocalDateTime.now());
+
+        Waitlist restarted = new Waitlist(entryRepository, bookingRepository, jdbcTemplate, transactionTemplate,
+                ShardRouter.single(), Clock.systemDefaultZone(), breaker);
+        restarted.rebuild();
+
+        assertEquals(4, expected.size());
+        assertEquals(expected, ids(restarted.waiting(eventId)));
+        assertEquals(List.of("waiter 1", "waiter 2", "waiter 3", "waiter 4"),
+                restarted.waiting(eventId).stream().map(Waitlist.Waiter::attendee).toList());
+    }
+
+    @Test
+    void flush_ShouldKeepWritesOfAFailedShardForTheNextRun() {
+        Long eventId = eventWithSeats(1);
+        // the first transaction can't get a connection, the ones after go through
+        TransactionTemplate flaky = mock(TransactionTemplate.class);
+        when(flaky.execute(any())).thenThrow(new CannotCreateTransactionException("database down"))
+                .thenAnswer(invocation -> transactionTemplate.execute(invocation.<TransactionCallback<?>>getArgument(0)));
+        Waitlist line = new Waitlist(entryRepository, bookingRepository, jdbcTemplate, flaky,
+                ShardRouter.single(), Clock.systemDefaultZone(), breaker);
+        ReflectionTestUtils.setField(line, "maxPerEvent", 10);
+        ReflectionTestUtils.setField(line, "flushBatchSize", 100);
+        line.rebuild();
+
+        Waitlist.Waiter ann = line.join(eventId, "ann");
+        Waitlist.Waiter bob = line.join(eventId, "bob");
+        line.flush();
+        assertEquals(0, count("SELECT COUNT(*) FROM waitlist_entries WHERE event_id = " + eventId));
+
+        // ann leaves before the retry, her insert and delete cancel out
+        assertTrue(line.leave(eventId, ann.id()));
+        line.flush();
+        assertEquals(List.of(bob.id()), jdbcTemplate.queryForList(
+                "SELECT id FROM waitlist_entries WHERE event_id = ?", Long.class, eventId));
+    }
+
+    private List<BookingResult> bookConcurrently(Long eventId, int people) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<BookingResult>> pending = new ArrayList<>();
+            for (int i = 0; i < people; i++) {
+                String attendee = "fan " + i;
+                pending.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        return bookingService.book(eventId, attendee);
+                    } catch (RuntimeException full) {
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            List<BookingResult> results = new ArrayList<>();
+            for (Future<BookingResult> result : pending) {
+                results.add(result.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<Long> ids(List<Waitlist.Waiter> waiters) {
+        return waiters.stream().map(Waitlist.Waiter::id).toList();
+    }
+
+    private Long eventWithSeats(int capacity) {
+        Venue venue = venueService.createVenue(new Venue(null, "Waitlist Arena", "Street", capacity, null));
+        return eventService.createEvent(new Event(null, "Sold Out", null,
+                LocalDateTime.of(2033, 3, 1, 20, 0), LocalDateTime.of(2033, 3, 1, 23, 0), venue)).getId();
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.cache;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.repository.EventRepository;
+import org.example.service.ChangeType;
+import org.example.service.EventChange;
+import org.example.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * tests the upcoming events cache with a clock we can move forward by hand
+ */
+@ExtendWith(MockitoExtension.class)
+class UpcomingEventsCacheTest {
+    @Mock
+    private EventRepository eventRepository;
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+    private MutableClock clock;
+    private UpcomingEventsCache cache;
+    private Venue venue;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(now.toInstant(ZoneOffset.UTC));
+        cache = new UpcomingEventsCache(eventRepository, clock, ShardRouter.single());
+        ReflectionTestUtils.setField(cache, "windowDays", 7);
+        venue = new Venue(1L, "Hall", "1 Main St", 100, null);
+    }
+
+    @Test
+    void upcoming_ShouldReturnEventsInStartOrder() {
+        Event later = event(1L, now.plusHours(5));
+        Event sooner = event(2L, now.plusHours(1));
+        when(eventRepository.findByStartTimeBetween(any(), any())).thenReturn(List.of(later, sooner));
+
+        cache.tick();
+
+        assertTrue(cache.isLoaded());
+        assertEquals(List.of(sooner, later), cache.upcoming(10));
+        assertEquals(List.of(sooner), cache.upcoming(1), "limit should be respected");
+    }
+
+    @Test
+    void tick_ShouldDropEventsThatStarted() {
+        when(eventRepository.findByStartTimeBetween(any(), any()))
+                .thenReturn(List.of(event(1L, now.plusMinutes(1)), event(2L, now.plusHours(1))));
+        cache.tick();
+
+        clock.advanceMinutes(2);
+        cache.tick();
+
+        assertEquals(1, cache.upcoming(10).size(), "the first event has started and should be gone");
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void tick_ShouldApplyCommittedChanges() {
+        when(eventRepository.findByStartTimeBetween(any(), any())).thenReturn(List.of(event(1L, now.plusHours(1))));
+        cache.tick();
+
+        // event 1 was moved further out, event 2 was created
+        Event moved = event(1L, now.plusHours(3));
+        Event created = event(2L, now.plusHours(2));
+        when(eventRepository.findAllById(any())).thenReturn(List.of(moved, created));
+        cache.onEventChange(new EventChange(1L, ChangeType.UPDATED));
+        cache.onEventChange(new EventChange(2L, ChangeType.CREATED));
+        cache.tick();
+
+        assertEquals(List.of(created, moved), cache.upcoming(10));
+    }
+
+    @Test
+    void tick_ShouldRemoveDeletedEvents() {
+        when(eventRepository.findByStartTimeBetween(any(), any())).thenReturn(List.of(event(1L, now.plusHours(1))));
+        cache.tick();
+
+        when(eventRepository.findAllById(any())).thenReturn(List.of());
+        cache.onEventChange(new EventChange(1L, ChangeType.DELETED));
+        cache.tick();
+
+        assertTrue(cache.upcoming(10).isEmpty());
+    }
+
+    private Event event(Long id, LocalDateTime start) {
+        return new Event(id, "Event " + id, null, start, start.plusHours(1), venue);
+    }
+
+    // a fixed clock that tests can move forward
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advanceMinutes(long minutes) {
+            instant = instant.plusSeconds(minutes * 60);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.cache;
+
+import org.example.entity.Venue;
+import org.example.repository.VenueRepository;
+import org.example.service.ChangeType;
+import org.example.service.VenueChange;
+import org.example.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * tests the capacity index against filtering and sorting the same venues by hand
+ */
+@ExtendWith(MockitoExtension.class)
+class VenueCapacityIndexTest {
+    @Mock
+    private VenueRepository venueRepository;
+
+    private VenueCapacityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new VenueCapacityIndex(venueRepository, ShardRouter.single());
+    }
+
+    @Test
+    void between_ShouldMatchBruteForce() {
+        // lots of duplicate capacities, so ties have to be handled
+        List<Venue> venues = randomVenues(5_000, new SplittableRandom(1));
+        load(venues);
+        SplittableRandom random = new SplittableRandom(2);
+
+        for (int i = 0; i < 200; i++) {
+            int min = random.nextInt(600);
+            int max = min + random.nextInt(300);
+            List<Long> expected = venues.stream()
+                    .filter(v -> v.getCapacity() >= min && v.getCapacity() <= max)
+                    .sorted(Comparator.comparing(Venue::getCapacity).thenComparing(Venue::getId))
+                    .map(Venue::getId).toList();
+
+            assertEquals(expected, ids(index.between(min, max)), "range " + min + ".." + max);
+        }
+    }
+
+    @Test
+    void largest_ShouldReturnBiggestFirst() {
+        load(List.of(venue(1L, 50), venue(2L, 5000), venue(3L, 300), venue(4L, 5000)));
+
+        // equal capacities: the higher id comes first
+        assertEquals(List.of(4L, 2L, 3L), ids(index.largest(3)));
+        assertEquals(4, index.largest(10).size(), "never more than there are");
+    }
+
+    @Test
+    void get_ShouldFindIndexedVenuesById() {
+        load(List.of(venue(1L, 100), venue(2L, 200)));
+        when(venueRepository.findAllById(any())).thenReturn(List.of(venue(2L, 20)));
+        index.onVenueChange(new VenueChange(2L, ChangeType.UPDATED));
+
+        assertEquals(100, index.get(1L).getCapacity());
+        // the lookup sees the committed change like the range queries do
+        assertEquals(20, index.get(2L).getCapacity());
+        assertNull(index.get(3L));
+    }
+
+    @Test
+    void between_ShouldSeeCommittedChangesRightAway() {
+        load(List.of(venue(1L, 100), venue(2L, 200)));
+
+        // venue 1 grew, venue 2 was deleted and venue 3 is new, no refresh has run yet
+        when(venueRepository.findAllById(any())).thenReturn(List.of(venue(1L, 1000), venue(3L, 150)));
+        index.onVenueChange(new VenueChange(1L, ChangeType.UPDATED));
+        index.onVenueChange(new VenueChange(2L, ChangeType.DELETED));
+        index.onVenueChange(new VenueChange(3L, ChangeType.CREATED));
+
+        assertEquals(List.of(3L, 1L), ids(index.between(0, Integer.MAX_VALUE)));
+        assertEquals(2, index.size());
+        // applied once, the next query does not go back to the database
+        index.between(0, 10);
+        verify(venueRepository, times(1)).findAllById(any());
+    }
+
+    private void load(List<Venue> venues) {
+        when(venueRepository.findAll()).thenReturn(venues);
+        index.refresh();
+        assertTrue(index.isLoaded());
+    }
+
+    private static List<Venue> randomVenues(int count, SplittableRandom random) {
+        List<Venue> venues = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            venues.add(venue((long) i + 1, 10 * random.nextInt(100)));
+        }
+        return venues;
+    }
+
+    private static Venue venue(Long id, int capacity) {
+        return new Venue(id, "Venue " + id, "Street " + id, capacity, null);
+    }
+
+    private static List<Long> ids(List<Venue> venues) {
+        return venues.stream().map(Venue::getId).toList();
+    }
+}
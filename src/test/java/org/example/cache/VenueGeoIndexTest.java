@@ -0,0 +1,149 @@
+package org.example.cache;
+
+import org.example.entity.Venue;
+import org.example.repository.VenueRepository;
+import org.example.service.ChangeType;
+import org.example.service.VenueChange;
+import org.example.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * tests the venue grid against a brute force scan over the same venues
+ */
+@ExtendWith(MockitoExtension.class)
+class VenueGeoIndexTest {
+    @Mock
+    private VenueRepository venueRepository;
+
+    private VenueGeoIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new VenueGeoIndex(venueRepository, ShardRouter.single(), 0.1);
+    }
+
+    @Test
+    void nearest_ShouldMatchBruteForce() {
+        // venues spread over a few cities, queries anywhere in and around them
+        List<Venue> venues = randomVenues(20_000, new SplittableRandom(7));
+        load(venues);
+        SplittableRandom random = new SplittableRandom(11);
+
+        for (int i = 0; i < 200; i++) {
+            double lat = 48 + random.nextDouble() * 6;
+            double lon = -2 + random.nextDouble() * 16;
+            int minCapacity = random.nextInt(3) * 200;
+
+            List<VenueGeoIndex.NearbyVenue> expected = VenueGeoIndex.rank(venues, lat, lon, null, minCapacity, 10);
+            List<VenueGeoIndex.NearbyVenue> actual = index.nearest(lat, lon, 10, minCapacity);
+
+            assertEquals(ids(expected), ids(actual), "query " + i + " should find the same venues");
+        }
+    }
+
+    @Test
+    void withinRadius_ShouldMatchBruteForce() {
+        List<Venue> venues = randomVenues(20_000, new SplittableRandom(3));
+        load(venues);
+        SplittableRandom random = new SplittableRandom(5);
+
+        for (int i = 0; i < 200; i++) {
+            double lat = 48 + random.nextDouble() * 6;
+            double lon = -2 + random.nextDouble() * 16;
+            double radiusKm = 1 + random.nextDouble() * 40;
+
+            List<VenueGeoIndex.NearbyVenue> expected = VenueGeoIndex.rank(venues, lat, lon, radiusKm, 100, 1000);
+            List<VenueGeoIndex.NearbyVenue> actual = index.withinRadius(lat, lon, radiusKm, 100, 1000);
+
+            assertEquals(ids(expected), ids(actual), "query " + i + " should find the same venues");
+        }
+    }
+
+    @Test
+    void withinRadius_ShouldFilterByCapacity() {
+        // two venues next to each other, only the big one qualifies
+        load(List.of(venue(1L, 52.5200, 13.4050, 50), venue(2L, 52.5210, 13.4060, 500)));
+
+        List<VenueGeoIndex.NearbyVenue> result = index.withinRadius(52.52, 13.405, 1, 100, 10);
+
+        assertEquals(List.of(2L), ids(result));
+        assertTrue(result.get(0).distanceKm() < 0.2, "distance should be about 130 m");
+    }
+
+    @Test
+    void nearest_ShouldSearchOutwardsWhenNothingIsClose() {
+        // the only venue is about 300 km away, far outside the first rings
+        load(List.of(venue(1L, 48.86, 2.35, 100)));
+
+        List<VenueGeoIndex.NearbyVenue> result = index.nearest(51.51, -0.13, 3, 0);
+
+        assertEquals(List.of(1L), ids(result));
+    }
+
+    @Test
+    void refresh_ShouldApplyChangedVenues() {
+        load(List.of(venue(1L, 52.52, 13.405, 100)));
+
+        // the venue moved to another city and a venue without coordinates was added
+        Venue moved = venue(1L, 48.86, 2.35, 100);
+        Venue noLocation = new Venue(2L, "Nowhere", "somewhere", 100, null);
+        when(venueRepository.findAllById(any())).thenReturn(List.of(moved, noLocation));
+        index.onVenueChange(new VenueChange(1L, ChangeType.UPDATED));
+        index.onVenueChange(new VenueChange(2L, ChangeType.CREATED));
+        index.refresh();
+
+        assertTrue(index.withinRadius(52.52, 13.405, 10, 0, 10).isEmpty(), "old location should be gone");
+        assertEquals(List.of(1L), ids(index.withinRadius(48.86, 2.35, 10, 0, 10)));
+        assertEquals(1, index.size(), "venues without coordinates are not indexed");
+    }
+
+    @Test
+    void refresh_ShouldRemoveDeletedVenues() {
+        load(List.of(venue(1L, 52.52, 13.405, 100)));
+
+        // the deleted venue is no longer returned by the repository
+        when(venueRepository.findAllById(any())).thenReturn(List.of());
+        index.onVenueChange(new VenueChange(1L, ChangeType.DELETED));
+        index.refresh();
+
+        assertEquals(0, index.size());
+        assertTrue(index.nearest(52.52, 13.405, 5, 0).isEmpty());
+    }
+
+    private void load(List<Venue> venues) {
+        when(venueRepository.findAll()).thenReturn(venues);
+        index.refresh();
+        assertTrue(index.isLoaded());
+    }
+
+    private static List<Venue> randomVenues(int count, SplittableRandom random) {
+        double[][] cities = {{48.86, 2.35}, {52.52, 13.40}, {51.51, -0.13}, {50.85, 4.35}};
+        List<Venue> venues = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double[] city = cities[random.nextInt(cities.length)];
+            venues.add(venue((long) i + 1, city[0] + random.nextGaussian() * 0.3,
+                    city[1] + random.nextGaussian() * 0.4, 10 + random.nextInt(1000)));
+        }
+        return venues;
+    }
+
+    private static Venue venue(Long id, double lat, double lon, int capacity) {
+        return new Venue(id, "Venue " + id, "Street " + id, capacity, lat, lon, null);
+    }
+
+    private static List<Long> ids(List<VenueGeoIndex.NearbyVenue> venues) {
+        return venues.stream().map(nearby -> nearby.venue().getId()).toList();
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.controller;
+
+import org.example.EventApplication;
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.service.EventService;
+import org.example.service.VenueService;
+import org.example.stats.EventCounters;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * test class for AsyncReadController. the services are mocks, the reads really run on the AsyncReads pool,
+ * so every request is started first and its result dispatched once the future is done
+ */
+@WebMvcTest(AsyncReadController.class)
+@ContextConfiguration(classes = EventApplication.class)
+@Import(AsyncReads.class)
+class AsyncReadControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private EventService eventService;
+
+    @MockBean
+    private VenueService venueService;
+
+    @MockBean
+    private EventCounters eventCounters;
+
+    @Test
+    void getEventsByTimeRange_ShouldAnswerFromTheReadPool() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2033, 5, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2033, 5, 2, 0, 0);
+        Venue venue = new Venue(1L, "Hall", "Street", 100, null);
+        when(eventService.getEventsByTimeRange(start, end)).thenAnswer(invocation -> {
+            // the query must not run on the request thread
+            if (Thread.currentThread().getName().startsWith("async-read-")) {
+                return List.of(new Event(7L, "Gig", null, start.plusHours(20), start.plusHours(22), venue));
+            }
+            throw new IllegalStateException("ran on " + Thread.currentThread().getName());
+        });
+
+        // the handler returns before the query is done
+        MvcResult started = mockMvc.perform(get("/api/async/events/search")
+                        .param("start", "2033-05-01T00:00:00")
+                        .param("end", "2033-05-02T00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(jsonPath("$[0].venue.name").value("Hall"));
+    }
+
+    @Test
+    void getVenueById_ShouldReturnTheVenue() throws Exception {
+        when(venueService.getVenueById(3L)).thenReturn(new Venue(3L, "Arena", "Road", 5000, null));
+
+        MvcResult started = mockMvc.perform(get("/api/async/venues/3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.capacity").value(5000));
+        verify(venueService).getVenueById(3L);
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.controller;
+
+import org.example.EventApplication;
+import org.example.booking.Waitlist;
+import org.example.entity.Booking;
+import org.example.entity.SeatHold;
+import org.example.service.BookingResult;
+import org.example.service.BookingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * test class for BookingController, the service is a mock
+ */
+@WebMvcTest(BookingController.class)
+@ContextConfiguration(classes = EventApplication.class)
+class BookingControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BookingService bookingService;
+
+    @Test
+    void book_ShouldReturnCreatedWhenSeatIsFree() throws Exception {
+        Booking booking = new Booking(5L, 1L, "ann", LocalDateTime.of(2033, 1, 1, 9, 0), null);
+        when(bookingService.book(1L, "ann")).thenReturn(BookingResult.booked(booking));
+
+        mockMvc.perform(post("/api/events/1/bookings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"attendee\": \"ann\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.status").value("BOOKED"))
+                .andExpect(jsonPath("$.booking.id").value(5));
+    }
+
+    @Test
+    void book_ShouldReturnAcceptedWhenWaitlisted() throws Exception {
+        Waitlist.Waiter waiter = new Waitlist.Waiter(9L, 1L, "bob", LocalDateTime.of(2033, 1, 1, 9, 0));
+        when(bookingService.book(1L, "bob")).thenReturn(BookingResult.waitlisted(waiter, 3));
+
+        // a sold-out event queues the request instead of rejecting it
+        mockMvc.perform(post("/api/events/1/bookings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"attendee\": \"bob\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("WAITLISTED"))
+                .andExpect(jsonPath("$.waitlistEntry.id").value(9))
+                .andExpect(jsonPath("$.position").value(3));
+    }
+
+    @Test
+    void hold_ShouldReturnTheHoldWithItsExpiry() throws Exception {
+        SeatHold hold = new SeatHold(3L, 1L, "ann", LocalDateTime.of(2033, 1, 1, 9, 0), LocalDateTime.of(2033, 1, 1, 9, 5));
+        when(bookingService.hold(1L, "ann")).thenReturn(hold);
+
+        mockMvc.perform(post("/api/events/1/holds")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"attendee\": \"ann\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(3))
+                .andExpect(jsonPath("$.expiresAt").value("2033-01-01T09:05:00"));
+    }
+
+    @Test
+    void confirmHold_ShouldReturnTheBooking() throws Exception {
+        Booking booking = new Booking(5L, 1L, "ann", LocalDateTime.of(2033, 1, 1, 9, 1), null);
+        when(bookingService.confirmHold(1L, 3L)).thenReturn(booking);
+
+        mockMvc.perform(post("/api/events/1/holds/3/confirm"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(5));
+    }
+
+    @Test
+    void cancelBooking_ShouldReturnNoContent() throws Exception {
+        mockMvc.perform(delete("/api/events/1/bookings/5"))
+                .andExpect(status().isNoContent());
+
+        verify(bookingService).cancelBooking(1L, 5L);
+    }
+}
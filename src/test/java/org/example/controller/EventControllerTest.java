@@ -4,7 +4,22 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.EventApplication;
 import org.example.entity.Event;
 import org.example.entity.Venue;
+import org.example.ingest.BatchMode;
+import org.example.ingest.BatchOperation;
+import org.example.ingest.BatchReport;
+import org.example.ingest.EventBatchService;
+import org.example.ingest.EventIngestService;
+import org.example.ingest.EventRowReader;
+import org.example.ingest.IngestReport;
+import org.example.protobuf.ProtobufEntityHttpMessageConverter;
+import org.example.protobuf.ProtobufMapper;
+import org.example.protobuf.message.EventList;
+import org.example.protobuf.message.EventMessage;
+import org.example.repository.Projection;
 import org.example.service.EventService;
+import org.example.service.LookupResult;
+import org.example.stats.EventCounter;
+import org.example.stats.EventCounters;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,11 +31,15 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 // these static imports are needed for mockMvc and mockito methods
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -40,6 +59,15 @@ class EventControllerTest {
     @MockBean
     private EventService eventService;
 
+    @MockBean
+    private EventIngestService eventIngestService;
+
+    @MockBean
+    private EventBatchService eventBatchService;
+
+    @MockBean
+    private EventCounters eventCounters;
+
     // objectMapper helps convert Java objects to JSON and back
     @Autowired
     private ObjectMapper objectMapper;
@@ -79,6 +107,58 @@ class EventControllerTest {
                 .andExpect(jsonPath("$[0].description").value("Test Description")); // first event description
     }
 
+    @Test
+    void getEventsByIds_ShouldReturnFoundAndMissing() throws Exception {
+        when(eventService.getEventsByIds(List.of(1L, 7L)))
+                .thenReturn(List.of(LookupResult.found(1L, testEvent), LookupResult.missing(7L)));
+
+        // ids turns GET /api/events into a multi-get, the list keeps the requested order
+        mockMvc.perform(get("/api/events").param("ids", "1,7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[0].value.name").value("Test Event"))
+                .andExpect(jsonPath("$[1].id").value(7))
+                .andExpect(jsonPath("$[1].found").value(false))
+                .andExpect(jsonPath("$[1].value").doesNotExist());
+    }
+
+    @Test
+    void getEventsByIds_ShouldAnswerBadRequest_ForTooManyIds() throws Exception {
+        when(eventService.getEventsByIds(List.of(1L, 2L, 3L)))
+                .thenThrow(new IllegalArgumentException("at most 2 ids can be looked up at once"));
+
+        mockMvc.perform(get("/api/events").param("ids", "1,2,3"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("at most 2 ids can be looked up at once"));
+    }
+
+    @Test
+    void getAllEvents_WithFields_ShouldReturnOnlyThoseFields() throws Exception {
+        // the service already returns just the selected columns, keyed by field name
+        when(eventService.getAllEvents("id,name")).thenReturn(List.of(Map.of("id", 1, "name", "Test Event")));
+
+        mockMvc.perform(get("/api/events").param("fields", "id,name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Test Event"))
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+    }
+
+    @Test
+    void getAllEvents_WithFields_ShouldAnswerBadRequest_ForUnknownOrEmptyFields() throws Exception {
+        // the real field list parser, the way the service runs it before any query
+        when(eventService.getAllEvents(any())).thenAnswer(invocation -> {
+            Projection.ofEvents(invocation.getArgument(0));
+            return List.of();
+        });
+
+        mockMvc.perform(get("/api/events").param("fields", "name,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+        mockMvc.perform(get("/api/events").param("fields", " , "))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getEventById_ShouldReturnEvent() throws Exception {
         // tell fake service what to return when getEventById(1L) is called
@@ -90,6 +170,8 @@ class EventControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 // use $.name instead of $[0].name because we're getting a single object, not an array
                 .andExpect(jsonPath("$.name").value("Test Event"));
+        // every read of a single event counts as a view
+        verify(eventCounters).increment(1L, EventCounter.VIEWS);
     }
 
     @Test
@@ -152,4 +234,132 @@ class EventControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$[0].name").value("Test Event"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getActiveEvents_ShouldReturnOverlappingEvents() throws Exception {
+        when(eventService.getActiveEvents(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(testEvent));
+
+        // make a GET request to /api/events/active with the window to check
+        mockMvc.perform(get("/api/events/active")
+                        .param("start", testTime.toString())
+                        .param("end", testTime.plusHours(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Test Event"));
+    }
+
+    @Test
+    void getUpcomingEvents_ShouldPassLimit() throws Exception {
+        when(eventService.getUpcomingEvents(3)).thenReturn(List.of(testEvent));
+
+        mockMvc.perform(get("/api/events/upcoming").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Test Event"));
+    }
+
+    @Test
+    void getUpcomingEvents_ShouldAnswerBadRequest_ForNonPositiveLimit() throws Exception {
+        when(eventService.getUpcomingEvents(-1)).thenThrow(new IllegalArgumentException("Limit must be positive"));
+
+        // the client's mistake, not a server error
+        mockMvc.perform(get("/api/events/upcoming").param("limit", "-1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Limit must be positive"));
+    }
+
+    @Test
+    void getAllEvents_ShouldReturnProtobufWhenAsked() throws Exception {
+        when(eventService.getAllEvents()).thenReturn(List.of(testEvent));
+
+        // same endpoint, but the client asks for protobuf instead of JSON
+        byte[] body = mockMvc.perform(get("/api/events").accept(ProtobufEntityHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ProtobufEntityHttpMessageConverter.PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // decode the bytes with the generated message class and check the event came through
+        EventList events = EventList.parseFrom(body);
+        assertEquals(1, events.getEventsCount());
+        assertEquals("Test Event", events.getEvents(0).getName());
+        assertEquals("Test Venue", events.getEvents(0).getVenue().getName());
+        assertEquals(testTime, ProtobufMapper.toEvent(events.getEvents(0)).getStartTime());
+    }
+
+    @Test
+    void createEvent_ShouldAcceptProtobuf() throws Exception {
+        when(eventService.createEvent(any(Event.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // send the event as protobuf and ask for protobuf back
+        byte[] body = mockMvc.perform(post("/api/events")
+                        .contentType(ProtobufEntityHttpMessageConverter.PROTOBUF)
+                        .accept(ProtobufEntityHttpMessageConverter.PROTOBUF)
+                        .content(ProtobufMapper.toMessage(testEvent).toByteArray()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        EventMessage created = EventMessage.parseFrom(body);
+        assertEquals("Test Event", created.getName());
+        assertEquals(1L, created.getVenue().getId());
+    }
+
+    @Test
+    void bulkIngest_ShouldReturnReport() throws Exception {
+        IngestReport report = new IngestReport(2, 1, 1, List.of(new IngestReport.RowError(2, "name is required")), false);
+        when(eventIngestService.ingest(any(EventRowReader.class))).thenReturn(report);
+
+        // the csv goes to the service as a stream, the report comes back as JSON
+        mockMvc.perform(post("/api/events/bulk")
+                        .contentType("text/csv")
+                        .content("A,,2025-01-01T10:00,2025-01-01T11:00,1\n,,2025-01-01T10:00,2025-01-01T11:00,1\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("name is required"));
+    }
+
+    @Test
+    void bulkIngest_ShouldRejectJson() throws Exception {
+        // bulk only takes csv or protobuf, single events still go to POST /api/events
+        mockMvc.perform(post("/api/events/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    @Test
+    void batch_ShouldPassModeAndOperations() throws Exception {
+        BatchReport report = new BatchReport(BatchMode.BEST_EFFORT, 1, 1, List.of(
+                new BatchReport.Result(0, BatchOperation.Type.CREATE, 9L, BatchReport.Status.APPLIED, null),
+                new BatchReport.Result(1, BatchOperation.Type.DELETE, 4L, BatchReport.Status.FAILED, "event not found with id: 4")));
+        when(eventBatchService.apply(any(), eq(BatchMode.BEST_EFFORT))).thenReturn(report);
+
+        mockMvc.perform(post("/api/events/batch")
+                        .param("mode", "BEST_EFFORT")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"type\": \"CREATE\", \"event\": " + objectMapper.writeValueAsString(testEvent) + "},"
+                                + " {\"type\": \"DELETE\", \"id\": 4}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].id").value(9))
+                .andExpect(jsonPath("$.results[0].error").doesNotExist())
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"));
+    }
+
+    @Test
+    void batch_ShouldAnswerBadRequest_ForBatchesThatCantRun() throws Exception {
+        when(eventBatchService.apply(eq(List.of()), any()))
+                .thenThrow(new IllegalArgumentException("a batch needs at least one operation"));
+        when(eventBatchService.apply(any(), eq(BatchMode.ALL_OR_NOTHING)))
+                .thenThrow(new IllegalArgumentException("an all-or-nothing batch has to stay on one shard, this one touches 2"));
+
+        mockMvc.perform(post("/api/events/batch")
+                        .param("mode", "BEST_EFFORT")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("a batch needs at least one operation"));
+        mockMvc.perform(post("/api/events/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"type\": \"DELETE\", \"id\": 4}, {\"type\": \"DELETE\", \"id\": 9000000000}]"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.controller;
+
+import org.example.EventApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * the probes only translate spring boot's availability state into status codes
+ */
+@WebMvcTest(HealthController.class)
+@ContextConfiguration(classes = EventApplication.class)
+class HealthControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    // the state is whatever we say it is
+    @MockBean
+    private ApplicationAvailability availability;
+
+    @Test
+    void readiness_ShouldBeDownWhileWarmingUp() throws Exception {
+        when(availability.getReadinessState()).thenReturn(ReadinessState.REFUSING_TRAFFIC);
+
+        mockMvc.perform(get("/api/health/readiness"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.state").value("REFUSING_TRAFFIC"));
+    }
+
+    @Test
+    void readiness_ShouldBeUpWhenAcceptingTraffic() throws Exception {
+        when(availability.getReadinessState()).thenReturn(ReadinessState.ACCEPTING_TRAFFIC);
+
+        mockMvc.perform(get("/api/health/readiness"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("ACCEPTING_TRAFFIC"));
+    }
+
+    @Test
+    void liveness_ShouldBeDownWhenBroken() throws Exception {
+        when(availability.getLivenessState()).thenReturn(LivenessState.BROKEN);
+
+        mockMvc.perform(get("/api/health/liveness"))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
@@ -2,7 +2,11 @@ package org.example.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.EventApplication;
+import org.example.cache.VenueGeoIndex;
 import org.example.entity.Venue;
+import org.example.repository.Projection;
+import org.example.service.FreeSlot;
+import org.example.service.LookupResult;
 import org.example.service.VenueService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,7 +17,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -132,4 +139,132 @@ class VenueControllerTest {
                 .andExpect(jsonPath("$[0].name").value("Test Venue"))
                 .andExpect(jsonPath("$[0].capacity").value(100));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getVenuesByCapacityRange_ShouldPassOptionalBounds() throws Exception {
+        // only a minimum, the maximum stays open
+        when(venueService.getVenuesByCapacityRange(50, null)).thenReturn(List.of(testVenue));
+
+        mockMvc.perform(get("/api/venues/capacity").param("min", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].capacity").value(100));
+    }
+
+    @Test
+    void getLargestVenues_ShouldUseDefaultLimit() throws Exception {
+        when(venueService.getLargestVenues(10)).thenReturn(List.of(testVenue));
+
+        mockMvc.perform(get("/api/venues/largest"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Test Venue"));
+    }
+
+    @Test
+    void getNearbyVenues_ShouldReturnVenuesWithDistance() throws Exception {
+        // radius and capacity are passed through, limit falls back to its default
+        when(venueService.getNearbyVenues(52.52, 13.40, 5.0, 10, 200))
+                .thenReturn(List.of(new VenueGeoIndex.NearbyVenue(testVenue, 1.25)));
+
+        mockMvc.perform(get("/api/venues/nearby")
+                        .param("lat", "52.52")
+                        .param("lon", "13.40")
+                        .param("radiusKm", "5")
+                        .param("minCapacity", "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].venue.name").value("Test Venue"))
+                .andExpect(jsonPath("$[0].distanceKm").value(1.25));
+    }
+
+    @Test
+    void getNearbyVenues_ShouldAnswerBadRequest_ForNegativeLimit() throws Exception {
+        when(venueService.getNearbyVenues(52.52, 13.40, null, -1, 0))
+                .thenThrow(new IllegalArgumentException("Limit must be positive"));
+
+        mockMvc.perform(get("/api/venues/nearby")
+                        .param("lat", "52.52")
+                        .param("lon", "13.40")
+                        .param("limit", "-1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Limit must be positive"));
+    }
+
+    @Test
+    void getVenuesByIds_ShouldReturnResultsInRequestOrder() throws Exception {
+        when(venueService.getVenuesByIds(List.of(5L, 1L)))
+                .thenReturn(List.of(LookupResult.missing(5L), LookupResult.found(1L, testVenue)));
+
+        mockMvc.perform(get("/api/venues?ids=5,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].found").value(false))
+                .andExpect(jsonPath("$[1].value.name").value("Test Venue"));
+    }
+
+    @Test
+    void getVenueById_WithFields_ShouldReturnOnlyThoseFields() throws Exception {
+        when(venueService.getVenueById(1L, "name")).thenReturn(Map.of("name", "Test Venue"));
+
+        mockMvc.perform(get("/api/venues/1?fields=name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Test Venue"))
+                .andExpect(jsonPath("$.capacity").doesNotExist());
+    }
+
+    @Test
+    void getVenueById_WithFields_ShouldAnswerBadRequest_ForUnknownFields() throws Exception {
+        when(venueService.getVenueById(eq(1L), any(String.class))).thenAnswer(invocation -> {
+            Projection.ofVenues(invocation.getArgument(1));
+            return Map.of();
+        });
+
+        mockMvc.perform(get("/api/venues/1?fields=name,owner"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    void findFreeSlots_ShouldPassTheSearchThrough() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 6, 3, 0, 0);
+        // capacity and limit as given, the length in minutes
+        when(venueService.findFreeSlots(from, from.plusDays(7), Duration.ofMinutes(180), 200, 3)).thenReturn(List.of(
+                new FreeSlot(1L, "Test Venue", 300, from.plusHours(9), from.plusHours(12), from.plusHours(18))));
+
+        mockMvc.perform(get("/api/venues/free-slots")
+                        .param("from", "2030-06-03T00:00:00")
+                        .param("to", "2030-06-10T00:00:00")
+                        .param("minutes", "180")
+                        .param("minCapacity", "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].venueName").value("Test Venue"))
+                .andExpect(jsonPath("$[0].start").value("2030-06-03T09:00:00"))
+                .andExpect(jsonPath("$[0].freeUntil").value("2030-06-03T18:00:00"));
+    }
+
+    @Test
+    void findFreeSlots_ShouldAnswerBadRequest_ForAReversedWindow() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 6, 10, 0, 0);
+        when(venueService.findFreeSlots(from, from.minusDays(7), Duration.ofMinutes(180), 0, 3))
+                .thenThrow(new IllegalArgumentException("Window must end after it starts and span at most 31 days"));
+
+        mockMvc.perform(get("/api/venues/free-slots")
+                        .param("from", "2030-06-10T00:00:00")
+                        .param("to", "2030-06-03T00:00:00")
+                        .param("minutes", "180"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Window must end after it starts and span at most 31 days"));
+    }
+
+    @Test
+    void findFreeSlots_ShouldAnswerBadRequest_ForALimitOutOfRange() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 6, 3, 0, 0);
+        when(venueService.findFreeSlots(from, from.plusDays(7), Duration.ofMinutes(180), 0, 500))
+                .thenThrow(new IllegalArgumentException("Limit must be between 1 and 100"));
+
+        mockMvc.perform(get("/api/venues/free-slots")
+                        .param("from", "2030-06-03T00:00:00")
+                        .param("to", "2030-06-10T00:00:00")
+                        .param("minutes", "180")
+                        .param("limit", "500"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Limit must be between 1 and 100"));
+    }
+}
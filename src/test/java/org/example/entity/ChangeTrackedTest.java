@@ -0,0 +1,32 @@
+package org.example.entity;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * updated_at comes from the clock it was handed, so tests and the snapshot watermark agree on the time
+ */
+class ChangeTrackedTest {
+
+    @AfterEach
+    void resetClock() {
+        ChangeTracked.useClock(Clock.systemDefaultZone());
+    }
+
+    @Test
+    void touch_ShouldUseTheGivenClock() {
+        ChangeTracked.useClock(Clock.fixed(Instant.parse("2030-06-03T10:15:00Z"), ZoneOffset.UTC));
+        Venue venue = new Venue(null, "Clocked Hall", "Street", 100, null);
+
+        venue.touch();
+
+        assertEquals(LocalDateTime.of(2030, 6, 3, 10, 15), venue.getUpdatedAt());
+    }
+}
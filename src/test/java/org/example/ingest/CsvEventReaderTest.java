@@ -0,0 +1,85 @@
+package org.example.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the streaming csv parser on its own, no database involved
+ */
+class CsvEventReaderTest {
+
+    @Test
+    void next_ShouldReadRowsWithoutHeader() throws Exception {
+        List<IngestRow> rows = readAll("""
+                Concert,Open air,2025-06-01T18:00,2025-06-01T22:00,7
+                Meetup,,2025-06-02 09:00,2025-06-02 10:30,8
+                """);
+
+        assertEquals(2, rows.size());
+        assertEquals("Concert", rows.get(0).event().getName());
+        assertEquals(LocalDateTime.of(2025, 6, 1, 18, 0), rows.get(0).event().getStartTime());
+        assertEquals(7L, rows.get(0).event().getVenue().getId());
+        // empty description stays null, a space instead of T is accepted
+        assertNull(rows.get(1).event().getDescription());
+        assertEquals(LocalDateTime.of(2025, 6, 2, 10, 30), rows.get(1).event().getEndTime());
+        assertEquals(2, rows.get(1).row());
+    }
+
+    @Test
+    void next_ShouldUseHeaderColumnOrder() throws Exception {
+        // columns shuffled and in snake case, plus a column we don't know
+        List<IngestRow> rows = readAll("""
+                venue_id,name,source,start_time,end_time
+                3,Workshop,feed-a,2025-01-01T10:00,2025-01-01T12:00
+                """);
+
+        assertEquals(1, rows.size());
+        assertEquals(1, rows.get(0).row(), "the header is not counted as a row");
+        assertEquals("Workshop", rows.get(0).event().getName());
+        assertEquals(3L, rows.get(0).event().getVenue().getId());
+    }
+
+    @Test
+    void next_ShouldHandleQuotedFields() throws Exception {
+        // commas, quotes and a line break inside quotes, windows line endings
+        List<IngestRow> rows = readAll("\"Talk, part 1\",\"says \"\"hi\"\"\nand more\",2025-01-01T10:00,2025-01-01T11:00,1\r\n"
+                + "\r\n"
+                + "Talk 2,x,2025-01-01T12:00,2025-01-01T13:00,1");
+
+        assertEquals(2, rows.size(), "the blank line is skipped");
+        assertEquals("Talk, part 1", rows.get(0).event().getName());
+        assertEquals("says \"hi\"\nand more", rows.get(0).event().getDescription());
+        assertEquals("Talk 2", rows.get(1).event().getName());
+    }
+
+    @Test
+    void next_ShouldReportUnparseableRowsAndContinue() throws Exception {
+        List<IngestRow> rows = readAll("""
+                Bad date,,yesterday,2025-01-01T11:00,1
+                Bad venue,,2025-01-01T10:00,2025-01-01T11:00,abc
+                Good,,2025-01-01T10:00,2025-01-01T11:00,1
+                """);
+
+        assertEquals(3, rows.size());
+        assertTrue(rows.get(0).error().contains("yesterday"));
+        assertTrue(rows.get(1).error().contains("venueId"));
+        assertNull(rows.get(2).error());
+    }
+
+    private static List<IngestRow> readAll(String csv) throws Exception {
+        CsvEventReader reader = new CsvEventReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), null);
+        List<IngestRow> rows = new ArrayList<>();
+        IngestRow row;
+        while ((row = reader.next()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.ingest;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.service.EventService;
+import org.example.service.VenueService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * runs batches against the embedded H2 database. every test gets venues of its own, so the
+ * events other tests leave behind never clash with ours
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class EventBatchServiceTest {
+    @Autowired
+    private EventBatchService batchService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Venue venue;
+    private LocalDateTime day;
+
+    @BeforeEach
+    void setUp() {
+        venue = venueService.createVenue(new Venue(null, "Batch Hall", "Street", 100, null));
+        day = LocalDateTime.of(2033, 4, 1, 0, 0);
+    }
+
+    @Test
+    void apply_ShouldApplyMixedOperationsTogether() {
+        Event updated = stored("Old name", 10, 12);
+        Event deleted = stored("Going away", 14, 16);
+
+        BatchReport report = batchService.apply(List.of(
+                create("New 1", 18, 19),
+                new BatchOperation(BatchOperation.Type.UPDATE, updated.getId(), event("New name", 10, 13)),
+                new BatchOperation(BatchOperation.Type.DELETE, deleted.getId(), null),
+                // takes the slot the deleted event gives up
+                create("New 2", 14, 16)), BatchMode.ALL_OR_NOTHING);
+
+        assertEquals(4, report.applied());
+        assertEquals(0, report.failed());
+        assertNotNull(report.results().get(0).id(), "created events should report their new id");
+        assertEquals("New name", eventService.getEventById(updated.getId()).getName());
+        assertEquals(3, count("SELECT COUNT(*) FROM events WHERE venue_id = " + venue.getId()));
+        assertEquals(0, count("SELECT COUNT(*) FROM event_time_buckets WHERE event_id = " + deleted.getId()));
+        assertEquals(1, count("SELECT COUNT(*) FROM event_time_buckets WHERE event_id = " + report.results().get(3).id()));
+    }
+
+    @Test
+    void apply_ShouldWriteNothingWhenOneOperationFails_AllOrNothing() {
+        stored("Already there", 10, 12);
+
+        BatchReport report = batchService.apply(List.of(
+                create("Fine", 13, 14),
+                create("Double booked", 11, 13)), BatchMode.ALL_OR_NOTHING);
+
+        assertEquals(0, report.applied());
+        assertEquals(BatchReport.Status.NOT_APPLIED, report.results().get(0).status());
+        assertEquals(BatchReport.Status.FAILED, report.results().get(1).status());
+        assertTrue(report.results().get(1).error().startsWith("venue " + venue.getId() + " is already taken"));
+        // only the event stored before the batch
+        assertEquals(1, count("SELECT COUNT(*) FROM events WHERE venue_id = " + venue.getId()));
+    }
+
+    @Test
+    void apply_ShouldApplyWhatPasses_BestEffort() {
+        BatchReport report = batchService.apply(List.of(
+                create("First", 10, 12),
+                // clashes with the operation before it, not with anything stored
+                create("Second", 11, 13),
+                new BatchOperation(BatchOperation.Type.DELETE, 987654321L, null),
+                create("", 15, 16)), BatchMode.BEST_EFFORT);
+
+        assertEquals(1, report.applied());
+        assertEquals(3, report.failed());
+        assertEquals("venue " + venue.getId() + " is already taken at that time by operation 0",
+                report.results().get(1).error());
+        assertEquals("event not found with id: 987654321", report.results().get(2).error());
+        assertEquals("name is required", report.results().get(3).error());
+        assertEquals(1, count("SELECT COUNT(*) FROM events WHERE venue_id = " + venue.getId()));
+    }
+
+    @Test
+    void apply_ShouldKeepTheOldSlotOfAFailedUpdate() {
+        Event moving = stored("Moving", 10, 12);
+        stored("Blocking", 14, 16);
+
+        // the update clashes, so "Moving" stays at 10-12 and the create can't have that slot after all
+        BatchReport report = batchService.apply(List.of(
+                create("Wants the old slot", 10, 12),
+                new BatchOperation(BatchOperation.Type.UPDATE, moving.getId(), event("Moving", 15, 17))),
+                BatchMode.BEST_EFFORT);
+
+        assertEquals(0, report.applied());
+        assertEquals("venue " + venue.getId() + " is already taken at that time by event " + moving.getId(),
+                report.results().get(0).error());
+    }
+
+    @Test
+    void apply_ShouldRejectAnEventChangedTwice() {
+        Event stored = stored("Twice", 10, 12);
+
+        BatchReport report = batchService.apply(List.of(
+                new BatchOperation(BatchOperation.Type.UPDATE, stored.getId(), event("Once", 10, 12)),
+                new BatchOperation(BatchOperation.Type.DELETE, stored.getId(), null)), BatchMode.BEST_EFFORT);
+
+        assertEquals(BatchReport.Status.APPLIED, report.results().get(0).status());
+        assertEquals(BatchReport.Status.FAILED, report.results().get(1).status());
+        assertEquals("Once", eventService.getEventById(stored.getId()).getName());
+    }
+
+    private Event stored(String name, int fromHour, int toHour) {
+        return eventService.createEvent(event(name, fromHour, toHour));
+    }
+
+    private BatchOperation create(String name, int fromHour, int toHour) {
+        return new BatchOperation(BatchOperation.Type.CREATE, null, event(name, fromHour, toHour));
+    }
+
+    private Event event(String name, int fromHour, int toHour) {
+        Venue ref = new Venue();
+        ref.setId(venue.getId());
+        return new Event(null, name, null, day.plusHours(fromHour), day.plusHours(toHour), ref);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.ingest;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.protobuf.ProtobufMapper;
+import org.example.service.VenueService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ingests into the embedded H2 database, small batches so a few rows already span several of them
+ */
+@SpringBootTest(properties = "ingest.batch-size=2")
+@ActiveProfiles("h2")
+class EventIngestServiceTest {
+    @Autowired
+    private EventIngestService ingestService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void ingest_ShouldInsertValidRowsAndReportTheRest() throws Exception {
+        Venue venue = venueService.createVenue(new Venue(null, "Ingest Hall", "Street", 100, null));
+        String csv = "name,description,startTime,endTime,venueId\n"
+                + "Csv 1,,2032-01-01T10:00,2032-01-01T12:00," + venue.getId() + "\n"
+                + ",,2032-01-01T10:00,2032-01-01T12:00," + venue.getId() + "\n"          // no name
+                + "Csv 3,,2032-01-01T10:00,2032-01-01T09:00," + venue.getId() + "\n"     // ends before it starts
+                + "Csv 4,,2032-01-01T10:00,2032-01-01T12:00,999999\n"                    // unknown venue
+                + "Csv 5,,2032-01-01T22:00,2032-01-03T01:00," + venue.getId() + "\n"
+                + "Csv 6,,2032-01-02T10:00,2032-01-02T12:00," + venue.getId() + "\n";
+
+        IngestReport report = ingestService.ingest(csv(csv));
+
+        assertEquals(6, report.rows());
+        assertEquals(3, report.inserted());
+        assertEquals(3, report.failed());
+        assertEquals(2, report.errors().get(0).row());
+        assertEquals("name is required", report.errors().get(0).message());
+        assertEquals("endTime must be after startTime", report.errors().get(1).message());
+        assertEquals("venue not found with id: 999999", report.errors().get(2).message());
+        assertEquals(3, count("SELECT COUNT(*) FROM events WHERE venue_id = " + venue.getId()));
+        // Csv 5 runs over three days, so it gets three time buckets
+        assertEquals(3, count("SELECT COUNT(*) FROM event_time_buckets b JOIN events e ON e.id = b.event_id WHERE e.name = 'Csv 5'"));
+    }
+
+    @Test
+    void ingest_ShouldReadLengthDelimitedProtobuf() throws Exception {
+        Venue venue = venueService.createVenue(new Venue(null, "Proto Hall", "Street", 100, null));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        LocalDateTime start = LocalDateTime.of(2032, 2, 1, 10, 0);
+        for (int i = 0; i < 5; i++) {
+            Venue ref = new Venue();
+            ref.setId(venue.getId());
+            ProtobufMapper.toMessage(new Event(null, "Proto " + i, null, start.plusDays(i), start.plusDays(i).plusHours(1), ref))
+                    .writeDelimitedTo(body);
+        }
+
+        IngestReport report = ingestService.ingest(new ProtobufEventReader(new ByteArrayInputStream(body.toByteArray())));
+
+        assertEquals(5, report.inserted());
+        assertEquals(0, report.failed());
+        assertEquals(5, count("SELECT COUNT(*) FROM events WHERE venue_id = " + venue.getId()));
+    }
+
+    @Test
+    void ingest_ShouldRetryFailedBatchRowByRow() throws Exception {
+        Venue kept = venueService.createVenue(new Venue(null, "Kept", "Street", 100, null));
+        Venue removed = venueService.createVenue(new Venue(null, "Removed", "Street", 100, null));
+        // let the lookup see both venues, then remove one behind its back
+        ingestService.ingest(csv("Warm up,,2032-03-01T10:00,2032-03-01T11:00," + removed.getId() + "\n"));
+        jdbcTemplate.update("DELETE FROM event_time_buckets WHERE event_id IN (SELECT id FROM events WHERE venue_id = ?)", removed.getId());
+        jdbcTemplate.update("DELETE FROM events WHERE venue_id = ?", removed.getId());
+        jdbcTemplate.update("DELETE FROM venues WHERE id = ?", removed.getId());
+
+        // both rows land in one batch, the foreign key fails it
+        IngestReport report = ingestService.ingest(csv(
+                "Good,,2032-03-02T10:00,2032-03-02T11:00," + kept.getId() + "\n"
+                        + "Orphan,,2032-03-02T10:00,2032-03-02T11:00," + removed.getId() + "\n"));
+
+        assertEquals(1, report.inserted());
+        assertEquals(1, report.failed());
+        assertEquals(2, report.errors().get(0).row());
+        assertEquals(1, count("SELECT COUNT(*) FROM events WHERE venue_id = " + kept.getId()));
+    }
+
+    private static EventRowReader csv(String csv) {
+        return new CsvEventReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
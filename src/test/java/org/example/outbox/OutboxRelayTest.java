@@ -0,0 +1,140 @@
+package org.example.outbox;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.service.ChangeType;
+import org.example.service.EventService;
+import org.example.service.VenueService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * relays into the in-memory sink, with several relay threads and small batches so they really
+ * compete for the rows. the context has an H2 database of its own: the relays of other cached
+ * test contexts would drain a shared outbox table into their own sinks
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:outbox_relay_test;DB_CLOSE_DELAY=-1",
+        "outbox.sink=memory", "outbox.relay-threads=4", "outbox.batch-size=50", "outbox.poll-ms=20"})
+@ActiveProfiles("h2")
+class OutboxRelayTest {
+    @Autowired
+    private InMemoryOutboxSink sink;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void changes_ShouldReachTheSink() throws InterruptedException {
+        Venue venue = venueService.createVenue(new Venue(null, "Outbox Hall", "Street", 100, null));
+        Event event = eventService.createEvent(new Event(null, "Outbox Gig", "first", LocalDateTime.now().plusDays(1),
+                LocalDateTime.now().plusDays(1).plusHours(2), venue));
+        event.setDescription("second");
+        eventService.updateEvent(event.getId(), event);
+        eventService.deleteEvent(event.getId());
+
+        List<OutboxMessage> events = await(message -> message.aggregateType() == AggregateType.EVENT
+                && message.aggregateId().equals(event.getId()), 3);
+        List<OutboxMessage> venues = await(message -> message.aggregateType() == AggregateType.VENUE
+                && message.aggregateId().equals(venue.getId()), 1);
+
+        // the ids give the order the changes were committed in, whatever order the batches came in
+        events.sort((a, b) -> Long.compare(a.id(), b.id()));
+        assertEquals(List.of(ChangeType.CREATED, ChangeType.UPDATED, ChangeType.DELETED),
+                events.stream().map(OutboxMessage::changeType).toList());
+        assertTrue(events.get(1).payload().contains("\"description\":\"second\""));
+        assertTrue(events.get(1).payload().contains("\"venueId\":" + venue.getId()));
+        assertNull(events.get(2).payload(), "a delete only carries the id");
+        assertTrue(venues.get(0).payload().contains("\"name\":\"Outbox Hall\""));
+    }
+
+    @Test
+    void rolledBackChange_ShouldNotBeSent() throws InterruptedException {
+        Venue venue = venueService.createVenue(new Venue(null, "Rollback Hall", "Street", 100, null));
+        Event rolledBack = transactionTemplate.execute(status -> {
+            Event created = eventService.createEvent(new Event(null, "Never Happened", null,
+                    LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(1).plusHours(1), venue));
+            status.setRollbackOnly();
+            return created;
+        });
+        Event kept = eventService.createEvent(new Event(null, "Happened", null,
+                LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(1).plusHours(1), venue));
+
+        // once the later change is through, the rolled back one would have been as well
+        await(message -> message.aggregateType() == AggregateType.EVENT && message.aggregateId().equals(kept.getId()), 1);
+        assertTrue(sink.messages().stream().noneMatch(message -> message.aggregateType() == AggregateType.EVENT
+                && message.aggregateId().equals(rolledBack.getId())));
+    }
+
+    @Test
+    void relay_ShouldSendEveryMessageExactlyOnce() throws InterruptedException {
+        // ids far away from anything the other tests create
+        long firstId = 1_000_000_000L;
+        int total = 5000;
+        for (int start = 0; start < total; start += 500) {
+            List<Event> batch = new ArrayList<>();
+            for (int i = start; i < start + 500; i++) {
+                batch.add(new Event(firstId + i, "Bulk " + i, null, LocalDateTime.now(), LocalDateTime.now(), null));
+            }
+            transactionTemplate.executeWithoutResult(status -> outbox.eventsChanged(batch, ChangeType.CREATED));
+        }
+
+        List<OutboxMessage> sent = await(message -> message.aggregateId() >= firstId
+                && message.aggregateId() < firstId + total, total);
+
+        // four threads claimed batches from the same table, none of them got a row another one had
+        Set<Long> outboxIds = sent.stream().map(OutboxMessage::id).collect(Collectors.toSet());
+        assertEquals(total, sent.size());
+        assertEquals(total, outboxIds.size());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox WHERE aggregate_id >= ?",
+                Integer.class, firstId));
+    }
+
+    @Test
+    void outbox_ShouldRefuseToWriteOutsideATransaction() {
+        // the message could otherwise be committed without the change it describes
+        assertThrows(IllegalStateException.class, () -> outbox.eventDeleted(1L));
+    }
+
+    /**
+     * waits until the sink has at least count matching messages, then a moment more to catch duplicates
+     */
+    private List<OutboxMessage> await(Predicate<OutboxMessage> matching, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline && matches(matching).size() < count) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(200);
+        List<OutboxMessage> matches = matches(matching);
+        assertEquals(count, matches.size(), "messages in the sink");
+        return matches;
+    }
+
+    private List<OutboxMessage> matches(Predicate<OutboxMessage> matching) {
+        return sink.messages().stream().filter(matching).collect(Collectors.toCollection(ArrayList::new));
+    }
+}
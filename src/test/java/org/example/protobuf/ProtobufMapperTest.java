@@ -0,0 +1,50 @@
+package org.example.protobuf;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.protobuf.message.EventMessage;
+import org.example.protobuf.message.VenueMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * checks that entities survive the trip through the protobuf messages
+ */
+class ProtobufMapperTest {
+
+    @Test
+    void toEvent_ShouldRoundTripEvent() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 3, 14, 9, 30);
+        Venue venue = new Venue(7L, "Hall", "Main St 1", 250, 52.52, 13.405, null);
+        Event event = new Event(3L, "Meetup", "monthly meetup", start, start.plusHours(2), venue);
+
+        // encode to bytes and parse again, like a client would
+        byte[] bytes = ProtobufMapper.toMessage(event).toByteArray();
+        Event decoded = ProtobufMapper.toEvent(EventMessage.parseFrom(bytes));
+
+        assertEquals(3L, decoded.getId());
+        assertEquals("Meetup", decoded.getName());
+        assertEquals("monthly meetup", decoded.getDescription());
+        assertEquals(start, decoded.getStartTime());
+        assertEquals(start.plusHours(2), decoded.getEndTime());
+        assertEquals(7L, decoded.getVenue().getId());
+        assertEquals(250, decoded.getVenue().getCapacity());
+        assertEquals(52.52, decoded.getVenue().getLatitude());
+    }
+
+    @Test
+    void toVenue_ShouldKeepMissingFieldsNull() throws Exception {
+        // a new venue: no id yet and no coordinates
+        Venue venue = new Venue(null, "Hall", "Main St 1", 100, null);
+
+        Venue decoded = ProtobufMapper.toVenue(VenueMessage.parseFrom(ProtobufMapper.toMessage(venue).toByteArray()));
+
+        assertNull(decoded.getId());
+        assertNull(decoded.getLatitude());
+        assertNull(decoded.getLongitude());
+        assertEquals("Hall", decoded.getName());
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.repository;
+
+import org.example.entity.Event;
+import org.example.entity.EventTimeBucket;
+import org.example.entity.Venue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * checks the overlap query on top of the time bucket table.
+ * runs against the embedded H2 database from the "h2" profile, so no MySQL server is needed
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+class EventTimeBucketRepositoryTest {
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private EventTimeBucketRepository bucketRepository;
+
+    private Venue testVenue;
+    private LocalDateTime day;
+
+    @BeforeEach
+    void setUp() {
+        testVenue = venueRepository.save(new Venue(null, "Test Venue", "123 Test St", 100, null));
+        day = LocalDateTime.of(2024, 5, 1, 0, 0);
+    }
+
+    @Test
+    void findActiveBetween_ShouldReturnEventsStartedBeforeWindow() {
+        // a three day festival that started well before the window we search
+        Event festival = saveWithBuckets("Festival", day.minusDays(1), day.plusDays(2));
+        saveWithBuckets("Breakfast", day.plusHours(8), day.plusHours(9));
+
+        List<Event> active = eventRepository.findActiveBetween(day.plusHours(12), day.plusHours(14),
+                day.toLocalDate().toEpochDay(), day.toLocalDate().toEpochDay());
+
+        assertEquals(1, active.size(), "only the festival overlaps the afternoon");
+        assertEquals(festival.getId(), active.get(0).getId());
+    }
+
+    @Test
+    void findActiveBetween_ShouldTreatEndAsExclusive() {
+        saveWithBuckets("Morning", day.plusHours(8), day.plusHours(10));
+
+        List<Event> active = eventRepository.findActiveBetween(day.plusHours(10), day.plusHours(11),
+                day.toLocalDate().toEpochDay(), day.toLocalDate().toEpochDay());
+
+        assertTrue(active.isEmpty(), "an event ending when the window starts does not overlap");
+    }
+
+    @Test
+    void deleteByEventId_ShouldRemoveAllBucketsOfEvent() {
+        Event event = saveWithBuckets("Long", day, day.plusDays(3));
+
+        bucketRepository.deleteByEventId(event.getId());
+
+        assertTrue(eventRepository.findWithoutTimeBuckets(PageRequest.of(0, 10))
+                .stream().anyMatch(e -> e.getId().equals(event.getId())), "event should need a backfill again");
+    }
+
+    // saves an event and writes one bucket per day it touches, like EventTimeBucketIndex does
+    private Event saveWithBuckets(String name, LocalDateTime start, LocalDateTime end) {
+        Event event = eventRepository.save(new Event(null, name, null, start, end, testVenue));
+        for (long bucket = start.toLocalDate().toEpochDay(); bucket <= end.minusNanos(1).toLocalDate().toEpochDay(); bucket++) {
+            bucketRepository.save(new EventTimeBucket(null, bucket, event.getId()));
+        }
+        return event;
+    }
+}
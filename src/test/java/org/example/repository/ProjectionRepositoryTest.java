@@ -0,0 +1,81 @@
+package org.example.repository;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * checks that ?fields= only selects what was asked for and maps it back under the field names.
+ * runs against the embedded H2 database from the "h2" profile
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@Import(ProjectionRepository.class)
+class ProjectionRepositoryTest {
+    @Autowired
+    private ProjectionRepository projectionRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    private Venue testVenue;
+    private Event testEvent;
+
+    @BeforeEach
+    void setUp() {
+        testVenue = venueRepository.save(new Venue(null, "Test Venue", "123 Test St", 100, null));
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 20, 0);
+        testEvent = eventRepository.save(new Event(null, "Concert", "a long description", start, start.plusHours(2), testVenue));
+        eventRepository.flush();
+    }
+
+    @Test
+    void select_ShouldOnlyNameRequestedColumns() {
+        String sql = Projection.ofEvents("id,name,startTime").select();
+
+        // no description, no venue columns and above all no join
+        assertEquals("select t.id as row_id, t.id, t.name, t.start_time from events t", sql);
+        assertTrue(Projection.ofEvents("name,venue.name").select().endsWith("left join venues v on v.id = t.venue_id"));
+    }
+
+    @Test
+    void ofEvents_ShouldRejectUnknownFields() {
+        assertThrows(IllegalArgumentException.class, () -> Projection.ofEvents("name,password"));
+        assertThrows(IllegalArgumentException.class, () -> Projection.ofEvents("venue.events"));
+        assertThrows(IllegalArgumentException.class, () -> Projection.ofVenues(" , "));
+    }
+
+    @Test
+    void findById_ShouldReturnOnlyRequestedFields() {
+        Map<String, Object> fields = projectionRepository.findById(Projection.ofEvents("startTime,name"), testEvent.getId())
+                .orElseThrow().fields();
+
+        // in the requested order, with the time as a LocalDateTime rather than a jdbc timestamp
+        assertEquals(List.of("startTime", "name"), List.copyOf(fields.keySet()));
+        assertEquals(testEvent.getStartTime(), fields.get("startTime"));
+    }
+
+    @Test
+    void findAll_ShouldNestVenueFields() {
+        List<Projection.Row> rows = projectionRepository.findAll(Projection.ofEvents("name,venue.name,venue.capacity"));
+
+        Projection.Row row = rows.stream().filter(r -> r.id() == testEvent.getId()).findFirst().orElseThrow();
+        assertEquals(Map.of("name", "Test Venue", "capacity", 100), row.fields().get("venue"));
+        assertEquals(Map.of("name", "Test Venue"), projectionRepository.findById(
+                Projection.ofVenues("name"), testVenue.getId()).orElseThrow().fields());
+    }
+}
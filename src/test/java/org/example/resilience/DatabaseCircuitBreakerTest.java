@@ -0,0 +1,210 @@
+package org.example.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * drives the breaker by hand with a clock the tests move forward
+ */
+class DatabaseCircuitBreakerTest {
+    private MutableClock clock;
+    private DatabaseCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-01-01T10:00:00Z"));
+        // opens after 3 failures in a row, for 1 second, then lets 2 trials through
+        breaker = new DatabaseCircuitBreaker(clock, 3, 1000, 2);
+    }
+
+    @Test
+    void recordFailure_ShouldOpenAfterTheThresholdInARow() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        // a success in between starts the count over
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.state());
+
+        breaker.recordFailure();
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, breaker.state());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void tryAcquire_ShouldLetOnlySomeTrialsThroughOnceTheOpenPeriodIsOver() {
+        open();
+        clock.advanceMillis(999);
+        assertFalse(breaker.tryAcquire());
+
+        clock.advanceMillis(1);
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(DatabaseCircuitBreaker.State.HALF_OPEN, breaker.state());
+        // both trials still running, nobody else gets through
+        assertFalse(breaker.tryAcquire());
+
+        breaker.recordSuccess();
+        assertEquals(DatabaseCircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.recordSuccess();
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void recordFailure_ShouldReopenOnAFailedTrial() {
+        open();
+        clock.advanceMillis(1000);
+        assertTrue(breaker.tryAcquire());
+        breaker.recordFailure();
+
+        assertEquals(DatabaseCircuitBreaker.State.OPEN, breaker.state());
+        // the open period starts over from the failed trial
+        assertEquals(clock.millis(), breaker.openedAt());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void getConnection_ShouldFailFastWhileOpen() throws SQLException {
+        int[] asked = {0};
+        CircuitBreakerDataSource dataSource = new CircuitBreakerDataSource(new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                asked[0]++;
+                throw new SQLTransientConnectionException("connection refused", "08001");
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return getConnection();
+            }
+        }, breaker);
+
+        for (int i = 0; i < 5; i++) {
+            SQLException e = assertThrows(SQLException.class, dataSource::getConnection);
+            assertTrue(DatabaseOutage.is(e));
+        }
+        // the last two never reached the database
+        assertEquals(3, asked[0]);
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    void statements_ShouldOpenTheBreakerWhenThePooledConnectionsLoseTheDatabase() throws SQLException {
+        // the pool is warm, handing out its connections keeps working while their statements fail
+        DataSource pool = mock(DataSource.class);
+        Connection pooled = mock(Connection.class);
+        PreparedStatement lost = mock(PreparedStatement.class);
+        PreparedStatement duplicate = mock(PreparedStatement.class);
+        when(pool.getConnection()).thenReturn(pooled);
+        when(pooled.prepareStatement("select 1")).thenReturn(lost);
+        when(pooled.prepareStatement("insert")).thenReturn(duplicate);
+        when(lost.executeQuery()).thenThrow(new SQLException("Communications link failure", "08S01"));
+        when(duplicate.executeUpdate()).thenThrow(new SQLException("unique constraint", "23505"));
+        CircuitBreakerDataSource dataSource = new CircuitBreakerDataSource(pool, breaker);
+
+        Connection connection = dataSource.getConnection();
+        // a constraint violation says nothing about the database being there
+        for (int i = 0; i < 5; i++) {
+            assertThrows(SQLException.class, () -> connection.prepareStatement("insert").executeUpdate());
+        }
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.state());
+
+        for (int i = 0; i < 3; i++) {
+            SQLException e = assertThrows(SQLException.class, () -> connection.prepareStatement("select 1").executeQuery());
+            assertEquals("08S01", e.getSQLState());
+        }
+        assertTrue(breaker.isOpen());
+        // from now on nobody waits for the pool
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        verify(pool, times(1)).getConnection();
+    }
+
+    @Test
+    void getConnection_ShouldNotCountPoolTimeouts() throws SQLException {
+        // every connection is busy: hikari gives up after its connection-timeout, the database is fine
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenThrow(new SQLTransientConnectionException(
+                "HikariPool-1 - Connection is not available, request timed out after 2000ms."));
+        CircuitBreakerDataSource dataSource = new CircuitBreakerDataSource(pool, breaker);
+
+        for (int i = 0; i < 10; i++) {
+            SQLException e = assertThrows(SQLException.class, dataSource::getConnection);
+            assertFalse(DatabaseOutage.is(e));
+        }
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.state());
+        verify(pool, times(10)).getConnection();
+    }
+
+    @Test
+    void is_ShouldTellPoolTimeoutsFromTheDatabaseBeingDown() {
+        SQLTransientConnectionException exhausted = new SQLTransientConnectionException("request timed out after 2000ms.");
+        // hikari passes on the last failed connect when there was one
+        SQLTransientConnectionException unreachable = new SQLTransientConnectionException("request timed out after 2000ms.",
+                "08001", new SQLException("Connection refused", "08001"));
+
+        assertFalse(DatabaseOutage.is(exhausted));
+        assertFalse(DatabaseOutage.is(new CannotCreateTransactionException("Could not open JDBC Connection", exhausted)));
+        assertTrue(DatabaseOutage.is(unreachable));
+        assertTrue(DatabaseOutage.is(new CannotCreateTransactionException("Could not open JDBC Connection", unreachable)));
+    }
+
+    @Test
+    void is_ShouldOnlyRecognizeConnectionFailures() {
+        assertTrue(DatabaseOutage.is(new RuntimeException(new SQLException("lost", "08S01"))));
+        assertFalse(DatabaseOutage.is(new SQLException("unique constraint", "23505")));
+        assertFalse(DatabaseOutage.is(new RuntimeException("event not found with id: 1")));
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+    }
+
+    // a fixed clock that tests can move forward
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advanceMillis(long millis) {
+            instant = instant.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.resilience;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.service.EventService;
+import org.example.service.VenueService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * the whole application against its own H2 database. the database never really goes away here,
+ * the breaker is opened by hand instead, which is what a few refused connections in a row do
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:serve_stale_test;DB_CLOSE_DELAY=-1",
+        "breaker.failure-threshold=1", "breaker.open-ms=3000", "breaker.half-open-trials=1"})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ServeStaleTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private LastKnownGood lastKnownGood;
+
+    @Autowired
+    private DatabaseCircuitBreaker breaker;
+
+    @BeforeEach
+    void awaitClosed() throws InterruptedException {
+        // the other test may have left the breaker open, a read after the open period is the trial that closes it
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (breaker.state() != DatabaseCircuitBreaker.State.CLOSED && System.currentTimeMillis() < deadline) {
+            if (!breaker.isOpen()) {
+                venueService.getAllVenues();
+            }
+            Thread.sleep(50);
+        }
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void whileOpen_ShouldServeReadsStaleAndFailWrites() throws Exception {
+        Venue venue = venueService.createVenue(new Venue(null, "Stale Hall", "Street", 300, null));
+        LocalDateTime start = LocalDate.now().plusDays(3).atTime(20, 0);
+        Event event = eventService.createEvent(new Event(null, "Stale Gig", null, start, start.plusHours(2), venue));
+        lastKnownGood.refresh();
+        // answered by the database, nothing stale about it
+        mockMvc.perform(get("/api/events/" + event.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.WARNING));
+
+        breaker.recordFailure();
+        assertTrue(breaker.isOpen());
+
+        mockMvc.perform(get("/api/events/" + event.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.WARNING, "110 - \"Response is Stale\""))
+                .andExpect(header().string(DatabaseOutageAdvice.AS_OF_HEADER, lastKnownGood.asOf().toString()))
+                .andExpect(jsonPath("$.name").value("Stale Gig"))
+                .andExpect(jsonPath("$.venue.name").value("Stale Hall"));
+        mockMvc.perform(get("/api/events/search")
+                        .param("start", start.minusHours(1).toString())
+                        .param("end", start.plusHours(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(DatabaseOutageAdvice.AS_OF_HEADER))
+                .andExpect(jsonPath("$[0].id").value(event.getId()));
+        mockMvc.perform(get("/api/venues/" + venue.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.WARNING))
+                .andExpect(jsonPath("$.capacity").value(300));
+
+        // writes don't wait for a connection, they fail at once
+        mockMvc.perform(post("/api/venues")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"New Hall\", \"address\": \"Street\", \"capacity\": 10}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3"));
+    }
+
+    @Test
+    void afterTheOpenPeriod_ShouldCloseOnASuccessfulTrial() throws Exception {
+        Venue venue = venueService.createVenue(new Venue(null, "Recovery Hall", "Street", 50, null));
+        lastKnownGood.refresh();
+        breaker.recordFailure();
+
+        Thread.sleep(3100);
+        // the trial connection works, the breaker closes and the answer is fresh again
+        mockMvc.perform(get("/api/venues/" + venue.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.WARNING));
+        assertEquals(DatabaseCircuitBreaker.State.CLOSED, breaker.state());
+    }
+}
@@ -0,0 +1,236 @@
+package org.example.service;
+
+import org.example.booking.SeatInventory;
+import org.example.booking.Waitlist;
+import org.example.entity.Booking;
+import org.example.entity.Event;
+import org.example.entity.SeatHold;
+import org.example.entity.Venue;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * books against the embedded H2 database, the waitlist is flushed by hand where the test needs the rows
+ */
+@SpringBootTest(properties = {"waitlist.max-per-event=2500", "hold.duration-seconds=2"})
+@ActiveProfiles("h2")
+class BookingServiceTest {
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private Waitlist waitlist;
+
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void book_ShouldWaitlistWhenSoldOut() {
+        Long eventId = eventWithSeats(2);
+
+        assertEquals(BookingResult.Status.BOOKED, bookingService.book(eventId, "ann").status());
+        assertEquals(BookingResult.Status.BOOKED, bookingService.book(eventId, "bob").status());
+        BookingResult carl = bookingService.book(eventId, "carl");
+        BookingResult dana = bookingService.book(eventId, "dana");
+
+        assertEquals(BookingResult.Status.WAITLISTED, carl.status());
+        assertEquals(1, carl.position());
+        assertEquals(2, dana.position());
+        assertEquals(List.of("ann", "bob"), attendees(bookingService.getBookings(eventId)));
+    }
+
+    @Test
+    void cancelBooking_ShouldPromoteFirstWaiter() {
+        Long eventId = eventWithSeats(2);
+        Booking ann = bookingService.book(eventId, "ann").booking();
+        bookingService.book(eventId, "bob");
+        BookingResult carl = bookingService.book(eventId, "carl");
+        bookingService.book(eventId, "dana");
+
+        bookingService.cancelBooking(eventId, ann.getId());
+
+        // carl got ann's seat, dana is still waiting
+        List<Booking> bookings = bookingService.getBookings(eventId);
+        assertEquals(List.of("bob", "carl"), attendees(bookings));
+        assertEquals(carl.waitlistEntry().id(), bookings.get(1).getWaitlistEntryId());
+        assertEquals(List.of("dana"), bookingService.getWaitlist(eventId).stream().map(Waitlist.Waiter::attendee).toList());
+        // carl's entry was written and deleted again, only dana's is left
+        waitlist.flush();
+        assertEquals(List.of("dana"), jdbcTemplate.queryForList(
+                "SELECT attendee FROM waitlist_entries WHERE event_id = ?", String.class, eventId));
+    }
+
+    @Test
+    void cancelBooking_ShouldFreeTheSeatWhenNobodyWaits() {
+        Long eventId = eventWithSeats(1);
+        Booking ann = bookingService.book(eventId, "ann").booking();
+
+        bookingService.cancelBooking(eventId, ann.getId());
+
+        assertEquals(BookingResult.Status.BOOKED, bookingService.book(eventId, "bob").status());
+    }
+
+    @Test
+    void book_ShouldReportPositionOfTheWaiter() {
+        Long eventId = eventWithSeats(1);
+        bookingService.book(eventId, "ann");
+        BookingResult bob = bookingService.book(eventId, "bob");
+        BookingResult carl = bookingService.book(eventId, "carl");
+
+        assertEquals(2, carl.position());
+
+        // bob leaving moves carl up, the next one to join is second again
+        bookingService.leaveWaitlist(eventId, bob.waitlistEntry().id());
+        assertEquals(1, waitlist.position(eventId, carl.waitlistEntry().id()));
+        assertEquals(2, bookingService.book(eventId, "dana").position());
+        assertEquals(0, waitlist.position(eventId, bob.waitlistEntry().id()));
+    }
+
+    @Test
+    void cancelAndBook_ShouldNeverLeaveASeatFreeWhileSomeoneWaits() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 30; round++) {
+                Long eventId = eventWithSeats(1);
+                Booking ann = bookingService.book(eventId, "ann").booking();
+                CyclicBarrier start = new CyclicBarrier(2);
+
+                // the seat comes free while bob finds the event sold out and joins the line
+                Future<?> cancel = executor.submit(() -> {
+                    start.await();
+                    bookingService.cancelBooking(eventId, ann.getId());
+                    return null;
+                });
+                Future<BookingResult> book = executor.submit(() -> {
+                    start.await();
+                    return bookingService.book(eventId, "bob");
+                });
+                cancel.get();
+                BookingResult bob = book.get();
+
+                // whichever way it went, bob ends up with the seat
+                assertEquals(0, seatInventory.available(eventId), "round " + round + ": " + bob.status());
+                assertEquals(0, waitlist.size(eventId), "round " + round + ": " + bob.status());
+                assertEquals(List.of("bob"), attendees(bookingService.getBookings(eventId)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void updateVenue_ShouldKeepSeatsTakenByOpenTransactions() {
+        Long eventId = eventWithSeats(2);
+        // taken but not booked yet, as by a booking whose transaction hasn't committed
+        assertTrue(seatInventory.tryTake(eventId));
+        assertEquals(1, seatInventory.available(eventId));
+
+        Venue venue = eventService.getEventById(eventId).getVenue();
+        venue.setCapacity(3);
+        venueService.updateVenue(venue.getId(), venue);
+
+        // the new capacity, the seat in flight still counted
+        assertEquals(2, seatInventory.available(eventId));
+        seatInventory.release(eventId);
+        assertEquals(3, seatInventory.available(eventId));
+    }
+
+    @Test
+    void leaveWaitlist_ShouldRemoveTheEntry() {
+        Long eventId = eventWithSeats(1);
+        bookingService.book(eventId, "ann");
+        BookingResult bob = bookingService.book(eventId, "bob");
+
+        bookingService.leaveWaitlist(eventId, bob.waitlistEntry().id());
+
+        assertTrue(bookingService.getWaitlist(eventId).isEmpty());
+        assertThrows(RuntimeException.class, () -> bookingService.leaveWaitlist(eventId, bob.waitlistEntry().id()));
+    }
+
+    @Test
+    void hold_ShouldKeepTheSeatUntilConfirmed() {
+        Long eventId = eventWithSeats(1);
+        SeatHold hold = bookingService.hold(eventId, "ann");
+
+        // the held seat is not for sale
+        assertEquals(BookingResult.Status.WAITLISTED, bookingService.book(eventId, "bob").status());
+        Booking booking = bookingService.confirmHold(eventId, hold.getId());
+
+        assertEquals("ann", booking.getAttendee());
+        assertEquals(List.of("ann"), attendees(bookingService.getBookings(eventId)));
+        assertEquals(0, count("SELECT COUNT(*) FROM seat_holds WHERE event_id = " + eventId));
+        assertThrows(RuntimeException.class, () -> bookingService.confirmHold(eventId, hold.getId()));
+    }
+
+    @Test
+    void releaseHold_ShouldPromoteFirstWaiter() {
+        Long eventId = eventWithSeats(1);
+        SeatHold hold = bookingService.hold(eventId, "ann");
+        bookingService.book(eventId, "bob");
+
+        bookingService.releaseHold(eventId, hold.getId());
+
+        assertEquals(List.of("bob"), attendees(bookingService.getBookings(eventId)));
+        assertTrue(bookingService.getWaitlist(eventId).isEmpty());
+    }
+
+    @Test
+    void hold_ShouldExpireAndGiveTheSeatBack() throws Exception {
+        Long eventId = eventWithSeats(1);
+        SeatHold hold = bookingService.hold(eventId, "ann");
+        assertThrows(RuntimeException.class, () -> bookingService.hold(eventId, "bob"));
+
+        // holds last two seconds in this test
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (count("SELECT COUNT(*) FROM seat_holds WHERE event_id = " + eventId) > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(0, count("SELECT COUNT(*) FROM seat_holds WHERE event_id = " + eventId));
+        assertThrows(RuntimeException.class, () -> bookingService.confirmHold(eventId, hold.getId()));
+        assertEquals(BookingResult.Status.BOOKED, bookingService.book(eventId, "bob").status());
+    }
+
+    @Test
+    void book_ShouldRejectEventsWithoutVenue() {
+        Event event = eventService.createEvent(new Event(null, "No Venue", null,
+                LocalDateTime.of(2033, 1, 1, 10, 0), LocalDateTime.of(2033, 1, 1, 12, 0), null));
+
+        assertThrows(IllegalArgumentException.class, () -> bookingService.book(event.getId(), "ann"));
+    }
+
+    private Long eventWithSeats(int capacity) {
+        Venue venue = venueService.createVenue(new Venue(null, "Booking Hall", "Street", capacity, null));
+        return eventService.createEvent(new Event(null, "Concert", null,
+                LocalDateTime.of(2033, 1, 1, 10, 0), LocalDateTime.of(2033, 1, 1, 12, 0), venue)).getId();
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    private static List<String> attendees(List<Booking> bookings) {
+        return bookings.stream().map(Booking::getAttendee).toList();
+    }
+}
@@ -1,19 +1,34 @@
 package org.example.service;
 
+import org.example.archive.EventArchiver;
+import org.example.cache.UpcomingEventsCache;
+import org.example.entity.ArchivedEvent;
 import org.example.entity.Event;
 import org.example.entity.Venue;
+import org.example.outbox.Outbox;
+import org.example.repository.ArchivedEventRepository;
 import org.example.repository.EventRepository;
+import org.example.repository.Projection;
+import org.example.repository.ProjectionRepository;
+import org.example.sharding.ShardRouter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -34,6 +49,44 @@ class EventServiceTest {
     @Mock
     private EventRepository eventRepository;
 
+    // keeps the time bucket table in sync, we only check that it gets called
+    @Mock
+    private EventTimeBucketIndex timeBucketIndex;
+
+    // change notifications for the in-memory views
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private UpcomingEventsCache upcomingEventsCache;
+
+    // change records for downstream systems, written next to the event
+    @Mock
+    private Outbox outbox;
+
+    // a single shard, fan-out queries just run the repository call once
+    @Spy
+    private ShardRouter shardRouter = ShardRouter.single();
+
+    // reads only the columns asked for with ?fields=
+    @Mock
+    private ProjectionRepository projectionRepository;
+
+    // the real id lookup, with tiny chunks so a few ids already take several queries
+    @Spy
+    private MultiGet multiGet = new MultiGet(ShardRouter.single(), 10, 2);
+
+    // old events, only read when the archiver says a range reaches them
+    @Mock
+    private ArchivedEventRepository archivedEventRepository;
+
+    @Mock
+    private EventArchiver archiver;
+
+    // "now" for the upcoming events, stubbed by the tests that need it
+    @Mock
+    private Clock clock;
+
     /**
      * creates our eventService and automatically puts the fake repository into it.
      * this is what we'll be testing
@@ -130,4 +183,167 @@ class EventServiceTest {
         // verify: check that deleteById was called with the right ID
         verify(eventRepository).deleteById(1L);
     }
+
+    @Test
+    void createEvent_ShouldIndexTimeBuckets() {
+        when(eventRepository.save(any(Event.class))).thenReturn(testEvent);
+
+        eventService.createEvent(testEvent);
+
+        // the saved event should be written to the bucket index in the same call
+        verify(timeBucketIndex).index(testEvent);
+    }
+
+    @Test
+    void createEvent_ShouldWriteToOutbox() {
+        when(eventRepository.save(any(Event.class))).thenReturn(testEvent);
+
+        eventService.createEvent(testEvent);
+
+        // the change record is written in the service call, so it shares the event's transaction
+        verify(outbox).eventChanged(testEvent, ChangeType.CREATED);
+    }
+
+    @Test
+    void deleteEvent_ShouldWriteToOutbox() {
+        eventService.deleteEvent(1L);
+
+        // deletes only carry the id
+        verify(outbox).eventDeleted(1L);
+    }
+
+    @Test
+    void getActiveEvents_ShouldQueryBucketRange() {
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 22, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 5, 3, 0, 0);
+        when(eventRepository.findActiveBetween(start, end, start.toLocalDate().toEpochDay(),
+                start.toLocalDate().plusDays(1).toEpochDay()))
+                .thenReturn(List.of(testEvent));
+
+        List<Event> events = eventService.getActiveEvents(start, end);
+
+        // a window ending exactly at midnight should not reach into the next day's bucket
+        assertEquals(1, events.size(), "should return the overlapping event");
+    }
+
+    @Test
+    void getUpcomingEvents_ShouldUseCache_WhenLoaded() {
+        when(upcomingEventsCache.isLoaded()).thenReturn(true);
+        when(upcomingEventsCache.upcoming(5)).thenReturn(List.of(testEvent));
+
+        List<Event> events = eventService.getUpcomingEvents(5);
+
+        assertEquals(1, events.size(), "should return the cached event");
+        // the whole point of the cache: no repository call on this path
+        verifyNoInteractions(eventRepository);
+    }
+
+    @Test
+    void getUpcomingEvents_ShouldReadDatabase_BeforeCacheIsLoaded() {
+        LocalDateTime now = LocalDateTime.of(2030, 1, 1, 12, 0);
+        when(clock.instant()).thenReturn(now.toInstant(ZoneOffset.UTC));
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(eventRepository.findByStartTimeAfter(eq(now), any())).thenReturn(List.of(testEvent));
+
+        List<Event> events = eventService.getUpcomingEvents(5);
+
+        // "now" comes from the injected clock, like everywhere else
+        assertEquals(List.of(testEvent), events);
+    }
+
+    @Test
+    void getUpcomingEvents_ShouldRejectNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> eventService.getUpcomingEvents(0));
+        assertThrows(IllegalArgumentException.class, () -> eventService.getUpcomingEvents(-1));
+        // rejected before the cache or the database are asked
+        verifyNoInteractions(upcomingEventsCache, eventRepository);
+    }
+
+    @Test
+    void getEventsByIds_ShouldKeepRequestOrderAndMarkMissing() {
+        Event second = new Event(2L, "Second", null, testEvent.getStartTime(), testEvent.getEndTime(), testVenue);
+        Event third = new Event(3L, "Third", null, testEvent.getStartTime(), testEvent.getEndTime(), testVenue);
+        // event 1 is upcoming and cached, 2 and 3 are in the database, 9 doesn't exist
+        when(upcomingEventsCache.get(anyLong())).thenReturn(null);
+        when(upcomingEventsCache.get(1L)).thenReturn(testEvent);
+        when(eventRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(second, third));
+        when(eventRepository.findAllById(List.of(9L))).thenReturn(List.of());
+
+        List<LookupResult<Event>> results = eventService.getEventsByIds(List.of(3L, 1L, 2L, 9L, 3L));
+
+        // one entry per requested id, duplicates included, in the order they were asked for
+        assertEquals(List.of(3L, 1L, 2L, 9L, 3L), results.stream().map(LookupResult::id).toList());
+        assertEquals(List.of(true, true, true, false, true), results.stream().map(LookupResult::found).toList());
+        assertSame(testEvent, results.get(1).value(), "the cached event should be returned as is");
+        assertNull(results.get(3).value());
+        // three ids to read in chunks of two: two queries, and the cached one is not asked for
+        verify(eventRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void getEventsByIds_ShouldRejectTooManyIds() {
+        List<Long> ids = LongStream.rangeClosed(1, 11).boxed().toList();
+
+        assertThrows(IllegalArgumentException.class, () -> eventService.getEventsByIds(ids));
+        verifyNoInteractions(eventRepository);
+    }
+
+    @Test
+    void getEventById_WithFields_ShouldThrowWhenMissing() {
+        when(projectionRepository.findById(any(Projection.class), eq(99L))).thenReturn(Optional.empty());
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> eventService.getEventById(99L, "name"));
+        assertEquals("event not found with id: 99", e.getMessage());
+    }
+
+    @Test
+    void getEventsByTimeRange_ShouldSkipArchiveAfterHorizon() {
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 5, 2, 0, 0);
+        when(eventRepository.findByStartTimeBetween(start, end)).thenReturn(List.of(testEvent));
+        when(archiver.reaches(start)).thenReturn(false);
+
+        assertEquals(List.of(testEvent), eventService.getEventsByTimeRange(start, end));
+        // the range starts after everything archived, the archive is not asked at all
+        verifyNoInteractions(archivedEventRepository);
+    }
+
+    @Test
+    void getEventsByTimeRange_ShouldAddArchivedEventsBeforeHorizon() {
+        LocalDateTime start = LocalDateTime.of(2020, 5, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2020, 5, 2, 0, 0);
+        ArchivedEvent archived = new ArchivedEvent(7L, "Old Event", null, start.plusHours(1), start.plusHours(2),
+                testVenue, LocalDateTime.of(2021, 6, 1, 0, 0));
+        when(eventRepository.findByStartTimeBetween(start, end)).thenReturn(List.of());
+        when(archiver.reaches(start)).thenReturn(true);
+        when(archivedEventRepository.findByStartTimeBetween(start, end)).thenReturn(List.of(archived));
+
+        List<Event> events = eventService.getEventsByTimeRange(start, end);
+
+        // the archived event comes back looking like any other event
+        assertEquals(1, events.size());
+        assertEquals(7L, events.get(0).getId());
+        assertEquals("Old Event", events.get(0).getName());
+        assertSame(testVenue, events.get(0).getVenue());
+    }
+
+    @Test
+    void getEventById_ShouldFallBackToArchive() {
+        ArchivedEvent archived = new ArchivedEvent(7L, "Old Event", null, LocalDateTime.of(2020, 5, 1, 10, 0),
+                LocalDateTime.of(2020, 5, 1, 12, 0), testVenue, LocalDateTime.of(2021, 6, 1, 0, 0));
+        when(eventRepository.findById(7L)).thenReturn(Optional.empty());
+        when(archivedEventRepository.findById(7L)).thenReturn(Optional.of(archived));
+
+        assertEquals("Old Event", eventService.getEventById(7L).getName());
+    }
+
+    @Test
+    void updateEvent_ShouldNotChangeArchivedEvents() {
+        when(eventRepository.findById(7L)).thenReturn(Optional.empty());
+
+        // archived events are read-only, to an update they don't exist
+        assertThrows(RuntimeException.class, () -> eventService.updateEvent(7L, testEvent));
+        verifyNoInteractions(archivedEventRepository);
+        verify(eventRepository, never()).save(any());
+    }
 }
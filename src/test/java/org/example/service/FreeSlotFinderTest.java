@@ -0,0 +1,84 @@
+package org.example.service;
+
+import org.example.entity.Venue;
+import org.example.repository.EventRow;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * compares the priority queue merge with checking every minute of every venue
+ */
+class FreeSlotFinderTest {
+    private static final LocalDateTime FROM = LocalDateTime.of(2030, 6, 3, 0, 0);
+    private static final LocalDateTime TO = FROM.plusDays(2);
+
+    @Test
+    void earliest_ShouldMatchABruteForceSearch() {
+        SplittableRandom random = new SplittableRandom(11);
+        List<Venue> venues = new ArrayList<>();
+        Map<Long, List<EventRow>> busy = new HashMap<>();
+        for (long id = 1; id <= 300; id++) {
+            venues.add(new Venue(id, "Venue " + id, "Street", 100, null));
+            List<EventRow> events = new ArrayList<>();
+            // some events start before the window, some overlap each other
+            for (int i = random.nextInt(12); i > 0; i--) {
+                LocalDateTime start = FROM.minusHours(6).plusMinutes(15L * random.nextInt(220));
+                events.add(new EventRow(id * 100 + i, start, start.plusMinutes(30L + 15L * random.nextInt(24)), id, "Venue " + id));
+            }
+            events.sort(Comparator.comparing(EventRow::startTime));
+            busy.put(id, events);
+        }
+        Duration length = Duration.ofHours(3);
+
+        List<FreeSlot> slots = FreeSlotFinder.earliest(venues, busy, FROM, TO, length, 50);
+
+        assertEquals(expected(venues, busy, length, 50), slots);
+    }
+
+    @Test
+    void earliest_ShouldFindNothingWhenNoGapIsLongEnough() {
+        Venue venue = new Venue(1L, "Full", "Street", 100, null);
+        Map<Long, List<EventRow>> busy = Map.of(1L, List.of(
+                new EventRow(1L, FROM.plusHours(2), FROM.plusHours(30), 1L, "Full"),
+                new EventRow(2L, FROM.plusHours(31), TO.plusHours(1), 1L, "Full")));
+
+        assertEquals(List.of(), FreeSlotFinder.earliest(List.of(venue), busy, FROM, TO, Duration.ofHours(3), 5));
+        // two hours fit before the first event
+        assertEquals(FROM, FreeSlotFinder.earliest(List.of(venue), busy, FROM, TO, Duration.ofHours(2), 5).get(0).start());
+    }
+
+    // every gap of every venue, found minute by minute
+    private static List<FreeSlot> expected(List<Venue> venues, Map<Long, List<EventRow>> busy, Duration length, int limit) {
+        List<FreeSlot> all = new ArrayList<>();
+        for (Venue venue : venues) {
+            LocalDateTime gapStart = null;
+            for (LocalDateTime minute = FROM; !minute.isAfter(TO); minute = minute.plusMinutes(1)) {
+                boolean free = minute.isBefore(TO) && isFree(busy.get(venue.getId()), minute);
+                if (free && gapStart == null) {
+                    gapStart = minute;
+                } else if (!free && gapStart != null) {
+                    if (!gapStart.plus(length).isAfter(minute)) {
+                        all.add(new FreeSlot(venue.getId(), venue.getName(), venue.getCapacity(), gapStart, gapStart.plus(length), minute));
+                    }
+                    gapStart = null;
+                }
+            }
+        }
+        all.sort(Comparator.comparing(FreeSlot::start).thenComparing(FreeSlot::venueId));
+        return all.subList(0, Math.min(limit, all.size()));
+    }
+
+    private static boolean isFree(List<EventRow> events, LocalDateTime minute) {
+        return events.stream().noneMatch(event -> !event.startTime().isAfter(minute) && event.endTime().isAfter(minute));
+    }
+}
@@ -1,19 +1,37 @@
 package org.example.service;
 
+import org.example.cache.VenueCapacityIndex;
+import org.example.cache.VenueGeoIndex;
 import org.example.entity.Venue;
+import org.example.outbox.Outbox;
 import org.example.repository.VenueRepository;
+import org.example.repository.Projection;
+import org.example.repository.ArchivedEventRepository;
+import org.example.repository.EventRepository;
+import org.example.repository.EventRow;
+import org.example.repository.ProjectionRepository;
+import org.example.sharding.ShardRouter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 /**
@@ -30,6 +48,50 @@ class VenueServiceTest {
     @Mock
     private VenueRepository venueRepository;
 
+    // needed because deleting a venue also clears its events' time buckets
+    @Mock
+    private EventTimeBucketIndex timeBucketIndex;
+
+    // in-memory index behind the nearby search
+    @Mock
+    private VenueGeoIndex geoIndex;
+
+    // in-memory index behind the capacity searches, not loaded unless a test says so
+    @Mock
+    private VenueCapacityIndex capacityIndex;
+
+    // change notifications for the in-memory views
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    // change records for downstream systems, written next to the venue
+    @Mock
+    private Outbox outbox;
+
+    // a single shard, fan-out queries just run the repository call once
+    @Spy
+    private ShardRouter shardRouter = ShardRouter.single();
+
+    // reads only the columns asked for with ?fields=
+    @Mock
+    private ProjectionRepository projectionRepository;
+
+    // the real id lookup, reads through the repository mock
+    @Spy
+    private MultiGet multiGet = new MultiGet(ShardRouter.single(), 1000, 500);
+
+    // archived events of a deleted venue are removed with it
+    @Mock
+    private ArchivedEventRepository archivedEventRepository;
+
+    // the busy times the free slot search reads
+    @Mock
+    private EventRepository eventRepository;
+
+    // only the free slot search asks for the time, tests that use it stub it
+    @Mock
+    private Clock clock;
+
     /**
      * @InjectMocks creates our service and puts the fake repository into it
      * this is what we'll be testing
@@ -136,6 +198,10 @@ class VenueServiceTest {
 
         // verify delete was called with right ID
         verify(venueRepository).deleteById(1L);
+        // its archived events are not covered by the cascade
+        verify(archivedEventRepository).deleteByVenueId(1L);
+        // and downstream hears about it
+        verify(outbox).venueDeleted(1L);
     }
 
     @Test
@@ -153,4 +219,159 @@ class VenueServiceTest {
         assertEquals(100, venues.get(0).getCapacity(), "venue capacity should match");
         verify(venueRepository).findByCapacityGreaterThanEqual(100);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getVenuesByMinCapacity_ShouldUseIndexWhenLoaded() {
+        // the index hands out venues by capacity, the search still returns them by id
+        Venue big = new Venue(2L, "Big", "2 Test St", 500, null);
+        Venue medium = new Venue(3L, "Medium", "3 Test St", 150, null);
+        when(capacityIndex.isLoaded()).thenReturn(true);
+        when(capacityIndex.between(100, Integer.MAX_VALUE)).thenReturn(new ArrayList<>(List.of(testVenue, medium, big)));
+
+        List<Venue> venues = venueService.getVenuesByMinCapacity(100);
+
+        assertEquals(List.of(testVenue, big, medium), venues);
+        verifyNoInteractions(venueRepository);
+    }
+
+    @Test
+    void getVenuesByCapacityRange_ShouldRejectInvertedRange() {
+        // asking for at least 500 and at most 100 seats makes no sense
+        assertThrows(IllegalArgumentException.class, () -> venueService.getVenuesByCapacityRange(500, 100));
+    }
+
+    @Test
+    void getLargestVenues_ShouldUseIndexWhenLoaded() {
+        when(capacityIndex.isLoaded()).thenReturn(true);
+        when(capacityIndex.largest(3)).thenReturn(List.of(testVenue));
+
+        assertEquals(List.of(testVenue), venueService.getLargestVenues(3));
+        verifyNoInteractions(venueRepository);
+    }
+
+    @Test
+    void getNearbyVenues_ShouldUseIndexWhenLoaded() {
+        // the index is ready, so the database must not be touched
+        VenueGeoIndex.NearbyVenue nearby = new VenueGeoIndex.NearbyVenue(testVenue, 1.5);
+        when(geoIndex.isLoaded()).thenReturn(true);
+        when(geoIndex.nearest(52.5, 13.4, 5, 100)).thenReturn(List.of(nearby));
+
+        List<VenueGeoIndex.NearbyVenue> venues = venueService.getNearbyVenues(52.5, 13.4, null, 5, 100);
+
+        assertEquals(List.of(nearby), venues);
+        verifyNoInteractions(venueRepository);
+    }
+
+    @Test
+    void getNearbyVenues_ShouldFallBackToDatabaseBeforeFirstLoad() {
+        // one venue a few hundred meters away, one in another city
+        Venue close = new Venue(2L, "Close", "1 Near St", 100, 52.501, 13.401, null);
+        Venue far = new Venue(3L, "Far", "1 Far St", 100, 48.86, 2.35, null);
+        when(geoIndex.isLoaded()).thenReturn(false);
+        when(venueRepository.findByLatitudeIsNotNullAndLongitudeIsNotNull()).thenReturn(List.of(far, close));
+
+        List<VenueGeoIndex.NearbyVenue> venues = venueService.getNearbyVenues(52.5, 13.4, 10.0, 10, 0);
+
+        assertEquals(1, venues.size(), "only the close venue is inside the radius");
+        assertEquals("Close", venues.get(0).venue().getName());
+    }
+
+    @Test
+    void getNearbyVenues_ShouldRejectInvalidCoordinates() {
+        assertThrows(IllegalArgumentException.class, () -> venueService.getNearbyVenues(91, 0, null, 10, 0));
+    }
+
+    @Test
+    void getNearbyVenues_ShouldRejectNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> venueService.getNearbyVenues(52.5, 13.4, null, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> venueService.getNearbyVenues(52.5, 13.4, 10.0, -1, 0));
+        // rejected before the index is asked
+        verifyNoInteractions(geoIndex);
+    }
+
+    @Test
+    void getVenuesByIds_ShouldReadOnlyWhatTheIndexDoesNotHave() {
+        Venue other = new Venue(2L, "Other Venue", "Other Address", 50, null);
+        // venue 1 is indexed, venue 2 has to be read and venue 3 doesn't exist
+        when(capacityIndex.get(anyLong())).thenReturn(null);
+        when(capacityIndex.get(1L)).thenReturn(testVenue);
+        when(venueRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(other));
+
+        List<LookupResult<Venue>> results = venueService.getVenuesByIds(List.of(2L, 3L, 1L));
+
+        assertEquals("Other Venue", results.get(0).value().getName());
+        assertFalse(results.get(1).found(), "venue 3 should be marked missing");
+        assertEquals(3L, results.get(1).id());
+        assertSame(testVenue, results.get(2).value());
+        verify(venueRepository).findAllById(List.of(2L, 3L));
+    }
+
+    @Test
+    void getAllVenues_WithFields_ShouldReturnRowsOrderedById() {
+        // rows come back per shard, the merged list is ordered by id
+        when(projectionRepository.findAll(any(Projection.class))).thenReturn(new ArrayList<>(List.of(
+                new Projection.Row(7L, Map.of("name", "Seven")),
+                new Projection.Row(2L, Map.of("name", "Two")))));
+
+        List<Map<String, Object>> venues = venueService.getAllVenues("name");
+
+        assertEquals(List.of(Map.of("name", "Two"), Map.of("name", "Seven")), venues);
+        // the entity path is never touched
+        verifyNoInteractions(venueRepository);
+    }
+
+    @Test
+    void findFreeSlots_ShouldReturnTheEarliestSlotsAcrossVenues() {
+        now(LocalDateTime.of(2030, 6, 1, 8, 0));
+        LocalDateTime monday = LocalDateTime.of(2030, 6, 3, 0, 0);
+        Venue hall = new Venue(1L, "Hall", "Street", 300, null);
+        Venue arena = new Venue(2L, "Arena", "Street", 500, null);
+        when(venueRepository.findByCapacityGreaterThanEqual(200)).thenReturn(new ArrayList<>(List.of(arena, hall)));
+        // the hall is busy until 10:00 (two overlapping events), then free for two hours, then busy again.
+        // the arena is busy from midnight to noon
+        when(eventRepository.findScheduleAtVenues(List.of(1L, 2L), monday, monday.plusDays(1))).thenReturn(List.of(
+                new EventRow(10L, monday, monday.plusHours(9), 1L, "Hall"),
+                new EventRow(11L, monday.plusHours(8), monday.plusHours(10), 1L, "Hall"),
+                new EventRow(12L, monday.plusHours(12), monday.plusHours(20), 1L, "Hall"),
+                new EventRow(20L, monday, monday.plusHours(12), 2L, "Arena")));
+
+        List<FreeSlot> slots = venueService.findFreeSlots(monday, monday.plusDays(1), Duration.ofHours(3), 200, 3);
+
+        // the hall's gap from 10:00 to 12:00 is too short for three hours
+        assertEquals(List.of(
+                new FreeSlot(2L, "Arena", 500, monday.plusHours(12), monday.plusHours(15), monday.plusDays(1)),
+                new FreeSlot(1L, "Hall", 300, monday.plusHours(20), monday.plusHours(23), monday.plusDays(1))), slots);
+    }
+
+    @Test
+    void findFreeSlots_ShouldNotStartInThePast() {
+        now(LocalDateTime.of(2030, 6, 1, 8, 0, 30));
+        when(venueRepository.findByCapacityGreaterThanEqual(0)).thenReturn(new ArrayList<>(List.of(testVenue)));
+
+        List<FreeSlot> slots = venueService.findFreeSlots(LocalDateTime.of(2030, 6, 1, 0, 0),
+                LocalDateTime.of(2030, 6, 2, 0, 0), Duration.ofHours(1), 0, 1);
+
+        // the next full minute after now
+        assertEquals(LocalDateTime.of(2030, 6, 1, 8, 1), slots.get(0).start());
+    }
+
+    @Test
+    void findFreeSlots_ShouldRejectBadArguments() {
+        LocalDateTime start = LocalDateTime.of(2030, 6, 1, 0, 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> venueService.findFreeSlots(start, start.plusDays(1), Duration.ZERO, 0, 3));
+        assertThrows(IllegalArgumentException.class,
+                () -> venueService.findFreeSlots(start, start.plusDays(1), Duration.ofHours(1), 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> venueService.findFreeSlots(start, start, Duration.ofHours(1), 0, 3));
+        // longer than 31 days
+        assertThrows(IllegalArgumentException.class,
+                () -> venueService.findFreeSlots(start, start.plusDays(40), Duration.ofHours(1), 0, 3));
+        verifyNoInteractions(eventRepository);
+    }
+
+    private void now(LocalDateTime now) {
+        when(clock.instant()).thenReturn(now.toInstant(ZoneOffset.UTC));
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * checks that venues spread evenly and that adding a shard only moves a small part of them
+ */
+class ShardRingTest {
+
+    @Test
+    void shardOf_ShouldSpreadVenuesEvenly() {
+        ShardRing ring = new ShardRing(4, 128);
+        int[] counts = new int[4];
+        for (long venueId = 1; venueId <= 100_000; venueId++) {
+            counts[ring.shardOf(venueId)]++;
+        }
+        // a perfect split would be 25000 each
+        for (int count : counts) {
+            assertTrue(count > 20_000 && count < 30_000, "shard got " + count + " venues");
+        }
+    }
+
+    @Test
+    void shardOf_ShouldMoveFewVenuesWhenShardIsAdded() {
+        ShardRing before = new ShardRing(4, 128);
+        ShardRing after = new ShardRing(5, 128);
+        int moved = 0;
+        for (long venueId = 1; venueId <= 100_000; venueId++) {
+            int from = before.shardOf(venueId);
+            int to = after.shardOf(venueId);
+            if (from != to) {
+                moved++;
+                assertEquals(4, to, "venues only ever move to the new shard");
+            }
+        }
+        // about a fifth should move, id % n would move around 80%
+        assertTrue(moved > 12_000 && moved < 28_000, moved + " venues moved");
+    }
+
+    @Test
+    void shardOf_ShouldAlwaysBeZeroForOneShard() {
+        ShardRing ring = new ShardRing(1, 1);
+        assertEquals(0, ring.shardOf(42));
+        assertEquals(0, ring.shardOf(-7));
+    }
+
+    @Test
+    void shardOf_ShouldSpreadSmallIds() {
+        // the first venues of a fresh install must not all end up on one shard
+        ShardRing ring = new ShardRing(3, 128);
+        int[] counts = new int[3];
+        for (long venueId = 1; venueId <= 300; venueId++) {
+            counts[ring.shardOf(venueId)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 50, "shard got only " + count + " of the first 300 venues");
+        }
+    }
+}
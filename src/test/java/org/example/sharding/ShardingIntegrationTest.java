@@ -0,0 +1,122 @@
+package org.example.sharding;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.service.EventService;
+import org.example.service.VenueService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * runs the whole application on the three embedded H2 shards from the "shards" profile
+ */
+@SpringBootTest
+@ActiveProfiles({"h2", "shards"})
+class ShardingIntegrationTest {
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime day = LocalDateTime.of(2031, 3, 1, 0, 0);
+
+    @Test
+    void createVenue_ShouldKeepVenueAndEventsOnOneShard() {
+        Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < 12; i++) {
+            Venue venue = venueService.createVenue(new Venue(null, "Venue " + i, "Street " + i, 100, null));
+            Event event = eventService.createEvent(new Event(null, "Event " + i, null, day.plusHours(i), day.plusHours(i + 1), venue));
+            int shard = shardRouter.shardOfVenue(venue.getId());
+            usedShards.add(shard);
+
+            assertEquals(shard, shardRouter.shardOfEvent(event.getId()), "event id should come from the venue's shard range");
+            for (int other = 0; other < shardRouter.shardCount(); other++) {
+                int expected = other == shard ? 1 : 0;
+                assertEquals(expected, countOn(other, "SELECT COUNT(*) FROM venues WHERE id = " + venue.getId()));
+                assertEquals(expected, countOn(other, "SELECT COUNT(*) FROM events WHERE id = " + event.getId()));
+            }
+        }
+        assertTrue(usedShards.size() > 1, "twelve venues should not all hash to one shard");
+    }
+
+    @Test
+    void getEventsByTimeRange_ShouldMergeAllShardsInStartOrder() {
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            Venue venue = venueService.createVenue(new Venue(null, "Range venue " + i, "Street", 50, null));
+            // created in reverse start order, so shard order and time order differ
+            created.add(eventService.createEvent(new Event(null, "Range " + i, null,
+                    day.plusDays(30).minusHours(i), day.plusDays(30).minusHours(i).plusMinutes(30), venue)).getId());
+        }
+
+        List<Event> events = eventService.getEventsByTimeRange(day.plusDays(29), day.plusDays(31));
+
+        assertEquals(Set.copyOf(created), Set.copyOf(events.stream().map(Event::getId).toList()));
+        for (int i = 1; i < events.size(); i++) {
+            assertFalse(events.get(i).getStartTime().isBefore(events.get(i - 1).getStartTime()), "merged list should be sorted");
+        }
+    }
+
+    @Test
+    void updateAndDeleteEvent_ShouldFindEventOnItsShard() {
+        Venue venue = venueService.createVenue(new Venue(null, "Edit venue", "Street", 80, null));
+        Event event = eventService.createEvent(new Event(null, "Before", null, day, day.plusHours(2), venue));
+
+        Event changed = new Event(null, "After", null, day, day.plusHours(3), venue);
+        eventService.updateEvent(event.getId(), changed);
+        assertEquals("After", eventService.getEventById(event.getId()).getName());
+
+        eventService.deleteEvent(event.getId());
+        assertThrows(RuntimeException.class, () -> eventService.getEventById(event.getId()));
+    }
+
+    @Test
+    void updateEvent_ShouldRejectMovesToAnotherShard() {
+        Venue venue = venueService.createVenue(new Venue(null, "Home venue", "Street", 80, null));
+        Event event = eventService.createEvent(new Event(null, "Stays", null, day, day.plusHours(2), venue));
+        // a venue that hashed to another shard, the event can't follow it there
+        Venue elsewhere = null;
+        for (int i = 0; elsewhere == null && i < 50; i++) {
+            Venue candidate = venueService.createVenue(new Venue(null, "Other venue " + i, "Street", 80, null));
+            if (shardRouter.shardOfVenue(candidate.getId()) != shardRouter.shardOfVenue(venue.getId())) {
+                elsewhere = candidate;
+            }
+        }
+        assertNotNull(elsewhere);
+
+        Event moved = new Event(null, "Moved", null, day, day.plusHours(2), elsewhere);
+        assertThrows(IllegalArgumentException.class, () -> eventService.updateEvent(event.getId(), moved));
+        assertThrows(IllegalArgumentException.class,
+                () -> eventService.updateEvent(event.getId(), new Event(null, "No venue", null, day, day.plusHours(2), null)));
+        assertEquals("Stays", eventService.getEventById(event.getId()).getName());
+    }
+
+    @Test
+    void createEvent_ShouldRequireAVenue() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> eventService.createEvent(new Event(null, "Nowhere", null, day, day.plusHours(2), null)));
+        assertEquals("venue is required", e.getMessage());
+    }
+
+    private int countOn(int shard, String sql) {
+        return ShardContext.callOn(shard, () -> jdbcTemplate.queryForObject(sql, Integer.class));
+    }
+}
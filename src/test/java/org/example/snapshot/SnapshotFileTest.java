@@ -0,0 +1,70 @@
+package org.example.snapshot;
+
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotFileTest {
+    @TempDir
+    Path dir;
+
+    private final LocalDateTime asOf = LocalDateTime.of(2025, 6, 2, 12, 30, 15, 123_456_000);
+
+    @Test
+    void write_ShouldReadBackWhatWasWritten() throws IOException {
+        Venue hall = new Venue(1L, "Hall", "Main Street 1", 500, 52.52, 13.40, null);
+        // no coordinates, and a name that isn't ASCII
+        Venue club = new Venue(2L, "Café Zürich", "Nebenstraße 2", 80, null);
+        Event concert = new Event(10L, "Concert", "loud", asOf.plusDays(1), asOf.plusDays(1).plusHours(2), hall);
+        Event reading = new Event(11L, "Reading", null, asOf.plusDays(2), asOf.plusDays(2).plusHours(1), club);
+        Path file = dir.resolve("state.bin");
+
+        SnapshotFile.write(file, new StateSnapshot(asOf, asOf.minusMinutes(1), List.of(hall, club), List.of(concert, reading)));
+        StateSnapshot read = SnapshotFile.read(file);
+
+        assertEquals(asOf, read.asOf());
+        assertEquals(asOf.minusMinutes(1), read.watermark());
+        assertEquals(List.of(hall, club), read.venues());
+        assertEquals(List.of(concert, reading), read.events());
+        // the events point at the venues in the list, not at copies
+        assertSame(read.venues().get(1), read.events().get(1).getVenue());
+    }
+
+    @Test
+    void write_ShouldReplaceTheOldFile() throws IOException {
+        Path file = dir.resolve("state.bin");
+        SnapshotFile.write(file, new StateSnapshot(asOf, asOf, List.of(), List.of()));
+        SnapshotFile.write(file, new StateSnapshot(asOf.plusHours(1), asOf, List.of(), List.of()));
+
+        assertEquals(asOf.plusHours(1), SnapshotFile.read(file).asOf());
+        // no temp files left behind
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    void read_ShouldRejectDamagedFiles() throws IOException {
+        Venue hall = new Venue(1L, "Hall", "Main Street 1", 500, null);
+        Path file = dir.resolve("state.bin");
+        SnapshotFile.write(file, new StateSnapshot(asOf, asOf, List.of(hall), List.of()));
+
+        // one flipped bit in the venue name
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[53] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IllegalStateException.class, () -> SnapshotFile.read(file));
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IllegalStateException.class, () -> SnapshotFile.read(file));
+    }
+}
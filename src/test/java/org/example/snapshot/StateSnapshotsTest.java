@@ -0,0 +1,173 @@
+package org.example.snapshot;
+
+import org.example.analytics.EventColumnarSnapshot;
+import org.example.cache.UpcomingEventsCache;
+import org.example.cache.VenueCapacityIndex;
+import org.example.cache.VenueGeoIndex;
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.repository.ArchivedEventRepository;
+import org.example.repository.EventRepository;
+import org.example.repository.VenueRepository;
+import org.example.resilience.DatabaseCircuitBreaker;
+import org.example.resilience.LastKnownGood;
+import org.example.service.EventService;
+import org.example.service.VenueService;
+import org.example.sharding.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * writes a snapshot of the running application's copy and restores it into a fresh one, as a
+ * restarted instance would. own database, no margin on the watermark, so exactly the rows
+ * written after the snapshot are the ones caught up
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:state_snapshots_test;DB_CLOSE_DELAY=-1",
+        "snapshot.enabled=true", "snapshot.file=target/state-snapshots-test/state.bin", "stale.catch-up-margin-ms=0"})
+@ActiveProfiles("h2")
+class StateSnapshotsTest {
+    private static final Path FILE = Path.of("target/state-snapshots-test/state.bin");
+
+    @Autowired
+    private StateSnapshots snapshots;
+
+    @Autowired
+    private LastKnownGood lastKnownGood;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private ArchivedEventRepository archivedEventRepository;
+
+    @Autowired
+    private DatabaseCircuitBreaker breaker;
+
+    @Autowired
+    private Clock clock;
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        Files.deleteIfExists(FILE);
+    }
+
+    @Test
+    void restore_ShouldCatchUpOnlyWithRowsWrittenAfterTheSnapshot() throws Exception {
+        Venue venue = venueService.createVenue(new Venue(null, "Snapshot Hall", "Street", 100, null));
+        LocalDateTime start = LocalDateTime.now().plusDays(3).withNano(0);
+        Event renamed = stored("Renamed", venue, start);
+        Event deleted = stored("Deleted", venue, start.plusDays(1));
+        Event untouched = stored("Untouched", venue, start.plusDays(2));
+
+        // bring the copy up to date, that moves its watermark past the events above
+        lastKnownGood.requestCatchUp();
+        lastKnownGood.refresh();
+        snapshots.write();
+        assertTrue(Files.exists(FILE));
+        Thread.sleep(20);
+
+        // what happens while the instance is down
+        renamed.setName("Renamed Later");
+        eventService.updateEvent(renamed.getId(), renamed);
+        eventService.deleteEvent(deleted.getId());
+        Event created = stored("Created", venue, start.plusDays(3));
+
+        LastKnownGood restarted = new LastKnownGood(eventRepository, venueRepository, ShardRouter.single(), breaker, clock);
+        int caughtUp = restarted.restore(SnapshotFile.read(FILE));
+
+        // the update and the insert, the delete only shows up in the id scan
+        assertEquals(2, caughtUp);
+        assertEquals(List.of("Renamed Later", "Untouched", "Created"), restarted.eventsBetween(start, start.plusDays(3))
+                .stream().filter(event -> event.getVenue().getId().equals(venue.getId())).map(Event::getName).toList());
+        assertThrows(RuntimeException.class, () -> restarted.event(deleted.getId()));
+        assertEquals("Snapshot Hall", restarted.event(untouched.getId()).getVenue().getName());
+        assertEquals(created.getId(), restarted.event(created.getId()).getId());
+        assertTrue(restarted.isLoaded());
+    }
+
+    @Test
+    void restore_ShouldRefreshEventsAtChangedVenues() throws Exception {
+        Venue venue = venueService.createVenue(new Venue(null, "Old Name", "Street", 100, null));
+        Event event = stored("Gig", venue, LocalDateTime.now().plusDays(5).withNano(0));
+
+        lastKnownGood.requestCatchUp();
+        lastKnownGood.refresh();
+        snapshots.write();
+        Thread.sleep(20);
+
+        venue.setName("New Name");
+        venueService.updateVenue(venue.getId(), venue);
+
+        LastKnownGood restarted = new LastKnownGood(eventRepository, venueRepository, ShardRouter.single(), breaker, clock);
+        restarted.restore(SnapshotFile.read(FILE));
+
+        assertEquals("New Name", restarted.venue(venue.getId()).getName());
+        // the event itself wasn't written, it is re-read for its venue
+        assertEquals("New Name", restarted.event(event.getId()).getVenue().getName());
+    }
+
+    @Test
+    void restore_ShouldSeedTheIndexesAndCachesWithTheCaughtUpCopy() throws Exception {
+        Venue venue = new Venue(null, "Seeded Hall", "Street", 250, null);
+        venue.setLatitude(52.52);
+        venue.setLongitude(13.40);
+        venue = venueService.createVenue(venue);
+        Event before = stored("Before", venue, LocalDateTime.now().plusDays(1).withNano(0));
+
+        lastKnownGood.requestCatchUp();
+        lastKnownGood.refresh();
+        snapshots.write();
+        Thread.sleep(20);
+        // written while the instance is down, only the catch-up brings it in
+        Event after = stored("After", venue, LocalDateTime.now().plusDays(2).withNano(0));
+
+        // a restarted instance: nothing loaded, the first scheduled refresh hasn't run
+        ShardRouter router = ShardRouter.single();
+        VenueCapacityIndex capacityIndex = new VenueCapacityIndex(venueRepository, router);
+        VenueGeoIndex geoIndex = new VenueGeoIndex(venueRepository, router, 0.1);
+        UpcomingEventsCache upcoming = new UpcomingEventsCache(eventRepository, clock, router);
+        ReflectionTestUtils.setField(upcoming, "windowDays", 7);
+        EventColumnarSnapshot columnar = new EventColumnarSnapshot(eventRepository, archivedEventRepository, router);
+        StateSnapshots restarted = new StateSnapshots(new LastKnownGood(eventRepository, venueRepository, router, breaker, clock),
+                capacityIndex, geoIndex, upcoming, columnar);
+        ReflectionTestUtils.setField(restarted, "file", FILE);
+
+        assertTrue(restarted.restore());
+
+        assertTrue(capacityIndex.isLoaded() && geoIndex.isLoaded() && upcoming.isLoaded());
+        assertEquals(250, capacityIndex.get(venue.getId()).getCapacity());
+        assertEquals(venue.getId(), geoIndex.nearest(52.52, 13.40, 1, 250).get(0).venue().getId());
+        assertEquals("Before", upcoming.get(before.getId()).getName());
+        assertEquals("After", upcoming.get(after.getId()).getName());
+        assertEquals(eventRepository.count() + archivedEventRepository.count(), columnar.current().size());
+        // seeded means loaded, the warm-up's forced refresh doesn't load them again
+        assertFalse(capacityIndex.seed(List.of()));
+        assertFalse(upcoming.seed(List.of()));
+    }
+
+    private Event stored(String name, Venue venue, LocalDateTime start) {
+        return eventService.createEvent(new Event(null, name, null, start, start.plusHours(2), venue));
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.sqllog;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * the writer thread is not started here, the tests drain the ring themselves
+ */
+class SqlLogTest {
+
+    @Test
+    void report_ShouldGroupStatementsByShape() {
+        SqlLog sqlLog = new SqlLog(0, 100, 16, 1000);
+        // same query with different literals, plus one slow statement of another shape
+        sqlLog.record("select * from venues where id = 1", 2_000_000, 0, 0, false);
+        sqlLog.record("select * from venues  where id = 22", 4_000_000, 0, 0, false);
+        sqlLog.record("select * from events where name = 'x' and venue_id in (?, ?, ?)", 150_000_000, 3, 0, false);
+        sqlLog.drain();
+
+        SqlLog.Report report = sqlLog.report(10);
+
+        assertEquals(3, report.statements());
+        assertEquals(1, report.slowStatements());
+        assertEquals(2, report.shapes());
+        // slowest first
+        SqlLog.QueryShape slowest = report.slowest().get(0);
+        assertEquals("select * from events where name = ? and venue_id in (?...)", slowest.shape());
+        assertEquals(3.0, slowest.meanBindParameters());
+        SqlLog.QueryShape venues = report.slowest().get(1);
+        assertEquals("select * from venues where id = ?", venues.shape());
+        assertEquals(2, venues.count());
+        assertEquals(3.0, venues.meanMs(), 0.001);
+        assertEquals(4.0, venues.maxMs(), 0.001);
+    }
+
+    @Test
+    void report_ShouldRejectNonPositiveLimit() {
+        SqlLog sqlLog = new SqlLog(0, 100, 16, 1000);
+
+        assertThrows(IllegalArgumentException.class, () -> sqlLog.report(0));
+        assertThrows(IllegalArgumentException.class, () -> sqlLog.report(-1));
+    }
+
+    @Test
+    void record_ShouldDropWhenRingIsFull() {
+        // nobody drains, so only the first 4 fit
+        SqlLog sqlLog = new SqlLog(0, 100, 4, 1000);
+        for (int i = 0; i < 10; i++) {
+            sqlLog.record("select 1", 1000, 0, 0, false);
+        }
+        assertEquals(4, sqlLog.drain());
+        assertEquals(6, sqlLog.report(10).dropped());
+
+        // drained slots can be used again
+        sqlLog.record("select 1", 1000, 0, 0, false);
+        assertEquals(1, sqlLog.drain());
+    }
+
+    @Test
+    void sqlLoggingDataSource_ShouldTimeStatementsAndBatches() {
+        SqlLog sqlLog = new SqlLog(0, 100, 64, 1000);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SqlLoggingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:sql_log_test;DB_CLOSE_DELAY=-1", "sa", ""), sqlLog));
+
+        jdbcTemplate.execute("CREATE TABLE rooms (id INT, name VARCHAR(20))");
+        jdbcTemplate.batchUpdate("INSERT INTO rooms (id, name) VALUES (?, ?)",
+                List.of(new Object[]{1, "a"}, new Object[]{2, "b"}, new Object[]{3, "c"}));
+        jdbcTemplate.queryForList("SELECT name FROM rooms WHERE id > ?", String.class, 1);
+        sqlLog.drain();
+
+        SqlLog.Report report = sqlLog.report(10);
+        assertEquals(3, report.statements(), "create, one batch and one query");
+        SqlLog.QueryShape insert = report.slowest().stream()
+                .filter(shape -> shape.shape().startsWith("INSERT")).findFirst().orElseThrow();
+        assertEquals(1, insert.count(), "a batch is timed as one execution");
+        assertEquals(2.0, insert.meanBindParameters());
+    }
+}
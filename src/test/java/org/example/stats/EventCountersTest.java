@@ -0,0 +1,166 @@
+package org.example.stats;
+
+import org.example.entity.Booking;
+import org.example.entity.Event;
+import org.example.entity.Venue;
+import org.example.service.BookingService;
+import org.example.service.EventService;
+import org.example.service.VenueService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * counts against the embedded H2 database. the scheduled flush is pushed far out, the tests flush by hand
+ */
+@SpringBootTest(properties = "stats.flush-ms=3600000")
+@ActiveProfiles("h2")
+class EventCountersTest {
+    @Autowired
+    private EventCounters eventCounters;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Event event;
+
+    @BeforeEach
+    void setUp() {
+        Venue venue = venueService.createVenue(new Venue(null, "Stats Hall", "Street", 1, null));
+        LocalDateTime start = LocalDateTime.now().plusDays(10);
+        event = eventService.createEvent(new Event(null, "Counted Gig", null, start, start.plusHours(2), venue));
+    }
+
+    @Test
+    void counts_ShouldAddPendingToStoredCounts() {
+        for (int i = 0; i < 3; i++) {
+            eventCounters.increment(event.getId(), EventCounter.VIEWS);
+        }
+        // nothing written yet, all of it pending
+        assertEquals(0, storedViews());
+        assertEquals(3, eventCounters.counts(event.getId()).views());
+
+        eventCounters.flush();
+        assertEquals(3, storedViews());
+        eventCounters.increment(event.getId(), EventCounter.VIEWS);
+        eventCounters.increment(event.getId(), EventCounter.VIEWS);
+        assertEquals(5, eventCounters.counts(event.getId()).views());
+
+        // the second flush adds to the row instead of inserting it again
+        eventCounters.flush();
+        assertEquals(5, storedViews());
+        assertEquals(5, eventCounters.counts(event.getId()).views());
+    }
+
+    @Test
+    void flush_ShouldNotLoseIncrementsRacingWithIt() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> counting = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            counting.add(executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    eventCounters.increment(event.getId(), EventCounter.VIEWS);
+                }
+            }));
+        }
+        // flushes while the threads are still counting
+        while (counting.stream().anyMatch(future -> !future.isDone())) {
+            eventCounters.flush();
+        }
+        for (Future<?> future : counting) {
+            future.get();
+        }
+        executor.shutdown();
+        eventCounters.flush();
+
+        assertEquals(160_000, storedViews());
+        assertEquals(160_000, eventCounters.counts(event.getId()).views());
+    }
+
+    @Test
+    void flush_ShouldEvictIdleEventsAndKeepCounting() {
+        long evictAfterMs = (long) ReflectionTestUtils.getField(eventCounters, "evictAfterMs");
+        // everything written and not counted since is idle right away
+        ReflectionTestUtils.setField(eventCounters, "evictAfterMs", 0L);
+        try {
+            eventCounters.increment(event.getId(), EventCounter.VIEWS);
+            eventCounters.increment(event.getId(), EventCounter.VIEWS);
+            eventCounters.flush();
+            assertEquals(2, storedViews());
+            assertEquals(0, eventCounters.tracked());
+            assertEquals(2, eventCounters.counts(event.getId()).views());
+
+            // a new entry which finds the row the evicted one wrote
+            eventCounters.increment(event.getId(), EventCounter.VIEWS);
+            assertEquals(1, eventCounters.tracked());
+            assertEquals(3, eventCounters.counts(event.getId()).views());
+            eventCounters.flush();
+            eventCounters.flush();
+            assertEquals(3, storedViews());
+            assertEquals(3, eventCounters.counts(event.getId()).views());
+        } finally {
+            ReflectionTestUtils.setField(eventCounters, "evictAfterMs", evictAfterMs);
+        }
+    }
+
+    @Test
+    void bookings_ShouldBeCountedOnceCommitted() {
+        Booking ann = bookingService.book(event.getId(), "ann").booking();
+        // sold out, bob waits and isn't counted until he gets ann's seat
+        bookingService.book(event.getId(), "bob");
+        assertEquals(1, eventCounters.counts(event.getId()).bookings());
+
+        bookingService.cancelBooking(event.getId(), ann.getId());
+
+        EventCounts counts = eventCounters.counts(event.getId());
+        assertEquals(2, counts.bookings());
+        assertEquals(1, counts.cancellations());
+        // a failed cancel changes nothing
+        assertThrows(RuntimeException.class, () -> bookingService.cancelBooking(event.getId(), ann.getId()));
+        assertEquals(1, eventCounters.counts(event.getId()).cancellations());
+    }
+
+    @Test
+    void deleteEvent_ShouldDropItsStats() {
+        eventCounters.increment(event.getId(), EventCounter.VIEWS);
+        eventCounters.flush();
+        assertEquals(1, rows());
+
+        eventService.deleteEvent(event.getId());
+        eventCounters.flush();
+
+        assertEquals(0, rows());
+        assertEquals(new EventCounts(event.getId(), 0, 0, 0), eventCounters.counts(event.getId()));
+    }
+
+    private long storedViews() {
+        List<Long> views = jdbcTemplate.queryForList("SELECT views FROM event_stats WHERE event_id = ?", Long.class, event.getId());
+        return views.isEmpty() ? 0 : views.get(0);
+    }
+
+    private int rows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM event_stats WHERE event_id = ?", Integer.class, event.getId());
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * plain unit tests for the load driver helpers, no spring context needed
+ */
+class LatencyStatsTest {
+
+    @Test
+    void percentile_ShouldUseNearestRank() {
+        LatencyStats stats = new LatencyStats();
+        // record 1..1000 in reverse order so sorting is actually exercised
+        for (int i = 1000; i >= 1; i--) {
+            stats.record(i);
+        }
+
+        assertEquals(1000, stats.count());
+        assertEquals(500, stats.percentile(0.50));
+        assertEquals(990, stats.percentile(0.99));
+        assertEquals(999, stats.percentile(0.999));
+    }
+
+    @Test
+    void merge_ShouldCombineSamplesAndErrors() {
+        LatencyStats first = new LatencyStats();
+        first.record(10);
+        first.recordError();
+        LatencyStats second = new LatencyStats();
+        second.record(20);
+        second.record(30);
+
+        first.merge(second);
+
+        assertEquals(3, first.count());
+        assertEquals(1, first.errors());
+        assertEquals(30, first.percentile(1.0));
+    }
+
+    @Test
+    void percentile_ShouldReturnZero_WhenEmpty() {
+        assertEquals(0, new LatencyStats().percentile(0.99));
+    }
+
+    @Test
+    void zipfSampler_ShouldFavourLowRanks() {
+        DatasetSeeder.ZipfSampler sampler = new DatasetSeeder.ZipfSampler(1000, 1.1);
+        SplittableRandom random = new SplittableRandom(7);
+        int[] hits = new int[1000];
+        for (int i = 0; i < 100_000; i++) {
+            hits[sampler.sample(random)]++;
+        }
+
+        // the most popular venue should get far more events than one in the tail
+        assertTrue(hits[0] > 20 * hits[500], "rank 0 should dominate the tail");
+    }
+}
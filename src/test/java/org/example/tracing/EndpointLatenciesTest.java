@@ -0,0 +1,58 @@
+package org.example.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointLatenciesTest {
+    private final EndpointLatencies latencies = new EndpointLatencies();
+    private final RequestTrace trace = RequestTrace.current();
+
+    @Test
+    void report_ShouldGroupByMethodAndPattern() {
+        // 100 requests of 1..100 ms to one endpoint, one slow request to another
+        for (int i = 1; i <= 100; i++) {
+            record("GET", "/api/events/{id}", i * 1_000_000L);
+        }
+        record("DELETE", "/api/events/{id}", 500_000_000L);
+
+        List<EndpointLatencies.EndpointReport> reports = latencies.report();
+
+        assertEquals(2, reports.size());
+        // slowest p99 first
+        assertEquals("DELETE /api/events/{id}", reports.get(0).endpoint());
+        EndpointLatencies.EndpointReport get = reports.get(1);
+        assertEquals(100, get.requests());
+        assertEquals(50, get.phases().get("total").p50(), 0.1);
+        assertEquals(99, get.phases().get("total").p99(), 0.1);
+        // all of the time was spent in the service
+        assertEquals(50, get.phases().get("service").p50(), 0.1);
+        assertEquals(0, get.phases().get("repository").max());
+    }
+
+    @Test
+    void report_ShouldKeepTheWindowUntilReset() {
+        record("GET", "/api/venues", 1_000_000L);
+        latencies.report();
+        record("GET", "/api/venues", 2_000_000L);
+
+        // the second dump still includes the first request
+        assertEquals(2, latencies.report().get(0).requests());
+
+        latencies.reset();
+        record("GET", "/api/venues", 3_000_000L);
+        EndpointLatencies.EndpointReport report = latencies.report().get(0);
+        assertEquals(1, report.requests());
+        assertEquals(3, report.phases().get("total").max(), 0.01);
+    }
+
+    private void record(String method, String pattern, long serviceNanos) {
+        trace.start(0);
+        trace.enter(Phase.SERVICE, 0);
+        trace.exit(serviceNanos);
+        trace.finish(serviceNanos);
+        latencies.record(method, pattern, trace);
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.tracing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * drives a trace with made-up timestamps (in nanoseconds) and checks where the time went
+ */
+class RequestTraceTest {
+    private final RequestTrace trace = RequestTrace.current();
+
+    @AfterEach
+    void tearDown() {
+        trace.finish(0);
+    }
+
+    @Test
+    void enter_ShouldChargeOnlyTheInnermostPhase() {
+        trace.start(0);
+        trace.enter(Phase.SERVICE, 10);       // controller 0..10
+        trace.enter(Phase.REPOSITORY, 15);    // service 10..15
+        trace.exit(45);                       // repository 15..45
+        trace.exit(50);                       // service 45..50
+        trace.switchTo(Phase.SERIALIZATION, 60); // controller 50..60
+        trace.finish(70);                     // serialization 60..70
+
+        assertEquals(20, trace.phaseNanos(Phase.CONTROLLER));
+        assertEquals(10, trace.phaseNanos(Phase.SERVICE));
+        assertEquals(30, trace.phaseNanos(Phase.REPOSITORY));
+        assertEquals(10, trace.phaseNanos(Phase.SERIALIZATION));
+        assertEquals(70, trace.totalNanos());
+        assertFalse(trace.isActive());
+    }
+
+    @Test
+    void start_ShouldForgetThePreviousRequest() {
+        trace.start(0);
+        trace.enter(Phase.SERVICE, 0);
+        trace.finish(100);
+
+        // same thread, next request
+        trace.start(200);
+        trace.finish(250);
+
+        assertEquals(0, trace.phaseNanos(Phase.SERVICE));
+        assertEquals(50, trace.phaseNanos(Phase.CONTROLLER));
+    }
+
+    @Test
+    void enter_ShouldSurviveVeryDeepNesting() {
+        // deeper than the stack, e.g. a recursive service
+        trace.start(0);
+        for (int i = 0; i < 100; i++) {
+            trace.enter(Phase.SERVICE, i);
+        }
+        for (int i = 0; i < 100; i++) {
+            trace.exit(100 + i);
+        }
+        trace.finish(300);
+
+        // the calls beyond the stack are not tracked, so the service ends with the last tracked exit at 199
+        assertEquals(300, trace.totalNanos());
+        assertEquals(199, trace.phaseNanos(Phase.SERVICE));
+        assertEquals(101, trace.phaseNanos(Phase.CONTROLLER), "back in the controller after the last exit");
+    }
+
+    @Test
+    void resume_ShouldChargeTheTimeAwayAsAsync() {
+        // the first dispatch hands the work to another thread and returns
+        trace.start(0);
+        trace.enter(Phase.SERVICE, 10);        // controller 0..10
+        trace.exit(20);                        // service 10..20
+        RequestTrace detached = trace.detach(25); // controller 20..25
+        assertFalse(trace.isActive(), "the thread is free for other requests");
+
+        // the thread serves something else in between
+        trace.start(30);
+        trace.finish(40);
+
+        // the dispatch that writes the response
+        trace.resume(detached, 100);           // async 25..100
+        trace.switchTo(Phase.SERIALIZATION, 105); // controller 100..105
+        trace.finish(110);                     // serialization 105..110
+
+        assertEquals(20, trace.phaseNanos(Phase.CONTROLLER));
+        assertEquals(10, trace.phaseNanos(Phase.SERVICE));
+        assertEquals(75, trace.phaseNanos(Phase.ASYNC));
+        assertEquals(5, trace.phaseNanos(Phase.SERIALIZATION));
+        assertEquals(110, trace.totalNanos());
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.warmup;
+
+import org.example.cache.UpcomingEventsCache;
+import org.example.cache.VenueCapacityIndex;
+import org.example.tracing.EndpointLatencies;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * starts the application on a real port, so the warm-up has a server to send its requests to.
+ * the runner is done before the context is handed to the test, like it is before readiness goes up
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.datasource.url=jdbc:h2:mem:startup_warmup_test;DB_CLOSE_DELAY=-1",
+                "warmup.requests=40", "warmup.threads=2"})
+@ActiveProfiles("h2")
+class StartupWarmupTest {
+    @Autowired
+    private StartupWarmup warmup;
+
+    @Autowired
+    private VenueCapacityIndex capacityIndex;
+
+    @Autowired
+    private UpcomingEventsCache upcomingEventsCache;
+
+    @Autowired
+    private EndpointLatencies latencies;
+
+    @Autowired
+    private ApplicationAvailability availability;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void run_ShouldLoadCachesAndSendRequestsBeforeReadiness() {
+        StartupWarmup.Report report = warmup.lastReport();
+
+        assertNotNull(report, "the warm-up should have run during startup");
+        assertTrue(report.cachesLoaded());
+        assertTrue(capacityIndex.isLoaded());
+        assertTrue(upcomingEventsCache.isLoaded());
+        // every synthetic request should have been answered, none of them failed
+        assertEquals(40, report.requests());
+        assertEquals(0, report.failed());
+        assertFalse(report.overBudget());
+    }
+
+    @Test
+    void run_ShouldKeepSyntheticRequestsOutOfTheLatencyStats() {
+        assertTrue(latencies.report().stream().noneMatch(endpoint -> endpoint.endpoint().contains("/api/events/upcoming")));
+    }
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    void readiness_ShouldBeUpOnceStarted() {
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, availability.getReadinessState());
+
+        ResponseEntity<Map> response = restTemplate.getForEntity("/api/health/readiness", Map.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("ACCEPTING_TRAFFIC", response.getBody().get("state"));
+    }
+}